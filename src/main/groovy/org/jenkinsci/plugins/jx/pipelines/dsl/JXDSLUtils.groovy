@@ -1,15 +1,19 @@
 package org.jenkinsci.plugins.jx.pipelines.dsl
 
-import groovy.json.JsonSlurper
-import groovy.transform.Canonical
 import hudson.model.TaskListener
 import io.fabric8.kubernetes.api.model.Namespace
-import io.fabric8.kubernetes.client.DefaultKubernetesClient
 import io.fabric8.kubernetes.client.KubernetesClient
-import io.fabric8.openshift.client.DefaultOpenShiftClient
 import io.fabric8.openshift.client.OpenShiftClient
 import jenkins.model.Jenkins
 import org.apache.commons.lang.exception.ExceptionUtils
+import org.jenkinsci.plugins.jx.pipelines.AsyncLogger
+import org.jenkinsci.plugins.jx.pipelines.KubernetesClients
+import org.jenkinsci.plugins.jx.pipelines.github.GitHubClient
+import org.jenkinsci.plugins.jx.pipelines.github.GitHubRateLimitException
+import org.jenkinsci.plugins.jx.pipelines.github.GitHubRateLimiter.Priority
+import org.jenkinsci.plugins.jx.pipelines.github.GitHubResponse
+import org.jenkinsci.plugins.jx.pipelines.repository.ArtifactAvailabilityChecker
+import org.jenkinsci.plugins.jx.pipelines.repository.ArtifactCoordinates
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted
 import org.jenkinsci.plugins.workflow.cps.CpsFlowExecution
 import org.jenkinsci.plugins.workflow.cps.CpsThread
@@ -45,6 +49,27 @@ class JXDSLUtils {
         return listener
     }
 
+    /**
+     * Returns the logger for the console of the current run which writes asynchronously and caches the listener
+     */
+    @Nonnull
+    static AsyncLogger getLogger() {
+        return AsyncLogger.forExecution(getCpsThread().getExecution())
+    }
+
+    /**
+     * Writes any messages buffered by {@link #getLogger()}. Steps such as <code>sh</code>, <code>container</code> and
+     * the pipeline's <code>echo</code> write to the console synchronously so this should be called before invoking
+     * them to keep the console output in order.
+     */
+    @Whitelisted
+    static void flushLogger() {
+        CpsThread thread = CpsThread.current()
+        if (thread != null) {
+            AsyncLogger.forExecution(thread.getExecution()).flush()
+        }
+    }
+
     /**
      * Echoes the given message to the general Jenkins console for the run. Note that this will not prepend with the current
      * parallel branch, unlike the echo step, so we may end up wanting to revert to using the echo step.
@@ -53,7 +78,7 @@ class JXDSLUtils {
      */
     @Whitelisted
     static void echo(String msg) {
-        getListener().getLogger().println(msg)
+        getLogger().info(msg)
     }
 
     /**
@@ -64,7 +89,7 @@ class JXDSLUtils {
      */
     @Whitelisted
     static boolean deleteNamespace(@Nonnull String name) {
-        KubernetesClient kubernetes = new DefaultKubernetesClient()
+        KubernetesClient kubernetes = KubernetesClients.getKubernetesClient()
         try {
             Namespace namespace = kubernetes.namespaces().withName(name).get()
             if (namespace != null) {
@@ -88,7 +113,7 @@ class JXDSLUtils {
 
     @Whitelisted
     static boolean isOpenShift() {
-        return new DefaultOpenShiftClient().isAdaptable(OpenShiftClient.class)
+        return KubernetesClients.getOpenShiftClient().isAdaptable(OpenShiftClient.class)
     }
 
     @Whitelisted
@@ -138,22 +163,12 @@ class JXDSLUtils {
         groupId = removeTrailingSlash(groupId)
         artifactId = removeTrailingSlash(artifactId)
 
-        def url = new URL("${repo}/${groupId}/${artifactId}/${version}/${artifactId}-${version}.${ext}")
-        HttpURLConnection connection = url.openConnection()
-
-        connection.setRequestMethod("GET")
-        connection.setDoInput(true)
-
-        try {
-            connection.connect()
-            new InputStreamReader(connection.getInputStream(), "UTF-8")
+        String url = "${repo}/${groupId}/${artifactId}/${version}/${artifactId}-${version}.${ext}"
+        if (new ArtifactAvailabilityChecker(repo, 1).isAvailable(url)) {
             return true
-        } catch (FileNotFoundException e1) {
-            echo("File not yet available: ${url.toString()}")
-            return false
-        } finally {
-            connection.disconnect()
         }
+        echo("File not yet available: ${url}")
+        return false
     }
 
     @Whitelisted
@@ -162,24 +177,21 @@ class JXDSLUtils {
         path = removeTrailingSlash(path)
         version = removeTrailingSlash(version)
 
-        def url = new URL("${repo}/${path}/${version}/${artifact}")
-
-        HttpURLConnection connection = url.openConnection()
-
-        connection.setRequestMethod("GET")
-        connection.setDoInput(true)
-
-        try {
-            connection.connect()
-            new InputStreamReader(connection.getInputStream(), "UTF-8")
-            echo("File is available at: ${url.toString()}")
+        String url = "${repo}/${path}/${version}/${artifact}"
+        if (new ArtifactAvailabilityChecker(repo, 1).isAvailable(url)) {
+            echo("File is available at: ${url}")
             return true
-        } catch (FileNotFoundException e1) {
-            echo("File not yet available: ${url.toString()}")
-            return false
-        } finally {
-            connection.disconnect()
         }
+        echo("File not yet available: ${url}")
+        return false
+    }
+
+    /**
+     * Checks the given artifacts in parallel returning those which are not yet available in the repository
+     */
+    @Whitelisted
+    static List<ArtifactCoordinates> findMissingArtifacts(String repo, List<ArtifactCoordinates> artifacts, int parallelism) {
+        return new ArtifactAvailabilityChecker(removeTrailingSlash(repo), parallelism).findMissing(artifacts)
     }
 
     @Whitelisted
@@ -196,48 +208,11 @@ class JXDSLUtils {
         }
     }
 
-    @Canonical
-    private static final class GitHubResponse implements Serializable {
-        private static final long serialVersionUID = 1
-
-        Object result
-        int responseCode
-        String responseMessage
-    }
-
     @Nonnull
-    private static GitHubResponse talkToGitHub(@Nonnull String method, @Nonnull String githubToken, @Nonnull URL apiUrl, String body = null) {
-        GitHubResponse resp = new GitHubResponse()
-        HttpURLConnection connection = apiUrl.openConnection()
-        if (githubToken.length() > 0) {
-            connection.setRequestProperty("Authorization", "Bearer ${githubToken}")
-        }
-        if (method == "PATCH") {
-            connection.setRequestProperty("X-HTTP-Method-Override", "PATCH");
-            connection.setRequestMethod("POST")
-        } else {
-            connection.setRequestMethod(method)
-        }
-        connection.setDoOutput(true)
-        connection.connect()
-
-        try {
-            if (body != null) {
-                OutputStreamWriter writer = new OutputStreamWriter(connection.getOutputStream())
-                writer.write(body)
-                writer.flush()
-            }
-            
-            // execute the POST request
-            resp.result = new JsonSlurper().parse(new InputStreamReader(connection.getInputStream(), "UTF-8"))
-            resp.responseCode = connection.responseCode
-            resp.responseMessage = connection.responseMessage
-        } finally {
-            connection.disconnect()
-        }
-        return resp
+    private static GitHubClient gitHub(String githubToken) {
+        return new GitHubClient(githubToken)
     }
-    
+
     @Whitelisted
     static String createPullRequest(String message, String project, String branch, String githubToken) throws Exception {
         def apiUrl = new URL("https://api.github.com/repos/${project}/pulls")
@@ -253,10 +228,13 @@ class JXDSLUtils {
 
         echo "sending body: ${body}\n"
 
-        def rs = talkToGitHub("POST", githubToken, apiUrl, body)
+        GitHubResponse rs = gitHub(githubToken).execute("POST", apiUrl.toString(), body, "number")
+        if (!rs.successful) {
+            throw new IllegalStateException("Failed to create PR for ${project}.  GitHub API Response code: ${rs.responseCode} ${rs.responseMessage}")
+        }
 
-        echo "Received PR id:  ${rs.result.number}"
-        return rs.result.number + ''
+        echo "Received PR id:  ${rs.getField('number')}"
+        return rs.getField('number')
 
     }
 
@@ -273,12 +251,12 @@ class JXDSLUtils {
     """
         echo "sending body: ${body}\n"
 
-        GitHubResponse rs = talkToGitHub("PATCH", githubToken, apiUrl, body)
+        GitHubResponse rs = gitHub(githubToken).execute("PATCH", apiUrl.toString(), body, "state")
         if (rs.responseCode != 200) {
             throw new IllegalStateException("${project} PR ${id} not merged.  ${rs.getResponseMessage()}")
 
         } else {
-            echo "${project} PR ${id} ${rs.result.message}"
+            echo "${project} PR ${id} ${rs.getField('state')}"
         }
     }
 
@@ -287,13 +265,13 @@ class JXDSLUtils {
         def apiUrl = new URL("https://api.github.com/repos/${project}/issues/${id}/comments")
         echo "getting comments for ${apiUrl}"
 
-        GitHubResponse rs = talkToGitHub("GET", githubToken, apiUrl)
+        GitHubResponse rs = gitHub(githubToken).executeForBody("GET", apiUrl.toString(), null)
 
-        if (rs.responseCode != 0 && rs.responseCode != 200) {
+        if (rs.responseCode != 200) {
             throw new IllegalStateException("Cannot get ${project} PR ${id} comments.  ${rs.getResponseMessage()}")
         }
 
-        return rs.result
+        return rs.body
     }
 
     @Whitelisted
@@ -302,32 +280,86 @@ class JXDSLUtils {
 
         GitHubResponse rs
         try {
-            rs = talkToGitHub("GET", githubToken, apiUrl)
+            rs = gitHub(githubToken).withPriority(Priority.LOW).execute("GET", apiUrl.toString(), null, "state")
+        } catch (GitHubRateLimitException e) {
+            throw e
         } catch (err) {
             echo "CI checks have not passed yet so waiting before merging"
         }
 
-        if (rs == null) {
+        if (rs == null || !rs.successful) {
             echo "Error getting commit status, are CI builds enabled for this PR?"
             return false
         }
-        if (rs != null && rs.result.state == 'success') {
+        def state = rs.getField('state')
+        if (state == 'success') {
             return true
         } else {
-            echo "Commit status is ${rs.result.state}.  Waiting to merge"
+            echo "Commit status is ${state}.  Waiting to merge"
             return false
         }
     }
 
+    /**
+     * Returns the <code>number</code>, <code>state</code>, <code>merged</code>, <code>head.ref</code> and <code>head.sha</code>
+     * of the given pull request or null if GitHub could not be reached or returned a transient error, so that a
+     * caller which is waiting can try again
+     */
+    @Whitelisted
+    static Map<String, String> getPullRequest(String project, id, String githubToken) {
+        def apiUrl = new URL("https://api.github.com/repos/${project}/pulls/${id}")
+        GitHubResponse rs
+        try {
+            rs = gitHub(githubToken).withPriority(Priority.LOW).execute("GET", apiUrl.toString(), null, "number", "state", "merged", "head.ref", "head.sha")
+        } catch (IOException err) {
+            echo "Could not get ${project} PR ${id} so will try again: ${err}"
+            return null
+        }
+        if (rs.transientError) {
+            echo "Could not get ${project} PR ${id} so will try again.  GitHub API Response code: ${rs.responseCode}"
+            return null
+        }
+        if (rs.responseCode != 200) {
+            throw new IllegalStateException("Cannot get ${project} PR ${id}.  GitHub API Response code: ${rs.responseCode}")
+        }
+        return new HashMap<String, String>(rs.fields)
+    }
+
+    /**
+     * Returns the combined status of the given commit such as <code>pending</code>, <code>success</code> or <code>failure</code>
+     * or null if GitHub could not be reached or returned a transient error
+     */
+    @Whitelisted
+    static String getCommitStatus(String project, String ref, String githubToken) {
+        def apiUrl = new URL("https://api.github.com/repos/${project}/commits/${ref}/status")
+        GitHubResponse rs
+        try {
+            rs = gitHub(githubToken).withPriority(Priority.LOW).execute("GET", apiUrl.toString(), null, "state")
+        } catch (IOException err) {
+            echo "Could not get the status of ${project} commit ${ref} so will try again: ${err}"
+            return null
+        }
+        if (rs.transientError) {
+            echo "Could not get the status of ${project} commit ${ref} so will try again.  GitHub API Response code: ${rs.responseCode}"
+            return null
+        }
+        if (rs.responseCode != 200) {
+            throw new IllegalStateException("Cannot get the status of ${project} commit ${ref}.  GitHub API Response code: ${rs.responseCode}")
+        }
+        return rs.getField('state')
+    }
+
     @Whitelisted
     static String getGithubBranch(project, id, String githubToken) {
         def apiUrl = new URL("https://api.github.com/repos/${project}/pulls/${id}")
 
         try {
-            GitHubResponse rs = talkToGitHub("GET", githubToken, apiUrl)
-            def branch = rs.result.head.ref
+            GitHubResponse rs = gitHub(githubToken).execute("GET", apiUrl.toString(), null, "head.ref")
+            def branch = rs.getField('head.ref')
             echo "${branch}"
             return branch
+        } catch (GitHubRateLimitException e) {
+            throw e
         } catch (err) {
             echo "Error while fetching the github branch"
         }
@@ -338,16 +370,16 @@ class JXDSLUtils {
         def apiUrl = new URL("https://api.github.com/repos/${project}/pulls/${id}/merge")
 
         // execute the request
-        GitHubResponse rs = talkToGitHub("PUT", githubToken, apiUrl)
+        GitHubResponse rs = gitHub(githubToken).withPriority(Priority.HIGH).execute("PUT", apiUrl.toString(), null, "message")
 
         if (rs.responseCode != 200) {
             if (rs.responseCode == 405) {
-                throw new IllegalStateException("${project} PR ${id} not merged.  ${rs.result.message}")
+                throw new IllegalStateException("${project} PR ${id} not merged.  ${rs.getField('message')}")
             } else {
                 throw new IllegalStateException("${project} PR ${id} not merged.  GitHub API Response code: ${rs.responseCode}")
             }
         } else {
-            echo "${project} PR ${id} ${rs.result.message}"
+            echo "${project} PR ${id} ${rs.getField('message')}"
         }
     }
 
@@ -357,16 +389,16 @@ class JXDSLUtils {
 
         def body = "{\"merge_method\":\"squash\"}"
 
-        def rs = talkToGitHub("POST", githubToken, apiUrl, body)
+        GitHubResponse rs = gitHub(githubToken).withPriority(Priority.HIGH).execute("PUT", apiUrl.toString(), body, "message")
 
         if (rs.responseCode != 200) {
             if (rs.responseCode == 405) {
-                throw new IllegalStateException("${project} PR ${id} not merged.  ${rs.result.message}")
+                throw new IllegalStateException("${project} PR ${id} not merged.  ${rs.getField('message')}")
             } else {
                 throw new IllegalStateException("${project} PR ${id} not merged.  GitHub API Response code: ${rs.responseCode}")
             }
         } else {
-            echo "${project} PR ${id} ${rs.result.message}"
+            echo "${project} PR ${id} ${rs.getField('message')}"
         }
     }
 
@@ -377,7 +409,7 @@ class JXDSLUtils {
 
         def body = "{\"body\":\"${comment}\"}"
 
-        talkToGitHub("POST", githubToken, apiUrl, body)
+        gitHub(githubToken).execute("POST", apiUrl.toString(), body)
     }
 
     @Whitelisted
@@ -387,7 +419,7 @@ class JXDSLUtils {
 
         def body = '{"body":"[merge]"}'
 
-        talkToGitHub("POST", githubToken, apiUrl, body)
+        gitHub(githubToken).execute("POST", apiUrl.toString(), body)
     }
 
     @Whitelisted
@@ -405,14 +437,11 @@ class JXDSLUtils {
         def apiUrl = new URL("https://api.github.com/repos/${project}/collaborators/${changeAuthor}")
 
         try {
-            GitHubResponse rs = talkToGitHub("GET", githubToken, apiUrl)
-            if (rs.responseCode != 200) {
-                return false
-            } else {
-                return true
-            }
-        } catch (FileNotFoundException e1) {
-            return false
+            GitHubResponse rs = gitHub(githubToken).execute("GET", apiUrl.toString(), null)
+            // GitHub returns 204 for a collaborator and 404 otherwise
+            return rs.successful
+        } catch (GitHubRateLimitException e) {
+            throw e
         } catch (Exception e) {
             throw new IllegalStateException("Error checking if user ${changeAuthor} is a collaborator on ${project}.")
         }
@@ -448,11 +477,12 @@ class JXDSLUtils {
     }
     '''
 
-        def rs = talkToGitHub("POST", githubToken, apiUrl, body)
-        
-        branchName = rs.result.head.ref
+        GitHubClient client = gitHub(githubToken)
+        GitHubResponse rs = client.execute("PATCH", apiUrl.toString(), body, "head.ref")
+
+        branchName = rs.getField('head.ref')
 
         apiUrl = new URL("https://api.github.com/repos/${project}/git/refs/heads/${branchName}")
-        talkToGitHub("DELETE", githubToken, apiUrl, body)
+        client.execute("DELETE", apiUrl.toString(), null)
     }
 }
@@ -0,0 +1,319 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import hudson.Extension;
+import hudson.init.Terminator;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowExecution;
+import org.jenkinsci.plugins.workflow.cps.CpsThread;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Logger} which appends messages to a bounded buffer which is drained by a background writer, so that
+ * chatty steps do not block the CPS thread on the build log; messages are written in batches followed by a single flush.
+ * <p>
+ * When the buffer is full the {@link OverflowPolicy} decides whether the caller waits for space or the message
+ * is dropped; dropped messages are counted and reported in the log. The CPS VM thread never waits as that would
+ * stop every pipeline on the controller, so its messages are dropped when the buffer is full whatever the policy. The defaults can be configured via the
+ * <code>org.jenkinsci.plugins.jx.pipelines.AsyncLogger.capacity</code> and
+ * <code>org.jenkinsci.plugins.jx.pipelines.AsyncLogger.overflowPolicy</code> system properties.
+ * <p>
+ * There is one logger per pipeline execution, see {@link #forExecution(CpsFlowExecution)}, which caches the
+ * {@link TaskListener} of the run and is flushed and closed when the run completes.
+ */
+public class AsyncLogger extends Logger implements Closeable {
+    public static final int DEFAULT_CAPACITY = Integer.getInteger(AsyncLogger.class.getName() + ".capacity", 1024);
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.valueOf(System.getProperty(AsyncLogger.class.getName() + ".overflowPolicy", OverflowPolicy.BLOCK.name()));
+
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final Map<CpsFlowExecution, AsyncLogger> EXECUTION_LOGGERS = new WeakHashMap<>();
+    private static ExecutorService executor;
+
+    private final PrintStream out;
+    private final BlockingQueue<String> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong unreportedDrops = new AtomicLong();
+    private final Object writeLock = new Object();
+    private volatile boolean closed;
+
+    public enum OverflowPolicy {
+        /**
+         * Wait for the writer to make space in the buffer unless we are on the CPS VM thread
+         */
+        BLOCK,
+        /**
+         * Discard the message
+         */
+        DROP
+    }
+
+    public AsyncLogger(PrintStream out) {
+        this(out, DEFAULT_CAPACITY, DEFAULT_OVERFLOW_POLICY);
+    }
+
+    public AsyncLogger(PrintStream out, int capacity, OverflowPolicy overflowPolicy) {
+        super(out);
+        this.out = out;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Returns the logger for the build log of the given execution, creating it on first use
+     */
+    public static AsyncLogger forExecution(CpsFlowExecution execution) {
+        synchronized (EXECUTION_LOGGERS) {
+            AsyncLogger logger = EXECUTION_LOGGERS.get(execution);
+            if (logger == null || logger.isClosed()) {
+                TaskListener listener = TaskListener.NULL;
+                try {
+                    TaskListener ownerListener = execution.getOwner().getListener();
+                    if (ownerListener != null) {
+                        listener = ownerListener;
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Can't get task listener for run: " + e, e);
+                }
+                logger = new AsyncLogger(listener.getLogger());
+                EXECUTION_LOGGERS.put(execution, logger);
+            }
+            return logger;
+        }
+    }
+
+    /**
+     * Returns the logger for the build log of the pipeline running on the current CPS thread or the default
+     * {@link Logger} if we are not on a CPS thread
+     */
+    public static Logger forCurrentExecution() {
+        CpsThread thread = CpsThread.current();
+        return thread != null ? forExecution(thread.getExecution()) : Logger.getInstance();
+    }
+
+    /**
+     * Flushes and closes the loggers of any executions which have completed
+     */
+    public static void closeCompleted() {
+        List<AsyncLogger> completed = new ArrayList<>();
+        synchronized (EXECUTION_LOGGERS) {
+            for (Iterator<Map.Entry<CpsFlowExecution, AsyncLogger>> iter = EXECUTION_LOGGERS.entrySet().iterator(); iter.hasNext(); ) {
+                Map.Entry<CpsFlowExecution, AsyncLogger> entry = iter.next();
+                if (entry.getKey().isComplete()) {
+                    completed.add(entry.getValue());
+                    iter.remove();
+                }
+            }
+        }
+        for (AsyncLogger logger : completed) {
+            logger.close();
+        }
+    }
+
+    @Override
+    public void info(String message) {
+        append(message);
+    }
+
+    @Override
+    public void warn(String message) {
+        append("WARNING: " + message);
+    }
+
+    @Override
+    public void warn(String message, Throwable t) {
+        append("WARN: " + message + " " + t + "\n" + stackTrace(t));
+    }
+
+    @Override
+    public void error(String message) {
+        append("ERROR: " + message);
+    }
+
+    @Override
+    public void error(Throwable t) {
+        append("ERROR: " + t + "\n" + stackTrace(t));
+    }
+
+    @Override
+    public void error(String message, Throwable t) {
+        append("ERROR: " + message + " " + t + "\n" + stackTrace(t));
+    }
+
+    /**
+     * Writes all the buffered messages
+     */
+    public void flush() {
+        drain();
+    }
+
+    /**
+     * Writes any buffered messages; messages logged after closing are written directly
+     */
+    @Override
+    public void close() {
+        closed = true;
+        drain();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the number of messages which were dropped as the buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    protected void append(String message) {
+        if (closed) {
+            synchronized (writeLock) {
+                out.println(message);
+            }
+            return;
+        }
+        boolean added = buffer.offer(message);
+        if (!added && overflowPolicy == OverflowPolicy.BLOCK && canBlock()) {
+            // make sure the writer is running before we wait for it
+            scheduleDrain();
+            try {
+                buffer.put(message);
+                added = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!added) {
+            dropped.incrementAndGet();
+            unreportedDrops.incrementAndGet();
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Returns false on the CPS VM thread as waiting for the writer there would stop every pipeline on the controller
+     */
+    protected boolean canBlock() {
+        return CpsThread.current() == null;
+    }
+
+    private void scheduleDrain() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                getExecutor().execute(this::backgroundDrain);
+            } catch (RuntimeException e) {
+                // the executor is shutting down so lets write the messages ourselves
+                scheduled.set(false);
+                drain();
+            }
+        }
+    }
+
+    private void backgroundDrain() {
+        while (true) {
+            drain();
+            scheduled.set(false);
+            if (buffer.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void drain() {
+        List<String> batch = new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+        synchronized (writeLock) {
+            while (buffer.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+                builder.setLength(0);
+                for (String message : batch) {
+                    builder.append(message).append(System.lineSeparator());
+                }
+                batch.clear();
+                out.print(builder);
+                out.flush();
+            }
+            long count = unreportedDrops.getAndSet(0);
+            if (count > 0) {
+                out.println("WARNING: dropped " + count + " log messages as the log buffer was full");
+                out.flush();
+            }
+        }
+    }
+
+    private static String stackTrace(Throwable t) {
+        StringWriter writer = new StringWriter();
+        t.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(new NamingThreadFactory(new DaemonThreadFactory(), "jx-pipelines logger"));
+        }
+        return executor;
+    }
+
+    @Terminator
+    public static void shutdown() {
+        ExecutorService old;
+        synchronized (AsyncLogger.class) {
+            old = executor;
+            executor = null;
+        }
+        if (old != null) {
+            old.shutdown();
+        }
+    }
+
+    /**
+     * Flushes the loggers of runs when they complete
+     */
+    @Extension
+    public static class RunCompletedListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onCompleted(Run<?, ?> run, TaskListener listener) {
+            closeCompleted();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.logging.Level;
+
+/**
+ * A controller wide snapshot of the shape of the cluster, such as how many nodes it has.
+ * <p>
+ * Rather than listing every node, which on a large cluster is a big download, we ask the API server for a
+ * single node with <code>limit=1</code>; if there are no more results (no <code>continue</code> token) then
+ * the cluster has a single node. API servers which report <code>remainingItemCount</code> give us the exact
+ * node count too. Older API servers which ignore the limit return the full list which we just count.
+ * <p>
+ * The snapshot is refreshed at most once per refresh period; if a refresh fails the previous snapshot is used.
+ */
+public class ClusterTopology {
+    private static final java.util.logging.Logger LOG = java.util.logging.Logger.getLogger(ClusterTopology.class.getName());
+
+    public static final long DEFAULT_REFRESH_MILLIS = Long.getLong(ClusterTopology.class.getName() + ".refreshMillis", 60 * 1000L);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static ClusterTopology instance;
+
+    private final OkHttpClient httpClient;
+    private final HttpUrl nodesUrl;
+    private final long refreshMillis;
+    private volatile Snapshot snapshot;
+
+    public ClusterTopology(OkHttpClient httpClient, String masterUrl, long refreshMillis) {
+        this.httpClient = httpClient;
+        HttpUrl url = HttpUrl.parse(masterUrl);
+        if (url == null) {
+            throw new IllegalArgumentException("Invalid kubernetes master URL: " + masterUrl);
+        }
+        this.nodesUrl = url.newBuilder().addPathSegments("api/v1/nodes").addQueryParameter("limit", "1").build();
+        this.refreshMillis = refreshMillis;
+    }
+
+    /**
+     * Returns the shared topology which uses the connections of {@link KubernetesClients#getKubernetesClient()}
+     */
+    public static synchronized ClusterTopology getInstance() {
+        if (instance == null) {
+            instance = new ClusterTopology(KubernetesClients.getHttpClient(), KubernetesClients.getKubernetesClient().getMasterUrl().toString(), DEFAULT_REFRESH_MILLIS);
+        }
+        return instance;
+    }
+
+    /**
+     * Discards the shared topology so that the next call to {@link #getInstance()} creates a new one
+     */
+    public static synchronized void reset() {
+        instance = null;
+    }
+
+    /**
+     * Returns true if the cluster has a single node
+     */
+    public boolean isSingleNode() {
+        return getSnapshot().isSingleNode();
+    }
+
+    /**
+     * Returns the number of nodes in the cluster, or a lower bound if the API server does not report the
+     * remaining item count
+     */
+    public long getNodeCount() {
+        return getSnapshot().getNodeCount();
+    }
+
+    /**
+     * Returns true if {@link #getNodeCount()} is the exact number of nodes rather than a lower bound
+     */
+    public boolean isNodeCountExact() {
+        return getSnapshot().isNodeCountExact();
+    }
+
+    /**
+     * Returns the current snapshot, loading a new one if it is older than the refresh period
+     */
+    public Snapshot getSnapshot() {
+        Snapshot answer = snapshot;
+        if (answer != null && currentTimeMillis() < answer.expires) {
+            return answer;
+        }
+        synchronized (this) {
+            answer = snapshot;
+            if (answer != null && currentTimeMillis() < answer.expires) {
+                return answer;
+            }
+            try {
+                answer = loadSnapshot();
+            } catch (IOException e) {
+                if (answer == null) {
+                    throw new FailedBuildException("Failed to query the nodes at " + nodesUrl + ": " + e, e);
+                }
+                LOG.log(Level.WARNING, "Failed to refresh the cluster topology so using the previous snapshot: " + e, e);
+                answer = new Snapshot(answer.nodeCount, answer.nodeCountExact, currentTimeMillis() + refreshMillis);
+            }
+            snapshot = answer;
+            return answer;
+        }
+    }
+
+    protected Snapshot loadSnapshot() throws IOException {
+        Request request = new Request.Builder().url(nodesUrl).get().build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code() + " " + response.message());
+            }
+            JsonNode tree = MAPPER.readTree(body.byteStream());
+            int items = tree.path("items").size();
+            JsonNode metadata = tree.path("metadata");
+            String continueToken = metadata.path("continue").asText("");
+            long nodeCount = items;
+            boolean exact = true;
+            if (!continueToken.isEmpty()) {
+                JsonNode remaining = metadata.path("remainingItemCount");
+                if (remaining.isNumber()) {
+                    nodeCount += remaining.asLong();
+                } else {
+                    // there is at least one more node but we do not know how many
+                    nodeCount++;
+                    exact = false;
+                }
+            }
+            return new Snapshot(nodeCount, exact, currentTimeMillis() + refreshMillis);
+        }
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public static class Snapshot {
+        private final long nodeCount;
+        private final boolean nodeCountExact;
+        private final long expires;
+
+        public Snapshot(long nodeCount, boolean nodeCountExact, long expires) {
+            this.nodeCount = nodeCount;
+            this.nodeCountExact = nodeCountExact;
+            this.expires = expires;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "nodeCount=" + nodeCount +
+                    ", nodeCountExact=" + nodeCountExact +
+                    '}';
+        }
+
+        public boolean isSingleNode() {
+            return nodeCount == 1;
+        }
+
+        public long getNodeCount() {
+            return nodeCount;
+        }
+
+        public boolean isNodeCountExact() {
+            return nodeCountExact;
+        }
+    }
+}
@@ -37,10 +37,11 @@ import java.util.concurrent.Callable;
 public abstract class CommandSupport implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private transient Logger logger = Logger.getInstance();
+    private transient Logger logger;
     private transient Map<String, String> env = createEnv();
     private transient ShellFacade shellFacade;
     private transient FileReadFacade fileReadFacade;
+    private PollingPolicy pollingPolicy;
     private File currentDir = new File(".");
     private String containerName;
 
@@ -52,6 +53,7 @@ public abstract class CommandSupport implements Serializable {
         setShellFacade(parent.getShellFacade());
         setCurrentDir(parent.getCurrentDir());
         setFileReadFacade(parent.getFileReadFacade());
+        setPollingPolicy(parent.pollingPolicy);
     }
 
 
@@ -131,7 +133,7 @@ public abstract class CommandSupport implements Serializable {
         if (shell == null) {
             throw new IllegalArgumentException("No shellFacade has been injected into " + this + " so cannot invoke sh(" + command + ")");
         }
-        String answer = shell.apply(command, false, this.containerName);
+        String answer = shell.apply(command, true, this.containerName);
         if (answer == null) {
             return "";
         }
@@ -146,7 +148,7 @@ public abstract class CommandSupport implements Serializable {
         if (shell == null) {
             throw new IllegalArgumentException("No shellFacade has been injected into " + this + " so cannot invoke sh(" + command + ") in container " + containerName);
         }
-        String answer = shell.apply(command, false, containerName);
+        String answer = shell.apply(command, true, containerName);
         if (answer == null) {
             return "";
         }
@@ -154,21 +156,57 @@ public abstract class CommandSupport implements Serializable {
     }
 
     /**
-     * Retries the given block until
+     * Invokes the given commands as a single script, failing with a {@link ShellBatchException} on the first command which fails
+     */
+    public void shBatch(ShellBatch batch) {
+        containerShBatch(this.containerName, batch);
+    }
+
+    /**
+     * Invokes the given commands as a single script in the given container, failing with a {@link ShellBatchException}
+     * on the first command which fails
+     */
+    public void containerShBatch(String containerName, ShellBatch batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        ShellFacade shell = getShellFacade();
+        if (shell == null) {
+            throw new IllegalArgumentException("No shellFacade has been injected into " + this + " so cannot invoke " + batch + " in container " + containerName);
+        }
+        String output = shell.apply(batch.createScript(), true, containerName);
+        batch.checkOutput(output);
+    }
+
+    /**
+     * Retries the given block up to the given number of times backing off between attempts using the
+     * {@link #getPollingPolicy()}. This must not be called on the CPS VM thread; pipeline code should use the
+     * <code>retry</code> function of <code>CommonFunctions</code> which backs off with the <code>sleep</code> step
      *
-     * @param count
-     * @param block
-     * @param <T>
-     * @return
+     * @param count the maximum number of attempts
+     * @param block the block to invoke
+     * @param <T> the type of the result
+     * @return the result of the first successful invocation of the block
      */
     protected <T> T retry(int count, Callable<T> block) {
+        PollingPolicy policy = getPollingPolicy();
         Exception lastException = null;
         for (int i = 0; i < count; i++) {
             if (i > 0) {
-                getLogger().info("Retrying");
+                long delay = policy.getDelayMillis(i - 1);
+                getLogger().info("Retrying in " + delay + " millis");
+                try {
+                    policy.backOff(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new FailedBuildException("Interrupted while retrying", e);
+                }
             }
             try {
                 return block.call();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FailedBuildException("Interrupted while retrying", e);
             } catch (Exception e) {
                 lastException = e;
                 getLogger().error(e);
@@ -227,37 +265,36 @@ public abstract class CommandSupport implements Serializable {
      * Waits until the given criteria is true ignoring any exceptions that occur each time
      */
     public boolean waitUntil(Callable<Boolean> callable) {
-        return waitUntil(250, -1, callable);
+        return waitUntil(getPollingPolicy(), callable);
     }
 
     /**
-     * Waits until the given criteria is true ignoring any exceptions that occur each time
+     * Waits until the given criteria is true ignoring any exceptions that occur each time; starting with the given
+     * retry timeout between attempts and backing off from there
      */
     public boolean waitUntil(long retryTimeout, long maximumTimeout, Callable<Boolean> callable) {
-        long endTime = 0L;
-        if (maximumTimeout > 0) {
-            endTime = System.currentTimeMillis() + maximumTimeout;
-        }
-        while (true) {
-            Boolean value = null;
-            try {
-                value = callable.call();
-            } catch (Exception e) {
-                error("Failed waiting for condition", e);
-            }
-            if (value != null && value.booleanValue()) {
+        return waitUntil(getPollingPolicy().withInitialDelayMillis(retryTimeout).withTimeoutMillis(maximumTimeout), callable);
+    }
+
+    /**
+     * Waits until the given criteria is true ignoring any exceptions that occur each time, using the given policy
+     * to decide how long to wait between attempts and when to give up.
+     * <p>
+     * If the thread is interrupted, such as when the build is aborted, we stop waiting and fail the build. This must
+     * not be called on the CPS VM thread; pipeline code should use the <code>waitUntil</code> function of
+     * <code>CommonFunctions</code> which backs off with the <code>sleep</code> step
+     */
+    public boolean waitUntil(PollingPolicy policy, Callable<Boolean> callable) {
+        try {
+            if (policy.waitUntil(callable, e -> error("Failed waiting for condition", e))) {
                 return true;
             }
-            if (endTime > 0L && System.currentTimeMillis() > endTime) {
-                error("waitUntil timed out after " + maximumTimeout + " millis");
-                return false;
-            }
-            try {
-                Thread.sleep(retryTimeout);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FailedBuildException("Interrupted while waiting for condition", e);
         }
+        error("waitUntil timed out after " + policy.getTimeoutMillis() + " millis");
+        return false;
     }
 
 
@@ -285,9 +322,12 @@ public abstract class CommandSupport implements Serializable {
         setCurrentDir(new File(path));
     }
 
+    /**
+     * Returns the logger; defaulting to the console of the current run when invoked from a pipeline
+     */
     public Logger getLogger() {
         if (logger == null) {
-            logger = Logger.getInstance();
+            logger = AsyncLogger.forCurrentExecution();
         }
         return logger;
     }
@@ -324,6 +364,17 @@ public abstract class CommandSupport implements Serializable {
         this.shellFacade = shellFacade;
     }
 
+    public PollingPolicy getPollingPolicy() {
+        if (pollingPolicy == null) {
+            pollingPolicy = PollingPolicy.getDefault();
+        }
+        return pollingPolicy;
+    }
+
+    public void setPollingPolicy(PollingPolicy pollingPolicy) {
+        this.pollingPolicy = pollingPolicy;
+    }
+
     public FileReadFacade getFileReadFacade() {
         return fileReadFacade;
     }
@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+
+/**
+ * A controller wide cache of ConfigMaps keyed by namespace and name.
+ * <p>
+ * The first lookup of a ConfigMap does a GET and opens a watch on it; later lookups are served from memory
+ * and kept up to date by the watch events. A missing ConfigMap is cached too until the watch sees it created.
+ * The ConfigMap is loaded again after the resync period, or on the next lookup if the watch was closed.
+ * <p>
+ * To bound the number of open watches, entries which have not been looked up for the idle period are evicted
+ * and their watches closed; as is the least recently used entry when there are more than the maximum number of
+ * entries. These can be configured via the <code>.idleMillis</code> and <code>.maxEntries</code> system properties.
+ * <p>
+ * The returned ConfigMaps are shared between builds so callers must not modify them.
+ */
+public class ConfigMapCache {
+    private static final java.util.logging.Logger LOG = java.util.logging.Logger.getLogger(ConfigMapCache.class.getName());
+
+    public static final long DEFAULT_RESYNC_MILLIS = Long.getLong(ConfigMapCache.class.getName() + ".resyncMillis", 5 * 60 * 1000L);
+    public static final long DEFAULT_IDLE_MILLIS = Long.getLong(ConfigMapCache.class.getName() + ".idleMillis", 30 * 60 * 1000L);
+    public static final int DEFAULT_MAX_ENTRIES = Integer.getInteger(ConfigMapCache.class.getName() + ".maxEntries", 64);
+
+    private static ConfigMapCache instance;
+
+    private final KubernetesClient client;
+    private final long resyncMillis;
+    private final long idleMillis;
+    private final int maxEntries;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long nextSweep;
+
+    public ConfigMapCache(KubernetesClient client, long resyncMillis) {
+        this(client, resyncMillis, DEFAULT_IDLE_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    public ConfigMapCache(KubernetesClient client, long resyncMillis, long idleMillis, int maxEntries) {
+        this.client = client;
+        this.resyncMillis = resyncMillis;
+        this.idleMillis = idleMillis;
+        this.maxEntries = maxEntries;
+        this.nextSweep = System.currentTimeMillis() + idleMillis;
+    }
+
+    /**
+     * Returns the shared cache which uses the {@link KubernetesClients#getKubernetesClient()}
+     */
+    public static synchronized ConfigMapCache getInstance() {
+        if (instance == null) {
+            instance = new ConfigMapCache(KubernetesClients.getKubernetesClient(), DEFAULT_RESYNC_MILLIS);
+        }
+        return instance;
+    }
+
+    /**
+     * Closes the shared cache so that the next call to {@link #getInstance()} creates a new one
+     */
+    public static void reset() {
+        ConfigMapCache old;
+        synchronized (ConfigMapCache.class) {
+            old = instance;
+            instance = null;
+        }
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    /**
+     * Returns the ConfigMap with the given name in the given namespace or null if it does not exist
+     */
+    public ConfigMap get(String namespace, String name) {
+        Entry entry = entries.computeIfAbsent(namespace + "/" + name, key -> new Entry(namespace, name));
+        entry.lastAccess = System.currentTimeMillis();
+        ConfigMap answer = entry.get();
+        evict(entry.lastAccess);
+        return answer;
+    }
+
+    /**
+     * Returns the number of cached entries, each of which may have an open watch
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Closes the watches of the entries which have been idle for too long and of the least recently used entries
+     * while there are too many
+     */
+    protected void evict(long now) {
+        if (now >= nextSweep) {
+            nextSweep = now + Math.max(idleMillis / 2, 1L);
+            for (Entry entry : entries.values()) {
+                if (now - entry.lastAccess >= idleMillis) {
+                    remove(entry);
+                }
+            }
+        }
+        while (entries.size() > maxEntries) {
+            Entry oldest = null;
+            for (Entry entry : entries.values()) {
+                if (oldest == null || entry.lastAccess < oldest.lastAccess) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) {
+                break;
+            }
+            remove(oldest);
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (entries.remove(entry.namespace + "/" + entry.name, entry)) {
+            entry.evict();
+        }
+    }
+
+    /**
+     * Closes all the watches and discards the cached ConfigMaps
+     */
+    public void close() {
+        for (Entry entry : entries.values()) {
+            entry.close();
+        }
+        entries.clear();
+    }
+
+    private class Entry implements Watcher<ConfigMap> {
+        private final String namespace;
+        private final String name;
+        private volatile ConfigMap value;
+        private volatile long expires;
+        private volatile long lastAccess;
+        private boolean evicted;
+        private Watch watch;
+
+        Entry(String namespace, String name) {
+            this.namespace = namespace;
+            this.name = name;
+        }
+
+        ConfigMap get() {
+            if (System.currentTimeMillis() < expires) {
+                return value;
+            }
+            synchronized (this) {
+                if (System.currentTimeMillis() < expires) {
+                    return value;
+                }
+                if (watch == null && !evicted) {
+                    try {
+                        watch = client.configMaps().inNamespace(namespace).withName(name).watch(this);
+                    } catch (KubernetesClientException e) {
+                        LOG.log(Level.FINE, "Could not watch ConfigMap " + namespace + "/" + name + " so it will not be cached: " + e, e);
+                    }
+                }
+                value = client.configMaps().inNamespace(namespace).withName(name).get();
+                // without a watch we would not see changes so lets load it each time
+                expires = watch != null ? System.currentTimeMillis() + resyncMillis : 0L;
+                return value;
+            }
+        }
+
+        @Override
+        public void eventReceived(Action action, ConfigMap resource) {
+            switch (action) {
+                case ADDED:
+                case MODIFIED:
+                    value = resource;
+                    break;
+                case DELETED:
+                    value = null;
+                    break;
+                default:
+                    // lets reload on the next lookup
+                    expires = 0L;
+            }
+        }
+
+        @Override
+        public synchronized void onClose(KubernetesClientException cause) {
+            watch = null;
+            expires = 0L;
+        }
+
+        /**
+         * Closes the watch and stops a lookup which is still using this entry from opening another
+         */
+        synchronized void evict() {
+            evicted = true;
+            close();
+        }
+
+        synchronized void close() {
+            if (watch != null) {
+                Watch w = watch;
+                watch = null;
+                w.close();
+            }
+            expires = 0L;
+        }
+    }
+}
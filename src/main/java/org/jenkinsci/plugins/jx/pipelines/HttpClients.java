@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import hudson.init.Terminator;
+import okhttp3.OkHttpClient;
+import org.jenkinsci.plugins.jx.pipelines.metrics.StepMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the HTTP client used to talk to external services like GitHub and artifact repositories.
+ * <p>
+ * A single client is shared across the controller so that connections are pooled and kept alive between
+ * requests and builds; OkHttp negotiates HTTP/2 with servers that support it. Each request is counted by
+ * {@link StepMetrics}.
+ * The timeouts can be configured via the system properties:
+ * <ul>
+ * <li><code>org.jenkinsci.plugins.jx.pipelines.HttpClients.connectTimeoutMillis</code> defaults to 10 seconds</li>
+ * <li><code>org.jenkinsci.plugins.jx.pipelines.HttpClients.readTimeoutMillis</code> defaults to 30 seconds</li>
+ * <li><code>org.jenkinsci.plugins.jx.pipelines.HttpClients.writeTimeoutMillis</code> defaults to 30 seconds</li>
+ * </ul>
+ */
+public class HttpClients {
+    public static final long CONNECT_TIMEOUT_MILLIS = Long.getLong(HttpClients.class.getName() + ".connectTimeoutMillis", 10000L);
+    public static final long READ_TIMEOUT_MILLIS = Long.getLong(HttpClients.class.getName() + ".readTimeoutMillis", 30000L);
+    public static final long WRITE_TIMEOUT_MILLIS = Long.getLong(HttpClients.class.getName() + ".writeTimeoutMillis", 30000L);
+
+    private static OkHttpClient httpClient;
+
+    /**
+     * Returns the shared HTTP client; callers can use {@link OkHttpClient#newBuilder()} to customise it while
+     * still sharing the same connection pool
+     */
+    public static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = new OkHttpClient.Builder()
+                    .connectTimeout(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                    .readTimeout(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                    .writeTimeout(WRITE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                    .addInterceptor(chain -> {
+                        StepMetrics.recordHttpCall();
+                        return chain.proceed(chain.request());
+                    })
+                    .build();
+        }
+        return httpClient;
+    }
+
+    @Terminator
+    public static void shutdown() {
+        OkHttpClient old;
+        synchronized (HttpClients.class) {
+            old = httpClient;
+            httpClient = null;
+        }
+        if (old != null) {
+            old.dispatcher().executorService().shutdown();
+            old.connectionPool().evictAll();
+        }
+    }
+}
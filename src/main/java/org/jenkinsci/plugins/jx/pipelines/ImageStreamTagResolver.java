@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.openshift.api.model.DoneableImageStream;
+import io.fabric8.openshift.api.model.ImageStream;
+import io.fabric8.openshift.api.model.ImageStreamStatus;
+import io.fabric8.openshift.api.model.NamedTagEventList;
+import io.fabric8.openshift.api.model.TagEvent;
+import io.fabric8.openshift.client.OpenShiftClient;
+import io.fabric8.utils.Strings;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finds the image of the latest tag of an {@link ImageStream}, waiting for it to appear if need be.
+ * <p>
+ * We first try a single GET; if the tag is not there yet we watch the ImageStream and complete as soon as
+ * an event arrives with a tagged image or the deadline passes. If the watch cannot be opened or closes early
+ * we poll using the default {@link PollingPolicy} until the deadline instead.
+ */
+public class ImageStreamTagResolver {
+    public static final long DEFAULT_TIMEOUT_MILLIS = Long.getLong(ImageStreamTagResolver.class.getName() + ".timeoutMillis", 15000L);
+
+    private final OpenShiftClient client;
+    private final String namespace;
+    private final Logger logger;
+
+    public ImageStreamTagResolver(OpenShiftClient client, String namespace, Logger logger) {
+        this.client = client;
+        this.namespace = namespace;
+        this.logger = logger != null ? logger : Logger.getInstance();
+    }
+
+    /**
+     * Returns the image of the latest tag on the ImageStream or null if there is no tag before the timeout
+     */
+    public String resolve(String imageStreamName, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + Math.max(0L, timeoutMillis);
+        ImageStream imageStream = getImageStream(imageStreamName);
+        String answer = findLatestImage(imageStream);
+        if (answer != null) {
+            return found(imageStreamName, answer);
+        }
+
+        final AtomicReference<String> image = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Watcher<ImageStream> watcher = new Watcher<ImageStream>() {
+            @Override
+            public void eventReceived(Action action, ImageStream resource) {
+                if (action == Action.ADDED || action == Action.MODIFIED) {
+                    String value = findLatestImage(resource);
+                    if (value != null) {
+                        image.compareAndSet(null, value);
+                        latch.countDown();
+                    }
+                }
+            }
+
+            @Override
+            public void onClose(KubernetesClientException cause) {
+                if (cause != null) {
+                    logger.warn("Watch on ImageStream " + imageStreamName + " closed: " + cause);
+                }
+                latch.countDown();
+            }
+        };
+
+        logger.info("Waiting for a tag on ImageStream " + imageStreamName);
+        Watch watch = null;
+        try {
+            watch = withName(imageStreamName).watch(watcher);
+
+            // the tag may have been added between our GET and the watch starting
+            imageStream = getImageStream(imageStreamName);
+            answer = findLatestImage(imageStream);
+            if (answer == null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining > 0) {
+                    latch.await(remaining, TimeUnit.MILLISECONDS);
+                }
+                answer = image.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FailedBuildException("Interrupted while waiting for a tag on ImageStream " + imageStreamName, e);
+        } catch (KubernetesClientException e) {
+            logger.warn("Could not watch ImageStream " + imageStreamName + ": " + e);
+        } finally {
+            if (watch != null) {
+                watch.close();
+            }
+        }
+        if (answer == null) {
+            // the watch may have failed or been closed early so lets poll with backoff until the deadline
+            answer = poll(imageStreamName, deadline);
+            if (answer == null) {
+                imageStream = getImageStream(imageStreamName);
+            }
+        }
+        if (answer != null) {
+            return found(imageStreamName, answer);
+        }
+        if (imageStream == null) {
+            logger.error("Could not find a current ImageStream with name " + imageStreamName + " in namespace " + namespace);
+        } else {
+            logger.error("Could not find a tag in the ImageStream " + imageStreamName + " after " + timeoutMillis + " millis");
+        }
+        return null;
+    }
+
+    private String poll(String imageStreamName, long deadline) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return findLatestImage(getImageStream(imageStreamName));
+        }
+        final AtomicReference<String> image = new AtomicReference<>();
+        PollingPolicy policy = PollingPolicy.getDefault().withTimeoutMillis(remaining);
+        try {
+            policy.waitUntil(() -> {
+                image.set(findLatestImage(getImageStream(imageStreamName)));
+                return image.get() != null;
+            }, e -> logger.warn("Failed to get ImageStream " + imageStreamName + ": " + e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FailedBuildException("Interrupted while waiting for a tag on ImageStream " + imageStreamName, e);
+        }
+        return image.get();
+    }
+
+    /**
+     * Returns the first image of the latest tag event of the given ImageStream or null if there is none
+     */
+    public static String findLatestImage(ImageStream imageStream) {
+        if (imageStream == null) {
+            return null;
+        }
+        ImageStreamStatus status = imageStream.getStatus();
+        if (status == null) {
+            return null;
+        }
+        List<NamedTagEventList> tags = status.getTags();
+        if (tags == null) {
+            return null;
+        }
+        // latest tag is the first
+        for (NamedTagEventList list : tags) {
+            List<TagEvent> items = list.getItems();
+            if (items == null) {
+                continue;
+            }
+            // latest item is the first
+            for (TagEvent item : items) {
+                String image = item.getImage();
+                if (Strings.notEmpty(image)) {
+                    return image;
+                }
+            }
+        }
+        return null;
+    }
+
+    protected ImageStream getImageStream(String imageStreamName) {
+        return withName(imageStreamName).get();
+    }
+
+    protected Resource<ImageStream, DoneableImageStream> withName(String imageStreamName) {
+        if (Strings.notEmpty(namespace)) {
+            return client.imageStreams().inNamespace(namespace).withName(imageStreamName);
+        }
+        return client.imageStreams().withName(imageStreamName);
+    }
+
+    private String found(String imageStreamName, String image) {
+        logger.info("Found tag on ImageStream " + imageStreamName + " tag: " + image);
+        return image;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import hudson.Extension;
+import hudson.init.Terminator;
+import hudson.model.listeners.ItemListener;
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.DefaultKubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.utils.HttpClientUtils;
+import io.fabric8.openshift.client.DefaultOpenShiftClient;
+import io.fabric8.openshift.client.OpenShiftClient;
+import io.fabric8.openshift.client.OpenShiftConfig;
+import okhttp3.OkHttpClient;
+
+import java.util.logging.Level;
+
+/**
+ * Provides the Kubernetes and OpenShift clients used by the pipeline steps.
+ * <p>
+ * Both clients share a single OkHttp connection pool and dispatcher for the whole controller rather than
+ * each call creating (and never closing) its own. The clients are created lazily, rebuilt when the Jenkins
+ * configuration is reloaded and closed when Jenkins shuts down.
+ * <p>
+ * Code which keeps a client for a long time, such as an open shell session or a watch, may still be using it
+ * after a reload; so a reloaded client is only released: its idle connections are evicted but its dispatcher
+ * keeps running until the last request completes and its idle threads expire. Only {@link #shutdown()} stops the
+ * dispatcher of the current client.
+ * <p>
+ * The returned clients are shared so callers must not close them.
+ */
+public class KubernetesClients {
+    private static final java.util.logging.Logger LOG = java.util.logging.Logger.getLogger(KubernetesClients.class.getName());
+
+    private static Clients clients;
+
+    /**
+     * Returns the shared Kubernetes client
+     */
+    public static KubernetesClient getKubernetesClient() {
+        return getClients().kubernetesClient;
+    }
+
+    /**
+     * Returns the shared OpenShift client which uses the same connections as {@link #getKubernetesClient()}
+     */
+    public static OpenShiftClient getOpenShiftClient() {
+        return getClients().openShiftClient;
+    }
+
+    /**
+     * Returns the shared OkHttp client used by the Kubernetes and OpenShift clients, which is configured with
+     * the cluster credentials so it can be used for requests the clients do not support
+     */
+    public static OkHttpClient getHttpClient() {
+        return getClients().httpClient;
+    }
+
+    /**
+     * Discards the current clients so that the next call creates them from the current configuration
+     */
+    public static void reload() {
+        Clients old = discard();
+        if (old != null) {
+            old.release();
+        }
+    }
+
+    @Terminator
+    public static void shutdown() {
+        Clients old = discard();
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    private static Clients discard() {
+        ConfigMapCache.reset();
+        ClusterTopology.reset();
+        synchronized (KubernetesClients.class) {
+            Clients old = clients;
+            clients = null;
+            return old;
+        }
+    }
+
+    protected static synchronized Clients getClients() {
+        if (clients == null) {
+            clients = new Clients(Config.autoConfigure(null));
+        }
+        return clients;
+    }
+
+    /**
+     * Rebuilds the clients when the Jenkins configuration is reloaded from disk
+     */
+    @Extension
+    public static class ReloadListener extends ItemListener {
+        @Override
+        public void onLoaded() {
+            reload();
+        }
+    }
+
+    protected static class Clients {
+        private final OkHttpClient httpClient;
+        private final KubernetesClient kubernetesClient;
+        private final OpenShiftClient openShiftClient;
+
+        public Clients(Config config) {
+            this.httpClient = HttpClientUtils.createHttpClient(config);
+            this.kubernetesClient = new DefaultKubernetesClient(httpClient, config);
+            this.openShiftClient = new DefaultOpenShiftClient(httpClient, OpenShiftConfig.wrap(config));
+        }
+
+        /**
+         * Evicts the idle connections but leaves the dispatcher running for anything still using the clients
+         */
+        public void release() {
+            try {
+                httpClient.connectionPool().evictAll();
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Failed to release the kubernetes client: " + e, e);
+            }
+        }
+
+        /**
+         * Lets any in flight requests complete but stops new requests being dispatched
+         */
+        public void close() {
+            try {
+                httpClient.dispatcher().executorService().shutdown();
+                httpClient.connectionPool().evictAll();
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Failed to close the kubernetes client: " + e, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.ExecWatch;
+import io.fabric8.utils.Strings;
+
+import java.io.IOException;
+
+/**
+ * Opens a {@link ShellSession} by exec'ing a <code>sh</code> process inside a container of the build pod.
+ * <p>
+ * The shared client is looked up for each session rather than kept, so that sessions opened after the
+ * clients are reloaded use the new client.
+ */
+public class KubernetesShellSessionFactory implements ShellSessionFactory {
+    private final String namespace;
+    private final String podName;
+    private final Logger logger;
+
+    public KubernetesShellSessionFactory(String namespace, String podName, Logger logger) {
+        this.namespace = namespace;
+        this.podName = podName;
+        this.logger = logger;
+    }
+
+    @Override
+    public String toString() {
+        return "KubernetesShellSessionFactory{" +
+                "namespace='" + namespace + '\'' +
+                ", podName='" + podName + '\'' +
+                '}';
+    }
+
+    @Override
+    public ShellSession open(String containerName) throws IOException {
+        KubernetesClient client = KubernetesClients.getKubernetesClient();
+        ExecWatch watch;
+        try {
+            if (Strings.notEmpty(containerName)) {
+                watch = client.pods().inNamespace(namespace).withName(podName).inContainer(containerName)
+                        .redirectingInput().redirectingOutput().redirectingError().exec("sh");
+            } else {
+                watch = client.pods().inNamespace(namespace).withName(podName)
+                        .redirectingInput().redirectingOutput().redirectingError().exec("sh");
+            }
+        } catch (KubernetesClientException e) {
+            throw new IOException("Failed to exec into container " + containerName + " of pod " + namespace + "/" + podName + ": " + e, e);
+        }
+        return new StreamShellSession(watch.getInput(), watch.getOutput(), watch.getError(), watch, logger);
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Opens a {@link ShellSession} by starting a local <code>sh</code> process; the container name is ignored.
+ * <p>
+ * Useful as a stand in for a build pod when testing or benchmarking a {@link PersistentShellFacade}
+ */
+public class LocalShellSessionFactory implements ShellSessionFactory {
+    private final File directory;
+    private final Logger logger;
+
+    public LocalShellSessionFactory() {
+        this(null, Logger.getInstance());
+    }
+
+    public LocalShellSessionFactory(File directory, Logger logger) {
+        this.directory = directory;
+        this.logger = logger;
+    }
+
+    @Override
+    public ShellSession open(String containerName) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder("sh");
+        if (directory != null) {
+            builder.directory(directory);
+        }
+        Process process = builder.start();
+        return new StreamShellSession(process.getOutputStream(), process.getInputStream(), process.getErrorStream(), process::destroy, logger);
+    }
+}
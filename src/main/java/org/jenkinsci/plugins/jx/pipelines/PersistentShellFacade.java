@@ -0,0 +1,362 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import io.fabric8.utils.Strings;
+import org.jenkinsci.plugins.jx.pipelines.metrics.StepMetrics;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+import org.jenkinsci.plugins.workflow.cps.EnvActionImpl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link ShellFacade} which keeps a single long lived shell open per container so that each command
+ * is just a write and read on an existing stream rather than a new <code>sh</code> step with its own
+ * process, wrapper script and log polling.
+ * <p>
+ * The working directory and build environment are set once when the session is opened. Like the <code>sh</code>
+ * step each command runs in its own subshell with <code>set -e</code>; so a <code>cd</code>, <code>export</code> or
+ * <code>set</code> in one command does not leak into later commands.
+ * If a session cannot be opened for a container we log a warning and use the fallback facade for that container.
+ * <p>
+ * In a pipeline the facade is opened by the <code>jxOpenShellSession</code> step for the pod the run is executing on
+ * and the commands are sent via the <code>jxShellSession</code> step which looks up the facade by {@link #getId()}, so
+ * that the blocking I/O does not happen on the CPS VM thread. The open facades are registered against the run
+ * which opened them so that one build cannot use or close the sessions of another; they are closed when the run
+ * completes.
+ */
+public class PersistentShellFacade implements ShellFacade, Closeable {
+    private static final Pattern ENV_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /**
+     * The variables the <code>sh</code> step adds for the build; the rest of the controller environment such as
+     * <code>PATH</code> and <code>HOME</code> must not replace the values of the container
+     */
+    private static final Set<String> BUILD_VARIABLES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "BUILD_DISPLAY_NAME", "BUILD_ID", "BUILD_NUMBER", "BUILD_TAG", "BUILD_URL", "BRANCH_NAME", "EXECUTOR_NUMBER",
+            "JENKINS_URL", "JOB_BASE_NAME", "JOB_DISPLAY_URL", "JOB_NAME", "JOB_URL", "NODE_LABELS", "NODE_NAME",
+            "RUN_CHANGES_DISPLAY_URL", "RUN_DISPLAY_URL", "TAG_NAME", "TAG_DATE", "TAG_TIMESTAMP", "TAG_UNIXTIME", "WORKSPACE")));
+    private static final String[] BUILD_VARIABLE_PREFIXES = {"CHANGE_", "GIT_"};
+
+    /**
+     * The open facades of each run keyed by the externalizable id of the run and then the id of the facade
+     */
+    private static final Map<String, Map<String, PersistentShellFacade>> OPEN_FACADES = new ConcurrentHashMap<>();
+
+    private final String owner;
+    private final String id;
+    private final ShellSessionFactory factory;
+    private final ShellFacade fallback;
+    private final String workingDir;
+    private final Map<String, String> env;
+    private final Logger logger;
+    private final Map<String, ShellSession> sessions = new HashMap<>();
+    private final Map<String, Boolean> failedContainers = new HashMap<>();
+
+    public PersistentShellFacade(ShellSessionFactory factory, ShellFacade fallback, String workingDir, Map<String, String> env, Logger logger) {
+        this(null, UUID.randomUUID().toString(), factory, fallback, workingDir, env, logger);
+    }
+
+    private PersistentShellFacade(String owner, String id, ShellSessionFactory factory, ShellFacade fallback, String workingDir, Map<String, String> env, Logger logger) {
+        this.owner = owner;
+        this.id = id;
+        this.factory = factory;
+        this.fallback = fallback;
+        this.workingDir = workingDir;
+        this.env = env;
+        this.logger = logger != null ? logger : Logger.getInstance();
+    }
+
+    /**
+     * Returns a new id for a facade of the given run
+     */
+    public static String createId(Run<?, ?> run) {
+        return run.getExternalizableId() + "#" + UUID.randomUUID();
+    }
+
+    /**
+     * Returns true if the given id was created for the given run via {@link #createId(Run)}
+     */
+    public static boolean isOwnedBy(Run<?, ?> run, String id) {
+        return id != null && id.startsWith(run.getExternalizableId() + "#");
+    }
+
+    /**
+     * Returns the open facade of the given run with the given id, opening a facade for the sessions in the
+     * containers of the given build pod if there is none.
+     * <p>
+     * This execs into the pod with the credentials of the controller so it must only be used by steps with the pod
+     * the run is executing on; it is deliberately not whitelisted.
+     *
+     * @param podName    the name of the build pod which is the name of the agent
+     * @param workingDir the workspace directory
+     * @param env        the environment variables to export in each session, see {@link #buildEnvironment(Object)}
+     */
+    public static PersistentShellFacade getOrCreateForRun(Run<?, ?> run, String id, String podName, String workingDir, Map<String, String> env, Logger logger) {
+        if (!isOwnedBy(run, id)) {
+            throw new IllegalArgumentException("The shell session " + id + " does not belong to " + run.getFullDisplayName());
+        }
+        PersistentShellFacade answer = forId(run, id);
+        if (answer != null) {
+            return answer;
+        }
+        String namespace = Utils.defaultNamespace(Utils.createKubernetesClient());
+        PersistentShellFacade facade = new PersistentShellFacade(run.getExternalizableId(), id,
+                new KubernetesShellSessionFactory(namespace, podName, logger), null, workingDir, env, logger);
+        answer = OPEN_FACADES.computeIfAbsent(facade.owner, key -> new ConcurrentHashMap<>()).putIfAbsent(id, facade);
+        return answer != null ? answer : facade;
+    }
+
+    /**
+     * Returns the open facade of the given run with the given id or null if it has been closed or the controller has
+     * restarted since it was opened
+     */
+    public static PersistentShellFacade forId(Run<?, ?> run, String id) {
+        Map<String, PersistentShellFacade> facades = id != null ? OPEN_FACADES.get(run.getExternalizableId()) : null;
+        return facades != null ? facades.get(id) : null;
+    }
+
+    /**
+     * Closes all the open facades of the given run
+     */
+    public static void closeAll(Run<?, ?> run) {
+        Map<String, PersistentShellFacade> facades = OPEN_FACADES.remove(run.getExternalizableId());
+        if (facades != null) {
+            for (PersistentShellFacade facade : facades.values()) {
+                facade.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the variables of the pipeline environment which the <code>sh</code> step would add to a command: the
+     * variables set by the pipeline via <code>env.FOO = ...</code> and the build variables such as
+     * <code>BUILD_NUMBER</code> and <code>JOB_NAME</code>.
+     *
+     * @param envVar the <code>env</code> global of the pipeline or a map of variables
+     */
+    @Whitelisted
+    public static Map<String, String> buildEnvironment(Object envVar) {
+        Map<String, String> answer = new LinkedHashMap<>();
+        if (envVar instanceof EnvActionImpl) {
+            EnvActionImpl envAction = (EnvActionImpl) envVar;
+            try {
+                addBuildVariables(answer, envAction.getEnvironment());
+            } catch (IOException e) {
+                Logger.getInstance().warn("Failed to get the environment of the build: " + e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Map<String, String> overridden = envAction.getOverriddenEnvironment();
+            if (overridden != null) {
+                answer.putAll(overridden);
+            }
+        } else if (envVar instanceof Map) {
+            addBuildVariables(answer, (Map<String, String>) envVar);
+        }
+        return answer;
+    }
+
+    static boolean isBuildVariable(String name) {
+        if (BUILD_VARIABLES.contains(name)) {
+            return true;
+        }
+        for (String prefix : BUILD_VARIABLE_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addBuildVariables(Map<String, String> answer, Map<String, String> env) {
+        if (env != null) {
+            for (Map.Entry<String, String> entry : env.entrySet()) {
+                if (entry.getKey() != null && isBuildVariable(entry.getKey())) {
+                    answer.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the given facade if it is a {@link PersistentShellFacade}
+     */
+    @Whitelisted
+    public static void closeQuietly(ShellFacade facade) {
+        if (facade instanceof PersistentShellFacade) {
+            ((PersistentShellFacade) facade).close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PersistentShellFacade{" +
+                "factory=" + factory +
+                ", containers=" + sessions.keySet() +
+                '}';
+    }
+
+    @Whitelisted
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String apply(String cmd, boolean returnStdout, String containerName) {
+        String answer = applyInSession(cmd, returnStdout, containerName, logger);
+        if (answer == null) {
+            if (fallback == null) {
+                throw new FailedBuildException("Could not open a shell session in container " + containerName + " to invoke: " + cmd);
+            }
+            return fallback.apply(cmd, returnStdout, containerName);
+        }
+        return answer;
+    }
+
+    /**
+     * Invokes the command in the session of the given container without using the fallback facade
+     *
+     * @param output the logger to write the output to if it is not returned
+     * @return the output of the command or null if no session could be opened in the container
+     */
+    public String applyInSession(String cmd, boolean returnStdout, String containerName, Logger output) {
+        String key = containerName != null ? containerName : "";
+        ShellSession session = getOrOpenSession(key);
+        if (session == null) {
+            return null;
+        }
+        ShellResult result;
+        try {
+            // the command does not add a shell step to the flow graph so lets count it here
+            StepMetrics.recordShellCall();
+            result = session.execute(cmd);
+        } catch (IOException e) {
+            removeSession(key);
+            throw new FailedBuildException("Failed to invoke `" + cmd + "` in container " + containerName + ": " + e, e);
+        }
+        String text = result.getOutput();
+        if (!returnStdout && Strings.notEmpty(text)) {
+            output.info(text);
+        }
+        if (!result.isSuccess()) {
+            throw new FailedBuildException("script returned exit code " + result.getExitCode());
+        }
+        return text != null ? text.trim() : "";
+    }
+
+    @Override
+    public synchronized void close() {
+        if (owner != null) {
+            Map<String, PersistentShellFacade> facades = OPEN_FACADES.get(owner);
+            if (facades != null) {
+                facades.remove(id, this);
+            }
+        }
+        for (Map.Entry<String, ShellSession> entry : sessions.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the shell session for container " + entry.getKey() + ": " + e);
+            }
+        }
+        sessions.clear();
+    }
+
+    protected synchronized ShellSession getOrOpenSession(String containerName) {
+        ShellSession session = sessions.get(containerName);
+        if (session != null && session.isOpen()) {
+            return session;
+        }
+        if (failedContainers.containsKey(containerName)) {
+            return null;
+        }
+        try {
+            session = factory.open(containerName);
+            initialiseSession(session);
+            sessions.put(containerName, session);
+            return session;
+        } catch (IOException e) {
+            logger.warn("Could not open a persistent shell in container " + containerName + " so using the sh step instead: " + e);
+            failedContainers.put(containerName, Boolean.TRUE);
+            return null;
+        }
+    }
+
+    protected void initialiseSession(ShellSession session) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        if (env != null) {
+            for (Map.Entry<String, String> entry : env.entrySet()) {
+                String name = entry.getKey();
+                String value = entry.getValue();
+                if (name != null && value != null && ENV_NAME.matcher(name).matches()) {
+                    builder.append("export ").append(name).append("=").append(quote(value)).append("\n");
+                }
+            }
+        }
+        if (Strings.notEmpty(workingDir)) {
+            builder.append("cd ").append(quote(workingDir)).append("\n");
+        }
+        if (builder.length() > 0) {
+            ShellResult result = session.initialise(builder.toString());
+            if (!result.isSuccess()) {
+                session.close();
+                throw new IOException("Failed to initialise the shell session: " + result);
+            }
+        }
+    }
+
+    protected synchronized void removeSession(String containerName) {
+        ShellSession session = sessions.remove(containerName);
+        if (session != null) {
+            try {
+                session.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * Closes the shell sessions of runs when they complete
+     */
+    @Extension
+    public static class RunCompletedListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onCompleted(Run<?, ?> run, TaskListener listener) {
+            closeAll(run);
+        }
+    }
+}
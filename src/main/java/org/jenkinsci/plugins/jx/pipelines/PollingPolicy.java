@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+import org.jenkinsci.plugins.workflow.cps.CpsThread;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Defines how often we poll while waiting for some condition: exponential backoff from an initial delay up to a
+ * maximum delay with some random jitter, so that lots of concurrent builds do not poll remote services in lock step,
+ * and an optional timeout after which we give up.
+ * <p>
+ * The defaults can be configured via system properties such as
+ * <code>-Dorg.jenkinsci.plugins.jx.pipelines.PollingPolicy.maxDelayMillis=60000</code>
+ */
+public class PollingPolicy implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = Long.getLong(PollingPolicy.class.getName() + ".initialDelayMillis", 1000L);
+    public static final long DEFAULT_MAX_DELAY_MILLIS = Long.getLong(PollingPolicy.class.getName() + ".maxDelayMillis", 30000L);
+    public static final double DEFAULT_MULTIPLIER = getDouble(PollingPolicy.class.getName() + ".multiplier", 2.0);
+    public static final double DEFAULT_JITTER = getDouble(PollingPolicy.class.getName() + ".jitter", 0.2);
+    public static final long DEFAULT_TIMEOUT_MILLIS = Long.getLong(PollingPolicy.class.getName() + ".timeoutMillis", 0L);
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final double jitter;
+    private final long timeoutMillis;
+
+    @Whitelisted
+    public PollingPolicy() {
+        this(DEFAULT_INITIAL_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MULTIPLIER, DEFAULT_JITTER, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a policy
+     *
+     * @param initialDelayMillis the delay after the first attempt
+     * @param maxDelayMillis     the maximum delay between attempts
+     * @param multiplier         how much the delay grows after each attempt
+     * @param jitter             the fraction between 0 and 1 of each delay which is randomly removed
+     * @param timeoutMillis      the maximum time to wait or zero or less to wait forever
+     */
+    @Whitelisted
+    public PollingPolicy(long initialDelayMillis, long maxDelayMillis, double multiplier, double jitter, long timeoutMillis) {
+        this.initialDelayMillis = Math.max(1L, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+        this.multiplier = Math.max(1.0, multiplier);
+        this.jitter = Math.min(1.0, Math.max(0.0, jitter));
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Returns the default policy
+     */
+    @Whitelisted
+    public static PollingPolicy getDefault() {
+        return new PollingPolicy();
+    }
+
+    @Override
+    public String toString() {
+        return "PollingPolicy{" +
+                "initialDelayMillis=" + initialDelayMillis +
+                ", maxDelayMillis=" + maxDelayMillis +
+                ", multiplier=" + multiplier +
+                ", jitter=" + jitter +
+                ", timeoutMillis=" + timeoutMillis +
+                '}';
+    }
+
+    /**
+     * Returns a copy of this policy with the given timeout
+     */
+    @Whitelisted
+    public PollingPolicy withTimeoutMillis(long timeoutMillis) {
+        return new PollingPolicy(initialDelayMillis, maxDelayMillis, multiplier, jitter, timeoutMillis);
+    }
+
+    /**
+     * Returns a copy of this policy with the given initial delay
+     */
+    @Whitelisted
+    public PollingPolicy withInitialDelayMillis(long initialDelayMillis) {
+        return new PollingPolicy(initialDelayMillis, Math.max(initialDelayMillis, maxDelayMillis), multiplier, jitter, timeoutMillis);
+    }
+
+    /**
+     * Returns the delay before the next attempt given the zero based number of attempts which have failed so far
+     */
+    @Whitelisted
+    public long getDelayMillis(int attempt) {
+        double delay = initialDelayMillis * Math.pow(multiplier, Math.max(0, attempt));
+        long answer = (long) Math.min(maxDelayMillis, delay);
+        if (jitter > 0.0) {
+            answer -= (long) (answer * jitter * ThreadLocalRandom.current().nextDouble());
+        }
+        return Math.max(1L, answer);
+    }
+
+    /**
+     * Returns the delay before the next attempt capped so that we do not sleep past the deadline of a wait
+     * which started at the given time
+     */
+    @Whitelisted
+    public long getDelayMillis(int attempt, long startMillis) {
+        long answer = getDelayMillis(attempt);
+        if (timeoutMillis > 0) {
+            long remaining = startMillis + timeoutMillis - currentTimeMillis();
+            answer = Math.max(1L, Math.min(answer, remaining));
+        }
+        return answer;
+    }
+
+    /**
+     * Returns true if a wait which started at the given time has timed out
+     */
+    @Whitelisted
+    public boolean isExpired(long startMillis) {
+        return timeoutMillis > 0 && currentTimeMillis() - startMillis >= timeoutMillis;
+    }
+
+    /**
+     * Invokes the condition until it returns true, sleeping between attempts.
+     * Exceptions thrown by the condition are passed to the error handler and the condition is tried again.
+     *
+     * @return true if the condition became true or false if we timed out
+     * @throws InterruptedException if the thread is interrupted or the condition throws an {@link InterruptedException}
+     * @throws IllegalStateException if we have to sleep on the CPS VM thread, see {@link #backOff(long)}
+     */
+    public boolean waitUntil(Callable<Boolean> condition, Consumer<Exception> errorHandler) throws InterruptedException {
+        long start = currentTimeMillis();
+        for (int attempt = 0; ; attempt++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Boolean value = null;
+            try {
+                value = condition.call();
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (errorHandler != null) {
+                    errorHandler.accept(e);
+                }
+            }
+            if (value != null && value.booleanValue()) {
+                return true;
+            }
+            if (isExpired(start)) {
+                return false;
+            }
+            backOff(getDelayMillis(attempt, start));
+        }
+    }
+
+    /**
+     * Sleeps before the next attempt. We refuse to on the CPS VM thread as that would stop every pipeline on the
+     * controller; pipeline code backs off with the <code>sleep</code> step instead like the <code>waitUntil</code>
+     * and <code>retry</code> functions of <code>CommonFunctions</code> do
+     *
+     * @throws IllegalStateException if called on the CPS VM thread
+     */
+    void backOff(long millis) throws InterruptedException {
+        if (!canSleep()) {
+            throw new IllegalStateException("Cannot wait " + millis + " millis on the CPS VM thread as it would block every pipeline, use the sleep step instead");
+        }
+        sleep(millis);
+    }
+
+    @Whitelisted
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    @Whitelisted
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    @Whitelisted
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    @Whitelisted
+    public double getJitter() {
+        return jitter;
+    }
+
+    @Whitelisted
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Returns false on the CPS VM thread as sleeping there would stop every pipeline on the controller
+     */
+    protected boolean canSleep() {
+        return CpsThread.current() == null;
+    }
+
+    protected void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    private static double getDouble(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value != null) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                // ignore invalid values
+            }
+        }
+        return defaultValue;
+    }
+}
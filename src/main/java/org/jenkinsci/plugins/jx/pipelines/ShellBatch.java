@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sequence of shell commands which are invoked as a single script so that we only pay for one
+ * <code>sh</code> invocation rather than one per command.
+ * <p>
+ * The commands run in order in the same subshell; so a <code>cd</code> or exported variable in one command
+ * is visible to the following commands but not after the batch. The first command which fails stops the batch
+ * and is reported via a {@link ShellBatchException} with the index, text and exit code of the command. As only the
+ * subshell exits, a batch can also be sent to a {@link PersistentShellFacade} without ending its session.
+ * <p>
+ * The output of each command is redirected to stderr so that it still appears in the build log while
+ * stdout is reserved for the status markers parsed by {@link #checkOutput(String)}.
+ */
+public class ShellBatch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    static final String FAILED_MARKER = "##jx-shell-batch-failed";
+    static final String COMPLETED_MARKER = "##jx-shell-batch-completed";
+
+    private final List<String> commands = new ArrayList<>();
+
+    @Whitelisted
+    public ShellBatch() {
+    }
+
+    /**
+     * Creates a batch from a list of commands; the elements may be any objects such as Groovy GStrings
+     */
+    @Whitelisted
+    public ShellBatch(List<?> commands) {
+        if (commands != null) {
+            for (Object command : commands) {
+                if (command != null) {
+                    add(command.toString());
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShellBatch" + commands;
+    }
+
+    /**
+     * Adds a command to the end of the batch; blank commands are ignored
+     */
+    @Whitelisted
+    public ShellBatch add(String command) {
+        if (command != null && command.trim().length() > 0) {
+            commands.add(command);
+        }
+        return this;
+    }
+
+    @Whitelisted
+    public boolean isEmpty() {
+        return commands.isEmpty();
+    }
+
+    @Whitelisted
+    public int size() {
+        return commands.size();
+    }
+
+    public List<String> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+
+    /**
+     * Returns the shell script which invokes all the commands, stopping at the first one which fails
+     */
+    @Whitelisted
+    public String createScript() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("(\n");
+        // the sh step defaults to -e which would exit before we can report the failing command
+        builder.append("set +e\n");
+        for (int i = 0, size = commands.size(); i < size; i++) {
+            builder.append("{\n");
+            builder.append(commands.get(i));
+            builder.append("\n} 1>&2\n");
+            builder.append("__jx_rc=$?\n");
+            builder.append("if [ $__jx_rc -ne 0 ]; then echo \"" + FAILED_MARKER + " " + i + " $__jx_rc\"; exit 0; fi\n");
+        }
+        builder.append("echo \"" + COMPLETED_MARKER + " " + commands.size() + "\"\n");
+        builder.append(")\n");
+        return builder.toString();
+    }
+
+    /**
+     * Checks the stdout of the script created by {@link #createScript()} and throws a {@link ShellBatchException}
+     * if one of the commands failed or if the script did not complete
+     */
+    @Whitelisted
+    public void checkOutput(String output) {
+        String text = output != null ? output : "";
+        BufferedReader reader = new BufferedReader(new StringReader(text));
+        try {
+            while (true) {
+                String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                line = line.trim();
+                if (line.startsWith(FAILED_MARKER)) {
+                    String[] parts = line.substring(FAILED_MARKER.length()).trim().split("\\s+");
+                    if (parts.length == 2) {
+                        int index = Integer.parseInt(parts[0]);
+                        int exitCode = Integer.parseInt(parts[1]);
+                        String command = index >= 0 && index < commands.size() ? commands.get(index) : null;
+                        throw new ShellBatchException(command, index, commands.size(), exitCode);
+                    }
+                } else if (line.startsWith(COMPLETED_MARKER)) {
+                    return;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new FailedBuildException("Could not parse the output of " + this + ": " + e, e);
+        }
+        throw new FailedBuildException("The shell batch did not complete: " + this);
+    }
+}
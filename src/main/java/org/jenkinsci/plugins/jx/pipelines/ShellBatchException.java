@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+/**
+ * Thrown when a command inside a {@link ShellBatch} fails
+ */
+public class ShellBatchException extends FailedBuildException {
+    private final String command;
+    private final int commandIndex;
+    private final int exitCode;
+
+    public ShellBatchException(String command, int commandIndex, int commandCount, int exitCode) {
+        super("Command " + (commandIndex + 1) + " of " + commandCount + " `" + command + "` failed with exit code " + exitCode);
+        this.command = command;
+        this.commandIndex = commandIndex;
+        this.exitCode = exitCode;
+    }
+
+    /**
+     * Returns the text of the command which failed
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Returns the zero based index of the failed command in the batch
+     */
+    public int getCommandIndex() {
+        return commandIndex;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+}
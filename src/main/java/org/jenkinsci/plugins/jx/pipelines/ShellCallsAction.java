@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Queue;
+import hudson.model.Run;
+import org.jenkinsci.plugins.jx.pipelines.model.ShellCallsReport;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+import org.jenkinsci.plugins.workflow.cps.CpsThread;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the {@link ShellCallsReport} of a build via the remote API of the run
+ * (e.g. <code>job/foo/1/api/json?tree=actions[calls[*]]</code>) so that tools can find the slowest commands.
+ */
+@ExportedBean
+public class ShellCallsAction extends InvisibleAction {
+    private final ShellCallsReport report;
+
+    public ShellCallsAction(ShellCallsReport report) {
+        this.report = report;
+    }
+
+    /**
+     * Adds or replaces the action on the run of the current pipeline; does nothing outside of a pipeline
+     */
+    @Whitelisted
+    public static void attach(ShellCallsReport report) throws IOException {
+        CpsThread thread = CpsThread.current();
+        if (thread == null || report == null) {
+            return;
+        }
+        Queue.Executable executable = thread.getExecution().getOwner().getExecutable();
+        if (executable instanceof Run) {
+            ((Run<?, ?>) executable).addOrReplaceAction(new ShellCallsAction(report));
+        }
+    }
+
+    public ShellCallsReport getReport() {
+        return report;
+    }
+
+    @Exported
+    public List<ShellCallsReport.ShellCall> getCalls() {
+        return report.getCalls();
+    }
+
+    @Exported
+    public long getTotalCalls() {
+        return report.getTotalCalls();
+    }
+
+    @Exported
+    public long getTotalDurationMillis() {
+        return report.getTotalDurationMillis();
+    }
+
+    @Exported
+    public Map<String, Long> getDurationMillisByContainer() {
+        return report.getDurationMillisByContainer();
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+/**
+ * The stdout and exit code of a command invoked in a {@link ShellSession}
+ */
+public class ShellResult {
+    private final String output;
+    private final int exitCode;
+
+    public ShellResult(String output, int exitCode) {
+        this.output = output;
+        this.exitCode = exitCode;
+    }
+
+    @Override
+    public String toString() {
+        return "ShellResult{" +
+                "exitCode=" + exitCode +
+                ", output='" + output + '\'' +
+                '}';
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public boolean isSuccess() {
+        return exitCode == 0;
+    }
+}
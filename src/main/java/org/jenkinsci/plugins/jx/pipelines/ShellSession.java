@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A long lived shell to which commands are streamed one at a time
+ */
+public interface ShellSession extends Closeable {
+    /**
+     * Invokes the given command in the shell returning its stdout and exit code
+     */
+    ShellResult execute(String command) throws IOException;
+
+    /**
+     * Invokes the given script in the shell itself rather than a subshell so that any <code>cd</code> or
+     * <code>export</code> remains in effect for the later commands; used to set up the session
+     */
+    ShellResult initialise(String script) throws IOException;
+
+    /**
+     * Returns true if the shell is still running and can accept more commands
+     */
+    boolean isOpen();
+}
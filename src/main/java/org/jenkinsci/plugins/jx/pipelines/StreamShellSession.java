@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import hudson.init.Terminator;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ShellSession} which talks to a <code>sh</code> process via its stdin and stdout streams.
+ * <p>
+ * Each command runs in a subshell with <code>set -e</code> and is followed by a unique marker line containing the
+ * exit code of the command so that we can demultiplex the stdout of each command from the single stdout stream
+ * of the shell.
+ * Any stderr output is copied to the {@link Logger}.
+ * <p>
+ * If a command produces no output for the read timeout the session is closed and the command fails rather than
+ * waiting forever on a hung command. The timeout can be configured via the
+ * <code>org.jenkinsci.plugins.jx.pipelines.StreamShellSession.readTimeoutMinutes</code> system property which
+ * defaults to 30 minutes; zero or less disables it.
+ */
+public class StreamShellSession implements ShellSession {
+    public static final int READ_TIMEOUT_MINUTES = Integer.getInteger(StreamShellSession.class.getName() + ".readTimeoutMinutes", 30);
+
+    private static ScheduledExecutorService watchdog;
+
+    private final Writer input;
+    private final InputStream stdout;
+    private final Reader output;
+    private final Closeable resource;
+    private final long readTimeoutMillis;
+    private final String marker = "##jx-shell-session-" + UUID.randomUUID().toString();
+    private final StringBuilder buffer = new StringBuilder();
+    private final char[] chunk = new char[8192];
+    private volatile boolean open = true;
+    private volatile boolean timedOut;
+    private volatile long lastOutputMillis;
+
+    public StreamShellSession(OutputStream stdin, InputStream stdout, InputStream stderr, Closeable resource, Logger logger) {
+        this(stdin, stdout, stderr, resource, logger, TimeUnit.MINUTES.toMillis(READ_TIMEOUT_MINUTES));
+    }
+
+    /**
+     * @param readTimeoutMillis how long a command can run without any output before the session is closed; zero or
+     *                          less waits forever
+     */
+    public StreamShellSession(OutputStream stdin, InputStream stdout, InputStream stderr, Closeable resource, Logger logger, long readTimeoutMillis) {
+        this.input = new OutputStreamWriter(stdin, StandardCharsets.UTF_8);
+        this.stdout = stdout;
+        this.output = new InputStreamReader(stdout, StandardCharsets.UTF_8);
+        this.resource = resource;
+        this.readTimeoutMillis = readTimeoutMillis;
+        if (stderr != null) {
+            Thread pump = new Thread(() -> copyErrors(stderr, logger), "jx-shell-session-stderr");
+            pump.setDaemon(true);
+            pump.start();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StreamShellSession{" + (open ? "open" : "closed") + "}";
+    }
+
+    @Override
+    public ShellResult execute(String command) throws IOException {
+        // like the sh step each command runs with -e in its own subshell so that a failure, exit or set does
+        // not end or change the session; and lets not let the command consume the rest of our commands from stdin
+        return invoke("(\nset -e\n" + command + "\n) </dev/null\n");
+    }
+
+    @Override
+    public ShellResult initialise(String script) throws IOException {
+        return invoke(script + "\n");
+    }
+
+    protected synchronized ShellResult invoke(String script) throws IOException {
+        if (!open) {
+            throw new IOException("The shell session is closed");
+        }
+        try {
+            input.write(script);
+            input.write("printf '\\n%s %s\\n' '" + marker + "' \"$?\"\n");
+            input.flush();
+            return readResult();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (open) {
+            open = false;
+            try {
+                input.write("exit\n");
+                input.flush();
+            } catch (IOException e) {
+                // ignore as the shell may already have gone away
+            }
+            if (resource != null) {
+                resource.close();
+            }
+        }
+    }
+
+    protected ShellResult readResult() throws IOException {
+        if (readTimeoutMillis <= 0) {
+            return readOutput();
+        }
+        lastOutputMillis = System.currentTimeMillis();
+        long checkMillis = Math.max(10L, Math.min(readTimeoutMillis / 4, 10000L));
+        ScheduledFuture<?> check = getWatchdog().scheduleWithFixedDelay(this::checkReadTimeout, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        try {
+            return readOutput();
+        } catch (IOException e) {
+            if (timedOut) {
+                throw new IOException("The command produced no output for " + readTimeoutMillis + " millis so the shell session has been closed", e);
+            }
+            throw e;
+        } finally {
+            check.cancel(false);
+        }
+    }
+
+    private ShellResult readOutput() throws IOException {
+        String sentinel = "\n" + marker + " ";
+        int searchFrom = 0;
+        while (true) {
+            int idx = buffer.indexOf(sentinel, searchFrom);
+            if (idx >= 0) {
+                int eol = buffer.indexOf("\n", idx + sentinel.length());
+                if (eol >= 0) {
+                    String exitCode = buffer.substring(idx + sentinel.length(), eol).trim();
+                    String answer = buffer.substring(0, idx);
+                    buffer.delete(0, eol + 1);
+                    try {
+                        return new ShellResult(answer, Integer.parseInt(exitCode));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Could not parse the exit code `" + exitCode + "` from the shell session");
+                    }
+                }
+                searchFrom = idx;
+            } else {
+                searchFrom = Math.max(0, buffer.length() - sentinel.length());
+            }
+            int count = output.read(chunk);
+            if (count < 0) {
+                throw new EOFException("The shell session terminated while waiting for a command to complete");
+            }
+            buffer.append(chunk, 0, count);
+            lastOutputMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Closes the streams if we have waited too long for output so that the blocked read fails; the session lock is
+     * held by the reading thread so we can't use {@link #close()}
+     */
+    private void checkReadTimeout() {
+        if (open && System.currentTimeMillis() - lastOutputMillis > readTimeoutMillis) {
+            timedOut = true;
+            open = false;
+            try {
+                if (resource != null) {
+                    resource.close();
+                }
+            } catch (IOException | RuntimeException e) {
+                // ignore as we are giving up on the session
+            }
+            try {
+                stdout.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getWatchdog() {
+        if (watchdog == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new NamingThreadFactory(new DaemonThreadFactory(), "jx-pipelines shell session timeouts"));
+            executor.setRemoveOnCancelPolicy(true);
+            watchdog = executor;
+        }
+        return watchdog;
+    }
+
+    @Terminator
+    public static void shutdown() {
+        ScheduledExecutorService old;
+        synchronized (StreamShellSession.class) {
+            old = watchdog;
+            watchdog = null;
+        }
+        if (old != null) {
+            old.shutdownNow();
+        }
+    }
+
+    private static void copyErrors(InputStream stderr, Logger logger) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stderr, StandardCharsets.UTF_8))) {
+            while (true) {
+                String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                logger.info(line);
+            }
+        } catch (IOException e) {
+            // the session has been closed
+        }
+    }
+}
@@ -20,20 +20,17 @@ import io.fabric8.kubernetes.api.KubernetesHelper;
 import io.fabric8.kubernetes.api.environments.Environments;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.pipelines.PipelineConfiguration;
-import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClient;
-import io.fabric8.openshift.api.model.ImageStream;
-import io.fabric8.openshift.api.model.ImageStreamStatus;
-import io.fabric8.openshift.api.model.NamedTagEventList;
-import io.fabric8.openshift.api.model.TagEvent;
-import io.fabric8.openshift.client.DefaultOpenShiftClient;
 import io.fabric8.openshift.client.OpenShiftAPIGroups;
 import io.fabric8.openshift.client.OpenShiftClient;
 import io.fabric8.utils.Strings;
 import org.jenkinsci.plugins.jx.pipelines.helpers.GitHelper;
+import org.jenkinsci.plugins.jx.pipelines.helpers.GitWorkspaceReader;
+import org.jenkinsci.plugins.jx.pipelines.helpers.SemanticVersion;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -69,7 +66,7 @@ public class Utils extends CommandSupport {
     }
 
     public static KubernetesClient createKubernetesClient() {
-        return new DefaultKubernetesClient();
+        return KubernetesClients.getKubernetesClient();
     }
 
     public static String getNamespace() {
@@ -115,16 +112,15 @@ public class Utils extends CommandSupport {
      * Loads the environments from the user namespace
      */
     public PipelineConfiguration pipelineConfiguration() {
-        KubernetesClient kubernetesClient = createKubernetesClient();
-        return PipelineConfiguration.loadPipelineConfiguration(kubernetesClient, defaultNamespace(kubernetesClient));
+        return pipelineConfiguration(defaultNamespace(createKubernetesClient()));
     }
 
     /**
      * Loads the environments from the given namespace
      */
     public PipelineConfiguration pipelineConfiguration(String namespace) {
-        KubernetesClient kubernetesClient = createKubernetesClient();
-        return PipelineConfiguration.loadPipelineConfiguration(kubernetesClient, namespace);
+        ConfigMap configMap = ConfigMapCache.getInstance().get(namespace, "fabric8-pipelines");
+        return PipelineConfiguration.getPipelineConfiguration(configMap);
     }
 
     /**
@@ -159,7 +155,7 @@ public class Utils extends CommandSupport {
      * Returns true if the current cluster can support S2I
      */
     public boolean supportsOpenShiftS2I() {
-        OpenShiftClient client = new DefaultOpenShiftClient();
+        OpenShiftClient client = KubernetesClients.getOpenShiftClient();
         return client.supportsOpenShiftAPIGroup(OpenShiftAPIGroups.IMAGE);
     }
 
@@ -195,9 +191,8 @@ public class Utils extends CommandSupport {
 
     public String getUsersPipelineConfig(final String k) {
         // first lets check if we have the new pipelines configmap in the users home namespace
-        KubernetesClient client = new DefaultKubernetesClient();
         final String ns = getUsersNamespace();
-        ConfigMap r = client.configMaps().inNamespace(ns).withName("fabric8-pipelines").get();
+        ConfigMap r = ConfigMapCache.getInstance().get(ns, "fabric8-pipelines");
         if (r == null) {
             error("no fabric8-pipelines configmap found in namespace " + ns);
             return null;
@@ -214,9 +209,7 @@ public class Utils extends CommandSupport {
     public String getConfigMap(String ns, final String cm, String key) {
 
         // first lets check if we have the new pipeliens configmap in the users home namespace
-        KubernetesClient client = new DefaultKubernetesClient();
-
-        ConfigMap r = client.configMaps().inNamespace(ns).withName(cm).get();
+        ConfigMap r = ConfigMapCache.getInstance().get(ns, cm);
         if (r == null) {
             error("no " + cm + " configmap found in namespace " + ns);
             return null;
@@ -240,68 +233,19 @@ public class Utils extends CommandSupport {
     }
 
     public String getImageStreamSha(Object imageStreamName) {
-        OpenShiftClient oc = new DefaultOpenShiftClient();
+        OpenShiftClient oc = KubernetesClients.getOpenShiftClient();
         return findTagSha(oc, (String) imageStreamName, getNamespace());
     }
 
     public String findTagSha(OpenShiftClient client, final String imageStreamName, String namespace) {
-        Object currentImageStream = null;
-        for (int i = 0; i < 15; i++) {
-            if (i > 0) {
-                echo("Retrying to find tag on ImageStream " + imageStreamName);
-            }
-            ;
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                echo("interrupted " + e);
-            }
-            ;
-            currentImageStream = client.imageStreams().withName(imageStreamName).get();
-            if (currentImageStream == null) {
-                continue;
-            }
-
-            ImageStreamStatus status = ((ImageStream) currentImageStream).getStatus();
-            if (status == null) {
-                continue;
-            }
-
-            List<NamedTagEventList> tags = status.getTags();
-            if (tags == null || tags.isEmpty()) {
-                continue;
-            }
-
-            // latest tag is the first
-            TAG_EVENT_LIST:
-            for (NamedTagEventList list : tags) {
-                List<TagEvent> items = list.getItems();
-                if (items == null) {
-                    continue TAG_EVENT_LIST;
-                }
-
-                // latest item is the first
-                for (TagEvent item : items) {
-                    String image = item.getImage();
-                    if (image != null && !image.equals("")) {
-                        echo("Found tag on ImageStream " + imageStreamName + " tag: " + image);
-                        return image;
-                    }
-
-                }
-
-            }
+        return findTagSha(client, imageStreamName, namespace, ImageStreamTagResolver.DEFAULT_TIMEOUT_MILLIS);
+    }
 
-            // No image found, even after several retries:
-            if (currentImageStream == null) {
-                error("Could not find a current ImageStream with name " + imageStreamName + " in namespace " + namespace);
-                return null;
-            } else {
-                error("Could not find a tag in the ImageStream " + imageStreamName);
-                return null;
-            }
-        }
-        return null;
+    /**
+     * Returns the image of the latest tag on the given ImageStream waiting up to the given timeout for it to appear
+     */
+    public String findTagSha(OpenShiftClient client, final String imageStreamName, String namespace, long timeoutMillis) {
+        return new ImageStreamTagResolver(client, namespace, getLogger()).resolve(imageStreamName, timeoutMillis);
     }
 
     public String getUsersNamespace() {
@@ -318,15 +262,26 @@ public class Utils extends CommandSupport {
             branch = getenv("BRANCH_NAME");
             if (Strings.isNullOrBlank(branch)) {
                 try {
-                    echo("output of git --version: " + containerShOutput(CLIENTS, "git --version"));
-                    echo("pwd: " + containerShOutput(CLIENTS, "pwd"));
+                    // use the local remote tracking refs rather than a network round trip via git ls-remote
+                    String output = containerShOutput(CLIENTS, "git rev-parse HEAD && git for-each-ref --format='%(objectname) %(refname)' refs/remotes/origin");
+                    List<String> remoteBranches = GitWorkspaceReader.findRemoteBranches(output);
+                    if (!remoteBranches.isEmpty()) {
+                        branch = remoteBranches.get(0);
+                    }
                 } catch (Throwable e) {
-                    error("Failed to invoke git --version: " + e, e);
+                    error("\nUnable to get git branch: " + e, e);
                 }
+            }
+            if (Strings.isNullOrBlank(branch)) {
                 try {
-                    branch = containerShOutput(CLIENTS, "git ls-remote --heads origin | grep $(git rev-parse HEAD) | cut -d / -f 3").trim();
+                    // the remote tracking refs may be stale or missing in a shallow or detached checkout so lets ask the remote
+                    String output = containerShOutput(CLIENTS, "git rev-parse HEAD && git ls-remote --heads origin");
+                    List<String> remoteBranches = GitWorkspaceReader.findRemoteBranches(output);
+                    if (!remoteBranches.isEmpty()) {
+                        branch = remoteBranches.get(0);
+                    }
                 } catch (Throwable e) {
-                    error("\nUnable to get git branch: " + e, e);
+                    error("\nUnable to get git branch from the remote: " + e, e);
                 }
             }
             if (Strings.isNullOrBlank(branch)) {
@@ -360,18 +315,16 @@ public class Utils extends CommandSupport {
 
     public Object getLatestVersionFromTag() throws IOException {
         sh("git fetch --tags");
-        sh("git config versionsort.prereleaseSuffix -RC");
-        sh("git config versionsort.prereleaseSuffix -M");
 
-        // if the repo has no tags this command will fail
+        // lets sort the tags here rather than configuring the git prerelease suffixes for git tag --sort
         try {
-            String answer = shOutput("git tag --sort version:refname | tail -1").trim();
-            if (Strings.isNullOrBlank(answer)) {
+            String output = shOutput("git tag");
+            SemanticVersion answer = SemanticVersion.latest(Arrays.asList(output.split("\\s+")));
+            if (answer == null) {
                 error("no release tag found");
-            } else if (answer.startsWith("v")) {
-                return answer.substring(1);
+                return "";
             }
-            return answer;
+            return answer.toString();
         } catch (Exception err) {
             error("Failed to query tags from git: " + err);
             return null;
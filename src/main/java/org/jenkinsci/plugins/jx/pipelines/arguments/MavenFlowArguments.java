@@ -25,6 +25,8 @@ import org.jenkinsci.plugins.jx.pipelines.helpers.ConfigHelper;
 import org.jenkinsci.plugins.jx.pipelines.helpers.GitRepositoryInfo;
 import org.jenkinsci.plugins.jx.pipelines.model.ServiceConstants;
 import org.jenkinsci.plugins.jx.pipelines.model.StagedProjectInfo;
+import org.jenkinsci.plugins.jx.pipelines.repository.ArtifactAvailabilityChecker;
+import org.jenkinsci.plugins.jx.pipelines.repository.NexusStagingClient;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
@@ -54,6 +56,9 @@ public class MavenFlowArguments extends JXPipelinesArguments<MavenFlowArguments>
     @Argument
     private boolean pauseOnSuccess = false;
 
+    @Argument
+    private boolean persistentShell = false;
+
     @Argument
     private boolean useMavenForNextVersion = false;
     @Argument
@@ -87,6 +92,16 @@ public class MavenFlowArguments extends JXPipelinesArguments<MavenFlowArguments>
     @Argument
     private List<String> extraImagesToTag = new ArrayList<>();
     @Argument
+    private int imagePromotionConcurrency = PromoteImagesArguments.DEFAULT_CONCURRENCY;
+    @Argument
+    private boolean useRegistryCopy;
+    @Argument
+    private boolean concurrentRelease;
+    @Argument
+    private String nexusUrl = NexusStagingClient.DEFAULT_NEXUS_URL;
+    @Argument
+    private String nexusCredentialsId = "";
+    @Argument
     private String repositoryToWaitFor;
     @Argument
     private String groupId = "";
@@ -95,6 +110,10 @@ public class MavenFlowArguments extends JXPipelinesArguments<MavenFlowArguments>
     @Argument
     private String artifactIdToWaitFor = "";
     @Argument
+    private List<String> artifactsToWaitFor = new ArrayList<>();
+    @Argument
+    private int artifactSyncParallelism = ArtifactAvailabilityChecker.DEFAULT_PARALLELISM;
+    @Argument
     private List<String> mavenProfiles = new ArrayList<>();
 
     private StepExtension promoteArtifactsExtension = new StepExtension();
@@ -179,8 +198,15 @@ public class MavenFlowArguments extends JXPipelinesArguments<MavenFlowArguments>
 
         answer.setArtifactExtensionToWaitFor(getArtifactExtensionToWaitFor());
         answer.setArtifactIdToWaitFor(getArtifactIdToWaitFor());
+        answer.setArtifactsToWaitFor(getArtifactsToWaitFor());
+        answer.setArtifactSyncParallelism(getArtifactSyncParallelism());
         answer.setDockerOrganisation(getDockerOrganisation());
         answer.setExtraImagesToTag(getExtraImagesToTag());
+        answer.setImagePromotionConcurrency(getImagePromotionConcurrency());
+        answer.setUseRegistryCopy(isUseRegistryCopy());
+        answer.setConcurrentRelease(isConcurrentRelease());
+        answer.setNexusUrl(getNexusUrl());
+        answer.setNexusCredentialsId(getNexusCredentialsId());
         answer.setGroupId(getGroupId());
         answer.setPromoteDockerImages(getPromoteDockerImages());
         answer.setPromoteToDockerRegistry(getPromoteToDockerRegistry());
@@ -258,6 +284,64 @@ public class MavenFlowArguments extends JXPipelinesArguments<MavenFlowArguments>
         this.extraImagesToTag = extraImagesToTag;
     }
 
+    public int getImagePromotionConcurrency() {
+        return imagePromotionConcurrency;
+    }
+
+    /**
+     * The maximum number of docker images to promote or tag in parallel
+     */
+    @DataBoundSetter
+    public void setImagePromotionConcurrency(int imagePromotionConcurrency) {
+        this.imagePromotionConcurrency = imagePromotionConcurrency;
+    }
+
+    public boolean isUseRegistryCopy() {
+        return useRegistryCopy;
+    }
+
+    /**
+     * Copies images directly between registries over the registry HTTP API rather than via docker pull, tag and push
+     */
+    @DataBoundSetter
+    public void setUseRegistryCopy(boolean useRegistryCopy) {
+        this.useRegistryCopy = useRegistryCopy;
+    }
+
+    public boolean isConcurrentRelease() {
+        return concurrentRelease;
+    }
+
+    /**
+     * Releases all the staging repositories at once via the Nexus staging REST API rather than running maven
+     * for each one; requires the {@link #setNexusCredentialsId(String)}
+     */
+    @DataBoundSetter
+    public void setConcurrentRelease(boolean concurrentRelease) {
+        this.concurrentRelease = concurrentRelease;
+    }
+
+    public String getNexusUrl() {
+        return nexusUrl;
+    }
+
+    @DataBoundSetter
+    public void setNexusUrl(String nexusUrl) {
+        this.nexusUrl = nexusUrl;
+    }
+
+    public String getNexusCredentialsId() {
+        return nexusCredentialsId;
+    }
+
+    /**
+     * The id of the username and password credentials used to release the staging repositories
+     */
+    @DataBoundSetter
+    public void setNexusCredentialsId(String nexusCredentialsId) {
+        this.nexusCredentialsId = nexusCredentialsId;
+    }
+
     public String getRepositoryToWaitFor() {
         return repositoryToWaitFor;
     }
@@ -294,6 +378,31 @@ public class MavenFlowArguments extends JXPipelinesArguments<MavenFlowArguments>
         this.artifactIdToWaitFor = artifactIdToWaitFor;
     }
 
+    public List<String> getArtifactsToWaitFor() {
+        return artifactsToWaitFor;
+    }
+
+    /**
+     * The artifacts to wait for after a release, such as each module of a multi module project; either
+     * <code>groupId:artifactId:version</code>, <code>groupId:artifactId:extension:version</code> or just an artifactId
+     */
+    @DataBoundSetter
+    public void setArtifactsToWaitFor(List<String> artifactsToWaitFor) {
+        this.artifactsToWaitFor = artifactsToWaitFor;
+    }
+
+    public int getArtifactSyncParallelism() {
+        return artifactSyncParallelism;
+    }
+
+    /**
+     * How many of the {@link #getArtifactsToWaitFor()} to check at once
+     */
+    @DataBoundSetter
+    public void setArtifactSyncParallelism(int artifactSyncParallelism) {
+        this.artifactSyncParallelism = artifactSyncParallelism;
+    }
+
     public boolean isPauseOnFailure() {
         return pauseOnFailure;
     }
@@ -303,6 +412,19 @@ public class MavenFlowArguments extends JXPipelinesArguments<MavenFlowArguments>
         this.pauseOnFailure = pauseOnFailure;
     }
 
+    public boolean isPersistentShell() {
+        return persistentShell;
+    }
+
+    /**
+     * Whether shell commands invoked from the pipeline helpers should reuse a long lived shell per container
+     * rather than invoking a new <code>sh</code> step for each command
+     */
+    @DataBoundSetter
+    public void setPersistentShell(boolean persistentShell) {
+        this.persistentShell = persistentShell;
+    }
+
     public boolean isPauseOnSuccess() {
         return pauseOnSuccess;
     }
@@ -20,6 +20,7 @@ import hudson.Extension;
 import io.jenkins.functions.Argument;
 import org.jenkinsci.Symbol;
 import org.jenkinsci.plugins.jx.pipelines.StepExtension;
+import org.jenkinsci.plugins.jx.pipelines.repository.NexusStagingClient;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
@@ -45,6 +46,12 @@ public class PromoteArtifactsArguments extends JXPipelinesArguments<PromoteArtif
     private boolean updateNextDevelopmentVersion;
     @Argument
     private String updateNextDevelopmentVersionArguments = "";
+    @Argument
+    private boolean concurrentRelease;
+    @Argument
+    private String nexusUrl = NexusStagingClient.DEFAULT_NEXUS_URL;
+    @Argument
+    private String nexusCredentialsId = "";
 
     private StepExtension stepExtension;
 
@@ -137,6 +144,40 @@ public class PromoteArtifactsArguments extends JXPipelinesArguments<PromoteArtif
         this.updateNextDevelopmentVersionArguments = updateNextDevelopmentVersionArguments;
     }
 
+    public boolean isConcurrentRelease() {
+        return concurrentRelease;
+    }
+
+    /**
+     * Releases all the staging repositories at once via the Nexus staging REST API rather than running maven
+     * for each one; requires the {@link #setNexusCredentialsId(String)}
+     */
+    @DataBoundSetter
+    public void setConcurrentRelease(boolean concurrentRelease) {
+        this.concurrentRelease = concurrentRelease;
+    }
+
+    public String getNexusUrl() {
+        return nexusUrl;
+    }
+
+    @DataBoundSetter
+    public void setNexusUrl(String nexusUrl) {
+        this.nexusUrl = nexusUrl;
+    }
+
+    public String getNexusCredentialsId() {
+        return nexusCredentialsId;
+    }
+
+    /**
+     * The id of the username and password credentials used to release the staging repositories
+     */
+    @DataBoundSetter
+    public void setNexusCredentialsId(String nexusCredentialsId) {
+        this.nexusCredentialsId = nexusCredentialsId;
+    }
+
     public StepExtension getStepExtension() {
         return stepExtension;
     }
@@ -32,6 +32,8 @@ import java.util.List;
 public class PromoteImagesArguments extends JXPipelinesArguments<PromoteImagesArguments> {
     private static final long serialVersionUID = 1L;
 
+    public static final int DEFAULT_CONCURRENCY = 1;
+
     @Argument
     private String tag = "";
     @Argument
@@ -42,6 +44,10 @@ public class PromoteImagesArguments extends JXPipelinesArguments<PromoteImagesAr
     private List<String> images = new ArrayList<>();
     @Argument
     private String containerName = "maven";
+    @Argument
+    private boolean useRegistryCopy;
+    @Argument
+    private int concurrency = DEFAULT_CONCURRENCY;
 
     private StepExtension stepExtension;
 
@@ -117,6 +123,30 @@ public class PromoteImagesArguments extends JXPipelinesArguments<PromoteImagesAr
         this.containerName = containerName;
     }
 
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * The maximum number of images to process in parallel
+     */
+    @DataBoundSetter
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public boolean isUseRegistryCopy() {
+        return useRegistryCopy;
+    }
+
+    /**
+     * Copies images directly between registries over the registry HTTP API rather than via docker pull, tag and push
+     */
+    @DataBoundSetter
+    public void setUseRegistryCopy(boolean useRegistryCopy) {
+        this.useRegistryCopy = useRegistryCopy;
+    }
+
     public StepExtension getStepExtension() {
         return stepExtension;
     }
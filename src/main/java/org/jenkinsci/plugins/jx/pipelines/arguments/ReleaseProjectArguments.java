@@ -24,6 +24,8 @@ import org.jenkinsci.plugins.jx.pipelines.StepExtension;
 import org.jenkinsci.plugins.jx.pipelines.helpers.ConfigHelper;
 import org.jenkinsci.plugins.jx.pipelines.model.ServiceConstants;
 import org.jenkinsci.plugins.jx.pipelines.model.StagedProjectInfo;
+import org.jenkinsci.plugins.jx.pipelines.repository.ArtifactAvailabilityChecker;
+import org.jenkinsci.plugins.jx.pipelines.repository.NexusStagingClient;
 import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
@@ -57,6 +59,10 @@ public class ReleaseProjectArguments extends JXPipelinesArguments<ReleaseProject
     @Argument
     private List<String> extraImagesToTag = new ArrayList<>();
     @Argument
+    private int imagePromotionConcurrency = PromoteImagesArguments.DEFAULT_CONCURRENCY;
+    @Argument
+    private boolean useRegistryCopy;
+    @Argument
     private String repositoryToWaitFor = ServiceConstants.MAVEN_CENTRAL;
     @Argument
     private String groupId = "";
@@ -65,6 +71,10 @@ public class ReleaseProjectArguments extends JXPipelinesArguments<ReleaseProject
     @Argument
     private String artifactIdToWaitFor = "";
     @Argument
+    private List<String> artifactsToWaitFor = new ArrayList<>();
+    @Argument
+    private int artifactSyncParallelism = ArtifactAvailabilityChecker.DEFAULT_PARALLELISM;
+    @Argument
     private boolean useGitTagForNextVersion;
     @Argument
     private boolean helmPush;
@@ -72,6 +82,12 @@ public class ReleaseProjectArguments extends JXPipelinesArguments<ReleaseProject
     private boolean updateNextDevelopmentVersion;
     @Argument
     private String updateNextDevelopmentVersionArguments = "";
+    @Argument
+    private boolean concurrentRelease;
+    @Argument
+    private String nexusUrl = NexusStagingClient.DEFAULT_NEXUS_URL;
+    @Argument
+    private String nexusCredentialsId = "";
 
     private StepExtension promoteArtifactsExtension;
     private StepExtension promoteImagesExtension;
@@ -104,6 +120,10 @@ public class ReleaseProjectArguments extends JXPipelinesArguments<ReleaseProject
                 ", promoteToDockerRegistry='" + promoteToDockerRegistry + '\'' +
                 ", promoteDockerImages=" + promoteDockerImages +
                 ", extraImagesToTag=" + extraImagesToTag +
+                ", imagePromotionConcurrency=" + imagePromotionConcurrency +
+                ", useRegistryCopy=" + useRegistryCopy +
+                ", concurrentRelease=" + concurrentRelease +
+                ", nexusUrl='" + nexusUrl + '\'' +
                 ", repositoryToWaitFor='" + repositoryToWaitFor + '\'' +
                 ", groupId='" + groupId + '\'' +
                 ", artifactExtensionToWaitFor='" + artifactExtensionToWaitFor + '\'' +
@@ -115,7 +135,11 @@ public class ReleaseProjectArguments extends JXPipelinesArguments<ReleaseProject
      * Returns the arguments for invoking {@link PromoteArtifactsArguments}
      */
     public PromoteArtifactsArguments createPromoteArtifactsArguments() {
-        return new PromoteArtifactsArguments(getProject(), getReleaseVersion(), getRepoIds(), getContainerName(), isHelmPush(), isUpdateNextDevelopmentVersion(), getUpdateNextDevelopmentVersionArguments(), getPromoteArtifactsExtension());
+        PromoteArtifactsArguments answer = new PromoteArtifactsArguments(getProject(), getReleaseVersion(), getRepoIds(), getContainerName(), isHelmPush(), isUpdateNextDevelopmentVersion(), getUpdateNextDevelopmentVersionArguments(), getPromoteArtifactsExtension());
+        answer.setConcurrentRelease(isConcurrentRelease());
+        answer.setNexusUrl(getNexusUrl());
+        answer.setNexusCredentialsId(getNexusCredentialsId());
+        return answer;
     }
 
     /**
@@ -126,7 +150,10 @@ public class ReleaseProjectArguments extends JXPipelinesArguments<ReleaseProject
         String org = getDockerOrganisation();
         String toRegistry = getPromoteToDockerRegistry();
         List<String> images = getPromoteDockerImages();
-        return new PromoteImagesArguments(getReleaseVersion(), org, toRegistry, images, getPromoteImagesExtension());
+        PromoteImagesArguments answer = new PromoteImagesArguments(getReleaseVersion(), org, toRegistry, images, getPromoteImagesExtension());
+        answer.setConcurrency(getImagePromotionConcurrency());
+        answer.setUseRegistryCopy(isUseRegistryCopy());
+        return answer;
     }
 
     /**
@@ -134,7 +161,10 @@ public class ReleaseProjectArguments extends JXPipelinesArguments<ReleaseProject
      */
     public TagImagesArguments createTagImagesArguments() {
         if (extraImagesToTag != null && !extraImagesToTag.isEmpty()) {
-            return new TagImagesArguments(getReleaseVersion(), extraImagesToTag, getTagImagesExtension());
+            TagImagesArguments answer = new TagImagesArguments(getReleaseVersion(), extraImagesToTag, getTagImagesExtension());
+            answer.setConcurrency(getImagePromotionConcurrency());
+            answer.setUseRegistryCopy(isUseRegistryCopy());
+            return answer;
         } else {
             return null;
         }
@@ -160,6 +190,10 @@ public class ReleaseProjectArguments extends JXPipelinesArguments<ReleaseProject
         if (Strings.notEmpty(repositoryToWaitFor)) {
             arguments.setRepositoryUrl(repositoryToWaitFor);
         }
+        if (artifactsToWaitFor != null) {
+            arguments.setArtifacts(new ArrayList<>(artifactsToWaitFor));
+        }
+        arguments.setParallelism(artifactSyncParallelism);
         return arguments;
     }
 
@@ -229,6 +263,64 @@ public class ReleaseProjectArguments extends JXPipelinesArguments<ReleaseProject
         this.promoteDockerImages = promoteDockerImages;
     }
 
+    public int getImagePromotionConcurrency() {
+        return imagePromotionConcurrency;
+    }
+
+    /**
+     * The maximum number of docker images to promote or tag in parallel
+     */
+    @DataBoundSetter
+    public void setImagePromotionConcurrency(int imagePromotionConcurrency) {
+        this.imagePromotionConcurrency = imagePromotionConcurrency;
+    }
+
+    public boolean isUseRegistryCopy() {
+        return useRegistryCopy;
+    }
+
+    /**
+     * Copies images directly between registries over the registry HTTP API rather than via docker pull, tag and push
+     */
+    @DataBoundSetter
+    public void setUseRegistryCopy(boolean useRegistryCopy) {
+        this.useRegistryCopy = useRegistryCopy;
+    }
+
+    public boolean isConcurrentRelease() {
+        return concurrentRelease;
+    }
+
+    /**
+     * Releases all the staging repositories at once via the Nexus staging REST API rather than running maven
+     * for each one; requires the {@link #setNexusCredentialsId(String)}
+     */
+    @DataBoundSetter
+    public void setConcurrentRelease(boolean concurrentRelease) {
+        this.concurrentRelease = concurrentRelease;
+    }
+
+    public String getNexusUrl() {
+        return nexusUrl;
+    }
+
+    @DataBoundSetter
+    public void setNexusUrl(String nexusUrl) {
+        this.nexusUrl = nexusUrl;
+    }
+
+    public String getNexusCredentialsId() {
+        return nexusCredentialsId;
+    }
+
+    /**
+     * The id of the username and password credentials used to release the staging repositories
+     */
+    @DataBoundSetter
+    public void setNexusCredentialsId(String nexusCredentialsId) {
+        this.nexusCredentialsId = nexusCredentialsId;
+    }
+
     public List<String> getExtraImagesToTag() {
         return extraImagesToTag;
     }
@@ -274,6 +366,31 @@ public class ReleaseProjectArguments extends JXPipelinesArguments<ReleaseProject
         this.artifactIdToWaitFor = artifactIdToWaitFor;
     }
 
+    public List<String> getArtifactsToWaitFor() {
+        return artifactsToWaitFor;
+    }
+
+    /**
+     * The artifacts to wait for after a release, such as each module of a multi module project; either
+     * <code>groupId:artifactId:version</code>, <code>groupId:artifactId:extension:version</code> or just an artifactId
+     */
+    @DataBoundSetter
+    public void setArtifactsToWaitFor(List<String> artifactsToWaitFor) {
+        this.artifactsToWaitFor = artifactsToWaitFor;
+    }
+
+    public int getArtifactSyncParallelism() {
+        return artifactSyncParallelism;
+    }
+
+    /**
+     * How many of the {@link #getArtifactsToWaitFor()} to check at once
+     */
+    @DataBoundSetter
+    public void setArtifactSyncParallelism(int artifactSyncParallelism) {
+        this.artifactSyncParallelism = artifactSyncParallelism;
+    }
+
     public boolean isUseGitTagForNextVersion() {
         return useGitTagForNextVersion;
     }
@@ -39,6 +39,10 @@ public class TagImagesArguments extends JXPipelinesArguments<TagImagesArguments>
     private List<String> images = new ArrayList<>();
     @Argument
     private String containerName = "maven";
+    @Argument
+    private boolean useRegistryCopy;
+    @Argument
+    private int concurrency = PromoteImagesArguments.DEFAULT_CONCURRENCY;
 
     private StepExtension stepExtension;
 
@@ -79,6 +83,30 @@ public class TagImagesArguments extends JXPipelinesArguments<TagImagesArguments>
         this.containerName = containerName;
     }
 
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * The maximum number of images to process in parallel
+     */
+    @DataBoundSetter
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public boolean isUseRegistryCopy() {
+        return useRegistryCopy;
+    }
+
+    /**
+     * Copies images directly between registries over the registry HTTP API rather than via docker pull, tag and push
+     */
+    @DataBoundSetter
+    public void setUseRegistryCopy(boolean useRegistryCopy) {
+        this.useRegistryCopy = useRegistryCopy;
+    }
+
     public StepExtension getStepExtension() {
         return stepExtension;
     }
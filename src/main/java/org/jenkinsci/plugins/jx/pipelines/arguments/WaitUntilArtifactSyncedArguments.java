@@ -21,10 +21,15 @@ import io.jenkins.functions.Argument;
 import org.jenkinsci.Symbol;
 import org.jenkinsci.plugins.jx.pipelines.StepExtension;
 import org.jenkinsci.plugins.jx.pipelines.model.ServiceConstants;
+import org.jenkinsci.plugins.jx.pipelines.repository.ArtifactAvailabilityChecker;
+import org.jenkinsci.plugins.jx.pipelines.repository.ArtifactCoordinates;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
 import javax.validation.constraints.NotEmpty;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  */
@@ -37,13 +42,16 @@ public class WaitUntilArtifactSyncedArguments extends JXPipelinesArguments<WaitU
     @NotEmpty
     private String groupId = "";
     @Argument
-    @NotEmpty
     private String artifactId = "";
     @Argument
     @NotEmpty
     private String version = "";
     @Argument
     private String extension = "jar";
+    @Argument
+    private List<String> artifacts = new ArrayList<>();
+    @Argument
+    private int parallelism = ArtifactAvailabilityChecker.DEFAULT_PARALLELISM;
 
     private StepExtension stepExtension;
 
@@ -66,15 +74,40 @@ public class WaitUntilArtifactSyncedArguments extends JXPipelinesArguments<WaitU
                 ", artifactId='" + artifactId + '\'' +
                 ", version='" + version + '\'' +
                 ", ext='" + extension + '\'' +
+                ", artifacts=" + artifacts +
+                ", parallelism=" + parallelism +
                 '}';
     }
 
 
     /**
-     * Returns true if the properties are populated with enough values to watch for an artifact
+     * Returns true if the properties are populated with enough values to watch for at least one artifact
      */
+    @Whitelisted
     public boolean isValid() {
-        return io.fabric8.utils.Strings.notEmpty(repositoryUrl) && io.fabric8.utils.Strings.notEmpty(groupId) && io.fabric8.utils.Strings.notEmpty(artifactId) && io.fabric8.utils.Strings.notEmpty(extension);
+        return io.fabric8.utils.Strings.notEmpty(repositoryUrl) && io.fabric8.utils.Strings.notEmpty(extension) && !createArtifactCoordinates().isEmpty();
+    }
+
+    /**
+     * Returns the coordinates of all the artifacts to wait for. Each entry in {@link #getArtifacts()} is either
+     * <code>groupId:artifactId:version</code>, <code>groupId:artifactId:extension:version</code> or just an artifactId
+     * which uses the groupId, version and extension of these arguments. If there are no artifacts then
+     * the single artifact defined by the groupId, artifactId and version is used.
+     */
+    @Whitelisted
+    public List<ArtifactCoordinates> createArtifactCoordinates() {
+        List<ArtifactCoordinates> answer = new ArrayList<>();
+        if (artifacts != null) {
+            for (String artifact : artifacts) {
+                if (io.fabric8.utils.Strings.notEmpty(artifact)) {
+                    answer.add(ArtifactCoordinates.parse(artifact, groupId, version, extension));
+                }
+            }
+        }
+        if (answer.isEmpty() && io.fabric8.utils.Strings.notEmpty(groupId) && io.fabric8.utils.Strings.notEmpty(artifactId) && io.fabric8.utils.Strings.notEmpty(version)) {
+            answer.add(new ArtifactCoordinates(groupId, artifactId, version, extension));
+        }
+        return answer;
     }
 
 
@@ -123,6 +156,24 @@ public class WaitUntilArtifactSyncedArguments extends JXPipelinesArguments<WaitU
         this.extension = extension;
     }
 
+    public List<String> getArtifacts() {
+        return artifacts;
+    }
+
+    @DataBoundSetter
+    public void setArtifacts(List<String> artifacts) {
+        this.artifacts = artifacts;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @DataBoundSetter
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     public StepExtension getStepExtension() {
         return stepExtension;
     }
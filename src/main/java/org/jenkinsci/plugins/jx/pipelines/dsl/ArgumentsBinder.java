@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.dsl;
+
+import groovy.lang.Closure;
+import groovy.lang.GroovyInterceptable;
+import groovy.lang.GroovyObjectSupport;
+import org.jenkinsci.plugins.jx.pipelines.StepExtension;
+import org.jenkinsci.plugins.jx.pipelines.arguments.JXPipelinesArguments;
+import org.jenkinsci.plugins.jx.pipelines.helpers.ArgumentsSchema;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The delegate of a DSL body such as <code>mavenFlow { cdOrganisation 'cheese' }</code> which binds each
+ * method call to the matching parameter of the arguments class.
+ * <p>
+ * This is {@link GroovyInterceptable} so that Groovy calls {@link #invokeMethod(String, Object)} directly rather than
+ * failing to find a method first; calls are then dispatched via the {@link ArgumentsSchema} of the arguments class,
+ * which is created once per class, rather than via a map of closures per run. {@link JXPipelinesWhitelist} only
+ * permits the dynamic <code>invokeMethod</code> and <code>setProperty</code> calls on this class.
+ * <p>
+ * The blocks passed to {@link StepExtension} parameters, such as <code>promoteArtifacts { steps { ... } }</code>,
+ * are CPS closures which cannot be invoked from Java; so they are recorded here and the DSL invokes them with
+ * the {@link StepExtension} returned by {@link #getExtension(String)} as their delegate.
+ */
+public class ArgumentsBinder<A extends JXPipelinesArguments> extends GroovyObjectSupport implements GroovyInterceptable, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Class<A> type;
+    private final Map<String, Object> values = new LinkedHashMap<>();
+    private final Map<String, List<Closure>> extensionBodies = new LinkedHashMap<>();
+
+    @Whitelisted
+    public ArgumentsBinder(Class<A> type) {
+        this.type = type;
+    }
+
+    @Override
+    public String toString() {
+        return "ArgumentsBinder{" + type.getSimpleName() + " " + values.keySet() + "}";
+    }
+
+    @Override
+    public Object invokeMethod(String name, Object args) {
+        String field = ArgumentsSchema.of(type).getFieldForDslName(name);
+        if (field == null) {
+            if (!getMetaClass().respondsTo(this, name).isEmpty()) {
+                return getMetaClass().invokeMethod(this, name, args);
+            }
+            // unknown names are ignored as before; declarative validation reports them
+            return null;
+        }
+        Object value = args;
+        if (args instanceof Object[]) {
+            Object[] array = (Object[]) args;
+            if (array.length == 0) {
+                value = null;
+            } else if (array.length == 1) {
+                value = array[0];
+            }
+        }
+        bind(field, value);
+        return null;
+    }
+
+    @Override
+    public void setProperty(String name, Object value) {
+        String field = ArgumentsSchema.of(type).getFieldForDslName(name);
+        if (field != null) {
+            bind(field, value);
+        } else {
+            super.setProperty(name, value);
+        }
+    }
+
+    /**
+     * Returns the {@link StepExtension} parameters which were configured with a block
+     */
+    @Whitelisted
+    public List<String> getExtensionFields() {
+        return new ArrayList<>(extensionBodies.keySet());
+    }
+
+    /**
+     * Returns the blocks configuring the given {@link StepExtension} parameter in the order they were declared
+     */
+    @Whitelisted
+    public List<Closure> getExtensionBodies(String field) {
+        List<Closure> bodies = extensionBodies.get(field);
+        return bodies != null ? new ArrayList<>(bodies) : Collections.emptyList();
+    }
+
+    /**
+     * Returns the {@link StepExtension} for the given parameter, creating it if required
+     */
+    @Whitelisted
+    public StepExtension getExtension(String field) {
+        Object value = values.get(field);
+        if (value instanceof StepExtension) {
+            return (StepExtension) value;
+        }
+        StepExtension extension = new StepExtension();
+        values.put(field, extension);
+        return extension;
+    }
+
+    /**
+     * Creates the arguments from the values which have been bound
+     */
+    @Whitelisted
+    public A build() {
+        try {
+            return ArgumentsSchema.of(type).bind(values);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Could not populate argument for " + type.getName() + " from arguments " + values + ": " + e, e);
+        }
+    }
+
+    protected void bind(String field, Object value) {
+        if (ArgumentsSchema.of(type).isExtension(field) && !(value instanceof StepExtension)) {
+            if (!(value instanceof Closure)) {
+                throw new IllegalArgumentException("Expected a block to configure " + field + " but was " + value);
+            }
+            List<Closure> bodies = extensionBodies.get(field);
+            if (bodies == null) {
+                bodies = new ArrayList<>();
+                extensionBodies.put(field, bodies);
+            }
+            bodies.add((Closure) value);
+        } else {
+            values.put(field, value);
+        }
+    }
+}
@@ -32,8 +32,7 @@ public class JXPipelinesWhitelist extends Whitelist {
         return (method.getName().equals("invokeMethod") ||
                 method.getName().equals("setProperty") ||
                 method.getName().equals("getProperty")) &&
-                // TODO: Get rid of MethodMissingWrapper and the closure translation stuff, probably similar to in Declarative
-                MethodMissingWrapper.class.isAssignableFrom(o.getClass());
+                o instanceof ArgumentsBinder;
     }
 
     @Override
@@ -1,4 +0,0 @@
-package org.jenkinsci.plugins.jx.pipelines.dsl;
-
-public interface MethodMissingWrapper {
-}
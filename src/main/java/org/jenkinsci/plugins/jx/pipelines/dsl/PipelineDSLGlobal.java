@@ -18,6 +18,7 @@ package org.jenkinsci.plugins.jx.pipelines.dsl;
 import groovy.lang.Binding;
 import hudson.Extension;
 import hudson.ExtensionList;
+import hudson.ExtensionListListener;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.jx.pipelines.arguments.JXPipelinesArgumentsDescriptor;
 import org.jenkinsci.plugins.pipeline.modeldefinition.ast.ModelASTStep;
@@ -31,11 +32,29 @@ import org.jenkinsci.plugins.workflow.cps.GlobalVariable;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class PipelineDSLGlobal extends GlobalVariable {
+    private static final String DSL_PACKAGE = "org.jenkinsci.plugins.jx.pipelines.dsl.";
+
+    /**
+     * The constructors of the DSL classes compiled by the class loader of each script class; held in a
+     * {@link ClassValue} so they go away with the script when the build completes
+     */
+    private static final ClassValue<Map<String, Constructor<?>>> DSL_CONSTRUCTORS = new ClassValue<Map<String, Constructor<?>>>() {
+        @Override
+        protected Map<String, Constructor<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static volatile GlobalIndex globalIndex;
 
     protected static Whitelist createStaticWhitelist(String... lines) throws IOException {
         List<String> list = new ArrayList<>();
@@ -97,25 +116,75 @@ public abstract class PipelineDSLGlobal extends GlobalVariable {
     }
 
     private Object loadFunction(CpsScript script, Binding binding, String functionName) throws Exception {
-        script.getClass().getClassLoader().loadClass("org.jenkinsci.plugins.jx.pipelines.dsl.CommonFunctions");
-        script.getClass().getClassLoader().loadClass("org.jenkinsci.plugins.jx.pipelines.dsl.BodyAssigner");
-        Object pipelineDSL = script.getClass()
-                .getClassLoader()
-                .loadClass("org.jenkinsci.plugins.jx.pipelines.dsl." + StringUtils.capitalize(functionName))
-                .getConstructor(CpsScript.class)
-                .newInstance(script);
+        Object pipelineDSL = getDSLConstructor(script.getClass(), functionName).newInstance(script);
         binding.setVariable(functionName, pipelineDSL);
         return pipelineDSL;
     }
 
+    /**
+     * Returns the constructor of the DSL class for the given function, loading the class and the classes
+     * it depends on via the class loader of the script the first time
+     */
+    static Constructor<?> getDSLConstructor(Class<? extends CpsScript> scriptClass, String functionName) throws ClassNotFoundException, NoSuchMethodException {
+        Map<String, Constructor<?>> constructors = DSL_CONSTRUCTORS.get(scriptClass);
+        Constructor<?> constructor = constructors.get(functionName);
+        if (constructor == null) {
+            ClassLoader classLoader = scriptClass.getClassLoader();
+            classLoader.loadClass(DSL_PACKAGE + "CommonFunctions");
+            constructor = classLoader.loadClass(DSL_PACKAGE + StringUtils.capitalize(functionName)).getConstructor(CpsScript.class);
+            constructors.put(functionName, constructor);
+        }
+        return constructor;
+    }
+
     @CheckForNull
     public static PipelineDSLGlobal getGlobalForName(@Nonnull String name) {
-        for (PipelineDSLGlobal g : ExtensionList.lookup(PipelineDSLGlobal.class)) {
-            if (name.equals(g.getFunctionName())) {
-                return g;
+        ExtensionList<PipelineDSLGlobal> extensions = ExtensionList.lookup(PipelineDSLGlobal.class);
+        GlobalIndex index = globalIndex;
+        if (index == null || index.extensions != extensions) {
+            index = new GlobalIndex(extensions);
+            globalIndex = index;
+        }
+        return index.get(name);
+    }
+
+    /**
+     * An index of the globals by function name which is rebuilt whenever the extension list changes,
+     * such as when a plugin is dynamically loaded
+     */
+    private static class GlobalIndex extends ExtensionListListener {
+        private final ExtensionList<PipelineDSLGlobal> extensions;
+        private volatile Map<String, PipelineDSLGlobal> globals;
+
+        GlobalIndex(ExtensionList<PipelineDSLGlobal> extensions) {
+            this.extensions = extensions;
+            extensions.addListener(this);
+        }
+
+        @Override
+        public synchronized void onChange() {
+            globals = null;
+        }
+
+        PipelineDSLGlobal get(String name) {
+            Map<String, PipelineDSLGlobal> map = globals;
+            if (map == null) {
+                map = rebuild();
             }
+            return map.get(name);
         }
 
-        return null;
+        private synchronized Map<String, PipelineDSLGlobal> rebuild() {
+            Map<String, PipelineDSLGlobal> map = globals;
+            if (map == null) {
+                map = new HashMap<>();
+                for (PipelineDSLGlobal g : extensions) {
+                    // the first matching extension wins as with the linear scan
+                    map.putIfAbsent(g.getFunctionName(), g);
+                }
+                globals = map;
+            }
+            return map;
+        }
     }
 }
@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.github;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import io.fabric8.utils.Strings;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jenkinsci.plugins.jx.pipelines.HttpClients;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A small client for the GitHub REST API on top of the shared {@link HttpClients#getHttpClient()}.
+ * <p>
+ * Rather than parsing whole response bodies into maps we stream through the JSON and only keep the fields
+ * the caller asks for such as <code>number</code>, <code>head.ref</code>, <code>state</code> or <code>merged</code>.
+ * HTTP error codes are returned in the {@link GitHubResponse} rather than thrown.
+ * <p>
+ * GET requests are made conditional using the <code>ETag</code> of the last response in the {@link GitHubResponseCache}
+ * so that polling an unchanged resource does not use up the rate limit.
+ * <p>
+ * Each request first waits for the {@link GitHubRateLimiter} to allow a request of this client's priority and
+ * requests rejected due to the rate limit are retried once the limit resets. On the CPS VM thread we do not wait
+ * but fail with a {@link GitHubRateLimitException} instead so that the pipeline can wait with the <code>sleep</code> step.
+ */
+public class GitHubClient {
+    public static final String DEFAULT_API_URL = "https://api.github.com";
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int MAX_RATE_LIMITED_ATTEMPTS = 3;
+
+    private final OkHttpClient httpClient;
+    private final String apiUrl;
+    private final String token;
+    private final GitHubResponseCache cache;
+    private final GitHubRateLimiter rateLimiter;
+    private final GitHubRateLimiter.Priority priority;
+
+    public GitHubClient(String token) {
+        this(HttpClients.getHttpClient(), DEFAULT_API_URL, token, GitHubResponseCache.getInstance(), GitHubRateLimiter.getInstance(), GitHubRateLimiter.Priority.NORMAL);
+    }
+
+    public GitHubClient(OkHttpClient httpClient, String apiUrl, String token) {
+        this(httpClient, apiUrl, token, null);
+    }
+
+    /**
+     * @param cache the cache of GET responses or null to disable conditional requests
+     */
+    public GitHubClient(OkHttpClient httpClient, String apiUrl, String token, GitHubResponseCache cache) {
+        this(httpClient, apiUrl, token, cache, null, GitHubRateLimiter.Priority.NORMAL);
+    }
+
+    /**
+     * @param cache       the cache of GET responses or null to disable conditional requests
+     * @param rateLimiter the rate limiter or null to not wait for the rate limit
+     * @param priority    the priority of the requests made by this client
+     */
+    public GitHubClient(OkHttpClient httpClient, String apiUrl, String token, GitHubResponseCache cache, GitHubRateLimiter rateLimiter, GitHubRateLimiter.Priority priority) {
+        this.httpClient = httpClient;
+        this.apiUrl = apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+        this.token = token;
+        this.cache = cache;
+        this.rateLimiter = rateLimiter;
+        this.priority = priority;
+    }
+
+    /**
+     * Returns a client which makes requests with the given priority; e.g. {@link GitHubRateLimiter.Priority#HIGH} for merges
+     * and {@link GitHubRateLimiter.Priority#LOW} for status polling
+     */
+    public GitHubClient withPriority(GitHubRateLimiter.Priority priority) {
+        return new GitHubClient(httpClient, apiUrl, token, cache, rateLimiter, priority);
+    }
+
+    @Override
+    public String toString() {
+        return "GitHubClient{" +
+                "apiUrl='" + apiUrl + '\'' +
+                '}';
+    }
+
+    /**
+     * Invokes the given request returning the given field paths from the response
+     *
+     * @param method the HTTP method such as GET, POST, PATCH, PUT or DELETE
+     * @param path   the path of the API such as <code>repos/foo/bar/pulls/1</code>
+     * @param body   the optional JSON request body
+     * @param fields the dot separated paths of the fields in the response body to return
+     */
+    public GitHubResponse execute(String method, String path, String body, String... fields) throws IOException {
+        return execute(method, path, body, Arrays.asList(fields), false);
+    }
+
+    /**
+     * Invokes the given request returning the whole response body as text
+     */
+    public GitHubResponse executeForBody(String method, String path, String body) throws IOException {
+        return execute(method, path, body, null, true);
+    }
+
+    protected GitHubResponse execute(String method, String path, String body, Collection<String> fields, boolean returnBody) throws IOException {
+        Request request = createRequest(method, path, body);
+        String cacheKey = null;
+        GitHubResponseCache.Entry cached = null;
+        if (cache != null && method.equals("GET")) {
+            cacheKey = GitHubResponseCache.createKey(token, request.url().toString(), fields, returnBody);
+            cached = cache.get(cacheKey);
+            if (cached != null) {
+                request = request.newBuilder().header("If-None-Match", cached.getEtag()).build();
+            }
+        }
+        try (Response response = call(request)) {
+            if (cached != null && response.code() == 304) {
+                return cached.getResponse();
+            }
+            GitHubResponse answer = readResponse(response, fields, returnBody);
+            if (cacheKey != null) {
+                String etag = response.header("ETag");
+                if (response.code() == 200 && Strings.notEmpty(etag)) {
+                    cache.put(cacheKey, new GitHubResponseCache.Entry(etag, answer));
+                } else if (cached != null) {
+                    cache.remove(cacheKey);
+                }
+            }
+            return answer;
+        }
+    }
+
+    /**
+     * Invokes the request once the rate limiter allows, retrying if the request is rejected due to the rate limit
+     */
+    protected Response call(Request request) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            if (rateLimiter != null) {
+                try {
+                    rateLimiter.acquire(token, priority);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for the GitHub rate limit");
+                }
+            }
+            Response response = httpClient.newCall(request).execute();
+            if (rateLimiter == null || !rateLimiter.update(token, response) || attempt >= MAX_RATE_LIMITED_ATTEMPTS) {
+                return response;
+            }
+            response.close();
+        }
+    }
+
+    protected GitHubResponse readResponse(Response response, Collection<String> fields, boolean returnBody) throws IOException {
+        Map<String, String> values = null;
+        String text = null;
+        ResponseBody responseBody = response.body();
+        if (responseBody != null) {
+            if (returnBody) {
+                text = responseBody.string();
+            } else if (fields != null && !fields.isEmpty()) {
+                try (InputStream in = responseBody.byteStream()) {
+                    values = extractFields(in, fields);
+                } catch (JsonProcessingException e) {
+                    // error responses from a proxy, such as a 502, may not be JSON
+                    if (response.isSuccessful()) {
+                        throw e;
+                    }
+                }
+            }
+        }
+        return new GitHubResponse(response.code(), response.message(), values, text);
+    }
+
+    protected Request createRequest(String method, String path, String body) {
+        String url = path.startsWith("http://") || path.startsWith("https://") ? path : apiUrl + "/" + (path.startsWith("/") ? path.substring(1) : path);
+        Request.Builder builder = new Request.Builder().url(url).header("Accept", "application/vnd.github.v3+json");
+        if (Strings.notEmpty(token)) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        RequestBody requestBody = null;
+        if (body != null) {
+            requestBody = RequestBody.create(JSON, body);
+        } else if (method.equals("POST") || method.equals("PUT") || method.equals("PATCH")) {
+            requestBody = RequestBody.create(JSON, "");
+        }
+        return builder.method(method, requestBody).build();
+    }
+
+    /**
+     * Streams through the JSON object returning the values of the given dot separated field paths;
+     * any nested objects which are not on the path to a field and all arrays are skipped
+     */
+    public static Map<String, String> extractFields(InputStream in, Collection<String> fields) throws IOException {
+        Map<String, String> answer = new HashMap<>();
+        if (fields.isEmpty()) {
+            return answer;
+        }
+        Set<String> paths = new HashSet<>(fields);
+        Set<String> parents = new HashSet<>();
+        for (String field : paths) {
+            for (int idx = field.indexOf('.'); idx > 0; idx = field.indexOf('.', idx + 1)) {
+                parents.add(field.substring(0, idx));
+            }
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                readObject(parser, "", paths, parents, answer);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns true if all the fields have been found
+     */
+    private static boolean readObject(JsonParser parser, String prefix, Set<String> paths, Set<String> parents, Map<String, String> answer) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = prefix + parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                if (parents.contains(path)) {
+                    if (readObject(parser, path + ".", paths, parents, answer)) {
+                        return true;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            } else if (paths.contains(path)) {
+                answer.put(path, token == JsonToken.VALUE_NULL ? null : parser.getText());
+                if (answer.size() == paths.size()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
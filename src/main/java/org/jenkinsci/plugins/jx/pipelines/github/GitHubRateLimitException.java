@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.github;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of waiting for the GitHub rate limit when the request is made from a thread which must not block,
+ * such as the CPS VM thread of a pipeline; the pipeline code then waits for {@link #getDelayMillis()} with the
+ * <code>sleep</code> step before trying again
+ */
+public class GitHubRateLimitException extends IOException {
+    private final long delayMillis;
+
+    public GitHubRateLimitException(String message, long delayMillis) {
+        super(message);
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * Returns how long the caller would have had to wait before making the request
+     */
+    @Whitelisted
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.github;
+
+import com.codahale.metrics.Gauge;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import okhttp3.Response;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jenkinsci.plugins.jx.pipelines.metrics.JXPipelinesMetrics;
+import org.jenkinsci.plugins.workflow.cps.CpsThread;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the GitHub rate limit of each token across the controller from the <code>X-RateLimit-*</code> and
+ * <code>Retry-After</code> response headers and makes callers wait before a request would exceed it.
+ * <p>
+ * Requests have a {@link Priority}; low priority requests such as status polls stop once the quota drops to
+ * the low reserve and are spread out evenly over the time remaining in the rate limit window, normal requests stop
+ * at the normal reserve and high priority requests such as merges can use the whole quota. A caller which has to wait
+ * sleeps until the rate limit resets rather than retrying. A caller on the CPS VM thread would block every pipeline
+ * on the controller so it gets a {@link GitHubRateLimitException} instead and the pipeline code waits for its delay
+ * with the <code>sleep</code> step before trying again. Conditional requests which
+ * return <code>304 Not Modified</code> do not count against the rate limit so do not use up the quota.
+ * <p>
+ * The remaining quota, limit and reset time of each token are published as gauges named
+ * <code>jx-pipelines.github.rate-limit.*.&lt;token hash&gt;</code> along with the lowest remaining quota of all tokens,
+ * which is registered once the metrics plugin has started.
+ */
+public class GitHubRateLimiter {
+    public static final int DEFAULT_LOW_RESERVE = Integer.getInteger(GitHubRateLimiter.class.getName() + ".lowReserve", 500);
+    public static final int DEFAULT_NORMAL_RESERVE = Integer.getInteger(GitHubRateLimiter.class.getName() + ".normalReserve", 50);
+
+    /**
+     * Allow for clock skew between us and GitHub when waiting for the reset
+     */
+    private static final long RESET_SKEW_MILLIS = 1000L;
+
+    private static final GitHubRateLimiter INSTANCE = new GitHubRateLimiter(DEFAULT_LOW_RESERVE, DEFAULT_NORMAL_RESERVE);
+
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    private final int lowReserve;
+    private final int normalReserve;
+    private final Map<String, Quota> quotas = new ConcurrentHashMap<>();
+
+    public GitHubRateLimiter(int lowReserve, int normalReserve) {
+        this.lowReserve = lowReserve;
+        this.normalReserve = normalReserve;
+    }
+
+    /**
+     * Registers the gauge of the lowest remaining quota of the shared limiter once the metrics registry is available
+     */
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static void registerMetrics() {
+        JXPipelinesMetrics.registerGauge(JXPipelinesMetrics.name("github", "rate-limit", "remaining"), (Gauge<Integer>) INSTANCE::getLowestRemaining);
+    }
+
+    /**
+     * Returns the limiter shared by all the {@link GitHubClient} instances
+     */
+    public static GitHubRateLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Blocks until a request of the given priority can be made with the given token
+     *
+     * @throws GitHubRateLimitException if the request has to wait but the current thread must not block
+     */
+    public void acquire(String token, Priority priority) throws InterruptedException, GitHubRateLimitException {
+        Quota quota = getQuota(token);
+        while (true) {
+            long delay;
+            synchronized (quota) {
+                delay = quota.delayMillis(priority, currentTimeMillis());
+                if (delay <= 0) {
+                    quota.reserve(priority, currentTimeMillis());
+                    return;
+                }
+            }
+            if (!canSleep()) {
+                throw new GitHubRateLimitException("The GitHub rate limit only allows another " + priority + " priority request in "
+                        + (delay / 1000L) + " seconds", delay);
+            }
+            sleep(delay);
+        }
+    }
+
+    /**
+     * Updates the quota of the token from the headers of the given response.
+     *
+     * @return true if the request was rejected due to the rate limit so should be retried after {@link #acquire(String, Priority)}
+     */
+    public boolean update(String token, Response response) {
+        Quota quota = getQuota(token);
+        long now = currentTimeMillis();
+        Integer remaining = parseInt(response.header("X-RateLimit-Remaining"));
+        Integer limit = parseInt(response.header("X-RateLimit-Limit"));
+        Integer reset = parseInt(response.header("X-RateLimit-Reset"));
+        Integer retryAfter = parseInt(response.header("Retry-After"));
+        int code = response.code();
+        boolean limited = false;
+        synchronized (quota) {
+            if (remaining != null) {
+                quota.remaining = remaining;
+            }
+            if (limit != null) {
+                quota.limit = limit;
+            }
+            if (reset != null) {
+                quota.resetMillis = reset * 1000L;
+            }
+            if (code == 304 && remaining == null) {
+                // GitHub does not count conditional requests which are not modified
+                quota.refund(now);
+            }
+            if (code == 403 || code == 429) {
+                if (retryAfter != null) {
+                    quota.retryAfterMillis = now + retryAfter * 1000L;
+                    limited = true;
+                } else if (remaining != null && remaining == 0) {
+                    limited = true;
+                }
+            }
+        }
+        return limited;
+    }
+
+    /**
+     * Returns the lowest known remaining quota of all the tokens or -1 if we don't know
+     */
+    public int getLowestRemaining() {
+        int answer = -1;
+        for (Quota quota : quotas.values()) {
+            int remaining = quota.remaining;
+            if (remaining >= 0 && (answer < 0 || remaining < answer)) {
+                answer = remaining;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the remaining quota of the given token or -1 if we don't know
+     */
+    public int getRemaining(String token) {
+        return getQuota(token).remaining;
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Returns false on the CPS VM thread as sleeping there would stop every pipeline on the controller
+     */
+    protected boolean canSleep() {
+        return CpsThread.current() == null;
+    }
+
+    protected void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    protected Quota getQuota(String token) {
+        String key = tokenHash(token);
+        return quotas.computeIfAbsent(key, k -> {
+            Quota quota = new Quota();
+            String suffix = k.length() > 8 ? k.substring(0, 8) : k;
+            JXPipelinesMetrics.registerGauge(JXPipelinesMetrics.name("github", "rate-limit", "remaining", suffix), (Gauge<Integer>) () -> quota.remaining);
+            JXPipelinesMetrics.registerGauge(JXPipelinesMetrics.name("github", "rate-limit", "limit", suffix), (Gauge<Integer>) () -> quota.limit);
+            JXPipelinesMetrics.registerGauge(JXPipelinesMetrics.name("github", "rate-limit", "reset-seconds", suffix), (Gauge<Long>) () -> Math.max(0L, (quota.resetMillis - currentTimeMillis()) / 1000L));
+            return quota;
+        });
+    }
+
+    private static String tokenHash(String token) {
+        return token != null && token.length() > 0 ? DigestUtils.sha256Hex(token) : "anonymous";
+    }
+
+    private static Integer parseInt(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    protected class Quota {
+        private volatile int remaining = -1;
+        private volatile int limit = -1;
+        private volatile long resetMillis;
+        private long retryAfterMillis;
+        private long lastLowPriorityMillis;
+
+        /**
+         * Returns how long the caller needs to wait before it can make a request
+         */
+        long delayMillis(Priority priority, long now) {
+            if (retryAfterMillis > now) {
+                return retryAfterMillis - now;
+            }
+            if (remaining < 0 || resetMillis + RESET_SKEW_MILLIS <= now) {
+                // we don't know the quota or the window has reset
+                return 0L;
+            }
+            int reserve = reserveFor(priority);
+            if (remaining <= reserve) {
+                return resetMillis + RESET_SKEW_MILLIS - now;
+            }
+            if (priority == Priority.LOW) {
+                // spread the low priority budget evenly over the rest of the window
+                long interval = (resetMillis - now) / (remaining - reserve);
+                long next = lastLowPriorityMillis + interval;
+                if (next > now) {
+                    return next - now;
+                }
+            }
+            return 0L;
+        }
+
+        void reserve(Priority priority, long now) {
+            if (remaining > 0 && resetMillis + RESET_SKEW_MILLIS > now) {
+                remaining--;
+            }
+            if (priority == Priority.LOW) {
+                lastLowPriorityMillis = now;
+            }
+        }
+
+        void refund(long now) {
+            if (remaining >= 0 && (limit < 0 || remaining < limit) && resetMillis + RESET_SKEW_MILLIS > now) {
+                remaining++;
+            }
+        }
+
+        private int reserveFor(Priority priority) {
+            switch (priority) {
+                case LOW:
+                    return lowReserve;
+                case NORMAL:
+                    return normalReserve;
+                default:
+                    return 0;
+            }
+        }
+    }
+}
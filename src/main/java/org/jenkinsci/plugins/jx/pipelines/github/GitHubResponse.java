@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.github;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The status of a GitHub API call along with the fields which were extracted from the response body
+ */
+public class GitHubResponse implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int responseCode;
+    private final String responseMessage;
+    private final Map<String, String> fields;
+    private final String body;
+
+    public GitHubResponse(int responseCode, String responseMessage, Map<String, String> fields, String body) {
+        this.responseCode = responseCode;
+        this.responseMessage = responseMessage;
+        this.fields = fields != null ? new HashMap<>(fields) : Collections.emptyMap();
+        this.body = body;
+    }
+
+    @Override
+    public String toString() {
+        return "GitHubResponse{" +
+                "responseCode=" + responseCode +
+                ", responseMessage='" + responseMessage + '\'' +
+                ", fields=" + fields +
+                '}';
+    }
+
+    public boolean isSuccessful() {
+        return responseCode >= 200 && responseCode < 300;
+    }
+
+    /**
+     * Returns true if the request failed due to a server error or throttling so it is worth trying again later
+     */
+    public boolean isTransientError() {
+        return responseCode >= 500 || responseCode == 429;
+    }
+
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    public String getResponseMessage() {
+        return responseMessage;
+    }
+
+    /**
+     * Returns the value of the given field path like <code>number</code> or <code>head.ref</code> or null if it was not
+     * in the response
+     */
+    public String getField(String path) {
+        return fields.get(path);
+    }
+
+    public Map<String, String> getFields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Returns the response body if it was requested via {@link GitHubClient#executeForBody(String, String, String)}
+     */
+    public String getBody() {
+        return body;
+    }
+}
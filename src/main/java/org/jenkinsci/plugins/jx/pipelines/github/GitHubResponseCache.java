@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.github;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of GitHub GET responses along with their <code>ETag</code> so that polling requests can be
+ * made conditional via <code>If-None-Match</code>; a <code>304 Not Modified</code> response does not count against
+ * the GitHub rate limit.
+ * <p>
+ * Entries are keyed by a hash of the token, the URL and the requested fields so that responses are never shared
+ * between tokens. The size can be configured via the <code>org.jenkinsci.plugins.jx.pipelines.github.GitHubResponseCache.maxEntries</code>
+ * system property.
+ */
+public class GitHubResponseCache {
+    public static final int DEFAULT_MAX_ENTRIES = Integer.getInteger(GitHubResponseCache.class.getName() + ".maxEntries", 1000);
+
+    private static final GitHubResponseCache INSTANCE = new GitHubResponseCache(DEFAULT_MAX_ENTRIES);
+
+    private final Map<String, Entry> entries;
+
+    public GitHubResponseCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache shared by all the {@link GitHubClient} instances
+     */
+    public static GitHubResponseCache getInstance() {
+        return INSTANCE;
+    }
+
+    public static class Entry {
+        private final String etag;
+        private final GitHubResponse response;
+
+        public Entry(String etag, GitHubResponse response) {
+            this.etag = etag;
+            this.response = response;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public GitHubResponse getResponse() {
+            return response;
+        }
+    }
+
+    public static String createKey(String token, String url, Collection<String> fields, boolean returnBody) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(token != null ? DigestUtils.sha256Hex(token) : "");
+        builder.append(' ').append(url).append(' ');
+        if (returnBody) {
+            builder.append("<body>");
+        } else if (fields != null) {
+            builder.append(String.join(",", fields));
+        }
+        return builder.toString();
+    }
+
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    public synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
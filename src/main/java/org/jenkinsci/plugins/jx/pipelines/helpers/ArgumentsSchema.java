@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import org.jenkinsci.plugins.jx.pipelines.StepExtension;
+import org.jenkinsci.plugins.jx.pipelines.arguments.JXPipelinesArguments;
+import org.jenkinsci.plugins.structs.describable.DescribableModel;
+import org.jenkinsci.plugins.structs.describable.DescribableParameter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The parameters of a {@link JXPipelinesArguments} class along with the {@link DescribableModel} used to bind
+ * them from a configuration map.
+ * <p>
+ * In the DSL a parameter is configured by a method of the same name; other than {@link StepExtension} parameters
+ * which drop the <code>Extension</code> suffix, so <code>promoteArtifactsExtension</code> is configured via
+ * <code>promoteArtifacts { ... }</code>
+ * <p>
+ * Creating a {@link DescribableModel} reflects over all the constructors, setters and parameter types of the class
+ * so we only do it once per class. The schemas are held in a {@link ClassValue} so that they are released along
+ * with the class loader of the arguments class.
+ */
+public final class ArgumentsSchema<A extends JXPipelinesArguments> {
+    private static final String EXTENSION_SUFFIX = "Extension";
+
+    private static final ClassValue<ArgumentsSchema<?>> SCHEMAS = new ClassValue<ArgumentsSchema<?>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected ArgumentsSchema<?> computeValue(Class<?> type) {
+            return new ArgumentsSchema(type.asSubclass(JXPipelinesArguments.class));
+        }
+    };
+
+    private final Class<A> type;
+    private final DescribableModel<A> model;
+    private final Map<String, Class> fields;
+    private final Map<String, String> dslNames;
+
+    private ArgumentsSchema(Class<A> type) {
+        this.type = type;
+        this.model = new DescribableModel<>(type);
+        Map<String, Class> map = new LinkedHashMap<>();
+        Map<String, String> names = new LinkedHashMap<>();
+        for (DescribableParameter parameter : model.getParameters()) {
+            String name = parameter.getName();
+            Class erasedType = parameter.getErasedType();
+            map.put(name, erasedType);
+            if (StepExtension.class.isAssignableFrom(erasedType) && name.endsWith(EXTENSION_SUFFIX)) {
+                names.put(name.substring(0, name.length() - EXTENSION_SUFFIX.length()), name);
+            } else {
+                names.put(name, name);
+            }
+        }
+        this.fields = Collections.unmodifiableMap(map);
+        this.dslNames = Collections.unmodifiableMap(names);
+    }
+
+    /**
+     * Returns the schema of the given arguments class, creating it on first use
+     */
+    @SuppressWarnings("unchecked")
+    public static <A extends JXPipelinesArguments> ArgumentsSchema<A> of(Class<A> type) {
+        return (ArgumentsSchema<A>) SCHEMAS.get(type);
+    }
+
+    @Override
+    public String toString() {
+        return "ArgumentsSchema{" + type.getName() + "}";
+    }
+
+    public Class<A> getType() {
+        return type;
+    }
+
+    /**
+     * Returns the names and erased types of the parameters
+     */
+    public Map<String, Class> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the parameter configured by the given DSL method name or null if there is no such parameter
+     */
+    public String getFieldForDslName(String dslName) {
+        return dslNames.get(dslName);
+    }
+
+    /**
+     * Returns true if the given parameter is a {@link StepExtension}
+     */
+    public boolean isExtension(String field) {
+        Class fieldType = fields.get(field);
+        return fieldType != null && StepExtension.class.isAssignableFrom(fieldType);
+    }
+
+    /**
+     * Creates a new instance of the arguments class from the given configuration
+     */
+    public <T> A bind(Map<String, T> arguments) throws Exception {
+        return model.instantiate(arguments);
+    }
+}
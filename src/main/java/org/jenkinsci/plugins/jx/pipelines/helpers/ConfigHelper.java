@@ -18,11 +18,8 @@ package org.jenkinsci.plugins.jx.pipelines.helpers;
 
 import org.jenkinsci.plugins.jx.pipelines.arguments.JXPipelinesArguments;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
-import org.jenkinsci.plugins.structs.describable.DescribableModel;
-import org.jenkinsci.plugins.structs.describable.DescribableParameter;
 
 import javax.annotation.Nonnull;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -35,7 +32,7 @@ public class ConfigHelper {
     public static <T,A extends JXPipelinesArguments> A populateBeanFromConfiguration(@Nonnull Class<A> klazz, Map<String, T> arguments) {
         if (arguments != null) {
             try {
-                return new DescribableModel<>(klazz).instantiate(arguments);
+                return ArgumentsSchema.of(klazz).bind(arguments);
             } catch (Exception e) {
                 throw new IllegalArgumentException("Could not populate argument for " + klazz.getName() + " from arguments " + arguments + ": " + e, e);
             }
@@ -44,18 +41,10 @@ public class ConfigHelper {
     }
 
     /**
-     * Gets a map of field names of an argument and their types.
+     * Gets a read only map of field names of an argument and their types.
      */
     @Whitelisted
     public static Map<String,Class> getArgumentFields(@Nonnull Class<? extends JXPipelinesArguments> klazz) {
-        Map<String, Class> fieldsAndTypes = new HashMap<>();
-
-        DescribableModel<? extends JXPipelinesArguments> m = new DescribableModel<>(klazz);
-
-        for (DescribableParameter p : m.getParameters()) {
-            fieldsAndTypes.put(p.getName(), p.getErasedType());
-        }
-
-        return fieldsAndTypes;
+        return ArgumentsSchema.of(klazz).getFields();
     }
 }
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import io.fabric8.utils.Strings;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The details of a git clone read directly from its <code>.git</code> directory by {@link GitWorkspaceReader}
+ */
+public class GitWorkspaceInfo implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String gitDir;
+    private final String headSha;
+    private final String localBranch;
+    private final List<String> remoteBranches;
+    private final String remoteUrl;
+
+    public GitWorkspaceInfo(String gitDir, String headSha, String localBranch, List<String> remoteBranches, String remoteUrl) {
+        this.gitDir = gitDir;
+        this.headSha = headSha;
+        this.localBranch = localBranch;
+        this.remoteBranches = remoteBranches != null ? new ArrayList<>(remoteBranches) : new ArrayList<>();
+        this.remoteUrl = remoteUrl;
+    }
+
+    @Override
+    public String toString() {
+        return "GitWorkspaceInfo{" +
+                "gitDir='" + gitDir + '\'' +
+                ", headSha='" + headSha + '\'' +
+                ", localBranch='" + localBranch + '\'' +
+                ", remoteBranches=" + remoteBranches +
+                ", remoteUrl='" + remoteUrl + '\'' +
+                '}';
+    }
+
+    /**
+     * Returns the branch name of the clone; preferring a branch on <code>origin</code> which points at the
+     * current commit like <code>git ls-remote --heads origin</code> then the checked out local branch
+     */
+    @Whitelisted
+    public String getBranch() {
+        if (!remoteBranches.isEmpty()) {
+            return remoteBranches.get(0);
+        }
+        return localBranch;
+    }
+
+    @Whitelisted
+    public String getGitDir() {
+        return gitDir;
+    }
+
+    @Whitelisted
+    public String getHeadSha() {
+        return headSha;
+    }
+
+    /**
+     * Returns the checked out local branch or null if the HEAD is detached
+     */
+    @Whitelisted
+    public String getLocalBranch() {
+        return localBranch;
+    }
+
+    /**
+     * Returns the remote tracking branches of <code>origin</code> which point at the current commit
+     */
+    @Whitelisted
+    public List<String> getRemoteBranches() {
+        return remoteBranches;
+    }
+
+    @Whitelisted
+    public String getRemoteUrl() {
+        return remoteUrl;
+    }
+
+    @Whitelisted
+    public boolean isDetached() {
+        return Strings.isNullOrBlank(localBranch);
+    }
+}
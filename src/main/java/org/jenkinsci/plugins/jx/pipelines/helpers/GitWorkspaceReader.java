@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import io.fabric8.utils.IOHelpers;
+import io.fabric8.utils.Strings;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the HEAD, refs and config of a git clone directly from its <code>.git</code> directory so that we don't
+ * need to run several <code>git</code> commands and a network round trip via <code>git ls-remote</code>
+ */
+public class GitWorkspaceReader {
+    private static final String HEAD_REF_PREFIX = "ref: ";
+    private static final String LOCAL_BRANCH_PREFIX = "refs/heads/";
+    private static final String REMOTE_NAME = "origin";
+    private static final String REMOTE_BRANCH_PREFIX = "refs/remotes/" + REMOTE_NAME + "/";
+    private static final String TAG_PREFIX = "refs/tags/";
+
+    /**
+     * Returns the details of the git clone which contains the given directory or null if it is not inside a git clone
+     */
+    public static GitWorkspaceInfo read(File dir) throws IOException {
+        File gitDir = findGitDir(dir);
+        if (gitDir == null) {
+            return null;
+        }
+        File commonDir = findCommonDir(gitDir);
+        Map<String, String> packedRefs = readPackedRefs(new File(commonDir, "packed-refs"));
+
+        String head = readFirstLine(new File(gitDir, "HEAD"));
+        String localBranch = null;
+        String headSha = null;
+        if (head != null && head.startsWith(HEAD_REF_PREFIX)) {
+            String ref = head.substring(HEAD_REF_PREFIX.length()).trim();
+            if (ref.startsWith(LOCAL_BRANCH_PREFIX)) {
+                localBranch = ref.substring(LOCAL_BRANCH_PREFIX.length());
+            }
+            headSha = resolveRef(gitDir, commonDir, packedRefs, ref);
+        } else if (Strings.notEmpty(head)) {
+            headSha = head.trim();
+        }
+
+        List<String> remoteBranches = new ArrayList<>();
+        if (Strings.notEmpty(headSha)) {
+            Map<String, String> remoteRefs = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : packedRefs.entrySet()) {
+                if (entry.getKey().startsWith(REMOTE_BRANCH_PREFIX)) {
+                    remoteRefs.put(entry.getKey(), entry.getValue());
+                }
+            }
+            // loose refs override packed refs
+            readLooseRefs(new File(commonDir, REMOTE_BRANCH_PREFIX), REMOTE_BRANCH_PREFIX, remoteRefs);
+            for (Map.Entry<String, String> entry : remoteRefs.entrySet()) {
+                String name = entry.getKey().substring(REMOTE_BRANCH_PREFIX.length());
+                if (!name.equals("HEAD") && headSha.equals(entry.getValue())) {
+                    remoteBranches.add(name);
+                }
+            }
+            Collections.sort(remoteBranches);
+        }
+
+        String remoteUrl = null;
+        File config = new File(commonDir, "config");
+        if (config.isFile()) {
+            remoteUrl = GitHelper.extractGitUrl(IOHelpers.readFully(config));
+        }
+        return new GitWorkspaceInfo(gitDir.getPath(), headSha, localBranch, remoteBranches, remoteUrl);
+    }
+
+    /**
+     * Parses the output of <code>git rev-parse HEAD && git for-each-ref --format='%(objectname) %(refname)' refs/remotes/origin</code>
+     * or of <code>git rev-parse HEAD && git ls-remote --heads origin</code>
+     * returning the names of the remote branches which point at the HEAD commit
+     */
+    public static List<String> findRemoteBranches(String output) {
+        List<String> answer = new ArrayList<>();
+        if (Strings.isNullOrBlank(output)) {
+            return answer;
+        }
+        String[] lines = output.trim().split("\\r?\\n");
+        String headSha = lines[0].trim();
+        for (int i = 1; i < lines.length; i++) {
+            String[] parts = lines[i].trim().split("\\s+");
+            if (parts.length == 2 && parts[0].equals(headSha)) {
+                String name = null;
+                if (parts[1].startsWith(REMOTE_BRANCH_PREFIX)) {
+                    name = parts[1].substring(REMOTE_BRANCH_PREFIX.length());
+                } else if (parts[1].startsWith(LOCAL_BRANCH_PREFIX)) {
+                    name = parts[1].substring(LOCAL_BRANCH_PREFIX.length());
+                }
+                if (name != null && !name.equals("HEAD") && !answer.contains(name)) {
+                    answer.add(name);
+                }
+            }
+        }
+        Collections.sort(answer);
+        return answer;
+    }
+
+    /**
+     * Returns the names of all the tags in the git clone which contains the given directory, reading both the
+     * <code>packed-refs</code> file and the loose refs under <code>refs/tags</code>
+     */
+    public static List<String> readTags(File dir) throws IOException {
+        File gitDir = findGitDir(dir);
+        if (gitDir == null) {
+            return Collections.emptyList();
+        }
+        File commonDir = findCommonDir(gitDir);
+        Map<String, String> refs = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : readPackedRefs(new File(commonDir, "packed-refs")).entrySet()) {
+            if (entry.getKey().startsWith(TAG_PREFIX)) {
+                refs.put(entry.getKey(), entry.getValue());
+            }
+        }
+        readLooseRefs(new File(commonDir, TAG_PREFIX), TAG_PREFIX, refs);
+        List<String> answer = new ArrayList<>(refs.size());
+        for (String ref : refs.keySet()) {
+            answer.add(ref.substring(TAG_PREFIX.length()));
+        }
+        return answer;
+    }
+
+    /**
+     * Finds the <code>.git</code> directory for the given directory, searching up the parent directories and
+     * following any <code>gitdir:</code> files used by worktrees and submodules
+     */
+    public static File findGitDir(File dir) throws IOException {
+        File current = dir != null ? dir.getAbsoluteFile() : null;
+        while (current != null) {
+            File dotGit = new File(current, ".git");
+            if (dotGit.isDirectory()) {
+                return dotGit;
+            }
+            if (dotGit.isFile()) {
+                String line = readFirstLine(dotGit);
+                if (line != null && line.startsWith("gitdir:")) {
+                    File gitDir = new File(line.substring("gitdir:".length()).trim());
+                    if (!gitDir.isAbsolute()) {
+                        gitDir = new File(current, gitDir.getPath());
+                    }
+                    if (gitDir.isDirectory()) {
+                        return gitDir;
+                    }
+                }
+            }
+            current = current.getParentFile();
+        }
+        return null;
+    }
+
+    protected static File findCommonDir(File gitDir) throws IOException {
+        String common = readFirstLine(new File(gitDir, "commondir"));
+        if (Strings.notEmpty(common)) {
+            File commonDir = new File(common.trim());
+            if (!commonDir.isAbsolute()) {
+                commonDir = new File(gitDir, common.trim());
+            }
+            if (commonDir.isDirectory()) {
+                return commonDir;
+            }
+        }
+        return gitDir;
+    }
+
+    protected static String resolveRef(File gitDir, File commonDir, Map<String, String> packedRefs, String ref) throws IOException {
+        for (int i = 0; i < 5 && ref != null; i++) {
+            File file = new File(gitDir, ref);
+            if (!file.isFile()) {
+                file = new File(commonDir, ref);
+            }
+            String value = file.isFile() ? readFirstLine(file) : packedRefs.get(ref);
+            if (value == null) {
+                return null;
+            }
+            value = value.trim();
+            if (!value.startsWith(HEAD_REF_PREFIX)) {
+                return value;
+            }
+            ref = value.substring(HEAD_REF_PREFIX.length()).trim();
+        }
+        return null;
+    }
+
+    protected static Map<String, String> readPackedRefs(File file) throws IOException {
+        Map<String, String> answer = new LinkedHashMap<>();
+        if (!file.isFile()) {
+            return answer;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            while (true) {
+                String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                if (line.startsWith("#") || line.startsWith("^")) {
+                    continue;
+                }
+                int idx = line.indexOf(' ');
+                if (idx > 0) {
+                    answer.put(line.substring(idx + 1).trim(), line.substring(0, idx));
+                }
+            }
+        }
+        return answer;
+    }
+
+    protected static void readLooseRefs(File dir, String prefix, Map<String, String> refs) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = prefix + file.getName();
+            if (file.isDirectory()) {
+                readLooseRefs(file, name + "/", refs);
+            } else {
+                String value = readFirstLine(file);
+                if (Strings.notEmpty(value)) {
+                    refs.put(name, value.trim());
+                }
+            }
+        }
+    }
+
+    protected static String readFirstLine(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return reader.readLine();
+        }
+    }
+}
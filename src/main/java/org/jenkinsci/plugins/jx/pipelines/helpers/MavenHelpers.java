@@ -17,41 +17,117 @@
 package org.jenkinsci.plugins.jx.pipelines.helpers;
 
 import io.fabric8.utils.Strings;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
 
 import javax.annotation.CheckForNull;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  */
 public class MavenHelpers {
+    public static final int DEFAULT_MAX_CACHED_POMS = Integer.getInteger(MavenHelpers.class.getName() + ".maxCachedPoms", 32);
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    /**
+     * Parsed models keyed by the SHA-256 of the pom content so that the same <code>pom.xml</code> is only parsed once
+     * during a release no matter how many times it is loaded
+     */
+    private static final Map<String, Model> MODEL_CACHE = new LinkedHashMap<String, Model>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Model> eldest) {
+            return size() > DEFAULT_MAX_CACHED_POMS;
+        }
+    };
+
+    /**
+     * Parses the given pom content; models are cached by the hash of the content so we return a copy which the
+     * caller is free to modify
+     */
     @Whitelisted
     @CheckForNull
     public static Model loadMavenPom(String pomFileContent) throws IOException, XmlPullParserException {
-        if (Strings.notEmpty(pomFileContent)) {
-            return new MavenXpp3Reader().read(new StringReader(pomFileContent));
-        } else {
+        if (Strings.isNullOrBlank(pomFileContent)) {
             return null;
         }
+        String key = DigestUtils.sha256Hex(pomFileContent);
+        Model model;
+        synchronized (MODEL_CACHE) {
+            model = MODEL_CACHE.get(key);
+        }
+        if (model == null) {
+            model = new MavenXpp3Reader().read(new StringReader(pomFileContent));
+            synchronized (MODEL_CACHE) {
+                MODEL_CACHE.put(key, model);
+            }
+        }
+        return model.clone();
     }
 
+    /**
+     * Returns the version declared in the given pom content or null if it is inherited from the parent
+     */
     @Whitelisted
     @CheckForNull
     public static String getProjectVersion(String pomFileContent) throws IOException, XmlPullParserException {
-        Model model = loadMavenPom(pomFileContent);
-        if (model != null) {
-            return model.getVersion();
+        PomCoordinates coordinates = readPomCoordinates(pomFileContent);
+        if (coordinates != null) {
+            return coordinates.getVersion();
         } else {
             return null;
         }
     }
 
+    /**
+     * Returns the <code>groupId</code>, <code>artifactId</code> and <code>version</code> of the given pom content
+     * without building the whole model.
+     * <p>
+     * We stream the XML and stop as soon as all three values have been found; which for most poms is within the
+     * first few lines. If the content is not well formed we fall back to {@link #loadMavenPom(String)} so that
+     * the caller gets the same error as before.
+     */
+    @Whitelisted
+    @CheckForNull
+    public static PomCoordinates readPomCoordinates(String pomFileContent) throws IOException, XmlPullParserException {
+        if (Strings.isNullOrBlank(pomFileContent)) {
+            return null;
+        }
+        try {
+            return scanPomCoordinates(pomFileContent);
+        } catch (XMLStreamException e) {
+            Model model = loadMavenPom(pomFileContent);
+            if (model == null) {
+                return null;
+            }
+            Parent parent = model.getParent();
+            return new PomCoordinates(model.getGroupId(), model.getArtifactId(), model.getVersion(),
+                    parent != null ? parent.getGroupId() : null, parent != null ? parent.getVersion() : null);
+        }
+    }
+
+    /**
+     * Removes all the cached models
+     */
+    public static void clearPomCache() {
+        synchronized (MODEL_CACHE) {
+            MODEL_CACHE.clear();
+        }
+    }
+
     /**
      * Returns the maven profile CLI argument for the given configured list of profile names or uses the given default profiles
      * if no profiles are explicitly configured
@@ -65,4 +141,64 @@ public class MavenHelpers {
         }
         return " -P " + String.join(",", configuredProfiles);
     }
+
+    protected static PomCoordinates scanPomCoordinates(String pomFileContent) throws XMLStreamException {
+        String groupId = null;
+        String artifactId = null;
+        String version = null;
+        String parentGroupId = null;
+        String parentVersion = null;
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(pomFileContent));
+        try {
+            int depth = 0;
+            boolean inParent = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (depth == 2) {
+                        if ("parent".equals(name)) {
+                            inParent = true;
+                        } else if ("groupId".equals(name)) {
+                            groupId = reader.getElementText().trim();
+                            depth--;
+                        } else if ("artifactId".equals(name)) {
+                            artifactId = reader.getElementText().trim();
+                            depth--;
+                        } else if ("version".equals(name)) {
+                            version = reader.getElementText().trim();
+                            depth--;
+                        }
+                    } else if (depth == 3 && inParent) {
+                        if ("groupId".equals(name)) {
+                            parentGroupId = reader.getElementText().trim();
+                            depth--;
+                        } else if ("version".equals(name)) {
+                            parentVersion = reader.getElementText().trim();
+                            depth--;
+                        }
+                    }
+                    if (groupId != null && artifactId != null && version != null) {
+                        break;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 2) {
+                        inParent = false;
+                    }
+                    depth--;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return new PomCoordinates(groupId, artifactId, version, parentGroupId, parentVersion);
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
 }
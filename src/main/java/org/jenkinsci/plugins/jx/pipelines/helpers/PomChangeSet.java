@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The changes made to the <code>pom.xml</code> files of a project by {@link PomVersionRewriter}
+ */
+public class PomChangeSet implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Change> changes = new ArrayList<>();
+    private final List<String> warnings = new ArrayList<>();
+
+    @Override
+    public String toString() {
+        if (changes.isEmpty()) {
+            return "No pom.xml changes";
+        }
+        return "Updated " + changes.size() + " versions in " + getFiles().size() + " pom.xml files";
+    }
+
+    public void add(Change change) {
+        changes.add(change);
+    }
+
+    @Whitelisted
+    public List<Change> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    public void addWarning(String warning) {
+        warnings.add(warning);
+    }
+
+    /**
+     * Returns the problems such as poms which could not be parsed which did not stop the other poms being updated
+     */
+    @Whitelisted
+    public List<String> getWarnings() {
+        return Collections.unmodifiableList(warnings);
+    }
+
+    /**
+     * Returns the paths of the files which were changed relative to the root directory
+     */
+    @Whitelisted
+    public List<String> getFiles() {
+        Set<String> answer = new LinkedHashSet<>();
+        for (Change change : changes) {
+            answer.add(change.getFile());
+        }
+        return new ArrayList<>(answer);
+    }
+
+    @Whitelisted
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    @Whitelisted
+    public int size() {
+        return changes.size();
+    }
+
+    /**
+     * A single element whose value was changed
+     */
+    public static class Change implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String file;
+        private final String element;
+        private final String oldValue;
+        private final String newValue;
+
+        public Change(String file, String element, String oldValue, String newValue) {
+            this.file = file;
+            this.element = element;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        @Override
+        public String toString() {
+            return file + " " + element + ": " + oldValue + " -> " + newValue;
+        }
+
+        @Whitelisted
+        public String getFile() {
+            return file;
+        }
+
+        /**
+         * Returns the path of the element such as <code>project/parent/version</code>
+         */
+        @Whitelisted
+        public String getElement() {
+            return element;
+        }
+
+        @Whitelisted
+        public String getOldValue() {
+            return oldValue;
+        }
+
+        @Whitelisted
+        public String getNewValue() {
+            return newValue;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+
+import java.io.Serializable;
+
+/**
+ * The <code>groupId</code>, <code>artifactId</code> and <code>version</code> of a <code>pom.xml</code> along with
+ * those of its <code>parent</code> which are used when the project inherits them
+ */
+public class PomCoordinates implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+    private final String parentGroupId;
+    private final String parentVersion;
+
+    public PomCoordinates(String groupId, String artifactId, String version, String parentGroupId, String parentVersion) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+        this.parentGroupId = parentGroupId;
+        this.parentVersion = parentVersion;
+    }
+
+    @Override
+    public String toString() {
+        return getEffectiveGroupId() + ":" + artifactId + ":" + getEffectiveVersion();
+    }
+
+    /**
+     * Returns the <code>groupId</code> declared in the project itself or null if it is inherited from the parent
+     */
+    @Whitelisted
+    public String getGroupId() {
+        return groupId;
+    }
+
+    @Whitelisted
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    /**
+     * Returns the <code>version</code> declared in the project itself or null if it is inherited from the parent
+     */
+    @Whitelisted
+    public String getVersion() {
+        return version;
+    }
+
+    @Whitelisted
+    public String getParentGroupId() {
+        return parentGroupId;
+    }
+
+    @Whitelisted
+    public String getParentVersion() {
+        return parentVersion;
+    }
+
+    /**
+     * Returns the <code>groupId</code> of the project falling back to the parent <code>groupId</code>
+     */
+    @Whitelisted
+    public String getEffectiveGroupId() {
+        return groupId != null ? groupId : parentGroupId;
+    }
+
+    /**
+     * Returns the <code>version</code> of the project falling back to the parent <code>version</code>
+     */
+    @Whitelisted
+    public String getEffectiveVersion() {
+        return version != null ? version : parentVersion;
+    }
+}
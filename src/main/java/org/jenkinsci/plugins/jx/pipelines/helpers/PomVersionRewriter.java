@@ -0,0 +1,463 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Updates the versions in the <code>pom.xml</code> files of a project in a single pass rather than running
+ * <code>mvn versions:set</code> or <code>find | xargs sed</code>. The project version is set in the root pom and the
+ * modules it refers to, recursively, while version properties are set in every pom in the directory tree; poms other
+ * than the root pom which cannot be parsed are skipped with a warning in the {@link PomChangeSet}.
+ * <p>
+ * The poms are scanned with a small streaming XML tokenizer which records where each leaf element's text is so that
+ * only the version text is replaced; the rest of the file, including formatting and comments, is left untouched.
+ * Files are read and written using the encoding in their XML declaration, defaulting to UTF-8.
+ * Only files which change are written.
+ */
+public class PomVersionRewriter {
+    private static final Set<String> SKIP_DIRECTORIES = new HashSet<>(Arrays.asList("target", ".git", "node_modules"));
+    private static final Pattern VERSION_PROPERTY = Pattern.compile("\\d{1,3}\\.\\d{1,3}(\\.\\d{1,3})?(\\.\\d{1,3})?");
+    private static final Pattern SNAPSHOT_VERSION_PROPERTY = Pattern.compile(VERSION_PROPERTY.pattern() + "-SNAPSHOT");
+    private static final Pattern XML_ENCODING = Pattern.compile("^\\s*<\\?xml[^>]*?\\sencoding\\s*=\\s*[\"']([A-Za-z][A-Za-z0-9._-]*)[\"']");
+    private static final String UTF8_BOM = "\u00EF\u00BB\u00BF";
+    private static final String DEFAULT_PLUGIN_GROUP_ID = "org.apache.maven.plugins";
+
+    private final File rootDir;
+
+    public PomVersionRewriter(File rootDir) {
+        this.rootDir = rootDir;
+    }
+
+    /**
+     * Sets the version of the project in the root <code>pom.xml</code> and of every module with the same version,
+     * along with the parent, dependency and plugin versions which refer to those modules, like
+     * <code>mvn versions:set</code>. Only the root pom and its modules are updated so that poms which are not part of
+     * the build, such as test fixtures or archetype resources, are left alone.
+     */
+    public PomChangeSet setProjectVersion(String newVersion) throws IOException {
+        File rootPom = getRootPom();
+        List<PomFile> poms = loadModulePoms(rootPom);
+        PomFile root = null;
+        for (PomFile pom : poms) {
+            if (pom.file.equals(rootPom)) {
+                root = pom;
+            }
+        }
+        if (root == null) {
+            throw new FileNotFoundException("No pom.xml in " + rootDir);
+        }
+        String oldVersion = root.getVersion();
+        if (oldVersion == null) {
+            throw new IOException("No version in " + root.file);
+        }
+        Set<String> reactor = new HashSet<>();
+        for (PomFile pom : poms) {
+            if (oldVersion.equals(pom.getVersion())) {
+                reactor.add(pom.getGroupId() + ":" + pom.getArtifactId());
+            }
+        }
+        PomChangeSet answer = new PomChangeSet();
+        for (PomFile pom : poms) {
+            for (Element element : pom.elements) {
+                if (!element.name.equals("version") || !oldVersion.equals(element.text)) {
+                    continue;
+                }
+                boolean update = false;
+                if (element.path.equals("project/version")) {
+                    update = reactor.contains(pom.getGroupId() + ":" + pom.getArtifactId());
+                } else if (element.path.equals("project/parent/version")) {
+                    update = reactor.contains(pom.get("project/parent/groupId") + ":" + pom.get("project/parent/artifactId"));
+                } else if (element.parentName.equals("dependency") || element.parentName.equals("plugin") || element.parentName.equals("extension")) {
+                    String groupId = pom.getSibling(element, "groupId");
+                    if (groupId == null && !element.parentName.equals("dependency")) {
+                        groupId = DEFAULT_PLUGIN_GROUP_ID;
+                    }
+                    update = reactor.contains(groupId + ":" + pom.getSibling(element, "artifactId"));
+                }
+                if (update) {
+                    pom.replace(element, newVersion);
+                }
+            }
+            pom.save(answer);
+        }
+        return answer;
+    }
+
+    /**
+     * Sets the given version property such as <code>fabric8.version</code> in all the poms where it is currently a
+     * numeric version like <code>2.3.12</code>, or like <code>2.3.12-SNAPSHOT</code> if snapshot is true in which
+     * case the new version gets a <code>-SNAPSHOT</code> suffix too.
+     * <p>
+     * Poms which are not part of the build, such as test fixtures, may not be valid XML so any pom other than the
+     * root pom which cannot be parsed is skipped and reported in the warnings of the change set rather than
+     * failing the release.
+     */
+    public PomChangeSet setVersionProperty(String property, String newVersion, boolean snapshot) throws IOException {
+        String name = property.trim();
+        if (name.startsWith("<") && name.endsWith(">")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        Pattern pattern = snapshot ? SNAPSHOT_VERSION_PROPERTY : VERSION_PROPERTY;
+        String value = snapshot ? newVersion + "-SNAPSHOT" : newVersion;
+        PomChangeSet answer = new PomChangeSet();
+        File rootPom = getRootPom();
+        for (File file : findPoms()) {
+            PomFile pom;
+            try {
+                pom = loadPom(file);
+            } catch (IOException e) {
+                if (file.equals(rootPom)) {
+                    throw e;
+                }
+                answer.addWarning("Skipped " + rootDir.toPath().normalize().relativize(file.toPath()) + ": " + e.getMessage());
+                continue;
+            }
+            for (Element element : pom.elements) {
+                if (element.name.equals(name) && element.parentName.equals("properties") && pattern.matcher(element.text).matches()) {
+                    pom.replace(element, value);
+                }
+            }
+            pom.save(answer);
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the <code>pom.xml</code> files in the directory tree in a stable order
+     */
+    protected List<File> findPoms() throws IOException {
+        File root = rootDir.toPath().normalize().toFile();
+        List<File> files = new ArrayList<>();
+        Files.walkFileTree(root.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Path name = dir.getFileName();
+                if (name != null && SKIP_DIRECTORIES.contains(name.toString()) && !dir.equals(root.toPath())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (file.getFileName().toString().equals("pom.xml")) {
+                    files.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Loads the given pom and the poms of the modules it refers to, recursively, including the modules of profiles.
+     * Modules which do not exist are ignored as they may only be present when a profile is active.
+     */
+    protected List<PomFile> loadModulePoms(File rootPom) throws IOException {
+        if (!rootPom.isFile()) {
+            throw new FileNotFoundException("No pom.xml in " + rootDir);
+        }
+        Map<File, PomFile> poms = new TreeMap<>();
+        Deque<File> queue = new ArrayDeque<>();
+        queue.add(rootPom);
+        File file;
+        while ((file = queue.poll()) != null) {
+            if (poms.containsKey(file)) {
+                continue;
+            }
+            PomFile pom = loadPom(file);
+            poms.put(file, pom);
+            for (Element element : pom.elements) {
+                if (element.name.equals("module") && element.parentName.equals("modules") && !element.text.isEmpty()) {
+                    File module = file.getParentFile().toPath().resolve(element.text).normalize().toFile();
+                    if (module.isDirectory()) {
+                        module = new File(module, "pom.xml");
+                    }
+                    if (module.isFile()) {
+                        queue.add(module);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(poms.values());
+    }
+
+    protected PomFile loadPom(File file) throws IOException {
+        byte[] data = Files.readAllBytes(file.toPath());
+        Charset encoding;
+        try {
+            encoding = getEncoding(data);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported encoding in " + file + ": " + e.getMessage(), e);
+        }
+        String xml = new String(data, encoding);
+        try {
+            return new PomFile(file, rootDir.toPath().normalize().relativize(file.toPath().normalize()).toString(), xml, encoding, scan(xml));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Failed to parse " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    protected File getRootPom() {
+        return rootDir.toPath().normalize().resolve("pom.xml").toFile();
+    }
+
+    /**
+     * Returns the encoding in the XML declaration of the document or UTF-8 if there is none
+     */
+    static Charset getEncoding(byte[] data) {
+        // the declaration can only contain ASCII so decode a prefix as ISO-8859-1 which maps every byte
+        String prolog = new String(data, 0, Math.min(data.length, 256), StandardCharsets.ISO_8859_1);
+        if (prolog.startsWith(UTF8_BOM)) {
+            return StandardCharsets.UTF_8;
+        }
+        Matcher matcher = XML_ENCODING.matcher(prolog);
+        if (matcher.find()) {
+            return Charset.forName(matcher.group(1));
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Scans the XML returning the elements which only contain text, in document order
+     */
+    static List<Element> scan(String xml) {
+        List<Element> answer = new ArrayList<>();
+        Deque<OpenElement> stack = new ArrayDeque<>();
+        int nextId = 0;
+        int i = 0;
+        while ((i = xml.indexOf('<', i)) >= 0) {
+            if (xml.startsWith("<!--", i)) {
+                i = skipPast(xml, i, "-->");
+            } else if (xml.startsWith("<![CDATA[", i)) {
+                if (!stack.isEmpty()) {
+                    stack.peek().hasMarkup = true;
+                }
+                i = skipPast(xml, i, "]]>");
+            } else if (xml.startsWith("<?", i)) {
+                i = skipPast(xml, i, "?>");
+            } else if (xml.startsWith("<!", i)) {
+                i = skipPast(xml, i, ">");
+            } else if (xml.startsWith("</", i)) {
+                int end = skipPast(xml, i, ">");
+                String name = xml.substring(i + 2, end - 1).trim();
+                OpenElement open = stack.poll();
+                if (open == null || !open.name.equals(name)) {
+                    throw new IllegalArgumentException("Unexpected </" + name + "> at offset " + i);
+                }
+                if (!open.hasChildren && !open.hasMarkup) {
+                    answer.add(new Element(open, i, xml));
+                }
+                i = end;
+            } else {
+                int end = findTagEnd(xml, i);
+                int nameEnd = i + 1;
+                while (nameEnd < end && !Character.isWhitespace(xml.charAt(nameEnd)) && xml.charAt(nameEnd) != '/' && xml.charAt(nameEnd) != '>') {
+                    nameEnd++;
+                }
+                String name = xml.substring(i + 1, nameEnd);
+                OpenElement parent = stack.peek();
+                if (parent != null) {
+                    parent.hasChildren = true;
+                }
+                if (xml.charAt(end - 2) != '/') {
+                    stack.push(new OpenElement(name, nextId++, parent, end));
+                }
+                i = end;
+            }
+        }
+        if (!stack.isEmpty()) {
+            throw new IllegalArgumentException("Unclosed element <" + stack.peek().name + ">");
+        }
+        return answer;
+    }
+
+    private static int skipPast(String xml, int start, String terminator) {
+        int idx = xml.indexOf(terminator, start);
+        if (idx < 0) {
+            throw new IllegalArgumentException("Missing " + terminator + " after offset " + start);
+        }
+        return idx + terminator.length();
+    }
+
+    /**
+     * Returns the offset after the closing <code>&gt;</code> of the tag starting at the given offset, ignoring any
+     * <code>&gt;</code> inside quoted attribute values
+     */
+    private static int findTagEnd(String xml, int start) {
+        char quote = 0;
+        for (int i = start + 1, size = xml.length(); i < size; i++) {
+            char ch = xml.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '"' || ch == '\'') {
+                quote = ch;
+            } else if (ch == '>') {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("Unclosed tag at offset " + start);
+    }
+
+    private static class OpenElement {
+        private final String name;
+        private final int id;
+        private final int parentId;
+        private final String parentName;
+        private final String path;
+        private final int contentStart;
+        private boolean hasChildren;
+        private boolean hasMarkup;
+
+        OpenElement(String name, int id, OpenElement parent, int contentStart) {
+            this.name = name;
+            this.id = id;
+            this.parentId = parent != null ? parent.id : -1;
+            this.parentName = parent != null ? parent.name : "";
+            this.path = parent != null ? parent.path + "/" + name : name;
+            this.contentStart = contentStart;
+        }
+    }
+
+    /**
+     * An element containing only text along with the offsets of its trimmed text in the file
+     */
+    static class Element {
+        final String name;
+        final int parentId;
+        final String parentName;
+        final String path;
+        final int start;
+        final int end;
+        final String text;
+
+        Element(OpenElement open, int contentEnd, String xml) {
+            int from = open.contentStart;
+            int to = contentEnd;
+            while (from < to && Character.isWhitespace(xml.charAt(from))) {
+                from++;
+            }
+            while (to > from && Character.isWhitespace(xml.charAt(to - 1))) {
+                to--;
+            }
+            this.name = open.name;
+            this.parentId = open.parentId;
+            this.parentName = open.parentName;
+            this.path = open.path;
+            this.start = from;
+            this.end = to;
+            this.text = xml.substring(from, to);
+        }
+    }
+
+    protected static class PomFile {
+        private final File file;
+        private final String relativePath;
+        private final String xml;
+        private final Charset encoding;
+        private final List<Element> elements;
+        private final Map<String, String> values = new HashMap<>();
+        private final List<Element> replaced = new ArrayList<>();
+        private final List<String> replacements = new ArrayList<>();
+
+        PomFile(File file, String relativePath, String xml, Charset encoding, List<Element> elements) {
+            this.file = file;
+            this.relativePath = relativePath;
+            this.xml = xml;
+            this.encoding = encoding;
+            this.elements = elements;
+            for (Element element : elements) {
+                values.putIfAbsent(element.path, element.text);
+            }
+        }
+
+        String get(String path) {
+            return values.get(path);
+        }
+
+        String getGroupId() {
+            String answer = get("project/groupId");
+            return answer != null ? answer : get("project/parent/groupId");
+        }
+
+        String getArtifactId() {
+            return get("project/artifactId");
+        }
+
+        String getVersion() {
+            String answer = get("project/version");
+            return answer != null ? answer : get("project/parent/version");
+        }
+
+        String getSibling(Element element, String name) {
+            for (Element sibling : elements) {
+                if (sibling.parentId == element.parentId && sibling.name.equals(name)) {
+                    return sibling.text;
+                }
+            }
+            return null;
+        }
+
+        void replace(Element element, String value) {
+            if (!value.equals(element.text)) {
+                replaced.add(element);
+                replacements.add(value);
+            }
+        }
+
+        void save(PomChangeSet changes) throws IOException {
+            if (replaced.isEmpty()) {
+                return;
+            }
+            StringBuilder builder = new StringBuilder(xml.length() + 64);
+            int offset = 0;
+            for (int i = 0; i < replaced.size(); i++) {
+                Element element = replaced.get(i);
+                builder.append(xml, offset, element.start).append(replacements.get(i));
+                offset = element.end;
+                changes.add(new PomChangeSet.Change(relativePath, element.path, element.text, replacements.get(i)));
+            }
+            builder.append(xml, offset, xml.length());
+            Files.write(file.toPath(), builder.toString().getBytes(encoding));
+        }
+    }
+}
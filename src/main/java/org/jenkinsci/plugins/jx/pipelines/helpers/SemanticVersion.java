@@ -0,0 +1,298 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A <a href="https://semver.org/">semantic version</a> such as <code>1.2.3</code> or <code>2.0.0-RC1</code>.
+ * <p>
+ * Versions are parsed leniently so that git tags like <code>v1.2</code> can be used; missing minor and patch
+ * numbers default to zero. Versions with a prerelease suffix such as <code>-M1</code> or <code>-RC2</code> sort
+ * before the release itself and the build metadata after a <code>+</code> is ignored when comparing.
+ */
+public class SemanticVersion implements Comparable<SemanticVersion>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final Pattern PATTERN = Pattern.compile("(?i)v?(0|[1-9]\\d*)(?:\\.(0|[1-9]\\d*)(?:\\.(0|[1-9]\\d*))?)?(?:-([\\da-z\\-]+(?:\\.[\\da-z\\-]+)*))?(?:\\+([\\da-z\\-]+(?:\\.[\\da-z\\-]+)*))?");
+
+    public static final String DEFAULT_VERSION = "1.0.0";
+
+    private final int major;
+    private final int minor;
+    private final int patch;
+    private final String prerelease;
+    private final String build;
+
+    public SemanticVersion(int major, int minor, int patch) {
+        this(major, minor, patch, null, null);
+    }
+
+    public SemanticVersion(int major, int minor, int patch, String prerelease, String build) {
+        this.major = major;
+        this.minor = minor;
+        this.patch = patch;
+        this.prerelease = prerelease;
+        this.build = build;
+    }
+
+    /**
+     * Parses the given text returning null if it is not a semantic version
+     */
+    @Whitelisted
+    public static SemanticVersion parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        Matcher matcher = PATTERN.matcher(text.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return new SemanticVersion(Integer.parseInt(matcher.group(1)),
+                    matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : 0,
+                    matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : 0,
+                    matcher.group(4), matcher.group(5));
+        } catch (NumberFormatException e) {
+            // too big for an int
+            return null;
+        }
+    }
+
+    /**
+     * Returns the latest of the given tags which is a semantic version or null if there are none
+     */
+    public static SemanticVersion latest(Collection<String> tags) {
+        SemanticVersion answer = null;
+        for (String tag : tags) {
+            SemanticVersion version = parse(tag);
+            if (version != null && (answer == null || version.compareTo(answer) > 0)) {
+                answer = version;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the next release version given the existing git tags and the current version in the pom.
+     * <p>
+     * The next version is the patch after the latest tag, or the release of the latest tag if it is a prerelease.
+     * If the pom version is later than that, such as when the minor version has been bumped, the pom version without
+     * its <code>-SNAPSHOT</code> is used instead. If there are no tags and no pom version then <code>1.0.0</code>
+     * is used.
+     */
+    @Whitelisted
+    public static String nextReleaseVersion(Collection<String> tags, String pomVersion) {
+        SemanticVersion latest = latest(tags);
+        SemanticVersion answer = latest != null ? latest.nextRelease() : null;
+        SemanticVersion pom = parse(pomVersion);
+        if (pom != null) {
+            pom = pom.toRelease();
+            if (answer == null || pom.compareTo(answer) > 0) {
+                answer = pom;
+            }
+        }
+        return answer != null ? answer.toString() : DEFAULT_VERSION;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(major).append('.').append(minor).append('.').append(patch);
+        if (prerelease != null) {
+            builder.append('-').append(prerelease);
+        }
+        if (build != null) {
+            builder.append('+').append(build);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return compareTo((SemanticVersion) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        // prereleases which compare equal may differ in case or leading zeros
+        int result = major;
+        result = 31 * result + minor;
+        result = 31 * result + patch;
+        return result;
+    }
+
+    @Override
+    public int compareTo(SemanticVersion that) {
+        int answer = Integer.compare(major, that.major);
+        if (answer == 0) {
+            answer = Integer.compare(minor, that.minor);
+        }
+        if (answer == 0) {
+            answer = Integer.compare(patch, that.patch);
+        }
+        if (answer == 0) {
+            answer = comparePrerelease(prerelease, that.prerelease);
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the release following this version
+     */
+    @Whitelisted
+    public SemanticVersion nextRelease() {
+        if (prerelease != null) {
+            return toRelease();
+        }
+        return new SemanticVersion(major, minor, patch + 1);
+    }
+
+    /**
+     * Returns the version with the next patch number, ignoring any prerelease suffix, like the
+     * <code>nextIncrementalVersion</code> of the <code>build-helper:parse-version</code> maven goal
+     */
+    @Whitelisted
+    public SemanticVersion nextIncrementalVersion() {
+        return new SemanticVersion(major, minor, patch + 1);
+    }
+
+    /**
+     * Returns this version without any prerelease suffix or build metadata
+     */
+    @Whitelisted
+    public SemanticVersion toRelease() {
+        return new SemanticVersion(major, minor, patch);
+    }
+
+    @Whitelisted
+    public int getMajor() {
+        return major;
+    }
+
+    @Whitelisted
+    public int getMinor() {
+        return minor;
+    }
+
+    @Whitelisted
+    public int getPatch() {
+        return patch;
+    }
+
+    @Whitelisted
+    public String getPrerelease() {
+        return prerelease;
+    }
+
+    @Whitelisted
+    public String getBuild() {
+        return build;
+    }
+
+    @Whitelisted
+    public boolean isPrerelease() {
+        return prerelease != null;
+    }
+
+    /**
+     * Compares prerelease suffixes; a release is later than any prerelease and the dot separated identifiers are
+     * compared numerically if they are numbers otherwise lexically
+     */
+    private static int comparePrerelease(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        String[] as = a.split("\\.");
+        String[] bs = b.split("\\.");
+        for (int i = 0; i < as.length && i < bs.length; i++) {
+            int answer = compareIdentifier(as[i], bs[i]);
+            if (answer != 0) {
+                return answer;
+            }
+        }
+        return Integer.compare(as.length, bs.length);
+    }
+
+    private static int compareIdentifier(String a, String b) {
+        boolean aNumber = isNumber(a);
+        boolean bNumber = isNumber(b);
+        if (aNumber && bNumber) {
+            int answer = Integer.compare(a.length(), b.length());
+            return answer != 0 ? answer : a.compareTo(b);
+        }
+        if (aNumber || bNumber) {
+            // numeric identifiers sort before alphanumeric ones
+            return aNumber ? -1 : 1;
+        }
+        return compareAlphanumeric(a, b);
+    }
+
+    /**
+     * Compares identifiers such as <code>RC10</code> and <code>RC9</code> so that a trailing number is compared
+     * numerically as is common for milestone and release candidate tags
+     */
+    private static int compareAlphanumeric(String a, String b) {
+        int aDigits = trailingDigits(a);
+        int bDigits = trailingDigits(b);
+        String aPrefix = a.substring(0, a.length() - aDigits);
+        String bPrefix = b.substring(0, b.length() - bDigits);
+        int answer = aPrefix.compareToIgnoreCase(bPrefix);
+        if (answer != 0 || aDigits == 0 || bDigits == 0) {
+            return answer != 0 ? answer : Integer.compare(aDigits, bDigits);
+        }
+        return compareIdentifier(stripLeadingZeros(a.substring(aPrefix.length())), stripLeadingZeros(b.substring(bPrefix.length())));
+    }
+
+    private static int trailingDigits(String text) {
+        int answer = 0;
+        for (int i = text.length() - 1; i >= 0 && Character.isDigit(text.charAt(i)); i--) {
+            answer++;
+        }
+        return answer;
+    }
+
+    private static String stripLeadingZeros(String text) {
+        int i = 0;
+        while (i < text.length() - 1 && text.charAt(i) == '0') {
+            i++;
+        }
+        return text.substring(i);
+    }
+
+    private static boolean isNumber(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import jenkins.metrics.api.Metrics;
+import jenkins.model.Jenkins;
+
+/**
+ * Access to the metrics registry of the Jenkins metrics plugin so that our metrics are published alongside the
+ * rest of the controller metrics (e.g. via the prometheus plugin or the metrics servlet).
+ * <p>
+ * When not running inside Jenkins, such as in unit tests, a local registry is used instead.
+ */
+public class JXPipelinesMetrics {
+    public static final String PREFIX = "jx-pipelines";
+
+    private static final MetricRegistry LOCAL_REGISTRY = new MetricRegistry();
+
+    /**
+     * Returns the registry to add metrics to
+     */
+    public static MetricRegistry registry() {
+        if (Jenkins.getInstanceOrNull() != null) {
+            try {
+                return Metrics.metricRegistry();
+            } catch (RuntimeException | AssertionError e) {
+                // the metrics plugin is not started yet
+            }
+        }
+        return LOCAL_REGISTRY;
+    }
+
+    /**
+     * Returns the metric name for the given names using our prefix
+     */
+    public static String name(String... names) {
+        return MetricRegistry.name(PREFIX, names);
+    }
+
+    /**
+     * Registers the given gauge unless a metric with that name is already registered
+     */
+    public static void registerGauge(String name, Gauge<?> gauge) {
+        MetricRegistry registry = registry();
+        synchronized (JXPipelinesMetrics.class) {
+            Metric existing = registry.getMetrics().get(name);
+            if (existing == null) {
+                registry.register(name, gauge);
+            }
+        }
+    }
+}
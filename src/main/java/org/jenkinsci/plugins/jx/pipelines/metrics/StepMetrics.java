@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.metrics;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+import org.jenkinsci.plugins.workflow.cps.CpsThread;
+import org.jenkinsci.plugins.workflow.cps.nodes.StepAtomNode;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the wall time, the number of shell calls and the number of HTTP requests of each jx-pipelines step in
+ * the {@link JXPipelinesMetrics} registry so that we can see which phase of a release is slow.
+ * <p>
+ * Each pipeline execution has a pair of counters; a {@link StepTiming} takes a snapshot of them when the step
+ * starts and records the difference when it stops. So nested steps are counted in each enclosing step, and calls
+ * made by parallel branches are counted in every step which is running at the time.
+ * <p>
+ * Shell calls are counted from the <code>sh</code>, <code>bat</code> and <code>powershell</code> nodes added to the
+ * flow graph along with the commands run via {@link #recordShellCall()}. HTTP requests are counted by the shared
+ * client in {@link org.jenkinsci.plugins.jx.pipelines.HttpClients} and are attributed to the execution of the
+ * CPS thread or the one set via {@link #callInExecution(FlowExecution, Callable)}; requests made on an agent are
+ * counted there and recorded via {@link #recordHttpCalls(FlowExecution, long)}.
+ * <p>
+ * The metrics are histograms named <code>jx-pipelines.step.NAME.duration</code>,
+ * <code>jx-pipelines.step.NAME.shell-calls</code> and <code>jx-pipelines.step.NAME.http-calls</code>
+ */
+public class StepMetrics {
+    private static final Set<String> SHELL_STEPS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("sh", "bat", "powershell")));
+    private static final Map<FlowExecution, ExecutionCounters> EXECUTION_COUNTERS = new WeakHashMap<>();
+    private static final ThreadLocal<FlowExecution> CURRENT_EXECUTION = new ThreadLocal<>();
+
+    /**
+     * Starts timing the given step of the current pipeline execution
+     */
+    @Whitelisted
+    public static StepTiming start(String stepName) {
+        return new StepTiming(stepName, countersFor(getCurrentExecution()));
+    }
+
+    /**
+     * Records a shell command which was not run via a shell step, such as in a persistent shell session
+     */
+    public static void recordShellCall() {
+        JXPipelinesMetrics.registry().meter(JXPipelinesMetrics.name("shell", "calls")).mark();
+        ExecutionCounters counters = countersFor(getCurrentExecution());
+        if (counters != null) {
+            counters.shellCalls.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records the duration of a shell command in the <code>shell.duration</code> timers
+     *
+     * @param containerName the container the command ran in or null
+     * @param exitStatus    the exit status of the command; non zero values are counted as failures
+     */
+    public static void recordShellDuration(String containerName, long durationMillis, int exitStatus) {
+        JXPipelinesMetrics.registry().timer(JXPipelinesMetrics.name("shell", "duration")).update(durationMillis, TimeUnit.MILLISECONDS);
+        if (containerName != null && containerName.length() > 0) {
+            JXPipelinesMetrics.registry().timer(JXPipelinesMetrics.name("shell", "container", containerName, "duration")).update(durationMillis, TimeUnit.MILLISECONDS);
+        }
+        if (exitStatus != 0) {
+            JXPipelinesMetrics.registry().counter(JXPipelinesMetrics.name("shell", "failures")).inc();
+        }
+    }
+
+    /**
+     * Records an HTTP request made by the current pipeline execution
+     */
+    public static void recordHttpCall() {
+        JXPipelinesMetrics.registry().meter(JXPipelinesMetrics.name("http", "requests")).mark();
+        ExecutionCounters counters = countersFor(getCurrentExecution());
+        if (counters != null) {
+            counters.httpCalls.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records HTTP requests made on behalf of the given execution which the shared client could not count, such as
+     * those made on an agent
+     */
+    public static void recordHttpCalls(FlowExecution execution, long count) {
+        if (count <= 0) {
+            return;
+        }
+        JXPipelinesMetrics.registry().meter(JXPipelinesMetrics.name("http", "requests")).mark(count);
+        ExecutionCounters counters = countersFor(execution);
+        if (counters != null) {
+            counters.httpCalls.addAndGet(count);
+        }
+    }
+
+    /**
+     * Invokes the given block attributing any calls it makes to the given execution; used by step executions which
+     * do their work outside of the CPS thread
+     */
+    public static <V> V callInExecution(FlowExecution execution, Callable<V> block) throws Exception {
+        FlowExecution old = CURRENT_EXECUTION.get();
+        CURRENT_EXECUTION.set(execution);
+        try {
+            return block.call();
+        } finally {
+            if (old != null) {
+                CURRENT_EXECUTION.set(old);
+            } else {
+                CURRENT_EXECUTION.remove();
+            }
+        }
+    }
+
+    static void recordStep(String stepName, long durationMillis, long shellCalls, long httpCalls) {
+        JXPipelinesMetrics.registry().timer(JXPipelinesMetrics.name("step", stepName, "duration")).update(durationMillis, TimeUnit.MILLISECONDS);
+        if (shellCalls >= 0) {
+            JXPipelinesMetrics.registry().histogram(JXPipelinesMetrics.name("step", stepName, "shell-calls")).update(shellCalls);
+        }
+        if (httpCalls >= 0) {
+            JXPipelinesMetrics.registry().histogram(JXPipelinesMetrics.name("step", stepName, "http-calls")).update(httpCalls);
+        }
+    }
+
+    /**
+     * Returns the execution which calls made by the current thread are attributed to; pass it to
+     * {@link #callInExecution(FlowExecution, Callable)} when handing work to another thread
+     */
+    public static FlowExecution getCurrentExecution() {
+        FlowExecution execution = CURRENT_EXECUTION.get();
+        if (execution == null) {
+            CpsThread thread = CpsThread.current();
+            if (thread != null) {
+                execution = thread.getExecution();
+            }
+        }
+        return execution;
+    }
+
+    static ExecutionCounters countersFor(FlowExecution execution) {
+        if (execution == null) {
+            return null;
+        }
+        synchronized (EXECUTION_COUNTERS) {
+            ExecutionCounters counters = EXECUTION_COUNTERS.get(execution);
+            if (counters == null) {
+                counters = new ExecutionCounters();
+                EXECUTION_COUNTERS.put(execution, counters);
+                final ExecutionCounters newCounters = counters;
+                execution.addListener(node -> {
+                    if (node instanceof StepAtomNode) {
+                        StepDescriptor descriptor = ((StepAtomNode) node).getDescriptor();
+                        if (descriptor != null && SHELL_STEPS.contains(descriptor.getFunctionName())) {
+                            JXPipelinesMetrics.registry().meter(JXPipelinesMetrics.name("shell", "calls")).mark();
+                            newCounters.shellCalls.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            return counters;
+        }
+    }
+
+    /**
+     * The number of calls made by a pipeline execution since the counters were created
+     */
+    static class ExecutionCounters {
+        final AtomicLong shellCalls = new AtomicLong();
+        final AtomicLong httpCalls = new AtomicLong();
+    }
+}
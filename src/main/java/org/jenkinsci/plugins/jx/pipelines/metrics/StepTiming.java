@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.metrics;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+
+import java.io.Serializable;
+
+/**
+ * The timing of a single invocation of a step created by {@link StepMetrics#start(String)}.
+ * <p>
+ * This is held in a CPS local variable so it is serializable; if the controller restarts while the step is
+ * running then we still record the wall time but the call counts are unknown.
+ */
+public class StepTiming implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String stepName;
+    private final long startMillis;
+    private final long shellCallsAtStart;
+    private final long httpCallsAtStart;
+    private transient StepMetrics.ExecutionCounters counters;
+    private long durationMillis = -1;
+    private long shellCalls = -1;
+    private long httpCalls = -1;
+
+    StepTiming(String stepName, StepMetrics.ExecutionCounters counters) {
+        this.stepName = stepName;
+        this.startMillis = System.currentTimeMillis();
+        this.counters = counters;
+        this.shellCallsAtStart = counters != null ? counters.shellCalls.get() : 0;
+        this.httpCallsAtStart = counters != null ? counters.httpCalls.get() : 0;
+    }
+
+    @Override
+    public String toString() {
+        if (durationMillis < 0) {
+            return stepName + " running";
+        }
+        StringBuilder builder = new StringBuilder(stepName).append(" took ").append(durationMillis / 1000.0).append(" seconds");
+        if (shellCalls >= 0) {
+            builder.append(" with ").append(shellCalls).append(" shell calls and ").append(httpCalls).append(" HTTP requests");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Stops the timing and records the metrics of the step; only the first call has any effect
+     */
+    @Whitelisted
+    public StepTiming stop() {
+        if (durationMillis < 0) {
+            durationMillis = Math.max(0L, System.currentTimeMillis() - startMillis);
+            if (counters != null) {
+                shellCalls = counters.shellCalls.get() - shellCallsAtStart;
+                httpCalls = counters.httpCalls.get() - httpCallsAtStart;
+            }
+            StepMetrics.recordStep(stepName, durationMillis, shellCalls, httpCalls);
+        }
+        return this;
+    }
+
+    @Whitelisted
+    public String getStepName() {
+        return stepName;
+    }
+
+    @Whitelisted
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Returns the number of shell calls made by the step or -1 if it is not known
+     */
+    @Whitelisted
+    public long getShellCalls() {
+        return shellCalls;
+    }
+
+    /**
+     * Returns the number of HTTP requests made by the step or -1 if it is not known
+     */
+    @Whitelisted
+    public long getHttpCalls() {
+        return httpCalls;
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.model;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records the outcome of promoting or tagging each docker image so that we can retry just the images which failed
+ * and report how long each image took and how big it is.
+ * <p>
+ * The size is whatever the caller measured, such as <code>docker image inspect --format '{{.Size}}'</code> or the
+ * size of the layers in the registry; it is not the number of bytes pushed as layers which already exist in the
+ * target registry are not pushed again.
+ */
+public class ImagePromotionReport implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, ImageResult> results = new LinkedHashMap<>();
+
+    @Whitelisted
+    public ImagePromotionReport() {
+    }
+
+    @Override
+    public String toString() {
+        return "ImagePromotionReport" + results.values();
+    }
+
+    /**
+     * Records that the image was promoted
+     *
+     * @param bytes the size of the image or a negative number if it is not known
+     */
+    @Whitelisted
+    public synchronized void success(String image, long durationMillis, long bytes) {
+        result(image).update(durationMillis, bytes, null);
+    }
+
+    /**
+     * Records that the image failed to be promoted
+     */
+    @Whitelisted
+    public synchronized void failure(String image, long durationMillis, String error) {
+        result(image).update(durationMillis, -1L, error != null ? error : "failed");
+    }
+
+    @Whitelisted
+    public synchronized boolean hasFailures() {
+        return !getFailedImages().isEmpty();
+    }
+
+    /**
+     * Returns the images whose last attempt failed
+     */
+    @Whitelisted
+    public synchronized List<String> getFailedImages() {
+        List<String> answer = new ArrayList<>();
+        for (ImageResult result : results.values()) {
+            if (result.error != null) {
+                answer.add(result.image);
+            }
+        }
+        return answer;
+    }
+
+    @Whitelisted
+    public synchronized List<ImageResult> getResults() {
+        return new ArrayList<>(results.values());
+    }
+
+    /**
+     * Returns a summary of the duration, size and outcome of each image
+     */
+    @Whitelisted
+    public synchronized String getSummary() {
+        StringBuilder builder = new StringBuilder();
+        long totalBytes = 0;
+        for (ImageResult result : results.values()) {
+            builder.append(String.format(Locale.ENGLISH, "%-60s %8.1fs %12s %s%n", result.image, result.durationMillis / 1000.0,
+                    result.bytes >= 0 ? formatBytes(result.bytes) : "-",
+                    result.error != null ? "FAILED after " + result.attempts + " attempts: " + result.error :
+                            "OK" + (result.attempts > 1 ? " after " + result.attempts + " attempts" : "")));
+            if (result.bytes > 0) {
+                totalBytes += result.bytes;
+            }
+        }
+        builder.append(results.size()).append(" images, ").append(getFailedImages().size()).append(" failed, ")
+                .append(formatBytes(totalBytes)).append(" total image size");
+        return builder.toString();
+    }
+
+    /**
+     * Returns the number of bytes on the last line of the given output or -1 if there is none,
+     * such as from <code>docker image inspect --format '{{.Size}}' image</code>
+     */
+    @Whitelisted
+    public static long parseBytes(String output) {
+        if (output == null) {
+            return -1L;
+        }
+        String[] lines = output.trim().split("\n");
+        try {
+            return Long.parseLong(lines[lines.length - 1].trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        String units = "KMGT";
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024 && unit < units.length() - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format(Locale.ENGLISH, "%.1f %sB", value, units.charAt(unit));
+    }
+
+    private ImageResult result(String image) {
+        ImageResult answer = results.get(image);
+        if (answer == null) {
+            answer = new ImageResult(image);
+            results.put(image, answer);
+        }
+        return answer;
+    }
+
+    /**
+     * The outcome of the last attempt to promote an image
+     */
+    public static class ImageResult implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String image;
+        private long durationMillis;
+        private long bytes = -1L;
+        private int attempts;
+        private String error;
+
+        public ImageResult(String image) {
+            this.image = image;
+        }
+
+        @Override
+        public String toString() {
+            return "ImageResult{" +
+                    "image='" + image + '\'' +
+                    ", durationMillis=" + durationMillis +
+                    ", bytes=" + bytes +
+                    ", attempts=" + attempts +
+                    ", error='" + error + '\'' +
+                    '}';
+        }
+
+        void update(long durationMillis, long bytes, String error) {
+            this.attempts++;
+            this.durationMillis += durationMillis;
+            this.bytes = bytes;
+            this.error = error;
+        }
+
+        @Whitelisted
+        public String getImage() {
+            return image;
+        }
+
+        /**
+         * Returns the total time spent on all attempts
+         */
+        @Whitelisted
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        @Whitelisted
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Whitelisted
+        public int getAttempts() {
+            return attempts;
+        }
+
+        @Whitelisted
+        public String getError() {
+            return error;
+        }
+
+        @Whitelisted
+        public boolean isSuccessful() {
+            return error == null;
+        }
+    }
+}
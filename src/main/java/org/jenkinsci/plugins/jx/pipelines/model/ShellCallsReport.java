@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.model;
+
+import org.jenkinsci.plugins.jx.pipelines.ShellBatchException;
+import org.jenkinsci.plugins.jx.pipelines.metrics.StepMetrics;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records the latency, exit status and output size of each shell command invoked via a
+ * {@link org.jenkinsci.plugins.jx.pipelines.ShellFacade} so that we can report which commands dominate a build.
+ * <p>
+ * The commands are timed by the pipeline code which invokes the <code>sh</code> step, as the step runs
+ * asynchronously from the Java code which calls the facade. Each command is also recorded in the
+ * <code>shell.duration</code> timers of {@link StepMetrics}.
+ * <p>
+ * Only the first {@link #MAX_CALLS} commands are kept individually; the totals include every command.
+ */
+public class ShellCallsReport implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int MAX_CALLS = Integer.getInteger(ShellCallsReport.class.getName() + ".maxCalls", 1000);
+    public static final int MAX_COMMAND_LENGTH = 200;
+
+    private static final Pattern EXIT_CODE_PATTERN = Pattern.compile("exit code (-?\\d+)");
+
+    private final List<ShellCall> calls = new ArrayList<>();
+    private final Map<String, Long> durationMillisByContainer = new LinkedHashMap<>();
+    private long totalCalls;
+    private long totalDurationMillis;
+
+    @Whitelisted
+    public ShellCallsReport() {
+    }
+
+    @Override
+    public String toString() {
+        return "ShellCallsReport{" + totalCalls + " calls in " + totalDurationMillis + " millis}";
+    }
+
+    /**
+     * Records a command which succeeded
+     *
+     * @param output the output of the command or null if it was not returned
+     */
+    @Whitelisted
+    public void success(String command, String containerName, long durationMillis, String output) {
+        record(command, containerName, durationMillis, 0, output != null ? output.getBytes(StandardCharsets.UTF_8).length : -1);
+    }
+
+    /**
+     * Records a command which failed; the exit status is parsed from the failure if possible
+     */
+    @Whitelisted
+    public void failure(String command, String containerName, long durationMillis, Throwable failure) {
+        record(command, containerName, durationMillis, parseExitStatus(failure), -1);
+    }
+
+    /**
+     * Records a command
+     *
+     * @param exitStatus  the exit status of the command or -1 if it failed for some other reason
+     * @param outputBytes the size of the output or -1 if it was not returned
+     */
+    public void record(String command, String containerName, long durationMillis, int exitStatus, long outputBytes) {
+        ShellCall call = new ShellCall(abbreviate(command), containerName, durationMillis, exitStatus, outputBytes);
+        synchronized (this) {
+            totalCalls++;
+            totalDurationMillis += durationMillis;
+            durationMillisByContainer.merge(call.getContainerNameOrDefault(), durationMillis, Long::sum);
+            if (calls.size() < MAX_CALLS) {
+                calls.add(call);
+            }
+        }
+        StepMetrics.recordShellDuration(containerName, durationMillis, exitStatus);
+    }
+
+    @Whitelisted
+    public synchronized boolean isEmpty() {
+        return totalCalls == 0;
+    }
+
+    @Whitelisted
+    public synchronized List<ShellCall> getCalls() {
+        return new ArrayList<>(calls);
+    }
+
+    @Whitelisted
+    public synchronized long getTotalCalls() {
+        return totalCalls;
+    }
+
+    @Whitelisted
+    public synchronized long getTotalDurationMillis() {
+        return totalDurationMillis;
+    }
+
+    /**
+     * Returns the given number of the slowest commands, slowest first
+     */
+    @Whitelisted
+    public synchronized List<ShellCall> getSlowestCalls(int count) {
+        List<ShellCall> answer = new ArrayList<>(calls);
+        answer.sort(Comparator.comparingLong(ShellCall::getDurationMillis).reversed());
+        return answer.size() > count ? new ArrayList<>(answer.subList(0, count)) : answer;
+    }
+
+    /**
+     * Returns the total time spent in each container; commands run without a container use <code>-</code>
+     */
+    @Whitelisted
+    public synchronized Map<String, Long> getDurationMillisByContainer() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(durationMillisByContainer));
+    }
+
+    /**
+     * Returns a summary of the totals and the given number of the slowest commands
+     */
+    @Whitelisted
+    public synchronized String getSummary(int count) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ENGLISH, "%d shell commands took %.1fs", totalCalls, totalDurationMillis / 1000.0));
+        for (Map.Entry<String, Long> entry : getDurationMillisByContainer().entrySet()) {
+            builder.append(String.format(Locale.ENGLISH, "%n  container %-20s %8.1fs", entry.getKey(), entry.getValue() / 1000.0));
+        }
+        List<ShellCall> slowest = getSlowestCalls(count);
+        if (!slowest.isEmpty()) {
+            builder.append(String.format(Locale.ENGLISH, "%nslowest %d commands:", slowest.size()));
+            for (ShellCall call : slowest) {
+                builder.append(String.format(Locale.ENGLISH, "%n%8.1fs %-12s %-6s %10s %s", call.getDurationMillis() / 1000.0,
+                        call.getContainerNameOrDefault(), call.getExitStatus() >= 0 ? "rc=" + call.getExitStatus() : "failed",
+                        call.getOutputBytes() >= 0 ? ImagePromotionReport.formatBytes(call.getOutputBytes()) : "-", call.getCommand()));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the exit status of a failed command from the {@link ShellBatchException} or the message of the
+     * exception thrown by the <code>sh</code> step or -1 if there is none
+     */
+    static int parseExitStatus(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ShellBatchException) {
+                return ((ShellBatchException) t).getExitCode();
+            }
+            String message = t.getMessage();
+            if (message != null) {
+                Matcher matcher = EXIT_CODE_PATTERN.matcher(message);
+                if (matcher.find()) {
+                    return Integer.parseInt(matcher.group(1));
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    static String abbreviate(String command) {
+        String text = command != null ? command.trim().replaceAll("\\s+", " ") : "";
+        if (text.length() > MAX_COMMAND_LENGTH) {
+            text = text.substring(0, MAX_COMMAND_LENGTH - 3) + "...";
+        }
+        return text;
+    }
+
+    /**
+     * A single shell command
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class ShellCall implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String command;
+        private final String containerName;
+        private final long durationMillis;
+        private final int exitStatus;
+        private final long outputBytes;
+
+        public ShellCall(String command, String containerName, long durationMillis, int exitStatus, long outputBytes) {
+            this.command = command;
+            this.containerName = containerName;
+            this.durationMillis = durationMillis;
+            this.exitStatus = exitStatus;
+            this.outputBytes = outputBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "ShellCall{" +
+                    "command='" + command + '\'' +
+                    ", containerName='" + containerName + '\'' +
+                    ", durationMillis=" + durationMillis +
+                    ", exitStatus=" + exitStatus +
+                    ", outputBytes=" + outputBytes +
+                    '}';
+        }
+
+        /**
+         * Returns the command with whitespace collapsed, abbreviated to {@link #MAX_COMMAND_LENGTH} characters
+         */
+        @Exported
+        @Whitelisted
+        public String getCommand() {
+            return command;
+        }
+
+        @Exported
+        @Whitelisted
+        public String getContainerName() {
+            return containerName;
+        }
+
+        String getContainerNameOrDefault() {
+            return containerName != null && containerName.length() > 0 ? containerName : "-";
+        }
+
+        @Exported
+        @Whitelisted
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * Returns the exit status of the command or -1 if it failed without one
+         */
+        @Exported
+        @Whitelisted
+        public int getExitStatus() {
+            return exitStatus;
+        }
+
+        /**
+         * Returns the size of the output of the command or -1 if the output was not returned
+         */
+        @Exported
+        @Whitelisted
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+    }
+}
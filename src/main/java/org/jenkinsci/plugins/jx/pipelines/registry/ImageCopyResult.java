@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.registry;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of copying an image between registries
+ */
+public class ImageCopyResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String source;
+    private final String target;
+    private String digest;
+    private long bytesTransferred;
+    private long imageBytes;
+    private int blobsCopied;
+    private int blobsMounted;
+    private int blobsExisting;
+    private long httpRequests;
+
+    public ImageCopyResult(String source, String target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    @Override
+    public String toString() {
+        return "Copied " + source + " to " + target + " digest " + digest + ": " + blobsCopied + " blobs (" + bytesTransferred
+                + " bytes) copied, " + blobsMounted + " mounted, " + blobsExisting + " already present";
+    }
+
+    void copied(long bytes) {
+        blobsCopied++;
+        bytesTransferred += Math.max(0L, bytes);
+        imageBytes += Math.max(0L, bytes);
+    }
+
+    void mounted(long bytes) {
+        blobsMounted++;
+        imageBytes += Math.max(0L, bytes);
+    }
+
+    void existing(long bytes) {
+        blobsExisting++;
+        imageBytes += Math.max(0L, bytes);
+    }
+
+    void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    void setHttpRequests(long httpRequests) {
+        this.httpRequests = httpRequests;
+    }
+
+    @Whitelisted
+    public String getSource() {
+        return source;
+    }
+
+    @Whitelisted
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the digest of the top level manifest which was pushed
+     */
+    @Whitelisted
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * Returns the number of bytes of the blobs which were uploaded to the target registry
+     */
+    @Whitelisted
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * Returns the size of all the blobs of the image in the registry, whether or not they had to be uploaded
+     */
+    @Whitelisted
+    public long getImageBytes() {
+        return imageBytes;
+    }
+
+    @Whitelisted
+    public int getBlobsCopied() {
+        return blobsCopied;
+    }
+
+    @Whitelisted
+    public int getBlobsMounted() {
+        return blobsMounted;
+    }
+
+    @Whitelisted
+    public int getBlobsExisting() {
+        return blobsExisting;
+    }
+
+    /**
+     * Returns the number of HTTP requests made to copy the image; the copy usually runs on an agent so these are
+     * not seen by the shared client on the controller
+     */
+    @Whitelisted
+    public long getHttpRequests() {
+        return httpRequests;
+    }
+}
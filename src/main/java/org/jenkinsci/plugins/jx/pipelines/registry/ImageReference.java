@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.registry;
+
+import java.io.Serializable;
+
+/**
+ * A reference to a docker image such as <code>docker.io/fabric8/foo:1.0.0</code> or
+ * <code>172.30.1.1:80/myorg/foo@sha256:...</code> split into its registry, repository and tag or digest
+ */
+public class ImageReference implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String DOCKER_HUB = "docker.io";
+    public static final String DOCKER_HUB_API_HOST = "registry-1.docker.io";
+
+    private final String registry;
+    private final String repository;
+    private final String tag;
+    private final String digest;
+
+    public ImageReference(String registry, String repository, String tag, String digest) {
+        this.registry = registry;
+        this.repository = repository;
+        this.tag = tag;
+        this.digest = digest;
+    }
+
+    /**
+     * Parses the image name using the same defaults as the docker CLI
+     */
+    public static ImageReference parse(String name) {
+        String text = name.trim();
+        String digest = null;
+        int idx = text.indexOf('@');
+        if (idx > 0) {
+            digest = text.substring(idx + 1);
+            text = text.substring(0, idx);
+        }
+        String tag = null;
+        int slash = text.lastIndexOf('/');
+        int colon = text.lastIndexOf(':');
+        if (colon > slash) {
+            tag = text.substring(colon + 1);
+            text = text.substring(0, colon);
+        }
+        if (tag == null && digest == null) {
+            tag = "latest";
+        }
+        String registry = DOCKER_HUB;
+        int first = text.indexOf('/');
+        if (first > 0) {
+            String host = text.substring(0, first);
+            if (host.contains(".") || host.contains(":") || host.equals("localhost")) {
+                registry = host;
+                text = text.substring(first + 1);
+            }
+        }
+        if (registry.equals("index.docker.io") || registry.equals(DOCKER_HUB_API_HOST)) {
+            registry = DOCKER_HUB;
+        }
+        if (registry.equals(DOCKER_HUB) && text.indexOf('/') < 0) {
+            text = "library/" + text;
+        }
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("Invalid image name: " + name);
+        }
+        return new ImageReference(registry, text, tag, digest);
+    }
+
+    @Override
+    public String toString() {
+        return registry + "/" + repository + (digest != null ? "@" + digest : ":" + tag);
+    }
+
+    /**
+     * Returns the host and port of the registry API
+     */
+    public String getRegistryHost() {
+        return registry.equals(DOCKER_HUB) ? DOCKER_HUB_API_HOST : registry;
+    }
+
+    /**
+     * Returns the digest if there is one otherwise the tag
+     */
+    public String getReference() {
+        return digest != null ? digest : tag;
+    }
+
+    public String getRegistry() {
+        return registry;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An image manifest or manifest list with the exact bytes we received so that it can be pushed to another
+ * registry without changing its digest
+ */
+public class Manifest {
+    public static final String DOCKER_MANIFEST_V2 = "application/vnd.docker.distribution.manifest.v2+json";
+    public static final String DOCKER_MANIFEST_LIST = "application/vnd.docker.distribution.manifest.list.v2+json";
+    public static final String OCI_MANIFEST = "application/vnd.oci.image.manifest.v1+json";
+    public static final String OCI_INDEX = "application/vnd.oci.image.index.v1+json";
+
+    public static final String ACCEPT = DOCKER_MANIFEST_V2 + ", " + DOCKER_MANIFEST_LIST + ", " + OCI_MANIFEST + ", " + OCI_INDEX;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String mediaType;
+    private final byte[] content;
+    private final String digest;
+    private final List<Descriptor> blobs = new ArrayList<>();
+    private final List<Descriptor> manifests = new ArrayList<>();
+
+    public Manifest(String mediaType, byte[] content) throws IOException {
+        JsonNode tree = MAPPER.readTree(content);
+        String type = mediaType;
+        if (type == null || type.isEmpty() || type.startsWith("application/json")) {
+            type = tree.path("mediaType").asText(null);
+        }
+        if (tree.path("schemaVersion").asInt() == 1) {
+            throw new IOException("Docker image manifest schema version 1 is not supported");
+        }
+        this.mediaType = type;
+        this.content = content;
+        this.digest = "sha256:" + DigestUtils.sha256Hex(content);
+        if (tree.has("manifests")) {
+            for (JsonNode node : tree.path("manifests")) {
+                manifests.add(new Descriptor(node));
+            }
+        } else {
+            if (tree.has("config")) {
+                blobs.add(new Descriptor(tree.path("config")));
+            }
+            for (JsonNode node : tree.path("layers")) {
+                blobs.add(new Descriptor(node));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Manifest{" +
+                "mediaType='" + mediaType + '\'' +
+                ", digest='" + digest + '\'' +
+                '}';
+    }
+
+    /**
+     * Returns true if this is a manifest list, or OCI index, of platform specific manifests
+     */
+    public boolean isList() {
+        return !manifests.isEmpty() || DOCKER_MANIFEST_LIST.equals(mediaType) || OCI_INDEX.equals(mediaType);
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * Returns the config and layer blobs of an image manifest
+     */
+    public List<Descriptor> getBlobs() {
+        return Collections.unmodifiableList(blobs);
+    }
+
+    /**
+     * Returns the platform specific manifests of a manifest list
+     */
+    public List<Descriptor> getManifests() {
+        return Collections.unmodifiableList(manifests);
+    }
+
+    /**
+     * Refers to a blob or manifest by digest
+     */
+    public static class Descriptor {
+        private final String mediaType;
+        private final String digest;
+        private final long size;
+
+        public Descriptor(String mediaType, String digest, long size) {
+            this.mediaType = mediaType;
+            this.digest = digest;
+            this.size = size;
+        }
+
+        Descriptor(JsonNode node) {
+            this(node.path("mediaType").asText(null), node.path("digest").asText(), node.path("size").asLong(-1L));
+        }
+
+        @Override
+        public String toString() {
+            return digest;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        public String getDigest() {
+            return digest;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
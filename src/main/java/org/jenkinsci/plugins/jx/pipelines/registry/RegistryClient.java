@@ -0,0 +1,319 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal client for the Docker Registry HTTP API v2 which supports the calls needed to copy images between
+ * registries: fetching and pushing manifests, checking for, mounting and streaming blobs.
+ * <p>
+ * Registries which use token authentication are supported by following the <code>WWW-Authenticate</code>
+ * challenge using the basic auth credentials from a docker <code>config.json</code>; tokens are cached per scope.
+ * Blobs are streamed so an upload cannot be replayed after an authentication challenge; we make sure we are
+ * authorized for the repository before streaming instead.
+ */
+public class RegistryClient {
+    private static final Pattern CHALLENGE_PARAMETER = Pattern.compile("(\\w+)=\"([^\"]*)\"");
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    private final OkHttpClient httpClient;
+    private final RegistryCredentials credentials;
+    private final Set<String> insecureRegistries;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+    private final Set<String> basicAuthRegistries = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Set<String> authorizedScopes = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * Creates a client
+     *
+     * @param httpClient         the HTTP client to use
+     * @param credentials        the credentials of the registries
+     * @param insecureRegistries the registries which use plain HTTP; <code>localhost</code> and <code>127.0.0.1</code>
+     *                           always use plain HTTP
+     */
+    public RegistryClient(OkHttpClient httpClient, RegistryCredentials credentials, Collection<String> insecureRegistries) {
+        this.httpClient = httpClient;
+        this.credentials = credentials != null ? credentials : new RegistryCredentials();
+        this.insecureRegistries = insecureRegistries != null ? new LinkedHashSet<>(insecureRegistries) : Collections.emptySet();
+    }
+
+    /**
+     * Returns the number of HTTP requests made by this client including those to get tokens
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the manifest of the given tag or digest
+     */
+    public Manifest getManifest(String registry, String repository, String reference) throws IOException {
+        Request request = new Request.Builder().url(url(registry, repository, "manifests/" + reference))
+                .header("Accept", Manifest.ACCEPT).get().build();
+        try (Response response = execute(registry, request, pullScope(repository))) {
+            if (response.code() != 200) {
+                throw new IOException("Failed to get manifest " + registry + "/" + repository + ":" + reference + " status " + response.code());
+            }
+            return new Manifest(response.header("Content-Type"), response.body().bytes());
+        }
+    }
+
+    /**
+     * Pushes the manifest to the given tag or digest
+     */
+    public void putManifest(String registry, String repository, String reference, Manifest manifest) throws IOException {
+        Request request = new Request.Builder().url(url(registry, repository, "manifests/" + reference))
+                .put(RequestBody.create(MediaType.parse(manifest.getMediaType()), manifest.getContent())).build();
+        try (Response response = execute(registry, request, pushScope(repository))) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to put manifest " + registry + "/" + repository + ":" + reference + " status " + response.code() + " " + response.body().string());
+            }
+        }
+    }
+
+    /**
+     * Returns true if the blob already exists in the repository
+     */
+    public boolean hasBlob(String registry, String repository, String digest) throws IOException {
+        Request request = new Request.Builder().url(url(registry, repository, "blobs/" + digest)).head().build();
+        try (Response response = execute(registry, request, pushScope(repository))) {
+            return response.isSuccessful();
+        }
+    }
+
+    /**
+     * Starts uploading a blob. If a repository to mount from is given we first try a cross repository blob mount.
+     *
+     * @return the URL to upload the blob to or null if the blob was mounted
+     */
+    public HttpUrl startUpload(String registry, String repository, String digest, String mountFrom) throws IOException {
+        HttpUrl.Builder builder = url(registry, repository, "blobs/uploads/").newBuilder();
+        String scope = pushScope(repository);
+        if (mountFrom != null) {
+            builder.addQueryParameter("mount", digest).addQueryParameter("from", mountFrom);
+            scope += " " + pullScope(mountFrom);
+        }
+        Request request = new Request.Builder().url(builder.build()).post(RequestBody.create(OCTET_STREAM, new byte[0])).build();
+        try (Response response = execute(registry, request, scope)) {
+            if (response.code() == 201 && mountFrom != null) {
+                return null;
+            }
+            String location = response.header("Location");
+            if (response.code() != 202 || location == null) {
+                throw new IOException("Failed to start upload to " + registry + "/" + repository + " status " + response.code());
+            }
+            HttpUrl answer = response.request().url().resolve(location);
+            if (answer == null) {
+                throw new IOException("Invalid upload location " + location + " from " + registry + "/" + repository);
+            }
+            return answer;
+        }
+    }
+
+    /**
+     * Streams the blob to the upload URL returned by {@link #startUpload(String, String, String, String)}
+     *
+     * @param size the size of the blob or -1 if it is not known
+     */
+    public void uploadBlob(String registry, String repository, HttpUrl uploadUrl, String digest, long size, BufferedSource source) throws IOException {
+        String scope = pushScope(repository);
+        if (!authorizedScopes.contains(registry + " " + scope)) {
+            // the body can only be streamed once so lets answer any authentication challenge first
+            hasBlob(registry, repository, digest);
+        }
+        RequestBody body = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return OCTET_STREAM;
+            }
+
+            @Override
+            public long contentLength() {
+                return size;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                sink.writeAll(source);
+            }
+        };
+        Request request = new Request.Builder().url(uploadUrl.newBuilder().addQueryParameter("digest", digest).build()).put(body).build();
+        try (Response response = execute(registry, request, scope, false)) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to upload blob " + digest + " to " + registry + "/" + repository + " status " + response.code());
+            }
+        }
+    }
+
+    /**
+     * Opens the blob for streaming; the caller must close the response
+     */
+    public Response openBlob(String registry, String repository, String digest) throws IOException {
+        Request request = new Request.Builder().url(url(registry, repository, "blobs/" + digest)).get().build();
+        Response response = execute(registry, request, pullScope(repository));
+        if (!response.isSuccessful()) {
+            response.close();
+            throw new IOException("Failed to get blob " + digest + " from " + registry + "/" + repository + " status " + response.code());
+        }
+        return response;
+    }
+
+    protected HttpUrl url(String registry, String repository, String path) {
+        boolean insecure = insecureRegistries.contains(registry) || registry.startsWith("localhost") || registry.startsWith("127.0.0.1");
+        HttpUrl answer = HttpUrl.parse((insecure ? "http://" : "https://") + registry + "/v2/" + repository + "/" + path);
+        if (answer == null) {
+            throw new IllegalArgumentException("Invalid registry " + registry + " or repository " + repository);
+        }
+        return answer;
+    }
+
+    protected Response execute(String registry, Request request, String scope) throws IOException {
+        return execute(registry, request, scope, true);
+    }
+
+    /**
+     * Executes the request answering any authentication challenge
+     *
+     * @param replayable whether the body of the request can be sent again after an authentication challenge
+     */
+    protected Response execute(String registry, Request request, String scope, boolean replayable) throws IOException {
+        Response response = newCall(authorize(registry, request, scope)).execute();
+        if (response.code() == 401) {
+            authorizedScopes.remove(registry + " " + scope);
+            String challenge = response.header("WWW-Authenticate");
+            if (challenge != null && authenticate(registry, challenge, scope)) {
+                response.close();
+                if (!replayable) {
+                    throw new IOException("Authentication expired while sending " + request.method() + " " + request.url().encodedPath()
+                            + " to " + registry + " so it needs to be retried");
+                }
+                response = newCall(authorize(registry, request, scope)).execute();
+            }
+        }
+        if (response.code() != 401) {
+            authorizedScopes.add(registry + " " + scope);
+        }
+        return response;
+    }
+
+    private Call newCall(Request request) {
+        requestCount.incrementAndGet();
+        return httpClient.newCall(request);
+    }
+
+    private Request authorize(String registry, Request request, String scope) {
+        String token = tokens.get(registry + " " + scope);
+        if (token != null) {
+            return request.newBuilder().header("Authorization", "Bearer " + token).build();
+        }
+        String auth = credentials.getAuth(registry);
+        if (auth != null && basicAuthRegistries.contains(registry)) {
+            return request.newBuilder().header("Authorization", "Basic " + auth).build();
+        }
+        return request;
+    }
+
+    /**
+     * Handles the authentication challenge returning true if we should retry the request
+     */
+    private boolean authenticate(String registry, String challenge, String scope) throws IOException {
+        String auth = credentials.getAuth(registry);
+        if (challenge.regionMatches(true, 0, "Basic", 0, 5)) {
+            return auth != null && basicAuthRegistries.add(registry);
+        }
+        if (!challenge.regionMatches(true, 0, "Bearer", 0, 6)) {
+            return false;
+        }
+        String realm = null;
+        String service = null;
+        Set<String> scopes = new LinkedHashSet<>(Arrays.asList(scope.split(" ")));
+        Matcher matcher = CHALLENGE_PARAMETER.matcher(challenge);
+        while (matcher.find()) {
+            switch (matcher.group(1)) {
+                case "realm":
+                    realm = matcher.group(2);
+                    break;
+                case "service":
+                    service = matcher.group(2);
+                    break;
+                case "scope":
+                    scopes.addAll(Arrays.asList(matcher.group(2).split(" ")));
+                    break;
+                default:
+            }
+        }
+        HttpUrl realmUrl = realm != null ? HttpUrl.parse(realm) : null;
+        if (realmUrl == null) {
+            return false;
+        }
+        HttpUrl.Builder builder = realmUrl.newBuilder();
+        if (service != null) {
+            builder.addQueryParameter("service", service);
+        }
+        for (String value : scopes) {
+            builder.addQueryParameter("scope", value);
+        }
+        Request.Builder request = new Request.Builder().url(builder.build()).get();
+        if (auth != null) {
+            request.header("Authorization", "Basic " + auth);
+        }
+        try (Response response = newCall(request.build()).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to get a token for " + registry + " scope " + scopes + " status " + response.code());
+            }
+            JsonNode json = mapper.readTree(response.body().byteStream());
+            String token = json.path("token").asText(json.path("access_token").asText(null));
+            if (token == null || token.isEmpty()) {
+                return false;
+            }
+            tokens.put(registry + " " + scope, token);
+            return true;
+        }
+    }
+
+    private static String pullScope(String repository) {
+        return "repository:" + repository + ":pull";
+    }
+
+    private static String pushScope(String repository) {
+        return "repository:" + repository + ":pull,push";
+    }
+}
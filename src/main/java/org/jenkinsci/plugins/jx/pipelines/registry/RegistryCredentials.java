@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The basic auth credentials for docker registries keyed by registry host as found in the <code>auths</code>
+ * section of a docker <code>config.json</code> file
+ */
+public class RegistryCredentials implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, String> auths = new HashMap<>();
+
+    /**
+     * Loads the credentials from the given docker config file if it exists
+     */
+    public static RegistryCredentials load(File file) throws IOException {
+        RegistryCredentials answer = new RegistryCredentials();
+        if (file != null && file.isFile()) {
+            JsonNode auths = new ObjectMapper().readTree(file).path("auths");
+            Iterator<Map.Entry<String, JsonNode>> iter = auths.fields();
+            while (iter.hasNext()) {
+                Map.Entry<String, JsonNode> entry = iter.next();
+                String auth = entry.getValue().path("auth").asText(null);
+                if (auth != null && !auth.isEmpty()) {
+                    answer.add(entry.getKey(), auth);
+                }
+            }
+        }
+        return answer;
+    }
+
+    @Override
+    public String toString() {
+        return "RegistryCredentials" + auths.keySet();
+    }
+
+    /**
+     * Adds the base64 encoded <code>user:password</code> for the given registry which may be a host or a URL
+     */
+    public RegistryCredentials add(String registry, String auth) {
+        auths.put(normalize(registry), auth);
+        return this;
+    }
+
+    /**
+     * Returns the base64 encoded <code>user:password</code> for the registry or null if there are none
+     */
+    public String getAuth(String registry) {
+        return auths.get(normalize(registry));
+    }
+
+    static String normalize(String registry) {
+        String answer = registry;
+        int idx = answer.indexOf("://");
+        if (idx >= 0) {
+            answer = answer.substring(idx + 3);
+        }
+        idx = answer.indexOf('/');
+        if (idx >= 0) {
+            answer = answer.substring(0, idx);
+        }
+        if (answer.equals("index.docker.io") || answer.equals(ImageReference.DOCKER_HUB_API_HOST)) {
+            answer = ImageReference.DOCKER_HUB;
+        }
+        return answer;
+    }
+}
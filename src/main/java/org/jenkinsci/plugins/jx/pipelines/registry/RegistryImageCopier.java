@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.registry;
+
+import okhttp3.HttpUrl;
+import okhttp3.Response;
+
+import java.io.IOException;
+
+/**
+ * Copies images directly between docker registries without a docker daemon.
+ * <p>
+ * The manifest is copied byte for byte so the image keeps its digest. Each blob is skipped if the target repository
+ * already has it, mounted from the source repository if both repositories are in the same registry, otherwise
+ * streamed straight from the source registry to the target registry without touching the local disk.
+ * Manifest lists are copied along with each of their platform specific manifests.
+ */
+public class RegistryImageCopier {
+    private final RegistryClient client;
+
+    public RegistryImageCopier(RegistryClient client) {
+        this.client = client;
+    }
+
+    public ImageCopyResult copy(String source, String target) throws IOException {
+        return copy(ImageReference.parse(source), ImageReference.parse(target));
+    }
+
+    public ImageCopyResult copy(ImageReference source, ImageReference target) throws IOException {
+        ImageCopyResult result = new ImageCopyResult(source.toString(), target.toString());
+        long requestsAtStart = client.getRequestCount();
+        Manifest manifest = client.getManifest(source.getRegistryHost(), source.getRepository(), source.getReference());
+        if (manifest.isList()) {
+            for (Manifest.Descriptor descriptor : manifest.getManifests()) {
+                Manifest child = client.getManifest(source.getRegistryHost(), source.getRepository(), descriptor.getDigest());
+                copyBlobs(source, target, child, result);
+                client.putManifest(target.getRegistryHost(), target.getRepository(), descriptor.getDigest(), child);
+            }
+        } else {
+            copyBlobs(source, target, manifest, result);
+        }
+        client.putManifest(target.getRegistryHost(), target.getRepository(), target.getReference(), manifest);
+        result.setDigest(manifest.getDigest());
+        result.setHttpRequests(client.getRequestCount() - requestsAtStart);
+        return result;
+    }
+
+    protected void copyBlobs(ImageReference source, ImageReference target, Manifest manifest, ImageCopyResult result) throws IOException {
+        for (Manifest.Descriptor blob : manifest.getBlobs()) {
+            copyBlob(source, target, blob, result);
+        }
+    }
+
+    protected void copyBlob(ImageReference source, ImageReference target, Manifest.Descriptor blob, ImageCopyResult result) throws IOException {
+        String registry = target.getRegistryHost();
+        String repository = target.getRepository();
+        String digest = blob.getDigest();
+        if (client.hasBlob(registry, repository, digest)) {
+            result.existing(blob.getSize());
+            return;
+        }
+        String mountFrom = registry.equals(source.getRegistryHost()) ? source.getRepository() : null;
+        HttpUrl uploadUrl = client.startUpload(registry, repository, digest, mountFrom);
+        if (uploadUrl == null) {
+            result.mounted(blob.getSize());
+            return;
+        }
+        try (Response response = client.openBlob(source.getRegistryHost(), source.getRepository(), digest)) {
+            long size = blob.getSize() >= 0 ? blob.getSize() : response.body().contentLength();
+            client.uploadBlob(registry, repository, uploadUrl, digest, size, response.body().source());
+            result.copied(size);
+        }
+    }
+}
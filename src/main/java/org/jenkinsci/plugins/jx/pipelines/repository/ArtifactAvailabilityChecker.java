@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.repository;
+
+import hudson.init.Terminator;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.jenkinsci.plugins.jx.pipelines.HttpClients;
+import org.jenkinsci.plugins.jx.pipelines.metrics.StepMetrics;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Checks whether artifacts are available in a maven repository using <code>HEAD</code> requests so that we never
+ * download the artifacts themselves; falling back to a single byte ranged <code>GET</code> for repositories which
+ * do not support <code>HEAD</code>.
+ * <p>
+ * Many artifacts can be checked at once with bounded parallelism via {@link #findMissing(Collection)}. The checks
+ * run on a thread pool shared by all checkers whose size can be configured via the
+ * <code>org.jenkinsci.plugins.jx.pipelines.repository.ArtifactAvailabilityChecker.poolSize</code> system property;
+ * the parallelism limits how many of its threads each call uses. The requests made by the pool are attributed to
+ * the pipeline execution of the calling thread in {@link StepMetrics}.
+ */
+public class ArtifactAvailabilityChecker {
+    private static final Logger LOG = Logger.getLogger(ArtifactAvailabilityChecker.class.getName());
+
+    public static final int DEFAULT_PARALLELISM = 8;
+    public static final int POOL_SIZE = Integer.getInteger(ArtifactAvailabilityChecker.class.getName() + ".poolSize", 16);
+
+    private static ThreadPoolExecutor executor;
+
+    private final OkHttpClient httpClient;
+    private final String repositoryUrl;
+    private final int parallelism;
+
+    public ArtifactAvailabilityChecker(String repositoryUrl, int parallelism) {
+        this(HttpClients.getHttpClient(), repositoryUrl, parallelism);
+    }
+
+    public ArtifactAvailabilityChecker(OkHttpClient httpClient, String repositoryUrl, int parallelism) {
+        this.httpClient = httpClient;
+        this.repositoryUrl = repositoryUrl.endsWith("/") ? repositoryUrl.substring(0, repositoryUrl.length() - 1) : repositoryUrl;
+        this.parallelism = parallelism > 0 ? parallelism : DEFAULT_PARALLELISM;
+    }
+
+    @Override
+    public String toString() {
+        return "ArtifactAvailabilityChecker{" +
+                "repositoryUrl='" + repositoryUrl + '\'' +
+                ", parallelism=" + parallelism +
+                '}';
+    }
+
+    /**
+     * Returns true if the artifact is available in the repository
+     */
+    public boolean isAvailable(ArtifactCoordinates artifact) throws IOException {
+        return isAvailable(repositoryUrl + "/" + artifact.getPath());
+    }
+
+    /**
+     * Returns true if the given URL exists
+     */
+    public boolean isAvailable(String url) throws IOException {
+        try (Response response = httpClient.newCall(new Request.Builder().url(url).head().build()).execute()) {
+            int code = response.code();
+            if (response.isSuccessful()) {
+                return true;
+            }
+            if (code == 404 || code == 410) {
+                return false;
+            }
+        }
+        // some repositories and proxies do not support HEAD so lets just ask for the first byte
+        Request request = new Request.Builder().url(url).header("Range", "bytes=0-0").get().build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            return response.isSuccessful();
+        }
+    }
+
+    /**
+     * Checks all the given artifacts concurrently returning those which are not yet available.
+     * An artifact which could not be checked due to an error is treated as missing.
+     */
+    public List<ArtifactCoordinates> findMissing(Collection<ArtifactCoordinates> artifacts) throws InterruptedException {
+        List<ArtifactCoordinates> missing = new ArrayList<>();
+        if (artifacts.isEmpty()) {
+            return missing;
+        }
+        List<ArtifactCoordinates> list = new ArrayList<>(artifacts);
+        boolean[] available = new boolean[list.size()];
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(parallelism, list.size());
+        List<Future<?>> futures = new ArrayList<>(workers);
+        FlowExecution execution = StepMetrics.getCurrentExecution();
+        try {
+            for (int w = 0; w < workers; w++) {
+                futures.add(getExecutor().submit(() -> StepMetrics.callInExecution(execution, () -> {
+                    for (int i = next.getAndIncrement(); i < list.size(); i = next.getAndIncrement()) {
+                        try {
+                            available[i] = isAvailable(list.get(i));
+                        } catch (IOException | RuntimeException e) {
+                            LOG.log(Level.FINE, "Failed to check " + list.get(i) + " in " + repositoryUrl + ": " + e, e);
+                        }
+                    }
+                    return null;
+                })));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            LOG.log(Level.WARNING, "Failed to check the artifacts in " + repositoryUrl + ": " + e.getCause(), e.getCause());
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        for (int i = 0; i < available.length; i++) {
+            if (!available[i]) {
+                missing.add(list.get(i));
+            }
+        }
+        return missing;
+    }
+
+    public String getRepositoryUrl() {
+        return repositoryUrl;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "jx-pipelines artifact checks"));
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    @Terminator
+    public static void shutdown() {
+        ThreadPoolExecutor old;
+        synchronized (ArtifactAvailabilityChecker.class) {
+            old = executor;
+            executor = null;
+        }
+        if (old != null) {
+            old.shutdownNow();
+        }
+    }
+}
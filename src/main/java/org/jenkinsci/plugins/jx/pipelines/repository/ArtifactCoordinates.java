@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.repository;
+
+import io.fabric8.utils.Strings;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The maven coordinates of an artifact in a repository
+ */
+public class ArtifactCoordinates implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+    private final String extension;
+
+    public ArtifactCoordinates(String groupId, String artifactId, String version, String extension) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+        this.extension = Strings.notEmpty(extension) ? extension : "jar";
+    }
+
+    /**
+     * Parses coordinates of the form <code>groupId:artifactId:version</code> or <code>groupId:artifactId:extension:version</code>;
+     * a value without any <code>:</code> is treated as an artifactId and the given defaults are used for the other values
+     */
+    public static ArtifactCoordinates parse(String text, String defaultGroupId, String defaultVersion, String defaultExtension) {
+        String value = text.trim();
+        String[] parts = value.split(":");
+        switch (parts.length) {
+            case 1:
+                return new ArtifactCoordinates(defaultGroupId, value, defaultVersion, defaultExtension);
+            case 3:
+                return new ArtifactCoordinates(parts[0], parts[1], parts[2], defaultExtension);
+            case 4:
+                return new ArtifactCoordinates(parts[0], parts[1], parts[3], parts[2]);
+            default:
+                throw new IllegalArgumentException("Invalid artifact coordinates `" + text + "` should be groupId:artifactId:version or groupId:artifactId:extension:version");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return groupId + ":" + artifactId + ":" + extension + ":" + version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ArtifactCoordinates that = (ArtifactCoordinates) o;
+        return Objects.equals(groupId, that.groupId) &&
+                Objects.equals(artifactId, that.artifactId) &&
+                Objects.equals(version, that.version) &&
+                Objects.equals(extension, that.extension);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(groupId, artifactId, version, extension);
+    }
+
+    /**
+     * Returns the path of the artifact relative to the root of a maven repository
+     */
+    public String getPath() {
+        return groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + "." + extension;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
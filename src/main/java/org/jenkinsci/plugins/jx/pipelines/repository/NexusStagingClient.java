@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.Credentials;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jenkinsci.plugins.jx.pipelines.HttpClients;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * A client for the staging REST API of a Nexus 2 server such as <code>https://oss.sonatype.org</code>.
+ * <p>
+ * Rather than forking the <code>nexus-staging-maven-plugin</code> once per staging repository, all the repositories
+ * are released or dropped with a single bulk request and their progress can then be polled via
+ * {@link #getRepository(String)}.
+ */
+public class NexusStagingClient {
+    public static final String DEFAULT_NEXUS_URL = "https://oss.sonatype.org";
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final OkHttpClient httpClient;
+    private final String nexusUrl;
+    private final String authorization;
+
+    public NexusStagingClient(String nexusUrl, String username, String password) {
+        this(HttpClients.getHttpClient(), nexusUrl, username, password);
+    }
+
+    public NexusStagingClient(OkHttpClient httpClient, String nexusUrl, String username, String password) {
+        this.httpClient = httpClient;
+        this.nexusUrl = nexusUrl.endsWith("/") ? nexusUrl.substring(0, nexusUrl.length() - 1) : nexusUrl;
+        this.authorization = username != null ? Credentials.basic(username, password != null ? password : "") : null;
+    }
+
+    @Override
+    public String toString() {
+        return "NexusStagingClient{" +
+                "nexusUrl='" + nexusUrl + '\'' +
+                '}';
+    }
+
+    /**
+     * Releases the given closed staging repositories. They are not dropped automatically once released so that
+     * a released repository can be told apart from one which has been dropped; use {@link #drop(Collection, String)}
+     * once they are released.
+     */
+    public void release(Collection<String> repositoryIds, String description) throws IOException {
+        ObjectNode data = createBulkRequest(repositoryIds, description);
+        data.put("autoDropAfterRelease", false);
+        post("bulk/promote", data);
+    }
+
+    /**
+     * Drops the given staging repositories
+     */
+    public void drop(Collection<String> repositoryIds, String description) throws IOException {
+        post("bulk/drop", createBulkRequest(repositoryIds, description));
+    }
+
+    /**
+     * Returns the current state of the staging repository or null if it does not exist, such as when it has been
+     * dropped
+     */
+    public StagingRepository getRepository(String repositoryId) throws IOException {
+        Request request = createRequest("repository/" + repositoryId).get().build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (response.code() == 404) {
+                return null;
+            }
+            JsonNode tree = MAPPER.readTree(readBody(request, response));
+            JsonNode repository = tree.has("data") ? tree.get("data") : tree;
+            return new StagingRepository(repositoryId,
+                    repository.path("type").asText(""),
+                    repository.path("transitioning").asBoolean(false),
+                    repository.path("notifications").asInt(0));
+        }
+    }
+
+    protected void post(String path, ObjectNode data) throws IOException {
+        ObjectNode body = MAPPER.createObjectNode();
+        body.set("data", data);
+        Request request = createRequest(path).post(RequestBody.create(JSON, MAPPER.writeValueAsBytes(body))).build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            readBody(request, response);
+        }
+    }
+
+    protected Request.Builder createRequest(String path) {
+        Request.Builder builder = new Request.Builder().url(nexusUrl + "/service/local/staging/" + path).header("Accept", "application/json");
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        return builder;
+    }
+
+    private static ObjectNode createBulkRequest(Collection<String> repositoryIds, String description) {
+        ObjectNode data = MAPPER.createObjectNode();
+        ArrayNode ids = data.putArray("stagedRepositoryIds");
+        for (String repositoryId : repositoryIds) {
+            ids.add(repositoryId);
+        }
+        data.put("description", description != null ? description : "");
+        return data;
+    }
+
+    private static String readBody(Request request, Response response) throws IOException {
+        ResponseBody body = response.body();
+        String text = body != null ? body.string() : "";
+        if (!response.isSuccessful()) {
+            throw new IOException(request.method() + " " + request.url() + " failed with HTTP " + response.code() + ": " + text);
+        }
+        return text;
+    }
+
+    /**
+     * The state of a staging repository
+     */
+    public static class StagingRepository {
+        private final String repositoryId;
+        private final String type;
+        private final boolean transitioning;
+        private final int notifications;
+
+        public StagingRepository(String repositoryId, String type, boolean transitioning, int notifications) {
+            this.repositoryId = repositoryId;
+            this.type = type;
+            this.transitioning = transitioning;
+            this.notifications = notifications;
+        }
+
+        @Override
+        public String toString() {
+            return repositoryId + " " + type + (transitioning ? " transitioning" : "") + (notifications > 0 ? " with " + notifications + " notifications" : "");
+        }
+
+        public String getRepositoryId() {
+            return repositoryId;
+        }
+
+        /**
+         * Returns the type of the repository such as <code>open</code>, <code>closed</code> or <code>released</code>
+         */
+        public String getType() {
+            return type;
+        }
+
+        public boolean isTransitioning() {
+            return transitioning;
+        }
+
+        public boolean isReleased() {
+            return "released".equals(type);
+        }
+
+        /**
+         * Returns the number of rule failures reported against the repository
+         */
+        public int getNotifications() {
+            return notifications;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import hudson.init.Terminator;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import org.jenkinsci.plugins.jx.pipelines.FailedBuildException;
+import org.jenkinsci.plugins.jx.pipelines.PollingPolicy;
+import org.jenkinsci.plugins.jx.pipelines.metrics.StepMetrics;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A base class for steps which wait for some external condition such as an artifact being synced to a repository.
+ * <p>
+ * Rather than looping in CPS Groovy, the condition is polled from a shared scheduled executor using a
+ * {@link PollingPolicy} and the step context is completed once {@link #poll()} returns a result. So a wait of
+ * many hours does not use a CPS thread or add to the flow graph. If the controller restarts we start polling
+ * again when the execution is resumed.
+ * <p>
+ * Exceptions thrown by {@link #poll()} are logged and we keep polling, apart from a {@link FailedBuildException}
+ * which fails the step straight away.
+ * <p>
+ * The size of the shared thread pool can be configured via the
+ * <code>org.jenkinsci.plugins.jx.pipelines.steps.AbstractPollingStepExecution.poolSize</code> system property
+ */
+public abstract class AbstractPollingStepExecution<T> extends StepExecution {
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger(AbstractPollingStepExecution.class.getName());
+
+    public static final int POOL_SIZE = Integer.getInteger(AbstractPollingStepExecution.class.getName() + ".poolSize", 4);
+
+    private static ScheduledExecutorService executor;
+
+    private final PollingPolicy policy;
+    private long startMillis;
+    private int attempt;
+    private String status;
+    private transient volatile ScheduledFuture<?> task;
+    private transient volatile boolean completed;
+    private transient FlowExecution execution;
+
+    protected AbstractPollingStepExecution(StepContext context, PollingPolicy policy) {
+        super(context);
+        this.policy = policy != null ? policy : PollingPolicy.getDefault();
+    }
+
+    /**
+     * Checks the condition
+     *
+     * @return the result of the step once the condition holds or null to keep waiting
+     */
+    protected abstract T poll() throws Exception;
+
+    /**
+     * Returns a description of what we are waiting for
+     */
+    protected abstract String describe();
+
+    /**
+     * Invoked when the timeout expires before {@link #poll()} returned a result so that the execution can clean up
+     * or return a partial result
+     *
+     * @return the result of the step or null to fail the step
+     */
+    protected T onTimeout() throws Exception {
+        return null;
+    }
+
+    @Override
+    public boolean start() throws Exception {
+        startMillis = System.currentTimeMillis();
+        log("Waiting " + describe());
+        schedule(0L);
+        return false;
+    }
+
+    @Override
+    public void stop(Throwable cause) throws Exception {
+        complete();
+        getContext().onFailure(cause);
+    }
+
+    @Override
+    public void onResume() {
+        log("Resuming waiting " + describe());
+        schedule(0L);
+    }
+
+    @Override
+    public String getStatus() {
+        String answer = "waiting " + describe() + " attempt " + attempt;
+        if (status != null) {
+            answer += ": " + status;
+        }
+        return answer;
+    }
+
+    /**
+     * Updates the status of the wait; logging it to the build log only if it has changed so that long waits do
+     * not flood the log
+     */
+    protected void setStatus(String status) {
+        if (status != null && !status.equals(this.status)) {
+            log(status);
+        }
+        this.status = status;
+    }
+
+    protected void log(String message) {
+        try {
+            TaskListener listener = getContext().get(TaskListener.class);
+            if (listener != null) {
+                listener.getLogger().println(message);
+                return;
+            }
+        } catch (Exception e) {
+            LOG.log(Level.FINE, "Could not get the TaskListener: " + e, e);
+        }
+        LOG.info(message);
+    }
+
+    /**
+     * Returns the default polling policy with the given timeout in minutes; zero or less waits forever
+     */
+    protected static PollingPolicy createPolicy(int timeoutMinutes) {
+        return PollingPolicy.getDefault().withTimeoutMillis(timeoutMinutes > 0 ? TimeUnit.MINUTES.toMillis(timeoutMinutes) : 0L);
+    }
+
+    public PollingPolicy getPolicy() {
+        return policy;
+    }
+
+    private void schedule(long delayMillis) {
+        if (!completed) {
+            task = getExecutor().schedule(this::run, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void run() {
+        if (completed) {
+            return;
+        }
+        T result = null;
+        try {
+            result = StepMetrics.callInExecution(getExecution(), this::poll);
+        } catch (InterruptedException e) {
+            // we are shutting down so lets carry on when we are resumed
+            return;
+        } catch (FailedBuildException e) {
+            // the condition can never hold so there is no point waiting any longer
+            complete();
+            getContext().onFailure(e);
+            return;
+        } catch (Exception e) {
+            setStatus("Failed to check " + describe() + ": " + e);
+        }
+        if (result != null) {
+            complete();
+            getContext().onSuccess(result);
+        } else if (policy.isExpired(startMillis)) {
+            complete();
+            try {
+                result = onTimeout();
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Failed to handle the timeout waiting " + describe() + ": " + e, e);
+            }
+            if (result != null) {
+                getContext().onSuccess(result);
+            } else {
+                getContext().onFailure(new FailedBuildException("Timed out after " + policy.getTimeoutMillis() + " millis waiting " + describe()));
+            }
+        } else {
+            schedule(policy.getDelayMillis(attempt++, startMillis));
+        }
+    }
+
+    private void complete() {
+        completed = true;
+        ScheduledFuture<?> future = task;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Returns the execution of the step so that any HTTP requests made while polling are attributed to it
+     */
+    private FlowExecution getExecution() {
+        if (execution == null) {
+            try {
+                FlowNode node = getContext().get(FlowNode.class);
+                if (node != null) {
+                    execution = node.getExecution();
+                }
+            } catch (Exception e) {
+                LOG.log(Level.FINE, "Could not get the FlowNode: " + e, e);
+            }
+        }
+        return execution;
+    }
+
+    private static synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newScheduledThreadPool(POOL_SIZE, new NamingThreadFactory(new DaemonThreadFactory(), "jx-pipelines polling"));
+        }
+        return executor;
+    }
+
+    @Terminator
+    public static void shutdown() {
+        ScheduledExecutorService old;
+        synchronized (AbstractPollingStepExecution.class) {
+            old = executor;
+            executor = null;
+        }
+        if (old != null) {
+            old.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.jenkinsci.plugins.jx.pipelines.HttpClients;
+import org.jenkinsci.plugins.jx.pipelines.metrics.StepMetrics;
+import org.jenkinsci.plugins.jx.pipelines.registry.ImageCopyResult;
+import org.jenkinsci.plugins.jx.pipelines.registry.RegistryClient;
+import org.jenkinsci.plugins.jx.pipelines.registry.RegistryCredentials;
+import org.jenkinsci.plugins.jx.pipelines.registry.RegistryImageCopier;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Copies a docker image from one registry to another over the registry HTTP API without needing a docker daemon,
+ * returning an {@link ImageCopyResult}.
+ * <p>
+ * The copy runs on the agent using the registry credentials from its docker <code>config.json</code>; the HTTP
+ * requests it makes are counted there and recorded in the {@link StepMetrics} of the pipeline
+ */
+public class CopyImageStep extends Step {
+    public static final String DEFAULT_DOCKER_CONFIG = "/home/jenkins/.docker/config.json";
+
+    private final String source;
+    private final String target;
+    private String dockerConfig = DEFAULT_DOCKER_CONFIG;
+    private List<String> insecureRegistries = new ArrayList<>();
+
+    @DataBoundConstructor
+    public CopyImageStep(String source, String target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public String getDockerConfig() {
+        return dockerConfig;
+    }
+
+    /**
+     * The path of the docker <code>config.json</code> file on the agent containing the registry credentials
+     */
+    @DataBoundSetter
+    public void setDockerConfig(String dockerConfig) {
+        this.dockerConfig = dockerConfig;
+    }
+
+    public List<String> getInsecureRegistries() {
+        return insecureRegistries;
+    }
+
+    /**
+     * The registries which use plain HTTP rather than HTTPS such as an in cluster registry
+     */
+    @DataBoundSetter
+    public void setInsecureRegistries(List<String> insecureRegistries) {
+        this.insecureRegistries = insecureRegistries;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(this, context);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+        @Override
+        public String getFunctionName() {
+            return "jxCopyImage";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Copies a docker image between registries without a docker daemon";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(FilePath.class, TaskListener.class);
+        }
+    }
+
+    public static class Execution extends SynchronousNonBlockingStepExecution<ImageCopyResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient CopyImageStep step;
+
+        Execution(CopyImageStep step, StepContext context) {
+            super(context);
+            this.step = step;
+        }
+
+        @Override
+        protected ImageCopyResult run() throws Exception {
+            FilePath workspace = getContext().get(FilePath.class);
+            TaskListener listener = getContext().get(TaskListener.class);
+            listener.getLogger().println("Copying " + step.getSource() + " to " + step.getTarget());
+            List<String> insecure = step.getInsecureRegistries() != null ? new ArrayList<>(step.getInsecureRegistries()) : new ArrayList<>();
+            ImageCopyResult result = workspace.act(new CopyImage(step.getSource(), step.getTarget(), step.getDockerConfig(), insecure));
+            StepMetrics.recordHttpCalls(getContext().get(FlowExecution.class), result.getHttpRequests());
+            listener.getLogger().println(result);
+            return result;
+        }
+    }
+
+    private static class CopyImage extends MasterToSlaveFileCallable<ImageCopyResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final String source;
+        private final String target;
+        private final String dockerConfig;
+        private final ArrayList<String> insecureRegistries;
+
+        CopyImage(String source, String target, String dockerConfig, List<String> insecureRegistries) {
+            this.source = source;
+            this.target = target;
+            this.dockerConfig = dockerConfig;
+            this.insecureRegistries = new ArrayList<>(insecureRegistries);
+        }
+
+        @Override
+        public ImageCopyResult invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+            File config = dockerConfig != null ? new File(dockerConfig) : null;
+            RegistryClient client = new RegistryClient(HttpClients.getHttpClient(), RegistryCredentials.load(config), insecureRegistries);
+            return new RegistryImageCopier(client).copy(source, target);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.jenkinsci.plugins.jx.pipelines.helpers.GitWorkspaceInfo;
+import org.jenkinsci.plugins.jx.pipelines.helpers.GitWorkspaceReader;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Returns the {@link GitWorkspaceInfo} of the git clone in the current directory by reading the <code>.git</code>
+ * directory on the agent in a single call rather than invoking several <code>git</code> commands
+ */
+public class GitWorkspaceInfoStep extends Step {
+    private String dir;
+
+    @DataBoundConstructor
+    public GitWorkspaceInfoStep() {
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    /**
+     * The directory relative to the current directory to look for the git clone
+     */
+    @DataBoundSetter
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(this, context);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+        @Override
+        public String getFunctionName() {
+            return "jxGitWorkspaceInfo";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Reads the branch, commit and remote URL of the git clone in the workspace";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(FilePath.class);
+        }
+    }
+
+    public static class Execution extends SynchronousNonBlockingStepExecution<GitWorkspaceInfo> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient GitWorkspaceInfoStep step;
+
+        Execution(GitWorkspaceInfoStep step, StepContext context) {
+            super(context);
+            this.step = step;
+        }
+
+        @Override
+        protected GitWorkspaceInfo run() throws Exception {
+            FilePath workspace = getContext().get(FilePath.class);
+            if (step.getDir() != null) {
+                workspace = workspace.child(step.getDir());
+            }
+            return workspace.act(new ReadGitWorkspace());
+        }
+    }
+
+    private static class ReadGitWorkspace extends MasterToSlaveFileCallable<GitWorkspaceInfo> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public GitWorkspaceInfo invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+            return GitWorkspaceReader.read(f);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import io.fabric8.utils.IOHelpers;
+import jenkins.MasterToSlaveFileCallable;
+import org.jenkinsci.plugins.jx.pipelines.helpers.GitWorkspaceReader;
+import org.jenkinsci.plugins.jx.pipelines.helpers.MavenHelpers;
+import org.jenkinsci.plugins.jx.pipelines.helpers.SemanticVersion;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Returns the next release version of the project in the current directory using the semantic versions of the git
+ * tags and the version in the <code>pom.xml</code>; see {@link SemanticVersion#nextReleaseVersion(java.util.Collection, String)}.
+ * <p>
+ * The tags are read directly from the <code>.git</code> directory on the agent rather than by sorting them with
+ * <code>git tag</code> and reading the result back from a temporary file.
+ */
+public class NextReleaseVersionStep extends Step {
+    private String dir;
+    private String pomVersion;
+
+    @DataBoundConstructor
+    public NextReleaseVersionStep() {
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    /**
+     * The directory relative to the current directory containing the git clone and <code>pom.xml</code>
+     */
+    @DataBoundSetter
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    public String getPomVersion() {
+        return pomVersion;
+    }
+
+    /**
+     * The current version of the project; if not specified it is read from the <code>pom.xml</code> if there is one
+     */
+    @DataBoundSetter
+    public void setPomVersion(String pomVersion) {
+        this.pomVersion = pomVersion;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(this, context);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+        @Override
+        public String getFunctionName() {
+            return "jxNextReleaseVersion";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Returns the next release version from the git tags and pom.xml";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(FilePath.class, TaskListener.class);
+        }
+    }
+
+    public static class Execution extends SynchronousNonBlockingStepExecution<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient NextReleaseVersionStep step;
+
+        Execution(NextReleaseVersionStep step, StepContext context) {
+            super(context);
+            this.step = step;
+        }
+
+        @Override
+        protected String run() throws Exception {
+            FilePath workspace = getContext().get(FilePath.class);
+            if (step.getDir() != null) {
+                workspace = workspace.child(step.getDir());
+            }
+            String answer = workspace.act(new FindNextReleaseVersion(step.getPomVersion()));
+            getContext().get(TaskListener.class).getLogger().println("Next release version " + answer);
+            return answer;
+        }
+    }
+
+    private static class FindNextReleaseVersion extends MasterToSlaveFileCallable<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final String pomVersion;
+
+        FindNextReleaseVersion(String pomVersion) {
+            this.pomVersion = pomVersion;
+        }
+
+        @Override
+        public String invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+            String version = pomVersion;
+            File pom = new File(f, "pom.xml");
+            if (version == null && pom.isFile()) {
+                try {
+                    version = MavenHelpers.getProjectVersion(IOHelpers.readFully(pom));
+                } catch (Exception e) {
+                    throw new IOException("Failed to read the version from " + pom + ": " + e, e);
+                }
+            }
+            List<String> tags = GitWorkspaceReader.readTags(f);
+            return SemanticVersion.nextReleaseVersion(tags, version);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.jx.pipelines.AsyncLogger;
+import org.jenkinsci.plugins.jx.pipelines.Logger;
+import org.jenkinsci.plugins.jx.pipelines.PersistentShellFacade;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowExecution;
+import org.jenkinsci.plugins.workflow.cps.EnvActionImpl;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Opens a {@link PersistentShellFacade} for the pod of the agent the run is executing on, returning the id to pass to
+ * the <code>jxShellSession</code> step. The sessions in each container are opened on first use and are closed when
+ * the run completes.
+ */
+public class OpenShellSessionStep extends Step {
+
+    @DataBoundConstructor
+    public OpenShellSessionStep() {
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(context);
+    }
+
+    /**
+     * Returns the open facade with the given id for the run of the given step context, opening it for the pod of
+     * the current agent if it is not open yet
+     */
+    static PersistentShellFacade open(StepContext context, String id) throws IOException, InterruptedException {
+        Run<?, ?> run = context.get(Run.class);
+        PersistentShellFacade facade = PersistentShellFacade.forId(run, id);
+        if (facade != null) {
+            return facade;
+        }
+        Computer computer = context.get(Computer.class);
+        String podName = computer != null ? computer.getName() : null;
+        if (podName == null || podName.isEmpty()) {
+            throw new IllegalStateException("A shell session can only be opened on the agent pod of the build");
+        }
+        FilePath workspace = context.get(FilePath.class);
+        FlowExecution execution = context.get(FlowExecution.class);
+        Logger logger = execution instanceof CpsFlowExecution ? AsyncLogger.forExecution((CpsFlowExecution) execution) : Logger.getInstance();
+        return PersistentShellFacade.getOrCreateForRun(run, id, podName, workspace != null ? workspace.getRemote() : null,
+                PersistentShellFacade.buildEnvironment(EnvActionImpl.forRun(run)), logger);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+        @Override
+        public String getFunctionName() {
+            return "jxOpenShellSession";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Opens persistent shell sessions in the containers of the build pod";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(Run.class, Computer.class, FilePath.class, TaskListener.class);
+        }
+    }
+
+    public static class Execution extends SynchronousNonBlockingStepExecution<String> {
+        private static final long serialVersionUID = 1L;
+
+        Execution(StepContext context) {
+            super(context);
+        }
+
+        @Override
+        protected String run() throws Exception {
+            Run<?, ?> run = getContext().get(Run.class);
+            String id = PersistentShellFacade.createId(run);
+            open(getContext(), id);
+            return id;
+        }
+    }
+}
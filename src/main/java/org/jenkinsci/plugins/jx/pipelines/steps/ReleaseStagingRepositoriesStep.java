@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.google.common.collect.ImmutableSet;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.jx.pipelines.FailedBuildException;
+import org.jenkinsci.plugins.jx.pipelines.repository.NexusStagingClient;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Releases a number of Nexus staging repositories at once with a single bulk request to the Nexus staging REST API
+ * then waits for them all to be released, returning the ids of the released repositories which are then dropped.
+ * <p>
+ * Nexus does not start transitioning a repository straight after the release request, so a closed repository which
+ * is not transitioning is only considered to have failed once we have seen it transitioning or it has rule failure
+ * notifications. A repository which no longer exists has been dropped by someone else so it is treated as a failure.
+ * <p>
+ * If the release request fails, or any of the repositories fail to release before the timeout, those repositories are
+ * dropped and the step fails.
+ */
+public class ReleaseStagingRepositoriesStep extends Step {
+    private final List<String> repositoryIds;
+    private String nexusUrl = NexusStagingClient.DEFAULT_NEXUS_URL;
+    private String credentialsId;
+    private String description = "Next release is ready";
+    private int timeoutMinutes = 60;
+
+    @DataBoundConstructor
+    public ReleaseStagingRepositoriesStep(List<String> repositoryIds) {
+        this.repositoryIds = repositoryIds;
+    }
+
+    public List<String> getRepositoryIds() {
+        return repositoryIds;
+    }
+
+    public String getNexusUrl() {
+        return nexusUrl;
+    }
+
+    @DataBoundSetter
+    public void setNexusUrl(String nexusUrl) {
+        this.nexusUrl = nexusUrl;
+    }
+
+    public String getCredentialsId() {
+        return credentialsId;
+    }
+
+    /**
+     * The id of the username and password credentials used to login to Nexus
+     */
+    @DataBoundSetter
+    public void setCredentialsId(String credentialsId) {
+        this.credentialsId = credentialsId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @DataBoundSetter
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public int getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    @DataBoundSetter
+    public void setTimeoutMinutes(int timeoutMinutes) {
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        if (repositoryIds == null || repositoryIds.isEmpty()) {
+            throw new IllegalArgumentException("No staging repository ids specified");
+        }
+        if (credentialsId != null && !credentialsId.isEmpty()) {
+            Run<?, ?> run = context.get(Run.class);
+            if (CredentialsProvider.findCredentialById(credentialsId, StandardUsernamePasswordCredentials.class, run) == null) {
+                throw new IllegalArgumentException("No username and password credentials found with id " + credentialsId);
+            }
+        }
+        return new Execution(context, new ArrayList<>(repositoryIds), nexusUrl, credentialsId, description, timeoutMinutes);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+        @Override
+        public String getFunctionName() {
+            return "jxReleaseStagingRepositories";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Releases Nexus staging repositories";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(Run.class, TaskListener.class);
+        }
+    }
+
+    public static class Execution extends AbstractPollingStepExecution<List<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<String> repositoryIds;
+        private final String nexusUrl;
+        private final String credentialsId;
+        private final String description;
+        private final ArrayList<String> released = new ArrayList<>();
+        private final LinkedHashMap<String, String> failed = new LinkedHashMap<>();
+        private final HashSet<String> transitioning = new HashSet<>();
+        private boolean releaseRequested;
+
+        Execution(StepContext context, ArrayList<String> repositoryIds, String nexusUrl, String credentialsId, String description, int timeoutMinutes) {
+            super(context, createPolicy(timeoutMinutes));
+            this.repositoryIds = repositoryIds;
+            this.nexusUrl = nexusUrl;
+            this.credentialsId = credentialsId;
+            this.description = description;
+        }
+
+        @Override
+        protected String describe() {
+            return "for staging repositories " + repositoryIds + " to be released";
+        }
+
+        @Override
+        protected List<String> poll() throws Exception {
+            NexusStagingClient client = createClient();
+            if (!releaseRequested) {
+                try {
+                    client.release(repositoryIds, description);
+                } catch (IOException e) {
+                    drop(client, repositoryIds, "Error during release: " + e);
+                    throw new FailedBuildException("ERROR releasing staging repositories " + repositoryIds + ": " + e, e);
+                }
+                releaseRequested = true;
+                log("Releasing staging repositories " + repositoryIds + " on " + nexusUrl);
+                return null;
+            }
+            List<String> pending = getPending();
+            for (String repositoryId : pending) {
+                NexusStagingClient.StagingRepository repository = client.getRepository(repositoryId);
+                if (repository == null) {
+                    failed.put(repositoryId, repositoryId + " no longer exists");
+                } else if (repository.isReleased()) {
+                    released.add(repositoryId);
+                } else if (repository.isTransitioning()) {
+                    transitioning.add(repositoryId);
+                } else if (transitioning.contains(repositoryId) || repository.getNotifications() > 0) {
+                    failed.put(repositoryId, repository.toString());
+                }
+            }
+            pending = getPending();
+            if (!pending.isEmpty()) {
+                setStatus("Released " + released.size() + " of " + repositoryIds.size() + " staging repositories, waiting for " + pending);
+                return null;
+            }
+            if (!failed.isEmpty()) {
+                drop(client, new ArrayList<>(failed.keySet()), "Error during release: " + failed.values());
+                drop(client, released, "Released");
+                throw new FailedBuildException("ERROR releasing staging repositories " + failed.values());
+            }
+            log("Released staging repositories " + released);
+            drop(client, released, "Released");
+            return new ArrayList<>(released);
+        }
+
+        @Override
+        protected List<String> onTimeout() throws Exception {
+            List<String> pending = getPending();
+            List<String> drop = new ArrayList<>(failed.keySet());
+            drop.addAll(pending);
+            drop(createClient(), drop, "Timed out waiting for the release");
+            return null;
+        }
+
+        protected List<String> getPending() {
+            List<String> answer = new ArrayList<>();
+            for (String repositoryId : repositoryIds) {
+                if (!released.contains(repositoryId) && !failed.containsKey(repositoryId)) {
+                    answer.add(repositoryId);
+                }
+            }
+            return answer;
+        }
+
+        protected NexusStagingClient createClient() throws IOException, InterruptedException {
+            String username = null;
+            String password = null;
+            if (credentialsId != null && !credentialsId.isEmpty()) {
+                Run<?, ?> run = getContext().get(Run.class);
+                StandardUsernamePasswordCredentials credentials = CredentialsProvider.findCredentialById(credentialsId, StandardUsernamePasswordCredentials.class, run);
+                if (credentials == null) {
+                    throw new FailedBuildException("No username and password credentials found with id " + credentialsId);
+                }
+                username = credentials.getUsername();
+                password = credentials.getPassword().getPlainText();
+            }
+            return new NexusStagingClient(nexusUrl, username, password);
+        }
+
+        private void drop(NexusStagingClient client, List<String> ids, String reason) {
+            if (ids.isEmpty()) {
+                return;
+            }
+            log("Dropping staging repositories " + ids + ": " + reason);
+            try {
+                client.drop(ids, reason);
+            } catch (IOException e) {
+                log("Failed to drop staging repositories " + ids + ": " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.jenkinsci.plugins.jx.pipelines.helpers.PomChangeSet;
+import org.jenkinsci.plugins.jx.pipelines.helpers.PomVersionRewriter;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Sets the version of the maven project in the current directory, or one of its version properties, by rewriting the
+ * <code>pom.xml</code> files on the agent with a {@link PomVersionRewriter}; returning the {@link PomChangeSet}
+ */
+public class SetPomVersionStep extends Step {
+    private final String version;
+    private String property;
+    private boolean snapshot;
+    private String dir;
+
+    @DataBoundConstructor
+    public SetPomVersionStep(String version) {
+        this.version = version;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * The version property such as <code>fabric8.version</code> to update rather than the project version
+     */
+    @DataBoundSetter
+    public void setProperty(String property) {
+        this.property = property;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Whether to update the <code>-SNAPSHOT</code> values of the {@link #setProperty(String)} rather than the
+     * release values
+     */
+    @DataBoundSetter
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    /**
+     * The directory relative to the current directory containing the root <code>pom.xml</code>
+     */
+    @DataBoundSetter
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        if (version == null || version.trim().isEmpty()) {
+            throw new IllegalArgumentException("No version specified");
+        }
+        return new Execution(this, context);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+        @Override
+        public String getFunctionName() {
+            return "jxSetPomVersion";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Sets the version of a maven project in all its pom.xml files";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(FilePath.class, TaskListener.class);
+        }
+    }
+
+    public static class Execution extends SynchronousNonBlockingStepExecution<PomChangeSet> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient SetPomVersionStep step;
+
+        Execution(SetPomVersionStep step, StepContext context) {
+            super(context);
+            this.step = step;
+        }
+
+        @Override
+        protected PomChangeSet run() throws Exception {
+            FilePath workspace = getContext().get(FilePath.class);
+            if (step.getDir() != null) {
+                workspace = workspace.child(step.getDir());
+            }
+            PomChangeSet answer = workspace.act(new RewritePoms(step.getVersion().trim(), step.getProperty(), step.isSnapshot()));
+            TaskListener listener = getContext().get(TaskListener.class);
+            listener.getLogger().println(answer);
+            for (PomChangeSet.Change change : answer.getChanges()) {
+                listener.getLogger().println("  " + change);
+            }
+            for (String warning : answer.getWarnings()) {
+                listener.getLogger().println("WARNING: " + warning);
+            }
+            return answer;
+        }
+    }
+
+    private static class RewritePoms extends MasterToSlaveFileCallable<PomChangeSet> {
+        private static final long serialVersionUID = 1L;
+
+        private final String version;
+        private final String property;
+        private final boolean snapshot;
+
+        RewritePoms(String version, String property, boolean snapshot) {
+            this.version = version;
+            this.property = property;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public PomChangeSet invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+            PomVersionRewriter rewriter = new PomVersionRewriter(f);
+            if (property != null && !property.trim().isEmpty()) {
+                return rewriter.setVersionProperty(property, version, snapshot);
+            }
+            return rewriter.setProjectVersion(version);
+        }
+    }
+}
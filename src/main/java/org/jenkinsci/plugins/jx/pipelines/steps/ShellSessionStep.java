@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.jx.pipelines.Logger;
+import org.jenkinsci.plugins.jx.pipelines.PersistentShellFacade;
+import org.jenkinsci.plugins.jx.pipelines.metrics.StepMetrics;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.util.Set;
+
+/**
+ * Invokes a command in the session of a {@link PersistentShellFacade} opened by the <code>jxOpenShellSession</code>
+ * step from a step thread rather than the CPS VM thread; returning the output of the command or null if a session
+ * cannot be opened in the container, in which case the caller should use the <code>sh</code> step instead.
+ * <p>
+ * The step fails if the session belongs to another run. The facades are not persisted so if the controller has
+ * restarted since the session was opened it is opened again in the pod of the current agent.
+ */
+public class ShellSessionStep extends Step {
+    private final String sessionId;
+    private final String script;
+    private String container;
+    private boolean returnStdout;
+
+    @DataBoundConstructor
+    public ShellSessionStep(String sessionId, String script) {
+        this.sessionId = sessionId;
+        this.script = script;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    public String getContainer() {
+        return container;
+    }
+
+    /**
+     * The container to invoke the command in; the default container of the pod if blank
+     */
+    @DataBoundSetter
+    public void setContainer(String container) {
+        this.container = container;
+    }
+
+    public boolean isReturnStdout() {
+        return returnStdout;
+    }
+
+    /**
+     * Whether to return the output of the command rather than write it to the build log
+     */
+    @DataBoundSetter
+    public void setReturnStdout(boolean returnStdout) {
+        this.returnStdout = returnStdout;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        if (script == null || script.trim().isEmpty()) {
+            throw new IllegalArgumentException("No script specified");
+        }
+        return new Execution(this, context);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+        @Override
+        public String getFunctionName() {
+            return "jxShellSession";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Invokes a command in a persistent shell session";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(Run.class, Computer.class, FilePath.class, TaskListener.class);
+        }
+    }
+
+    public static class Execution extends SynchronousNonBlockingStepExecution<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ShellSessionStep step;
+
+        Execution(ShellSessionStep step, StepContext context) {
+            super(context);
+            this.step = step;
+        }
+
+        @Override
+        protected String run() throws Exception {
+            Run<?, ?> run = getContext().get(Run.class);
+            if (!PersistentShellFacade.isOwnedBy(run, step.getSessionId())) {
+                throw new IllegalArgumentException("Unknown shell session " + step.getSessionId() + " for " + run.getFullDisplayName());
+            }
+            PersistentShellFacade facade = OpenShellSessionStep.open(getContext(), step.getSessionId());
+            Logger output = new Logger(getContext().get(TaskListener.class).getLogger());
+            FlowNode node = getContext().get(FlowNode.class);
+            return StepMetrics.callInExecution(node != null ? node.getExecution() : null,
+                    () -> facade.applyInSession(step.getScript(), step.isReturnStdout(), step.getContainer(), output));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.Extension;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.jx.pipelines.model.ServiceConstants;
+import org.jenkinsci.plugins.jx.pipelines.repository.ArtifactAvailabilityChecker;
+import org.jenkinsci.plugins.jx.pipelines.repository.ArtifactCoordinates;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Waits until all the given artifacts are available in a maven repository such as maven central, returning
+ * the coordinates of the artifacts
+ */
+public class WaitUntilArtifactsAvailableStep extends Step {
+    private String repositoryUrl = ServiceConstants.MAVEN_CENTRAL;
+    private List<String> artifacts = new ArrayList<>();
+    private String groupId;
+    private String version;
+    private String extension = "jar";
+    private int parallelism = ArtifactAvailabilityChecker.DEFAULT_PARALLELISM;
+    private int timeoutMinutes;
+
+    @DataBoundConstructor
+    public WaitUntilArtifactsAvailableStep() {
+    }
+
+    public String getRepositoryUrl() {
+        return repositoryUrl;
+    }
+
+    @DataBoundSetter
+    public void setRepositoryUrl(String repositoryUrl) {
+        this.repositoryUrl = repositoryUrl;
+    }
+
+    public List<String> getArtifacts() {
+        return artifacts;
+    }
+
+    /**
+     * The artifacts to wait for as <code>groupId:artifactId:version</code>, <code>groupId:artifactId:extension:version</code>
+     * or an artifactId which uses the groupId, version and extension of this step
+     */
+    @DataBoundSetter
+    public void setArtifacts(List<String> artifacts) {
+        this.artifacts = artifacts;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    @DataBoundSetter
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    @DataBoundSetter
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    @DataBoundSetter
+    public void setExtension(String extension) {
+        this.extension = extension;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @DataBoundSetter
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    /**
+     * The maximum time to wait; zero or less waits forever
+     */
+    @DataBoundSetter
+    public void setTimeoutMinutes(int timeoutMinutes) {
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        List<ArtifactCoordinates> coordinates = new ArrayList<>();
+        if (artifacts != null) {
+            for (String artifact : artifacts) {
+                if (artifact != null && artifact.trim().length() > 0) {
+                    coordinates.add(ArtifactCoordinates.parse(artifact, groupId, version, extension));
+                }
+            }
+        }
+        if (coordinates.isEmpty()) {
+            throw new IllegalArgumentException("No artifacts specified");
+        }
+        return new Execution(context, repositoryUrl, coordinates, parallelism, timeoutMinutes);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+        @Override
+        public String getFunctionName() {
+            return "jxWaitUntilArtifactsAvailable";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Waits until artifacts are available in a maven repository";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(TaskListener.class);
+        }
+    }
+
+    public static class Execution extends AbstractPollingStepExecution<List<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final String repositoryUrl;
+        private final List<ArtifactCoordinates> artifacts;
+        private final int parallelism;
+        private List<ArtifactCoordinates> missing;
+
+        Execution(StepContext context, String repositoryUrl, List<ArtifactCoordinates> artifacts, int parallelism, int timeoutMinutes) {
+            super(context, createPolicy(timeoutMinutes));
+            this.repositoryUrl = repositoryUrl;
+            this.artifacts = artifacts;
+            this.parallelism = parallelism;
+            this.missing = new ArrayList<>(artifacts);
+        }
+
+        @Override
+        protected String describe() {
+            return "for " + artifacts.size() + " artifacts to be available in " + repositoryUrl;
+        }
+
+        @Override
+        protected List<String> poll() throws Exception {
+            missing = new ArrayList<>(new ArtifactAvailabilityChecker(repositoryUrl, parallelism).findMissing(missing));
+            if (!missing.isEmpty()) {
+                setStatus("Waiting for " + missing.size() + " of " + artifacts.size() + " artifacts: " + missing);
+                return null;
+            }
+            log("All " + artifacts.size() + " artifacts are available in " + repositoryUrl);
+            List<String> answer = new ArrayList<>(artifacts.size());
+            for (ArtifactCoordinates artifact : artifacts) {
+                answer.add(artifact.toString());
+            }
+            return answer;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.Extension;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.jx.pipelines.repository.ArtifactAvailabilityChecker;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.util.Set;
+
+/**
+ * Waits until a released jenkins plugin is available in the plugin archive, returning the URL of the plugin
+ */
+public class WaitUntilJenkinsPluginAvailableStep extends Step {
+    public static final String DEFAULT_REPO = "http://archives.jenkins-ci.org/";
+
+    private final String name;
+    private final String version;
+    private String repo = DEFAULT_REPO;
+    private int timeoutMinutes;
+
+    @DataBoundConstructor
+    public WaitUntilJenkinsPluginAvailableStep(String name, String version) {
+        this.name = name;
+        this.version = version;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getRepo() {
+        return repo;
+    }
+
+    @DataBoundSetter
+    public void setRepo(String repo) {
+        this.repo = repo;
+    }
+
+    public int getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    /**
+     * The maximum time to wait; zero or less waits forever
+     */
+    @DataBoundSetter
+    public void setTimeoutMinutes(int timeoutMinutes) {
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        String base = repo != null && repo.length() > 0 ? repo : DEFAULT_REPO;
+        if (!base.endsWith("/")) {
+            base += "/";
+        }
+        String url = base + "plugins/" + name + "/" + version + "/" + name + ".hpi";
+        return new Execution(context, base, url, timeoutMinutes);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+        @Override
+        public String getFunctionName() {
+            return "jxWaitUntilJenkinsPluginAvailable";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Waits until a jenkins plugin is available in the plugin archive";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(TaskListener.class);
+        }
+    }
+
+    public static class Execution extends AbstractPollingStepExecution<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final String repo;
+        private final String url;
+
+        Execution(StepContext context, String repo, String url, int timeoutMinutes) {
+            super(context, createPolicy(timeoutMinutes));
+            this.repo = repo;
+            this.url = url;
+        }
+
+        @Override
+        protected String describe() {
+            return "for " + url;
+        }
+
+        @Override
+        protected String poll() throws Exception {
+            if (new ArtifactAvailabilityChecker(repo, 1).isAvailable(url)) {
+                log("File is available at: " + url);
+                return url;
+            }
+            setStatus("File not yet available: " + url);
+            return null;
+        }
+    }
+}
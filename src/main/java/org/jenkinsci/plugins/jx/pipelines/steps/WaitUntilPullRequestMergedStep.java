@@ -0,0 +1,234 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.jx.pipelines.HttpClients;
+import org.jenkinsci.plugins.jx.pipelines.github.GitHubClient;
+import org.jenkinsci.plugins.jx.pipelines.github.GitHubRateLimiter;
+import org.jenkinsci.plugins.jx.pipelines.github.GitHubResponse;
+import org.jenkinsci.plugins.jx.pipelines.github.GitHubResponseCache;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Waits until a GitHub pull request is merged or closed or the status of its head commit is <code>success</code>.
+ * <p>
+ * Returns a map of the <code>number</code>, <code>state</code>, <code>merged</code>, <code>head.ref</code> and
+ * <code>head.sha</code> of the pull request along with the combined <code>status</code> of the head commit.
+ * If <code>returnOnFailure</code> is enabled the step also returns as soon as the commit status is <code>failure</code>
+ * so that the pipeline can ask someone to fix the pull request.
+ * <p>
+ * The GitHub API token is read from the <code>tokenPath</code> file on the agent when polling starts or resumes; it
+ * is never stored in the execution so that it does not end up in the persisted program state of the build.
+ */
+public class WaitUntilPullRequestMergedStep extends Step {
+    public static final String DEFAULT_TOKEN_PATH = "/home/jenkins/.apitoken/hub";
+
+    private final String project;
+    private final String id;
+    private boolean returnOnFailure;
+    private String tokenPath = DEFAULT_TOKEN_PATH;
+    private String apiUrl = GitHubClient.DEFAULT_API_URL;
+    private int timeoutMinutes;
+
+    @DataBoundConstructor
+    public WaitUntilPullRequestMergedStep(String project, String id) {
+        this.project = project;
+        this.id = id;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isReturnOnFailure() {
+        return returnOnFailure;
+    }
+
+    @DataBoundSetter
+    public void setReturnOnFailure(boolean returnOnFailure) {
+        this.returnOnFailure = returnOnFailure;
+    }
+
+    public String getTokenPath() {
+        return tokenPath;
+    }
+
+    /**
+     * The path of the file on the agent containing the GitHub API token
+     */
+    @DataBoundSetter
+    public void setTokenPath(String tokenPath) {
+        this.tokenPath = tokenPath;
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    /**
+     * The URL of the GitHub API such as the API of a GitHub Enterprise server
+     */
+    @DataBoundSetter
+    public void setApiUrl(String apiUrl) {
+        this.apiUrl = apiUrl;
+    }
+
+    public int getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    /**
+     * The maximum time to wait; zero or less waits forever
+     */
+    @DataBoundSetter
+    public void setTimeoutMinutes(int timeoutMinutes) {
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        // fail fast if there is no token rather than polling forever
+        readToken(context.get(FilePath.class), tokenPath);
+        String url = apiUrl != null && apiUrl.length() > 0 ? apiUrl : GitHubClient.DEFAULT_API_URL;
+        return new Execution(context, project, id, tokenPath, url, returnOnFailure, timeoutMinutes);
+    }
+
+    static String readToken(FilePath workspace, String tokenPath) throws IOException, InterruptedException {
+        if (workspace == null) {
+            throw new IllegalStateException("No workspace available to read the GitHub token from " + tokenPath);
+        }
+        FilePath tokenFile = workspace.child(tokenPath);
+        if (!tokenFile.exists()) {
+            throw new IllegalArgumentException("No GitHub token found in " + tokenPath);
+        }
+        String token = tokenFile.readToString().trim();
+        if (token.isEmpty()) {
+            throw new IllegalArgumentException("No GitHub token found in " + tokenPath);
+        }
+        return token;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor {
+        @Override
+        public String getFunctionName() {
+            return "jxWaitUntilPullRequestMerged";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Waits until a GitHub pull request is merged";
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return ImmutableSet.of(FilePath.class, TaskListener.class);
+        }
+    }
+
+    public static class Execution extends AbstractPollingStepExecution<Map<String, String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final String project;
+        private final String id;
+        private final String tokenPath;
+        private final String apiUrl;
+        private final boolean returnOnFailure;
+        private transient String token;
+
+        Execution(StepContext context, String project, String id, String tokenPath, String apiUrl, boolean returnOnFailure, int timeoutMinutes) {
+            super(context, createPolicy(timeoutMinutes));
+            this.project = project;
+            this.id = id;
+            this.tokenPath = tokenPath;
+            this.apiUrl = apiUrl;
+            this.returnOnFailure = returnOnFailure;
+        }
+
+        @Override
+        protected String describe() {
+            return "for pull request " + id + " on " + project + " to be merged";
+        }
+
+        @Override
+        protected Map<String, String> poll() throws Exception {
+            // these requests are conditional so polling an unchanged PR does not use up the GitHub rate limit
+            GitHubClient client = new GitHubClient(HttpClients.getHttpClient(), apiUrl, getToken(), GitHubResponseCache.getInstance(),
+                    GitHubRateLimiter.getInstance(), GitHubRateLimiter.Priority.LOW);
+            GitHubResponse pr = client.execute("GET", "repos/" + project + "/pulls/" + id, null, "number", "state", "merged", "head.ref", "head.sha");
+            if (pr.isTransientError()) {
+                setStatus("GitHub returned " + pr.getResponseCode() + " for " + project + " PR " + id + " so will try again");
+                return null;
+            }
+            if (pr.getResponseCode() != 200) {
+                throw new IllegalStateException("Cannot get " + project + " PR " + id + ".  GitHub API Response code: " + pr.getResponseCode());
+            }
+            Map<String, String> answer = new HashMap<>(pr.getFields());
+            if ("true".equals(answer.get("merged"))) {
+                log("PR " + id + " merged");
+                return answer;
+            }
+            if ("closed".equals(answer.get("state"))) {
+                log("PR " + id + " closed");
+                return answer;
+            }
+            String sha = answer.get("head.sha");
+            GitHubResponse status = client.execute("GET", "repos/" + project + "/commits/" + sha + "/status", null, "state");
+            if (status.isTransientError()) {
+                setStatus("GitHub returned " + status.getResponseCode() + " for the status of " + project + " commit " + sha + " so will try again");
+                return null;
+            }
+            if (status.getResponseCode() != 200) {
+                throw new IllegalStateException("Cannot get the status of " + project + " commit " + sha + ".  GitHub API Response code: " + status.getResponseCode());
+            }
+            String state = status.getField("state");
+            answer.put("status", state);
+            setStatus(project + " Pull request " + id + " commit " + sha + " state " + state);
+            if ("success".equals(state) || ("failure".equals(state) && returnOnFailure)) {
+                return answer;
+            }
+            return null;
+        }
+
+        /**
+         * Returns the token, reading it from the agent the first time we poll after starting or resuming
+         */
+        private String getToken() throws Exception {
+            if (token == null) {
+                token = readToken(getContext().get(FilePath.class), tokenPath);
+            }
+            return token;
+        }
+    }
+}
@@ -3,10 +3,18 @@ package org.jenkinsci.plugins.jx.pipelines.dsl
 import com.cloudbees.groovy.cps.NonCPS
 import hudson.model.Result
 import io.fabric8.kubernetes.api.KubernetesHelper
-import io.fabric8.kubernetes.client.DefaultKubernetesClient
 import io.fabric8.kubernetes.client.KubernetesClient
+import org.jenkinsci.plugins.jx.pipelines.ClusterTopology
+import org.jenkinsci.plugins.jx.pipelines.KubernetesClients
+import org.jenkinsci.plugins.jx.pipelines.PollingPolicy
+import org.jenkinsci.plugins.jx.pipelines.ShellBatch
 import org.jenkinsci.plugins.jx.pipelines.StepExtension
+import org.jenkinsci.plugins.jx.pipelines.github.GitHubRateLimitException
 import org.jenkinsci.plugins.jx.pipelines.helpers.MavenHelpers
+import org.jenkinsci.plugins.jx.pipelines.helpers.SemanticVersion
+import org.jenkinsci.plugins.jx.pipelines.metrics.StepMetrics
+import org.jenkinsci.plugins.jx.pipelines.metrics.StepTiming
+import org.jenkinsci.plugins.jx.pipelines.model.ImagePromotionReport
 import org.jenkinsci.plugins.workflow.cps.CpsScript
 
 import java.util.regex.Pattern
@@ -78,31 +86,74 @@ class CommonFunctions {
 
   // getDockerHubImageTags moved to JXDSLUtils
 
+  /**
+   * Invokes the given commands as a single shell script so we only pay for one sh step rather than one per command.
+   * Fails on the first command which fails, reporting its index and exit code
+   */
+  def shBatch(List<String> commands) {
+    def batch = new ShellBatch(commands)
+    if (batch.isEmpty()) {
+      return
+    }
+    String output = script.sh(script: batch.createScript(), returnStdout: true)
+    batch.checkOutput(output)
+  }
+
   def searchAndReplaceMavenVersionPropertyNoCommit(String property, String newVersion) {
     // example matches <fabric8.version>2.3</fabric8.version> <fabric8.version>2.3.12</fabric8.version> <fabric8.version>2.3.12.5</fabric8.version>
-    script.sh "find -type f -name 'pom.xml' | xargs sed -i -r 's/${property}[0-9][0-9]{0,2}.[0-9][0-9]{0,2}(.[0-9][0-9]{0,2})?(.[0-9][0-9]{0,2})?</${property}${newVersion}</g'"
+    return script.jxSetPomVersion(property: property, version: newVersion)
   }
 
   def searchAndReplaceMavenVersionProperty(String property, String newVersion) {
     // example matches <fabric8.version>2.3</fabric8.version> <fabric8.version>2.3.12</fabric8.version> <fabric8.version>2.3.12.5</fabric8.version>
-    script.sh "find -type f -name 'pom.xml' | xargs sed -i -r 's/${property}[0-9][0-9]{0,2}.[0-9][0-9]{0,2}(.[0-9][0-9]{0,2})?(.[0-9][0-9]{0,2})?</${property}${newVersion}</g'"
-    script.sh "git commit -a -m 'Bump ${property} version'"
+    def changes = script.jxSetPomVersion(property: property, version: newVersion)
+    if (!changes.isEmpty()) {
+      script.sh "git commit -a -m 'Bump ${property} version'"
+    }
   }
 
   def searchAndReplaceMavenSnapshotProfileVersionProperty(String property, String newVersion) {
     // example matches <fabric8.version>2.3-SNAPSHOT</fabric8.version> <fabric8.version>2.3.12-SNAPSHOT</fabric8.version> <fabric8.version>2.3.12.5-SNAPSHOT</fabric8.version>
-    script.sh "find -type f -name 'pom.xml' | xargs sed -i -r 's/${property}[0-9][0-9]{0,2}.[0-9][0-9]{0,2}(.[0-9][0-9]{0,2})?(.[0-9][0-9]{0,2})?-SNAPSHOT</${property}${newVersion}-SNAPSHOT</g'"
-    script.sh "git commit -a -m 'Bump ${property} development profile SNAPSHOT version'"
+    def changes = script.jxSetPomVersion(property: property, version: newVersion, snapshot: true)
+    if (!changes.isEmpty()) {
+      script.sh "git commit -a -m 'Bump ${property} development profile SNAPSHOT version'"
+    }
+  }
+
+  /**
+   * Sets the version of the project and all its modules by rewriting the poms, only running
+   * <code>mvn versions:set</code> if there are extra maven arguments
+   */
+  def setProjectVersion(String newVersion, String mvnExtraArgs = "") {
+    if (mvnExtraArgs?.trim()) {
+      script.sh "mvn -B -U versions:set -DnewVersion=${newVersion} " + mvnExtraArgs
+    } else {
+      script.jxSetPomVersion version: newVersion
+    }
+  }
+
+  /**
+   * Returns the current project version with the next patch number, such as 1.2.4 for 1.2.3-SNAPSHOT, or null if
+   * the version is not a semantic version
+   */
+  def getNextIncrementalVersion() {
+    def version = SemanticVersion.parse(getProjectVersion())
+    return version ? version.nextIncrementalVersion().toString() : null
   }
 
   def setupWorkspaceForRelease(String project, Boolean useGitTagForNextVersion, String mvnExtraArgs = "", String currentVersion = "", String containerName = "maven") {
-    script.sh "git config user.email jenkins-x-admin@googlegroups.com"
-    script.sh "git config user.name jenkins-x-bot"
-    // TODO disable if no .gitcredentials
-    script.sh "git config credential.https://github.com.username jenkins-x-bot"
-    script.sh "git config credential.helper store"
-    script.sh 'cp /root/gitcreds/gitcredentials ~/.git-credentials'
-    script.sh 'chmod 600  ~/.git-credentials'
+    shBatch([
+        "git config user.email jenkins-x-admin@googlegroups.com",
+        "git config user.name jenkins-x-bot",
+        // TODO disable if no .gitcredentials
+        "git config credential.https://github.com.username jenkins-x-bot",
+        "git config credential.helper store",
+        'cp /root/gitcreds/gitcredentials ~/.git-credentials',
+        'chmod 600  ~/.git-credentials',
+        'cp /root/netrc/.netrc ~/.netrc',
+        "git tag -d \$(git tag)",
+        "git fetch --tags"
+    ])
 
 /*
     if (script.fileExists("root/.ssh-git")) {
@@ -119,24 +170,23 @@ class CommonFunctions {
     }
 */
 
-    script.sh 'cp /root/netrc/.netrc ~/.netrc'
-
-    script.sh "git tag -d \$(git tag)"
-    script.sh "git fetch --tags"
-
     if (useGitTagForNextVersion) {
       def newVersion = getNewVersionFromTag(currentVersion)
       echo "New release version ${newVersion}"
       script.container(containerName) {
-        script.sh "mvn -B -U versions:set -DnewVersion=${newVersion} " + mvnExtraArgs
+        setProjectVersion(newVersion, mvnExtraArgs)
       }
 
       script.sh "git commit -a -m 'release ${newVersion}'"
       pushTag(newVersion)
     } else {
-      script.container(containerName) {
-        script.sh 'mvn -B build-helper:parse-version versions:set -DnewVersion=\\\${parsedVersion.majorVersion}.\\\${parsedVersion.minorVersion}.\\\${parsedVersion.nextIncrementalVersion} ' + mvnExtraArgs
-
+      def nextVersion = mvnExtraArgs?.trim() ? null : getNextIncrementalVersion()
+      if (nextVersion) {
+        setProjectVersion(nextVersion)
+      } else {
+        script.container(containerName) {
+          script.sh 'mvn -B build-helper:parse-version versions:set -DnewVersion=\\\${parsedVersion.majorVersion}.\\\${parsedVersion.minorVersion}.\\\${parsedVersion.nextIncrementalVersion} ' + mvnExtraArgs
+        }
       }
     }
 
@@ -151,82 +201,18 @@ class CommonFunctions {
     }
   }
 
-// if no previous tag found default 1.0.0 is used, else assume version is in the form major.minor or major.minor.micro version
+/**
+ * Returns the next release version from the semantic version git tags and the given pom version; if there are no
+ * previous tags then the pom version or 1.0.0 is used
+ */
   def getNewVersionFromTag(pomVersion = null) {
-    def version = '1.0.0'
-
-    // Set known prerelease prefixes, needed for the proper sort order
-    // in the next command
-    script.sh "git config versionsort.prereleaseSuffix -RC"
-    script.sh "git config versionsort.prereleaseSuffix -M"
-
-    // if the repo has no tags this command will fail
-    script.sh "git tag --sort version:refname | tail -1 > version.tmp"
-
-    def tag = script.readFile 'version.tmp'
-
-    if (tag == null || tag.size() == 0) {
-      echo "no existing tag found using version ${version}"
-      return version
-    }
-
-    tag = tag.trim()
-
-    echo "Testing to see if version ${tag} is semver compatible"
-
-    def semver = tag =~ /(?i)\bv?(?<major>0|[1-9]\d*)(?:\.(?<minor>0|[1-9]\d*)(?:\.(?<patch>0|[1-9]\d*))?)?(?:-(?<prerelease>[\da-z\-]+(?:\.[\da-z\-]+)*))?(?:\+(?<build>[\da-z\-]+(?:\.[\da-z\-]+)*))?\b/
-
-    if (semver.matches()) {
-      echo "Version ${tag} is semver compatible"
-
-      def majorVersion = semver.group('major') as int
-      def minorVersion = (semver.group('minor') ?: 0) as int
-      def patchVersion = ((semver.group('patch') ?: 0) as int) + 1
-
-      echo "Testing to see if current POM version ${pomVersion} is semver compatible"
-
-      def pomSemver = pomVersion.trim() =~ /(?i)\bv?(?<major>0|[1-9]\d*)(?:\.(?<minor>0|[1-9]\d*)(?:\.(?<patch>0|[1-9]\d*))?)?(?:-(?<prerelease>[\da-z\-]+(?:\.[\da-z\-]+)*))?(?:\+(?<build>[\da-z\-]+(?:\.[\da-z\-]+)*))?\b/
-      if (pomSemver.matches()) {
-        echo "Current POM version ${pomVersion} is semver compatible"
-
-        def pomMajorVersion = pomSemver.group('major') as int
-        def pomMinorVersion = (pomSemver.group('minor') ?: 0) as int
-        def pomPatchVersion = (pomSemver.group('patch') ?: 0) as int
-
-        if (pomMajorVersion > majorVersion ||
-            (pomMajorVersion == majorVersion &&
-                (pomMinorVersion > minorVersion) || (pomMinorVersion == minorVersion && pomPatchVersion > patchVersion)
-            )
-        ) {
-          majorVersion = pomMajorVersion
-          minorVersion = pomMinorVersion
-          patchVersion = pomPatchVersion
-        }
-      }
-
-      def newVersion = "${majorVersion}.${minorVersion}.${patchVersion}"
-      echo "New version is ${newVersion}"
-      return newVersion
-    } else {
-      echo "Version is not semver compatible"
-
-      // strip the v prefix from the tag so we can use in a maven version number
-      def previousReleaseVersion = tag.substring(tag.lastIndexOf('v') + 1)
-      echo "Previous version found ${previousReleaseVersion}"
-
-      // if there's an int as the version then turn it into a major.minor.micro version
-      if (previousReleaseVersion.isNumber()) {
-        return previousReleaseVersion + '.0.1'
-      } else {
-        // if previous tag is not a number and doesnt have a '.' version seperator then error until we have one
-        if (previousReleaseVersion.lastIndexOf('.') == 0) {
-          script.error "found invalid latest tag [${previousReleaseVersion}] set to major.minor.micro to calculate next release version"
-        }
-        // increment the release number after the last seperator '.'
-        def microVersion = previousReleaseVersion.substring(previousReleaseVersion.lastIndexOf('.') + 1) as int
-        return previousReleaseVersion.substring(0, previousReleaseVersion.lastIndexOf('.') + 1) + (microVersion + 1)
-      }
+    def args = [:]
+    if (pomVersion) {
+      args.pomVersion = pomVersion.toString()
     }
+    def version = script.jxNextReleaseVersion(args)
+    echo "New version is ${version}"
+    return version
   }
 
   def releaseSonartypeRepo(String repoId) {
@@ -241,6 +227,18 @@ class CommonFunctions {
     }
   }
 
+  /**
+   * Releases all the staging repositories at once via the Nexus staging REST API, dropping any which fail to release
+   */
+  def releaseSonartypeRepos(List<String> repoIds, String nexusUrl, String credentialsId) {
+    try {
+      script.jxReleaseStagingRepositories repositoryIds: repoIds, nexusUrl: nexusUrl, credentialsId: credentialsId, description: "Next release is ready", timeoutMinutes: 60
+    } catch (err) {
+      script.getProperty("currentBuild").result = Result.FAILURE
+      script.error "ERROR releasing sonartype repos ${repoIds}: ${err}"
+    }
+  }
+
   def dropStagingRepo(String repoId) {
     echo "Not a release so dropping staging repo ${repoId}"
     script.sh "mvn org.sonatype.plugins:nexus-staging-maven-plugin:1.6.5:rc-drop -DserverId=oss-sonatype-staging -DnexusUrl=https://oss.sonatype.org -DstagingRepositoryId=${repoId} -Ddescription=\"Dry run\" -DstagingProgressTimeoutMinutes=60"
@@ -257,8 +255,10 @@ class CommonFunctions {
   }
 
   def pushTag(String releaseVersion) {
-    script.sh "git tag -fa v${releaseVersion} -m 'Release version ${releaseVersion}'"
-    script.sh "git push origin v${releaseVersion}"
+    shBatch([
+        "git tag -fa v${releaseVersion} -m 'Release version ${releaseVersion}'",
+        "git push origin v${releaseVersion}"
+    ])
   }
 
 
@@ -269,7 +269,12 @@ class CommonFunctions {
 
   def updateNextDevelopmentVersion(String releaseVersion, String mvnExtraArgs = "") {
     // update poms back to snapshot again
-    script.sh 'mvn -B build-helper:parse-version versions:set -DnewVersion=\\\${parsedVersion.majorVersion}.\\\${parsedVersion.minorVersion}.\\\${parsedVersion.nextIncrementalVersion}-SNAPSHOT ' + mvnExtraArgs
+    def nextVersion = mvnExtraArgs?.trim() ? null : getNextIncrementalVersion()
+    if (nextVersion) {
+      setProjectVersion("${nextVersion}-SNAPSHOT".toString())
+    } else {
+      script.sh 'mvn -B build-helper:parse-version versions:set -DnewVersion=\\\${parsedVersion.majorVersion}.\\\${parsedVersion.minorVersion}.\\\${parsedVersion.nextIncrementalVersion}-SNAPSHOT ' + mvnExtraArgs
+    }
     def snapshotVersion = getProjectVersion()
     script.sh "git commit -a -m '[CD] prepare for next development iteration ${snapshotVersion}'"
     script.sh "git push origin release-v${releaseVersion}"
@@ -315,7 +320,9 @@ class CommonFunctions {
 
   def createPullRequest(String message, String project, String branch, String githubToken = getGitHubToken()) {
     try {
-      return JXDSLUtils.createPullRequest(message, project, branch, githubToken)
+      return withGitHubRateLimit {
+        return JXDSLUtils.createPullRequest(message, project, branch, githubToken)
+      }
     } catch (err) {
       script.error "ERROR  ${err}"
     }
@@ -323,7 +330,9 @@ class CommonFunctions {
 
   def closePR(project, id, newVersion, newPRID, String githubToken = getGitHubToken()) {
     try {
-      JXDSLUtils.closePR(project, id, newVersion, newPRID, githubToken)
+      withGitHubRateLimit {
+        JXDSLUtils.closePR(project, id, newVersion, newPRID, githubToken)
+      }
     } catch (Exception e) {
       script.error "${e.message}"
     }
@@ -331,20 +340,151 @@ class CommonFunctions {
 
   def getIssueComments(project, id, githubToken = getGitHubToken()) {
     try {
-      return JXDSLUtils.getIssueComments(project, id, githubToken)
+      return withGitHubRateLimit {
+        return JXDSLUtils.getIssueComments(project, id, githubToken)
+      }
     } catch (Exception e) {
       script.error("${e.message}")
     }
   }
 
+  /**
+   * Waits until the closure returns true backing off between attempts using the default {@link PollingPolicy}
+   */
+  def waitUntil(Closure condition) {
+    return waitUntil(PollingPolicy.getDefault(), condition)
+  }
+
+  /**
+   * Waits until the closure returns true backing off between attempts using the given {@link PollingPolicy}.
+   * We use the sleep step between attempts so that aborting the build stops the wait; any other exception
+   * thrown by the closure fails the wait like the waitUntil step does
+   */
+  def waitUntil(PollingPolicy policy, Closure condition) {
+    long start = System.currentTimeMillis()
+    int attempt = 0
+    while (true) {
+      if (condition()) {
+        return true
+      }
+      if (policy.isExpired(start)) {
+        script.error "Timed out waiting for condition after ${policy.timeoutMillis} millis"
+      }
+      JXDSLUtils.flushLogger()
+      script.sleep time: policy.getDelayMillis(attempt++, start), unit: 'MILLISECONDS'
+    }
+  }
+
+  /**
+   * Invokes the closure up to the given number of times backing off between attempts using the default {@link PollingPolicy}
+   */
+  def retry(int count, Closure block) {
+    return retry(count, PollingPolicy.getDefault(), block)
+  }
+
+  /**
+   * Invokes the closure up to the given number of times backing off between attempts using the given {@link PollingPolicy}.
+   * Aborting the build is never retried
+   */
+  def retry(int count, PollingPolicy policy, Closure block) {
+    int attempt = 0
+    while (true) {
+      try {
+        return block()
+      } catch (InterruptedException e) {
+        throw e
+      } catch (e) {
+        if (++attempt >= count) {
+          throw e
+        }
+        long delay = policy.getDelayMillis(attempt - 1)
+        echo "Retrying in ${delay} millis after: ${e}"
+        script.sleep time: delay, unit: 'MILLISECONDS'
+      }
+    }
+  }
+
+  /**
+   * Invokes the closure for each docker image using up to the given number of parallel workers.
+   * The closure should return the output of <code>docker image inspect --format '{{.Size}}'</code> so we can report
+   * the size of each image. Only the images which failed are retried, up to the given number of attempts,
+   * then a summary of each image is logged and the build fails if any image could not be processed
+   */
+  def forEachImage(String description, List images, int concurrency, int attempts, Closure body) {
+    def report = new ImagePromotionReport()
+    def pending = new ArrayList(images)
+    def policy = PollingPolicy.getDefault()
+    for (int attempt = 1; attempt <= attempts && !pending.isEmpty(); attempt++) {
+      if (attempt > 1) {
+        long delay = policy.getDelayMillis(attempt - 2)
+        echo "Retrying ${description} of ${pending.size()} failed images ${pending} in ${delay} millis"
+        JXDSLUtils.flushLogger()
+        script.sleep time: delay, unit: 'MILLISECONDS'
+      }
+      def queue = new ArrayList(pending)
+      def worker = {
+        while (!queue.isEmpty()) {
+          def image = queue.remove(0)
+          long start = System.currentTimeMillis()
+          try {
+            def output = body(image)
+            report.success(image, System.currentTimeMillis() - start, ImagePromotionReport.parseBytes(output))
+          } catch (InterruptedException e) {
+            throw e
+          } catch (e) {
+            report.failure(image, System.currentTimeMillis() - start, e.toString())
+          }
+        }
+      }
+      int workers = Math.max(1, Math.min(concurrency, queue.size()))
+      if (workers == 1) {
+        worker()
+      } else {
+        def branches = [:]
+        for (int i = 0; i < workers; i++) {
+          branches["${description} ${i + 1}".toString()] = worker
+        }
+        JXDSLUtils.flushLogger()
+        script.parallel branches
+      }
+      pending = report.getFailedImages()
+    }
+    echo "${description} summary:\n${report.getSummary()}"
+    if (report.hasFailures()) {
+      JXDSLUtils.flushLogger()
+      script.error "Failed ${description} of images ${report.getFailedImages()}"
+    }
+    return report
+  }
+
+  /**
+   * Invokes the closure which makes GitHub requests. The rate limiter can't wait on the CPS VM thread so it throws a
+   * {@link GitHubRateLimitException} instead; we wait for its delay with the sleep step then try again
+   */
+  def withGitHubRateLimit(Closure block) {
+    while (true) {
+      try {
+        return block()
+      } catch (GitHubRateLimitException e) {
+        echo "${e.message} so waiting before trying again"
+        JXDSLUtils.flushLogger()
+        script.sleep time: e.delayMillis, unit: 'MILLISECONDS'
+      }
+    }
+  }
+
   def waitUntilSuccessStatus(project, ref, String githubToken = getGitHubToken()) {
-    script.waitUntil {
-      return JXDSLUtils.checkIfCommitIsSuccessful(project, ref, githubToken)
+    waitUntil {
+      return withGitHubRateLimit {
+        return JXDSLUtils.checkIfCommitIsSuccessful(project, ref, githubToken)
+      }
     }
   }
 
   def getGithubBranch(project, id, String gitHubToken = getGitHubToken()) {
-    return JXDSLUtils.getGithubBranch(project, id, githubToken)
+    return withGitHubRateLimit {
+      return JXDSLUtils.getGithubBranch(project, id, githubToken)
+    }
   }
 
   def mergePR(project, id, String githubToken = getGitHubToken()) {
@@ -352,7 +492,9 @@ class CommonFunctions {
     waitUntilSuccessStatus(project, branch, githubToken)
 
     try {
-      JXDSLUtils.mergePR(project, id, githubToken)
+      withGitHubRateLimit {
+        JXDSLUtils.mergePR(project, id, githubToken)
+      }
     } catch (err) {
       squashAndMerge(project, id)
       script.error("${err.message}")
@@ -361,7 +503,9 @@ class CommonFunctions {
 
   def squashAndMerge(project, id, String githubToken = getGitHubToken()) {
     try {
-      JXDSLUtils.squashAndMerge(project, id, githubToken)
+      withGitHubRateLimit {
+        JXDSLUtils.squashAndMerge(project, id, githubToken)
+      }
     } catch (Exception e) {
       script.error("${e.message}")
     }
@@ -369,7 +513,9 @@ class CommonFunctions {
 
   def addCommentToPullRequest(comment, pr, project, String githubToken = getGitHubToken()) {
     try {
-      JXDSLUtils.addCommentToPullRequest(comment, pr, project, githubToken)
+      withGitHubRateLimit {
+        JXDSLUtils.addCommentToPullRequest(comment, pr, project, githubToken)
+      }
     } catch (err) {
       script.error "ERROR  ${err}"
     }
@@ -377,7 +523,9 @@ class CommonFunctions {
 
   def addMergeCommentToPullRequest(String pr, String project, String githubToken = getGitHubToken()) {
     try {
-      JXDSLUtils.addMergeCommentToPullRequest(pr, project, githubToken)
+      withGitHubRateLimit {
+        JXDSLUtils.addMergeCommentToPullRequest(pr, project, githubToken)
+      }
     } catch (err) {
       script.error "ERROR  ${err}"
     }
@@ -405,7 +553,9 @@ class CommonFunctions {
   def isAuthorCollaborator(String githubToken = getGitHubToken(), String project = getGitHubProject()) {
     def changeAuthor = script.getProperty('env').CHANGE_AUTHOR
     try {
-      return JXDSLUtils.isAuthorCollaborator(changeAuthor, githubToken, project)
+      return withGitHubRateLimit {
+        return JXDSLUtils.isAuthorCollaborator(changeAuthor, githubToken, project)
+      }
     } catch (Exception e) {
       script.error("${e.message}")
     }
@@ -415,7 +565,9 @@ class CommonFunctions {
 
   def drop(String pr, String project, String githubToken = getGitHubToken()) {
     try {
-      JXDSLUtils.drop(pr, project, githubToken)
+      withGitHubRateLimit {
+        JXDSLUtils.drop(pr, project, githubToken)
+      }
     } catch (err) {
       script.error "ERROR  ${err}"
     }
@@ -443,17 +595,12 @@ class CommonFunctions {
 
   @NonCPS
   def isSingleNode() {
-    KubernetesClient kubernetes = new DefaultKubernetesClient()
-    if (kubernetes.nodes().list().getItems().size() == 1) {
-      return true
-    } else {
-      return false
-    }
+    return ClusterTopology.getInstance().isSingleNode()
   }
 
   @NonCPS
   def hasService(String name) {
-    KubernetesClient kubernetes = new DefaultKubernetesClient()
+    KubernetesClient kubernetes = KubernetesClients.getKubernetesClient()
 
     def service = kubernetes.services().withName(name).get()
     if (service != null) {
@@ -464,7 +611,7 @@ class CommonFunctions {
 
   @NonCPS
   def getServiceURL(String serviceName, String namespace = null, String protocol = "http", boolean external = true) {
-    KubernetesClient kubernetes = new DefaultKubernetesClient()
+    KubernetesClient kubernetes = KubernetesClients.getKubernetesClient()
     if (namespace == null) namespace = kubernetes.getNamespace()
     return KubernetesHelper.getServiceURL(kubernetes, serviceName, namespace, protocol, external)
   }
@@ -580,31 +727,56 @@ class CommonFunctions {
     if (stepExtension == null) {
       stepExtension = new StepExtension()
     }
-    if (stepExtension.preBlock instanceof Closure) {
-      echo "StepExtension invoking pre steps"
-      invokeStepBlock(stepExtension.preBlock)
-    }
-    def answer
-    if (stepExtension.stepsBlock instanceof Closure) {
-      echo "StepExtension invoking replacement steps"
-      answer = invokeStepBlock(stepExtension.stepsBlock)
-    } else if (body != null) {
-      if (stepExtension.disabled) {
-        echo "StepExtension has disabled the steps"
-      } else {
-        answer = body()
+    try {
+      if (stepExtension.preBlock instanceof Closure) {
+        echo "StepExtension invoking pre steps"
+        invokeStepBlock(stepExtension.preBlock)
+      }
+      def answer
+      if (stepExtension.stepsBlock instanceof Closure) {
+        echo "StepExtension invoking replacement steps"
+        answer = invokeStepBlock(stepExtension.stepsBlock)
+      } else if (body != null) {
+        if (stepExtension.disabled) {
+          echo "StepExtension has disabled the steps"
+        } else {
+          JXDSLUtils.flushLogger()
+          answer = body()
+        }
+      }
+      if (stepExtension.postBlock instanceof Closure) {
+        echo "StepExtension invoking post steps"
+        invokeStepBlock(stepExtension.postBlock)
       }
+      return answer
+    } finally {
+      JXDSLUtils.flushLogger()
     }
-    if (stepExtension.postBlock instanceof Closure) {
-      echo "StepExtension invoking post steps"
-      invokeStepBlock(stepExtension.postBlock)
+  }
+
+  /**
+   * Invokes the given body recording the wall time, shell calls and HTTP requests of the step
+   */
+  def timeStep(String stepName, body) {
+    StepTiming timing = StepMetrics.start(stepName)
+    try {
+      return body()
+    } finally {
+      echo timing.stop().toString()
+    }
+  }
+
+  def doStepExecution(String stepName, StepExtension stepExtension, body) {
+    return timeStep(stepName) {
+      return doStepExecution(stepExtension, body)
     }
-    return answer
   }
 
   private def invokeStepBlock(Closure stepBlock) {
     stepBlock.delegate = script
     stepBlock.resolveStrategy = Closure.DELEGATE_FIRST
+    // the block invokes pipeline steps which write to the console directly
+    JXDSLUtils.flushLogger()
     return stepBlock()
   }
 }
\ No newline at end of file
@@ -2,16 +2,17 @@ package org.jenkinsci.plugins.jx.pipelines.dsl
 
 import io.fabric8.utils.Strings
 import org.jenkinsci.plugins.jx.pipelines.FailedBuildException
+import org.jenkinsci.plugins.jx.pipelines.ShellCallsAction
 import org.jenkinsci.plugins.jx.pipelines.ShellFacade
 import org.jenkinsci.plugins.jx.pipelines.StepExtension
 import org.jenkinsci.plugins.jx.pipelines.Utils
-import org.jenkinsci.plugins.jx.pipelines.arguments.JXPipelinesArguments
 import org.jenkinsci.plugins.jx.pipelines.arguments.MavenFlowArguments
 import org.jenkinsci.plugins.jx.pipelines.arguments.ReleaseProjectArguments
 import org.jenkinsci.plugins.jx.pipelines.arguments.StageProjectArguments
-import org.jenkinsci.plugins.jx.pipelines.helpers.ConfigHelper
 import org.jenkinsci.plugins.jx.pipelines.helpers.GitHelper
 import org.jenkinsci.plugins.jx.pipelines.helpers.GitRepositoryInfo
+import org.jenkinsci.plugins.jx.pipelines.helpers.GitWorkspaceInfo
+import org.jenkinsci.plugins.jx.pipelines.model.ShellCallsReport
 import org.jenkinsci.plugins.jx.pipelines.model.StagedProjectInfo
 import org.jenkinsci.plugins.workflow.cps.CpsScript
 
@@ -20,31 +21,38 @@ import static org.jenkinsci.plugins.jx.pipelines.dsl.JXDSLUtils.echo
 class MavenFlow {
   private CpsScript script
   private Utils utils
+  private GitWorkspaceInfo gitWorkspaceInfo
+  private String persistentShellId
 
   MavenFlow(CpsScript script) {
     this.script = script
   }
 
   def call(body) {
-    Map config = [:]
+    return new CommonFunctions(script).timeStep("mavenFlow") {
+      return mavenFlow(body)
+    }
+  }
 
+  def mavenFlow(body) {
     MavenFlowArguments arguments = new MavenFlowArguments()
-    addPropertyFunctions(config, arguments)
 
     if (body) {
-      def bodyBlock = new BodyAssigner(config)
-      body.delegate = bodyBlock
+      def binder = new ArgumentsBinder(MavenFlowArguments.class)
+      body.delegate = binder
       body.resolveStrategy = Closure.DELEGATE_ONLY
       body.call()
-      arguments = bodyBlock.argumentInstance(MavenFlowArguments.class)
+      bindExtensions(binder)
+      arguments = binder.build()
     }
 
     echo "mavenFlow ${arguments}"
 
+    def shellCalls = new ShellCallsReport()
     try {
       script.checkout script.scm
 
-      this.utils = createUtils()
+      this.utils = createUtils(arguments, shellCalls)
       def branch = findBranch(arguments.clientsContainerName)
       utils.setBranch(branch)
 
@@ -64,6 +72,7 @@ class MavenFlow {
 
       echo("Completed")
       if (arguments.pauseOnSuccess) {
+        JXDSLUtils.flushLogger()
         script.input message: 'The build pod has been paused'
       }
 
@@ -72,34 +81,80 @@ class MavenFlow {
       logError(err)
 
       if (arguments.pauseOnFailure) {
+        JXDSLUtils.flushLogger()
         script.input message: 'The build pod has been paused'
       }
+    } finally {
+      reportShellCalls(shellCalls)
+    }
+  }
+
+  def reportShellCalls(ShellCallsReport shellCalls) {
+    if (shellCalls.isEmpty()) {
+      return
+    }
+    echo shellCalls.getSummary(10)
+    try {
+      ShellCallsAction.attach(shellCalls)
+    } catch (e) {
+      logError(e)
     }
   }
 
-  Utils createUtils() {
+  Utils createUtils(MavenFlowArguments arguments, ShellCallsReport shellCalls) {
     def u = new Utils()
+    u.setLogger(JXDSLUtils.getLogger())
     u.updateEnvironment(script.getProperty('env'))
 
-    u.setShellFacade({ String cmd, boolean returnOutput, String containerName ->
-      if (containerName) {
-        def answer
-        script.container(containerName) {
-          answer = script.sh(script: cmd, returnStdout: returnOutput).toString().trim()
-        }
+    ShellFacade shellFacade = ({ String cmd, boolean returnOutput, String containerName ->
+      // the shell steps write to the console directly so lets write out anything we have logged first
+      JXDSLUtils.flushLogger()
+      // the steps run asynchronously from the Java code calling the facade so they are timed here
+      long start = System.currentTimeMillis()
+      try {
+        def answer = runShell(cmd, returnOutput, containerName)
+        shellCalls.success(cmd, containerName, System.currentTimeMillis() - start, returnOutput ? answer : null)
         return answer
-      } else {
-        return script.sh(script: cmd, returnStdout: returnOutput).toString().trim()
+      } catch (e) {
+        shellCalls.failure(cmd, containerName, System.currentTimeMillis() - start, e)
+        throw e
       }
     } as ShellFacade)
+    u.setShellFacade(shellFacade)
 
     def path = script.sh(script: "pwd", returnStdout: true)
     if (path) {
       u.setCurrentPath(path.trim())
     }
+
+    def podName = u.getenv("NODE_NAME")
+    if (arguments?.persistentShell && podName) {
+      echo "using a persistent shell per container in pod ${podName}"
+      // the sessions are closed when the build completes
+      persistentShellId = script.jxOpenShellSession()
+    }
     return u
   }
 
+  def runShell(String cmd, boolean returnOutput, String containerName) {
+    if (persistentShellId) {
+      // the session is used from a step so that the command does not block the CPS VM thread
+      def answer = script.jxShellSession(sessionId: persistentShellId, script: cmd, container: containerName ?: '', returnStdout: returnOutput)
+      if (answer != null) {
+        return answer
+      }
+    }
+    if (containerName) {
+      def answer
+      script.container(containerName) {
+        answer = script.sh(script: cmd, returnStdout: returnOutput).toString().trim()
+      }
+      return answer
+    } else {
+      return script.sh(script: cmd, returnStdout: returnOutput).toString().trim()
+    }
+  }
+
   boolean isCD(MavenFlowArguments arguments) {
     Boolean flag = null
     try {
@@ -203,6 +258,10 @@ class MavenFlow {
   }
 
   String doFindGitCloneURL() {
+    def info = findGitWorkspaceInfo()
+    if (info?.remoteUrl) {
+      return info.remoteUrl
+    }
     String dir
     def p = script.pwd()
     if (p instanceof File) {
@@ -234,9 +293,28 @@ class MavenFlow {
     return null;
   }
 
+  /**
+   * Reads the git clone details from the .git folder on the agent; returning null if they could not be read
+   */
+  GitWorkspaceInfo findGitWorkspaceInfo() {
+    if (gitWorkspaceInfo == null) {
+      try {
+        gitWorkspaceInfo = script.jxGitWorkspaceInfo()
+        echo "git workspace: ${gitWorkspaceInfo}"
+      } catch (e) {
+        logError("Failed to read the .git folder: " + e, e)
+      }
+    }
+    return gitWorkspaceInfo
+  }
+
   String findBranch(containerName) {
     def branch = script.getProperty('env').BRANCH_NAME
     if (!branch) {
+      branch = findGitWorkspaceInfo()?.branch
+    }
+    if (!branch) {
+      // lets fall back to the git CLI
       script.container(containerName) {
         try {
           echo("output of git --version: " + script.sh(script: "git --version", returnStdout: true));
@@ -274,8 +352,8 @@ class MavenFlow {
           }
         }
       }
-      echo "Found branch ${branch}"
     }
+    echo "Found branch ${branch}"
     return branch;
   }
 
@@ -298,26 +376,17 @@ class MavenFlow {
     echo "WARNING: ${message}"
   }
 
-  def createExtensionFunction(StepExtension extension) {
-    return { stepBody ->
-      stepBody.resolveStrategy = Closure.DELEGATE_FIRST
-      stepBody.delegate = extension
-      stepBody()
-    }
-  }
-
-  def addPropertyFunctions(Map config, JXPipelinesArguments bean) {
-    def extensionSuffix = "Extension"
-
-    ConfigHelper.getArgumentFields((Class<? extends JXPipelinesArguments>)bean.getClass()).each { n, k ->
-      if (StepExtension.class.isAssignableFrom(k) || StepExtension.class == k) {
-        String extKey = n
-        if (extKey.endsWith(extensionSuffix)) {
-          extKey = extKey.substring(0, extKey.length() - extensionSuffix.length())
-        }
-        config[extKey] = [n, createExtensionFunction(new StepExtension())]
-      } else {
-        config[n] = [n, { value -> value }]
+  /**
+   * Invokes the blocks configuring any step extensions, such as <code>promoteArtifacts { steps { ... } }</code>,
+   * with the extension as the delegate
+   */
+  def bindExtensions(ArgumentsBinder binder) {
+    for (String field : binder.getExtensionFields()) {
+      StepExtension extension = binder.getExtension(field)
+      for (Closure extensionBody : binder.getExtensionBodies(field)) {
+        extensionBody.resolveStrategy = Closure.DELEGATE_FIRST
+        extensionBody.delegate = extension
+        extensionBody()
       }
     }
   }
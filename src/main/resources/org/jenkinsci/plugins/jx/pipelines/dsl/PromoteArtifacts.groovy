@@ -19,7 +19,7 @@ class PromoteArtifacts {
     def repoIds = config.repoIds
     def containerName = config.containerName
 
-    return flow.doStepExecution(config.stepExtension) {
+    return flow.doStepExecution("promoteArtifacts", config.stepExtension) {
       if (repoIds && repoIds.size() > 0) {
         script.container(name: containerName) {
 /*
@@ -29,8 +29,15 @@ class PromoteArtifacts {
 */
 
           echo "About to release ${name} repo ids ${repoIds}"
-          for (int j = 0; j < repoIds.size(); j++) {
-            flow.releaseSonartypeRepo(repoIds[j])
+          if (config.concurrentRelease && config.nexusCredentialsId) {
+            flow.releaseSonartypeRepos(repoIds, config.nexusUrl, config.nexusCredentialsId)
+          } else {
+            if (config.concurrentRelease) {
+              echo "WARNING: no nexusCredentialsId specified so releasing the repos one at a time"
+            }
+            for (int j = 0; j < repoIds.size(); j++) {
+              flow.releaseSonartypeRepo(repoIds[j])
+            }
           }
 
           if (config.helmPush) {
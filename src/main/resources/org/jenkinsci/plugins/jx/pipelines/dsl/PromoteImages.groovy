@@ -26,23 +26,34 @@ class PromoteImages {
     def tag = config.tag
     def toRegistry = config.toRegistry
 
-    return flow.doStepExecution(config.stepExtension) {
-      if (tag && toRegistry) {
+    return flow.doStepExecution("promoteImages", config.stepExtension) {
+      if (tag && toRegistry && config.useRegistryCopy) {
+        // copy directly between the registries so we do not need a docker daemon
+        if (!registryPrefix) {
+          script.error "Cannot copy the images without the fabric8-docker-registry service as the source would default to docker.io; set FABRIC8_DOCKER_REGISTRY_SERVICE_HOST or disable useRegistryCopy"
+        }
+        def registryHost = flow.dockerRegistryHostAndPort(null)
+        def insecureRegistries = registryHost ? [registryHost.toString()] : []
+        flow.forEachImage("promote", images, config.concurrency, 3) { image ->
+          def result = script.jxCopyImage source: "${registryPrefix}${org}/${image}:${tag}".toString(), target: "${toRegistry}/${org}/${image}:${tag}".toString(), insecureRegistries: insecureRegistries
+          return result.imageBytes.toString()
+        }
+      } else if (tag && toRegistry) {
+        // if we're running on a single node then we already have the image on this host so no need to pull image
+        def singleNode = flow.isSingleNode()
         script.container(config.containerName) {
-          for (int i = 0; i < images.size(); i++) {
-            def image = images[i]
-
-            // if we're running on a single node then we already have the image on this host so no need to pull image
-            if (flow.isSingleNode()) {
-              script.sh "docker tag ${org}/${image}:${tag} ${toRegistry}/${org}/${image}:${tag}"
-            } else {
-              script.sh "docker pull ${registryPrefix}fabric8/${image}:${tag}"
-              script.sh "docker tag ${registryPrefix}${org}/${image}:${tag} ${toRegistry}/${org}/${image}:${tag}"
-            }
-
-            script.retry(3) {
-              script.sh "docker push ${toRegistry}/${org}/${image}:${tag}"
-            }
+          flow.forEachImage("promote", images, config.concurrency, 3) { image ->
+            def target = "${toRegistry}/${org}/${image}:${tag}"
+            def commands = singleNode ?
+                    "docker tag ${org}/${image}:${tag} ${target}" :
+                    "docker pull ${registryPrefix}fabric8/${image}:${tag}\ndocker tag ${registryPrefix}${org}/${image}:${tag} ${target}"
+            return script.sh(returnStdout: true, script: """
+{
+${commands}
+docker push ${target}
+} 1>&2
+docker image inspect --format '{{.Size}}' ${target}
+""")
           }
         }
       }
@@ -21,6 +21,12 @@ class ReleaseProject {
   }
 
   def call(ReleaseProjectArguments arguments) {
+    return new CommonFunctions(script).timeStep("releaseProject") {
+      return releaseProject(arguments)
+    }
+  }
+
+  def releaseProject(ReleaseProjectArguments arguments) {
     echo "releaseProject ${arguments}"
 
     def flow = new CommonFunctions(script)
@@ -16,6 +16,12 @@ class StageProject {
   }
 
   def call(StageProjectArguments arguments) {
+    return new CommonFunctions(script).timeStep("stageProject") {
+      return stageProject(arguments)
+    }
+  }
+
+  def stageProject(StageProjectArguments arguments) {
     echo "stageProject ${arguments}"
 
 
@@ -59,14 +65,16 @@ class StageProject {
       }
 */
 
+      def commands = []
       if (script.fileExists("/home/jenkins/.gnupg")) {
-        script.sh 'chmod 700 /home/jenkins/.gnupg'
+        commands << 'chmod 700 /home/jenkins/.gnupg'
       }
       ['pubring.gpg', 'secring.gpg', 'trustdb.gpg'].each { f ->
         if (script.fileExists("/home/jenkins/.gnupg/${f}")) {
-          script.sh "chmod 600 /home/jenkins/.gnupg/${f}"
+          commands << "chmod 600 /home/jenkins/.gnupg/${f}"
         }
       }
+      flow.shBatch(commands)
     }
     // TODO
     //sh "git remote set-url origin git@github.com:${project}.git"
@@ -137,14 +145,15 @@ class StageProject {
 
   def setupStageWorkspace(CommonFunctions flow, boolean useMavenForNextVersion, String mvnExtraArgs, String containerName, String clientsContainerName, boolean gitPush) {
     script.container(clientsContainerName) {
-      script.sh "git config user.email jenkins-x-admin@googlegroups.com"
-      script.sh "git config user.name jenkins-x-bot"
-      // TODO disable if no .gitcredentials
-      script.sh "git config credential.https://github.com.username jenkins-x-bot"
-      script.sh "git config credential.helper store"
-      script.sh 'cp /root/gitcreds/gitcredentials ~/.git-credentials'
-      script.sh 'chmod 600  ~/.git-credentials'
-
+      def commands = [
+          "git config user.email jenkins-x-admin@googlegroups.com",
+          "git config user.name jenkins-x-bot",
+          // TODO disable if no .gitcredentials
+          "git config credential.https://github.com.username jenkins-x-bot",
+          "git config credential.helper store",
+          'cp /root/gitcreds/gitcredentials ~/.git-credentials',
+          'chmod 600  ~/.git-credentials'
+      ]
 
 /*
       script.sh 'chmod 600 /root/.ssh-git/ssh-key'
@@ -153,27 +162,33 @@ class StageProject {
 */
 
       if (script.fileExists("/home/jenkins/.gnupg/pubring.gpg")) {
-        script.sh 'chmod 600 /home/jenkins/.gnupg/pubring.gpg'
-        script.sh 'chmod 600 /home/jenkins/.gnupg/secring.gpg'
-        script.sh 'chmod 600 /home/jenkins/.gnupg/trustdb.gpg'
-        script.sh 'chmod 700 /home/jenkins/.gnupg'
+        commands << 'chmod 600 /home/jenkins/.gnupg/pubring.gpg'
+        commands << 'chmod 600 /home/jenkins/.gnupg/secring.gpg'
+        commands << 'chmod 600 /home/jenkins/.gnupg/trustdb.gpg'
+        commands << 'chmod 700 /home/jenkins/.gnupg'
       }
-      script.sh 'cp /root/netrc/.netrc ~/.netrc'
+      commands << 'cp /root/netrc/.netrc ~/.netrc'
 
-      script.sh "git tag -d \$(git tag)"
+      commands << "git tag -d \$(git tag)"
       if (gitPush) {
-        script.sh "git fetch --tags"
+        commands << "git fetch --tags"
       }
+      flow.shBatch(commands)
 
       if (useMavenForNextVersion) {
-        script.container(containerName) {
-          script.sh 'mvn -B build-helper:parse-version versions:set -DnewVersion=\\\${parsedVersion.majorVersion}.\\\${parsedVersion.minorVersion}.\\\${parsedVersion.nextIncrementalVersion} ' + mvnExtraArgs
+        def nextVersion = mvnExtraArgs?.trim() ? null : flow.getNextIncrementalVersion()
+        if (nextVersion) {
+          flow.setProjectVersion(nextVersion)
+        } else {
+          script.container(containerName) {
+            script.sh 'mvn -B build-helper:parse-version versions:set -DnewVersion=\\\${parsedVersion.majorVersion}.\\\${parsedVersion.minorVersion}.\\\${parsedVersion.nextIncrementalVersion} ' + mvnExtraArgs
+          }
         }
       } else {
         def newVersion = newVersionUsingSemVer(flow, clientsContainerName)
         echo "New release version ${newVersion}"
         script.container(containerName) {
-          script.sh "mvn -B -U versions:set -DnewVersion=${newVersion} " + mvnExtraArgs
+          flow.setProjectVersion(newVersion, mvnExtraArgs)
         }
 
         script.sh "git commit -a -m 'release ${newVersion}'"
@@ -196,9 +211,7 @@ class StageProject {
   }
 
   String newVersionUsingSemVer(CommonFunctions flow, String clientsContainerName) {
-    script.container(clientsContainerName) {
-      return shOutput("jx-release-version --folder " + script.pwd()).trim();
-    }
+    return script.jxNextReleaseVersion()
   }
 
 
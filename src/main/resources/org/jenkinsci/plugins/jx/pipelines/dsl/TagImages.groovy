@@ -14,20 +14,33 @@ class TagImages {
 
     def images = config.images
     def tag = config.tag
-    def registryPrefix = flow.dockerRegistryPrefix()
     def flow = new CommonFunctions(script)
+    def registryPrefix = flow.dockerRegistryPrefix()
 
-    return flow.doStepExecution(config.stepExtension) {
-      if (tag && images && images.size() > 0) {
-        //stage "tag images"
+    return flow.doStepExecution("tagImages", config.stepExtension) {
+      if (tag && images && images.size() > 0 && config.useRegistryCopy) {
+        // copy directly between the registries so we do not need a docker daemon
+        if (!registryPrefix) {
+          script.error "Cannot copy the images without the fabric8-docker-registry service as the source would default to docker.io; set FABRIC8_DOCKER_REGISTRY_SERVICE_HOST or disable useRegistryCopy"
+        }
+        def registryHost = flow.dockerRegistryHostAndPort(null)
+        def insecureRegistries = registryHost ? [registryHost.toString()] : []
+        flow.forEachImage("tag", images, config.concurrency, 3) { image ->
+          def result = script.jxCopyImage source: "${registryPrefix}fabric8/${image}:${tag}".toString(), target: "docker.io/fabric8/${image}:${tag}".toString(), insecureRegistries: insecureRegistries
+          return result.imageBytes.toString()
+        }
+      } else if (tag && images && images.size() > 0) {
         script.container(config.containerName) {
-          for (int i = 0; i < images.size(); i++) {
-            def image = images[i]
-            script.retry(3) {
-              script.sh "docker pull ${registryPrefix}fabric8/${image}:${tag}"
-              script.sh "docker tag  ${registryPrefix}fabric8/${image}:${tag} docker.io/fabric8/${image}:${tag}"
-              script.sh "docker push docker.io/fabric8/${image}:${tag}"
-            }
+          flow.forEachImage("tag", images, config.concurrency, 3) { image ->
+            def target = "docker.io/fabric8/${image}:${tag}"
+            return script.sh(returnStdout: true, script: """
+{
+docker pull ${registryPrefix}fabric8/${image}:${tag}
+docker tag ${registryPrefix}fabric8/${image}:${tag} ${target}
+docker push ${target}
+} 1>&2
+docker image inspect --format '{{.Size}}' ${target}
+""")
           }
         }
       }
@@ -16,27 +16,30 @@ class WaitUntilArtifactSyncedWithCentral {
   def call(WaitUntilArtifactSyncedArguments config) {
     def flow = new CommonFunctions(script)
 
-    // mandatory properties
-    def groupId = config.groupId
-    def artifactId = config.artifactId
-    def version = config.version
-
     def repo = config.repositoryUrl ?: ServiceConstants.MAVEN_CENTRAL
-    def ext = config.extension ?: 'jar'
+    def artifacts = config.createArtifactCoordinates()
+    def parallelism = config.parallelism
 
-    return flow.doStepExecution(config.stepExtension) {
-      if (groupId && artifactId && version) {
-        echo "waiting for artifact ${groupId}/${artifactId}/${version}/${ext} to be in repo ${repo}"
+    return flow.doStepExecution("waitUntilArtifactSyncedWithCentral", config.stepExtension) {
+      if (artifacts) {
+        echo "waiting for artifacts ${artifacts} to be in repo ${repo}"
 
-        script.waitUntil {
-          script.retry(3) {
-            JXDSLUtils.isArtifactAvailableInRepo(repo, groupId.replaceAll('\\.', '/'), artifactId, version, ext)
-          }
+        def names = []
+        for (int i = 0; i < artifacts.size(); i++) {
+          names << artifacts[i].toString()
         }
 
-        flow.sendChat "${config.groupId}/${config.artifactId}/${config.version} released and available in maven central"
+        // polls outside of CPS so that long waits do not bloat the flow graph
+        script.jxWaitUntilArtifactsAvailable repositoryUrl: repo, artifacts: names, parallelism: parallelism
+
+        if (artifacts.size() == 1) {
+          def artifact = artifacts[0]
+          flow.sendChat "${artifact.groupId}/${artifact.artifactId}/${artifact.version} released and available in maven central"
+        } else {
+          flow.sendChat "${artifacts.size()} artifacts released and available in maven central: ${artifacts}"
+        }
       } else {
-        echo "required properties missing groupId: ${groupId}, artifactId: ${artifactId}, version: ${version}"
+        echo "required properties missing groupId: ${config.groupId}, artifactId: ${config.artifactId}, version: ${config.version}"
       }
     }
   }
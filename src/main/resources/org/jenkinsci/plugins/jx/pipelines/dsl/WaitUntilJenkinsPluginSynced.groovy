@@ -11,6 +11,12 @@ class WaitUntilJenkinsPluginSynced {
   }
 
   def call(WaitUntilJenkinsPluginSyncedArguments config) {
+    return new CommonFunctions(script).timeStep("waitUntilJenkinsPluginSynced") {
+      return waitUntilJenkinsPluginSynced(config)
+    }
+  }
+
+  def waitUntilJenkinsPluginSynced(WaitUntilJenkinsPluginSyncedArguments config) {
     def flow = new CommonFunctions(script)
 
     def repo = config.repo
@@ -18,14 +24,9 @@ class WaitUntilJenkinsPluginSynced {
       repo = "http://archives.jenkins-ci.org/"
     }
     def name = config.name
-    def path = "plugins/" + name
-    def artifact = "${name}.hpi"
 
-    script.waitUntil {
-      script.retry(3) {
-        JXDSLUtils.isFileAvailableInRepo(repo, path, config.version, artifact)
-      }
-    }
+    // polls outside of CPS so that long waits do not bloat the flow graph
+    script.jxWaitUntilJenkinsPluginAvailable name: name, version: config.version, repo: repo
 
     flow.sendChat "${config.artifactId} ${config.version} released and available in the jenkins plugin archive"
   }
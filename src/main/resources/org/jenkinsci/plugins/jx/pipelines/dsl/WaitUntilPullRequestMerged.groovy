@@ -20,48 +20,17 @@ class WaitUntilPullRequestMerged {
     def project = config.project
     echo "pull request id ${id}"
 
-    def branchName
-    def notified = false
+    def values = project.split('/')
+    def prj = values[1]
 
     // wait until the PR is merged, if there's a merge conflict the notify and wait until PR is finally merged
-    return flow.doStepExecution(config.stepExtension) {
-      script.waitUntil {
-        echo "https://api.github.com/repos/${project}/pulls/${id}"
+    return flow.doStepExecution("waitUntilPullRequestMerged", config.stepExtension) {
+      // polls outside of CPS so that long waits do not bloat the flow graph
+      def pr = script.jxWaitUntilPullRequestMerged project: project, id: id.toString(), returnOnFailure: true
+      def branchName = pr['head.ref']
 
-        def apiUrl = new URL("https://api.github.com/repos/${project}/pulls/${id}")
-
-        def rs = script.restGetURL {
-          authString = githubToken
-          url = apiUrl
-        }
-
-        if (rs.merged == true) {
-          echo "PR ${id} merged"
-          return true
-        }
-
-        if (rs.state == 'closed') {
-          echo "PR ${id} closed"
-          return true
-        }
-
-        branchName = rs.head.ref
-        def sha = rs.head.sha
-        echo "checking status of commit ${sha}"
-
-        apiUrl = new URL("https://api.github.com/repos/${project}/commits/${sha}/status")
-        rs = script.restGetURL {
-          authString = githubToken
-          url = apiUrl
-        }
-
-        echo "${project} Pull request ${id} state ${rs.state}"
-
-        def values = project.split('/')
-        def prj = values[1]
-
-        if (rs.state == 'failure' && !notified) {
-          flow.sendChat """
+      if (pr.status == 'failure') {
+        flow.sendChat """
 Pull request was not automatically merged.  Please fix and update Pull Request to continue with release...
 ```
 git clone git@github.com:${project}.git
@@ -76,14 +45,10 @@ git push origin fixPR${id}:${branchName}
 ```
 """
 
-          def shouldWeWait = requestResolve()
-
-          if (!shouldWeWait) {
-            return true
-          }
-          notified = true
+        if (requestResolve()) {
+          pr = script.jxWaitUntilPullRequestMerged project: project, id: id.toString()
+          branchName = pr['head.ref']
         }
-        rs.state == 'success'
       }
       try {
         // clean up
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class AsyncLoggerTest {
+
+    @Test
+    public void testMessagesAreWrittenInOrder() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        AsyncLogger logger = new AsyncLogger(new PrintStream(buffer, true), 8, AsyncLogger.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 100; i++) {
+            logger.info("message " + i);
+        }
+        logger.warn("careful");
+        logger.close();
+
+        String[] lines = buffer.toString().split(System.lineSeparator());
+        assertThat(lines).hasSize(101);
+        assertThat(lines[0]).isEqualTo("message 0");
+        assertThat(lines[99]).isEqualTo("message 99");
+        assertThat(lines[100]).isEqualTo("WARNING: careful");
+        assertThat(logger.getDroppedCount()).isEqualTo(0);
+
+        logger.info("after close");
+        assertThat(buffer.toString()).endsWith("after close" + System.lineSeparator());
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        AsyncLogger logger = new AsyncLogger(new PrintStream(slowStream(writing, release, buffer), true), 2, AsyncLogger.OverflowPolicy.DROP);
+
+        logger.info("first");
+        assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 5; i++) {
+            logger.info("message " + i);
+        }
+        assertThat(logger.getDroppedCount()).isEqualTo(3);
+
+        release.countDown();
+        logger.close();
+        assertThat(buffer.toString()).contains("first", "message 0", "message 1", "dropped 3 log messages").doesNotContain("message 2");
+    }
+
+    @Test
+    public void testCpsThreadDoesNotBlockWhenFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        AsyncLogger logger = new AsyncLogger(new PrintStream(slowStream(writing, release, buffer), true), 2, AsyncLogger.OverflowPolicy.BLOCK) {
+            @Override
+            protected boolean canBlock() {
+                // as if we were on the CPS VM thread
+                return false;
+            }
+        };
+
+        logger.info("first");
+        assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 5; i++) {
+            logger.info("message " + i);
+        }
+        assertThat(logger.getDroppedCount()).isEqualTo(3);
+
+        release.countDown();
+        logger.close();
+        assertThat(buffer.toString()).contains("first", "message 0", "message 1", "dropped 3 log messages").doesNotContain("message 2");
+    }
+
+    /**
+     * Returns a stream which signals when the first write starts then waits to be released before writing to the buffer
+     */
+    private static OutputStream slowStream(CountDownLatch writing, CountDownLatch release, ByteArrayOutputStream buffer) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                buffer.write(b, off, len);
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import okhttp3.OkHttpClient;
+import org.jenkinsci.plugins.jx.pipelines.support.StubHttpServer;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ClusterTopologyTest {
+    private static final String NODES_PATH = "/api/v1/nodes?limit=1";
+
+    @Rule
+    public StubHttpServer server = new StubHttpServer();
+
+    private final AtomicLong time = new AtomicLong(1000);
+
+    @Test
+    public void testSingleNodeIsCached() throws Exception {
+        server.expect("GET", NODES_PATH, 200, "{\"kind\":\"NodeList\",\"metadata\":{},\"items\":[{\"metadata\":{\"name\":\"minikube\"}}]}");
+        ClusterTopology topology = createTopology();
+
+        assertThat(topology.isSingleNode()).isTrue();
+        assertThat(topology.getNodeCount()).isEqualTo(1);
+        assertThat(topology.isNodeCountExact()).isTrue();
+        assertThat(topology.isSingleNode()).isTrue();
+        assertThat(server.getRequestCount("GET", NODES_PATH)).isEqualTo(1);
+
+        time.addAndGet(60000);
+        assertThat(topology.isSingleNode()).isTrue();
+        assertThat(server.getRequestCount("GET", NODES_PATH)).isEqualTo(2);
+    }
+
+    @Test
+    public void testUsesRemainingItemCount() throws Exception {
+        server.expect("GET", NODES_PATH, 200, "{\"metadata\":{\"continue\":\"abc\",\"remainingItemCount\":499},\"items\":[{}]}");
+        ClusterTopology topology = createTopology();
+
+        assertThat(topology.isSingleNode()).isFalse();
+        assertThat(topology.getNodeCount()).isEqualTo(500);
+        assertThat(topology.isNodeCountExact()).isTrue();
+    }
+
+    @Test
+    public void testContinueTokenWithoutCount() throws Exception {
+        server.expect("GET", NODES_PATH, 200, "{\"metadata\":{\"continue\":\"abc\"},\"items\":[{}]}");
+        ClusterTopology topology = createTopology();
+
+        assertThat(topology.isSingleNode()).isFalse();
+        assertThat(topology.getNodeCount()).isEqualTo(2);
+        assertThat(topology.isNodeCountExact()).isFalse();
+    }
+
+    @Test
+    public void testKeepsPreviousSnapshotWhenRefreshFails() throws Exception {
+        server.expect("GET", NODES_PATH, 200, "{\"metadata\":{},\"items\":[{}]}");
+        ClusterTopology topology = createTopology();
+        assertThat(topology.isSingleNode()).isTrue();
+
+        server.expect("GET", NODES_PATH, 500, "{}");
+        time.addAndGet(60000);
+        assertThat(topology.isSingleNode()).isTrue();
+        assertThat(server.getRequestCount("GET", NODES_PATH)).isEqualTo(2);
+    }
+
+    protected ClusterTopology createTopology() {
+        return new ClusterTopology(new OkHttpClient(), server.getUrl() + "/", 60000) {
+            @Override
+            protected long currentTimeMillis() {
+                return time.get();
+            }
+        };
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class CommandSupportTest {
+
+    @Test
+    public void testShOutputReturnsTheCommandOutput() throws Exception {
+        List<String> containers = new ArrayList<>();
+        Utils utils = new Utils();
+        utils.setShellFacade((cmd, returnStdout, containerName) -> {
+            containers.add(containerName);
+            // like the sh step we only return the output when asked for it
+            return returnStdout ? "  output of " + cmd + "\n" : null;
+        });
+
+        assertThat(utils.container("maven", () -> utils.shOutput("git rev-parse HEAD"))).isEqualTo("output of git rev-parse HEAD");
+        assertThat(utils.containerShOutput("clients", "oc version")).isEqualTo("output of oc version");
+        assertThat(containers).containsExactly("maven", "clients");
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.WatchEvent;
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ConfigMapCacheTest {
+    private static final String CONFIG_MAP_PATH = "/api/v1/namespaces/test/configmaps/fabric8-pipelines";
+    private static final String WATCH_PATH = "/api/v1/namespaces/test/configmaps?fieldSelector=metadata.name%3Dfabric8-pipelines&watch=true";
+
+    @Rule
+    public KubernetesServer server = new KubernetesServer();
+
+    private ConfigMapCache cache;
+
+    @After
+    public void close() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testLookupsAreServedFromMemory() throws Exception {
+        server.expect().withPath(CONFIG_MAP_PATH).andReturn(200, configMap("1")).once();
+        server.expect().withPath(WATCH_PATH).andUpgradeToWebSocket().open().done().once();
+
+        cache = new ConfigMapCache(server.getClient(), 60000);
+
+        assertThat(cache.get("test", "fabric8-pipelines").getData()).containsEntry("value", "1");
+        // the mock server only returns the ConfigMap once so this must come from the cache
+        assertThat(cache.get("test", "fabric8-pipelines").getData()).containsEntry("value", "1");
+    }
+
+    @Test
+    public void testWatchEventsUpdateTheCache() throws Exception {
+        server.expect().withPath(CONFIG_MAP_PATH).andReturn(404, null).once();
+        server.expect().withPath(WATCH_PATH).andUpgradeToWebSocket().open()
+                .waitFor(200).andEmit(new WatchEvent(configMap("2"), "ADDED"))
+                .done().once();
+
+        cache = new ConfigMapCache(server.getClient(), 60000);
+
+        assertThat(cache.get("test", "fabric8-pipelines")).isNull();
+        ConfigMap answer = null;
+        for (int i = 0; i < 50 && answer == null; i++) {
+            Thread.sleep(100);
+            answer = cache.get("test", "fabric8-pipelines");
+        }
+        assertThat(answer).isNotNull();
+        assertThat(answer.getData()).containsEntry("value", "2");
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        for (String name : new String[]{"a", "b", "c"}) {
+            server.expect().withPath("/api/v1/namespaces/test/configmaps/" + name).andReturn(404, null).always();
+            server.expect().withPath("/api/v1/namespaces/test/configmaps?fieldSelector=metadata.name%3D" + name + "&watch=true")
+                    .andUpgradeToWebSocket().open().done().always();
+        }
+
+        cache = new ConfigMapCache(server.getClient(), 60000, 60000, 2);
+
+        cache.get("test", "a");
+        cache.get("test", "b");
+        cache.get("test", "a");
+        cache.get("test", "c");
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testIdleEntriesAreEvicted() throws Exception {
+        server.expect().withPath(CONFIG_MAP_PATH).andReturn(404, null).always();
+        server.expect().withPath(WATCH_PATH).andUpgradeToWebSocket().open().done().always();
+
+        cache = new ConfigMapCache(server.getClient(), 60000, 0, 10);
+
+        cache.get("test", "fabric8-pipelines");
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    protected static ConfigMap configMap(String value) {
+        return new ConfigMapBuilder().withNewMetadata().withName("fabric8-pipelines").withNamespace("test").endMetadata().addToData("value", value).build();
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import io.fabric8.kubernetes.api.model.WatchEvent;
+import io.fabric8.openshift.api.model.ImageStream;
+import io.fabric8.openshift.api.model.ImageStreamBuilder;
+import io.fabric8.openshift.client.OpenShiftClient;
+import io.fabric8.openshift.client.server.mock.OpenShiftServer;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ImageStreamTagResolverTest {
+    private static final String IMAGE = "docker-registry/test/foo@sha256:1234";
+
+    @Rule
+    public OpenShiftServer server = new OpenShiftServer();
+
+    @Test
+    public void testFindsExistingTagWithoutWaiting() throws Exception {
+        server.expect().withPath("/oapi/v1/namespaces/test/imagestreams/foo").andReturn(200, imageStream(IMAGE)).always();
+
+        long start = System.currentTimeMillis();
+        String answer = createResolver().resolve("foo", 10000);
+
+        assertThat(answer).isEqualTo(IMAGE);
+        assertThat(System.currentTimeMillis() - start).isLessThan(1000);
+    }
+
+    @Test
+    public void testWaitsForTagEvent() throws Exception {
+        server.expect().withPath("/oapi/v1/namespaces/test/imagestreams/foo").andReturn(200, imageStream(null)).times(2);
+        server.expect().withPath("/oapi/v1/namespaces/test/imagestreams?fieldSelector=metadata.name%3Dfoo&watch=true")
+                .andUpgradeToWebSocket()
+                .open()
+                .waitFor(100).andEmit(new WatchEvent(imageStream(null), "MODIFIED"))
+                .waitFor(100).andEmit(new WatchEvent(imageStream(IMAGE), "MODIFIED"))
+                .done()
+                .once();
+
+        String answer = createResolver().resolve("foo", 10000);
+
+        assertThat(answer).isEqualTo(IMAGE);
+    }
+
+    @Test
+    public void testReturnsNullAfterDeadline() throws Exception {
+        server.expect().withPath("/oapi/v1/namespaces/test/imagestreams/foo").andReturn(200, imageStream(null)).always();
+        server.expect().withPath("/oapi/v1/namespaces/test/imagestreams?fieldSelector=metadata.name%3Dfoo&watch=true")
+                .andUpgradeToWebSocket()
+                .open()
+                .done()
+                .once();
+
+        long start = System.currentTimeMillis();
+        String answer = createResolver().resolve("foo", 500);
+
+        assertThat(answer).isNull();
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+    }
+
+    protected ImageStreamTagResolver createResolver() {
+        OpenShiftClient client = server.getOpenshiftClient();
+        return new ImageStreamTagResolver(client, "test", Logger.getInstance());
+    }
+
+    protected static ImageStream imageStream(String image) {
+        ImageStreamBuilder builder = new ImageStreamBuilder().withNewMetadata().withName("foo").withNamespace("test").endMetadata();
+        if (image == null) {
+            return builder.build();
+        }
+        return builder.withNewStatus().addNewTag().withTag("latest").addNewItem().withImage(image).endItem().endTag().endStatus().build();
+    }
+}
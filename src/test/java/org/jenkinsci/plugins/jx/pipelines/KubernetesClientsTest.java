@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class KubernetesClientsTest {
+
+    @After
+    public void shutdown() {
+        KubernetesClients.shutdown();
+    }
+
+    @Test
+    public void testClientsAreSharedUntilReloaded() throws Exception {
+        KubernetesClient client = KubernetesClients.getKubernetesClient();
+        assertThat(Utils.createKubernetesClient()).isSameAs(client);
+        assertThat(KubernetesClients.getOpenShiftClient()).isSameAs(KubernetesClients.getOpenShiftClient());
+
+        KubernetesClients.reload();
+
+        assertThat(KubernetesClients.getKubernetesClient()).isNotSameAs(client);
+    }
+
+    @Test
+    public void testReloadedClientCanStillDispatch() throws Exception {
+        OkHttpClient httpClient = KubernetesClients.getHttpClient();
+
+        KubernetesClients.reload();
+
+        assertThat(httpClient.dispatcher().executorService().isShutdown()).isFalse();
+        assertThat(KubernetesClients.getHttpClient()).isNotSameAs(httpClient);
+    }
+}
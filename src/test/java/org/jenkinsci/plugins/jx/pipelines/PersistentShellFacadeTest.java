@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ */
+public class PersistentShellFacadeTest {
+    private PersistentShellFacade facade;
+    private String workDir;
+
+    @Before
+    public void init() throws Exception {
+        workDir = new File(System.getProperty("java.io.tmpdir")).getCanonicalPath();
+        Map<String, String> env = new HashMap<>();
+        env.put("JX_TEST_VALUE", "it's here");
+        env.put("not a valid name", "ignored");
+        facade = new PersistentShellFacade(new LocalShellSessionFactory(), null, workDir, env, null);
+    }
+
+    @After
+    public void close() {
+        facade.close();
+    }
+
+    @Test
+    public void testSessionKeepsWorkingDirAndEnvironment() throws Exception {
+        assertThat(facade.apply("pwd", true, "maven")).isEqualTo(workDir);
+        assertThat(facade.apply("echo \"$JX_TEST_VALUE\"", true, "maven")).isEqualTo("it's here");
+
+        // like separate sh steps, changes made by one command do not leak into the next
+        assertThat(facade.apply("export JX_OTHER=123; cd /; set +e; echo $JX_OTHER", true, "maven")).isEqualTo("123");
+        assertThat(facade.apply("echo $JX_OTHER", true, "maven")).isEqualTo("");
+        assertThat(facade.apply("pwd", true, "maven")).isEqualTo(workDir);
+        assertThat(facade.apply("case $- in *e*) echo errexit;; esac", true, "maven")).isEqualTo("errexit");
+    }
+
+    @Test
+    public void testCommandStopsAtFirstFailure() throws Exception {
+        try {
+            facade.apply("false\necho never", true, null);
+            fail("Should have failed");
+        } catch (FailedBuildException e) {
+            assertThat(e.getMessage()).contains("exit code 1");
+        }
+        assertThat(facade.apply("echo ok", true, null)).isEqualTo("ok");
+    }
+
+    @Test
+    public void testFailedBatchKeepsSession() throws Exception {
+        ShellBatch batch = new ShellBatch().add("true").add("sh -c 'exit 5'").add("echo never");
+        String output = facade.apply(batch.createScript(), true, null);
+        try {
+            batch.checkOutput(output);
+            fail("Should have failed on the second command");
+        } catch (ShellBatchException e) {
+            assertThat(e.getCommandIndex()).isEqualTo(1);
+            assertThat(e.getExitCode()).isEqualTo(5);
+        }
+        assertThat(facade.apply("echo ok", true, null)).isEqualTo("ok");
+    }
+
+    @Test
+    public void testBuildEnvironmentOnlyHasBuildVariables() throws Exception {
+        Map<String, String> env = new HashMap<>();
+        env.put("PATH", "/controller/bin");
+        env.put("HOME", "/var/jenkins_home");
+        env.put("BUILD_NUMBER", "12");
+        env.put("CHANGE_ID", "34");
+        assertThat(PersistentShellFacade.buildEnvironment(env)).containsOnlyKeys("BUILD_NUMBER", "CHANGE_ID");
+    }
+
+    @Test
+    public void testMultiLineOutputAndFailure() throws Exception {
+        assertThat(facade.apply("printf 'a\\nb'", true, null)).isEqualTo("a\nb");
+        try {
+            facade.apply("sh -c 'exit 4'", true, null);
+            fail("Should have failed");
+        } catch (FailedBuildException e) {
+            assertThat(e.getMessage()).contains("exit code 4");
+        }
+        // the session is still usable after a failed command
+        assertThat(facade.apply("echo ok", true, null)).isEqualTo("ok");
+    }
+
+    @Test
+    public void testFallsBackWhenSessionCannotBeOpened() throws Exception {
+        ShellSessionFactory failing = containerName -> {
+            throw new IOException("no pod");
+        };
+        PersistentShellFacade fallbackFacade = new PersistentShellFacade(failing, (cmd, returnStdout, containerName) -> "fallback " + cmd, null, null, null);
+        assertThat(fallbackFacade.apply("ls", true, "maven")).isEqualTo("fallback ls");
+    }
+
+    @Test
+    public void testHungCommandTimesOut() throws Exception {
+        Process process = new ProcessBuilder("sh").start();
+        StreamShellSession session = new StreamShellSession(process.getOutputStream(), process.getInputStream(), process.getErrorStream(),
+                process::destroy, Logger.getInstance(), 500);
+        assertThat(session.execute("echo hi; sleep 0.2; echo there").getOutput()).isEqualTo("hi\nthere\n");
+        try {
+            session.execute("sleep 2");
+            fail("Should have timed out");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).contains("no output for 500 millis");
+        }
+        assertThat(session.isOpen()).isFalse();
+    }
+}
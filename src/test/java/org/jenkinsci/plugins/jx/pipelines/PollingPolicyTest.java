@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ */
+public class PollingPolicyTest {
+
+    @Test
+    public void testBacksOffUpToTheMaximumDelay() throws Exception {
+        PollingPolicy policy = new PollingPolicy(100, 1000, 2.0, 0.0, 0);
+
+        assertThat(policy.getDelayMillis(0)).isEqualTo(100);
+        assertThat(policy.getDelayMillis(1)).isEqualTo(200);
+        assertThat(policy.getDelayMillis(3)).isEqualTo(800);
+        assertThat(policy.getDelayMillis(4)).isEqualTo(1000);
+        assertThat(policy.getDelayMillis(100)).isEqualTo(1000);
+    }
+
+    @Test
+    public void testJitterReducesTheDelay() throws Exception {
+        PollingPolicy policy = new PollingPolicy(1000, 1000, 2.0, 0.5, 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.getDelayMillis(i)).isBetween(500L, 1000L);
+        }
+    }
+
+    @Test
+    public void testWaitUntilTimesOut() throws Exception {
+        FakeClockPollingPolicy policy = new FakeClockPollingPolicy(100, 400, 2.0, 0.0, 1000);
+        AtomicInteger calls = new AtomicInteger();
+
+        boolean answer = policy.waitUntil(() -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("not yet");
+        }, null);
+
+        assertThat(answer).isFalse();
+        // never sleeps past the deadline
+        assertThat(policy.sleeps).containsExactly(100L, 200L, 400L, 300L);
+        assertThat(calls.get()).isEqualTo(5);
+    }
+
+    @Test
+    public void testWaitUntilSucceeds() throws Exception {
+        FakeClockPollingPolicy policy = new FakeClockPollingPolicy(100, 400, 2.0, 0.0, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThat(policy.waitUntil(() -> calls.incrementAndGet() == 3, null)).isTrue();
+        assertThat(policy.sleeps).containsExactly(100L, 200L);
+    }
+
+    @Test
+    public void testWaitUntilStopsWhenInterrupted() throws Exception {
+        PollingPolicy policy = new PollingPolicy(100, 400, 2.0, 0.0, 0);
+        Thread.currentThread().interrupt();
+        try {
+            policy.waitUntil(() -> false, null);
+            fail("Should have been interrupted");
+        } catch (InterruptedException e) {
+            assertThat(Thread.currentThread().isInterrupted()).isFalse();
+        }
+    }
+
+    @Test
+    public void testWaitUntilRefusesToSleepOnTheCpsThread() throws Exception {
+        FakeClockPollingPolicy policy = new FakeClockPollingPolicy(100, 400, 2.0, 0.0, 0);
+        policy.canSleep = false;
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            policy.waitUntil(() -> calls.incrementAndGet() == 3, null);
+            fail("Should not have slept");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("CPS VM thread");
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(policy.sleeps).isEmpty();
+    }
+
+    @Test
+    public void testRetryRefusesToSleepOnTheCpsThread() throws Exception {
+        FakeClockPollingPolicy policy = new FakeClockPollingPolicy(100, 400, 2.0, 0.0, 0);
+        Utils utils = new Utils();
+        utils.setLogger(Logger.getInstance());
+        utils.setPollingPolicy(policy);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThat(utils.retry(3, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IllegalStateException("not yet");
+            }
+            return "done";
+        })).isEqualTo("done");
+        assertThat(policy.sleeps).containsExactly(100L, 200L);
+
+        policy.canSleep = false;
+        calls.set(0);
+        try {
+            utils.retry(3, () -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("not yet");
+            });
+            fail("Should not have slept");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("CPS VM thread");
+        }
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    public static class FakeClockPollingPolicy extends PollingPolicy {
+        private final List<Long> sleeps = new ArrayList<>();
+        private long now = 1000000L;
+        private boolean canSleep = true;
+
+        public FakeClockPollingPolicy(long initialDelayMillis, long maxDelayMillis, double multiplier, double jitter, long timeoutMillis) {
+            super(initialDelayMillis, maxDelayMillis, multiplier, jitter, timeoutMillis);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        protected boolean canSleep() {
+            return canSleep;
+        }
+
+        @Override
+        protected void sleep(long millis) throws InterruptedException {
+            sleeps.add(millis);
+            now += millis;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines;
+
+import io.fabric8.utils.IOHelpers;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ */
+public class ShellBatchTest {
+
+    /**
+     * Runs the script like the sh step does by default
+     */
+    protected static String runScript(String script) throws Exception {
+        Process process = new ProcessBuilder("sh", "-xe", "-c", script).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String output = IOHelpers.readFully(process.getInputStream());
+        process.waitFor();
+        return output;
+    }
+
+    @Test
+    public void testBatchCompletes() throws Exception {
+        ShellBatch batch = new ShellBatch().add("echo hello").add("cd /tmp").add("test \"$(pwd)\" = /tmp");
+        String output = runScript(batch.createScript());
+
+        assertThat(output).doesNotContain("hello");
+        batch.checkOutput(output);
+    }
+
+    @Test
+    public void testBatchReportsFailedCommand() throws Exception {
+        ShellBatch batch = new ShellBatch(Arrays.asList("true", "sh -c 'exit 3'", "echo never"));
+        String output = runScript(batch.createScript());
+
+        try {
+            batch.checkOutput(output);
+            fail("Should have failed on the second command");
+        } catch (ShellBatchException e) {
+            assertThat(e.getCommandIndex()).isEqualTo(1);
+            assertThat(e.getCommand()).isEqualTo("sh -c 'exit 3'");
+            assertThat(e.getExitCode()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void testIncompleteOutputFails() throws Exception {
+        ShellBatch batch = new ShellBatch().add("true");
+        try {
+            batch.checkOutput("");
+            fail("Should have failed as the batch did not complete");
+        } catch (ShellBatchException e) {
+            fail("Should not report a failed command");
+        } catch (FailedBuildException e) {
+            assertThat(e.getMessage()).contains("did not complete");
+        }
+    }
+}
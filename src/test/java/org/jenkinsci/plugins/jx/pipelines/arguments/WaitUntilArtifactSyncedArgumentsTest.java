@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.arguments;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class WaitUntilArtifactSyncedArgumentsTest {
+
+    @Test
+    public void testArtifactsOnlyConfigurationIsValid() throws Exception {
+        WaitUntilArtifactSyncedArguments arguments = new WaitUntilArtifactSyncedArguments();
+        arguments.setExtension("jar");
+        arguments.setArtifacts(Arrays.asList("io.jenkins:foo:1.0.0", "io.jenkins:bar:pom:1.0.0"));
+
+        assertThat(arguments.isValid()).isTrue();
+        assertThat(arguments.createArtifactCoordinates()).hasSize(2);
+    }
+
+    @Test
+    public void testNothingToWaitForIsNotValid() throws Exception {
+        WaitUntilArtifactSyncedArguments arguments = new WaitUntilArtifactSyncedArguments();
+        arguments.setGroupId("io.jenkins");
+        arguments.setArtifactId("foo");
+
+        assertThat(arguments.isValid()).isFalse();
+    }
+
+    @Test
+    public void testReleaseProjectPassesArtifactsAndParallelism() throws Exception {
+        ReleaseProjectArguments releaseProject = new ReleaseProjectArguments();
+        releaseProject.setGroupId("io.jenkins");
+        releaseProject.setArtifactsToWaitFor(Arrays.asList("foo", "bar"));
+        releaseProject.setArtifactSyncParallelism(3);
+
+        WaitUntilArtifactSyncedArguments arguments = releaseProject.createWaitUntilArtifactSyncedWithCentralArguments();
+
+        assertThat(arguments.getArtifacts()).containsExactly("foo", "bar");
+        assertThat(arguments.getParallelism()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.benchmarks;
+
+import org.jenkinsci.plugins.jx.pipelines.arguments.MavenFlowArguments;
+import org.jenkinsci.plugins.jx.pipelines.helpers.ConfigHelper;
+import org.jenkinsci.plugins.structs.describable.DescribableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares binding {@link MavenFlowArguments} from a 30 key configuration map by creating a new
+ * {@link DescribableModel} each time with binding via the cached schema in {@link ConfigHelper}.
+ * <p>
+ * Run via <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...ArgumentsBindingBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArgumentsBindingBenchmark {
+    private Map<String, Object> config;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(ArgumentsBindingBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+
+    @Setup
+    public void setUp() {
+        config = new HashMap<>();
+        config.put("gitCloneUrl", "https://github.com/jenkins-x/cheese.git");
+        config.put("extraSetVersionArgs", "-DgenerateBackupPoms=false");
+        config.put("extraImagesToStage", Arrays.asList("cheese-ui", "cheese-api"));
+        config.put("containerName", "maven");
+        config.put("dockerOrganisation", "jenkinsx");
+        config.put("promoteToDockerRegistry", "docker.io");
+        config.put("promoteDockerImages", Arrays.asList("cheese"));
+        config.put("extraImagesToTag", Arrays.asList("cheese-ui"));
+        config.put("imagePromotionConcurrency", 4);
+        config.put("useRegistryCopy", true);
+        config.put("concurrentRelease", true);
+        config.put("nexusUrl", "https://oss.sonatype.org");
+        config.put("nexusCredentialsId", "nexus");
+        config.put("repositoryToWaitFor", "central");
+        config.put("groupId", "io.jenkins.x");
+        config.put("artifactExtensionToWaitFor", "jar");
+        config.put("artifactIdToWaitFor", "cheese");
+        config.put("pauseOnFailure", false);
+        config.put("persistentShell", true);
+        config.put("pauseOnSuccess", false);
+        config.put("cdOrganisation", "jenkins-x");
+        config.put("cdBranches", Arrays.asList("master"));
+        config.put("useMavenForNextVersion", false);
+        config.put("clientsContainerName", "clients");
+        config.put("useStaging", true);
+        config.put("stageRepositoryUrl", "https://oss.sonatype.org/content/repositories/staging");
+        config.put("stageServerId", "oss-sonatype-staging");
+        config.put("skipTests", false);
+        config.put("useSonatype", true);
+        config.put("mavenProfiles", Arrays.asList("release", "openshift"));
+    }
+
+    @Benchmark
+    public MavenFlowArguments newModelPerCall() throws Exception {
+        return new DescribableModel<>(MavenFlowArguments.class).instantiate(config);
+    }
+
+    @Benchmark
+    public MavenFlowArguments cachedSchema() {
+        return ConfigHelper.populateBeanFromConfiguration(MavenFlowArguments.class, config);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.benchmarks;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.jenkinsci.plugins.jx.pipelines.helpers.MavenHelpers;
+import org.jenkinsci.plugins.jx.pipelines.helpers.PomCoordinates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building the full maven model of a large <code>pom.xml</code> each time, loading it via the
+ * {@link MavenHelpers} cache and the early exit scan used to find the project version.
+ * <p>
+ * Run via <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...MavenPomBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MavenPomBenchmark {
+    @Param({"50", "2000"})
+    private int dependencies;
+
+    private String pom;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(MavenPomBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        builder.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+        builder.append("  <modelVersion>4.0.0</modelVersion>\n");
+        builder.append("  <groupId>io.jenkins.x</groupId>\n");
+        builder.append("  <artifactId>benchmark</artifactId>\n");
+        builder.append("  <version>1.0.0-SNAPSHOT</version>\n");
+        builder.append("  <dependencies>\n");
+        for (int i = 0; i < dependencies; i++) {
+            builder.append("    <dependency>\n");
+            builder.append("      <groupId>org.example.group").append(i).append("</groupId>\n");
+            builder.append("      <artifactId>artifact-").append(i).append("</artifactId>\n");
+            builder.append("      <version>1.").append(i).append(".0</version>\n");
+            builder.append("    </dependency>\n");
+        }
+        builder.append("  </dependencies>\n");
+        builder.append("</project>\n");
+        pom = builder.toString();
+        MavenHelpers.clearPomCache();
+    }
+
+    @Benchmark
+    public Model fullParse() throws Exception {
+        return new MavenXpp3Reader().read(new StringReader(pom));
+    }
+
+    @Benchmark
+    public Model cachedParse() throws Exception {
+        return MavenHelpers.loadMavenPom(pom);
+    }
+
+    @Benchmark
+    public PomCoordinates earlyExitScan() throws Exception {
+        return MavenHelpers.readPomCoordinates(pom);
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.benchmarks;
+
+import io.fabric8.utils.IOHelpers;
+import org.jenkinsci.plugins.jx.pipelines.FailedBuildException;
+import org.jenkinsci.plugins.jx.pipelines.LocalShellSessionFactory;
+import org.jenkinsci.plugins.jx.pipelines.PersistentShellFacade;
+import org.jenkinsci.plugins.jx.pipelines.ShellFacade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares starting a new shell process per command, which is the cheapest possible version of what a
+ * <code>sh</code> step does, with reusing a {@link PersistentShellFacade} session.
+ * <p>
+ * Run via <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...ShellFacadeBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShellFacadeBenchmark {
+    private static final String COMMAND = "git --version >/dev/null 2>&1; echo done";
+
+    private ShellFacade perCallFacade;
+    private PersistentShellFacade persistentFacade;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(ShellFacadeBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+
+    @Setup
+    public void setUp() {
+        perCallFacade = (cmd, returnStdout, containerName) -> {
+            try {
+                Process process = new ProcessBuilder("sh", "-c", cmd).start();
+                String output = IOHelpers.readFully(process.getInputStream());
+                int exitCode = process.waitFor();
+                if (exitCode != 0) {
+                    throw new FailedBuildException("script returned exit code " + exitCode);
+                }
+                return output.trim();
+            } catch (Exception e) {
+                throw new FailedBuildException(e);
+            }
+        };
+        persistentFacade = new PersistentShellFacade(new LocalShellSessionFactory(), perCallFacade, null, Collections.emptyMap(), null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        persistentFacade.close();
+    }
+
+    @Benchmark
+    public String perCallProcess() {
+        return perCallFacade.apply(COMMAND, true, "maven");
+    }
+
+    @Benchmark
+    public String persistentSession() {
+        return persistentFacade.apply(COMMAND, true, "maven");
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.dsl;
+
+import groovy.lang.Closure;
+import org.jenkinsci.plugins.jx.pipelines.StepExtension;
+import org.jenkinsci.plugins.jx.pipelines.arguments.MavenFlowArguments;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ArgumentsBinderTest {
+
+    @Test
+    public void testBindArguments() throws Exception {
+        ArgumentsBinder<MavenFlowArguments> binder = new ArgumentsBinder<>(MavenFlowArguments.class);
+        binder.invokeMethod("cdOrganisation", new Object[]{"cheese"});
+        binder.invokeMethod("mavenProfiles", new Object[]{Arrays.asList("release", "openshift")});
+        binder.setProperty("skipTests", true);
+        binder.invokeMethod("notAnArgument", new Object[]{"ignored"});
+
+        MavenFlowArguments arguments = binder.build();
+        assertThat(arguments.getCdOrganisation()).isEqualTo("cheese");
+        assertThat(arguments.getMavenProfiles()).containsExactly("release", "openshift");
+        assertThat(arguments.isSkipTests()).isTrue();
+    }
+
+    @Test
+    public void testExtensionBlocksAreRecorded() throws Exception {
+        Closure<Object> block = new Closure<Object>(this) {
+            @Override
+            public Object call() {
+                return null;
+            }
+        };
+        ArgumentsBinder<MavenFlowArguments> binder = new ArgumentsBinder<>(MavenFlowArguments.class);
+        binder.invokeMethod("promoteArtifacts", new Object[]{block});
+
+        assertThat(binder.getExtensionFields()).containsExactly("promoteArtifactsExtension");
+        assertThat(binder.getExtensionBodies("promoteArtifactsExtension")).containsExactly(block);
+
+        StepExtension extension = binder.getExtension("promoteArtifactsExtension");
+        extension.steps("replacement promote steps");
+        assertThat(binder.getExtension("promoteArtifactsExtension")).isSameAs(extension);
+        assertThat(binder.build().getPromoteArtifactsExtension().getStepsBlock()).isEqualTo("replacement promote steps");
+    }
+
+    @Test
+    public void testWhitelistOnlyPermitsBinder() throws Exception {
+        JXPipelinesWhitelist whitelist = new JXPipelinesWhitelist();
+        ArgumentsBinder<MavenFlowArguments> binder = new ArgumentsBinder<>(MavenFlowArguments.class);
+        assertThat(whitelist.permitsMethod(ArgumentsBinder.class.getMethod("invokeMethod", String.class, Object.class), binder, new Object[0])).isTrue();
+        assertThat(whitelist.permitsMethod(Object.class.getMethod("toString"), binder, new Object[0])).isFalse();
+        assertThat(whitelist.permitsMethod(ArgumentsBinder.class.getMethod("invokeMethod", String.class, Object.class), new Object(), new Object[0])).isFalse();
+    }
+}
@@ -4,6 +4,8 @@ import org.jenkinsci.plugins.pipeline.modeldefinition.AbstractModelDefTest;
 import org.jenkinsci.plugins.pipeline.modeldefinition.Messages;
 import org.junit.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 public class JXPipelinesValidatorTest extends AbstractModelDefTest {
 
     @Test
@@ -12,4 +14,13 @@ public class JXPipelinesValidatorTest extends AbstractModelDefTest {
                 .logContains(Messages.ModelValidatorImpl_InvalidStepParameter("steveOrganisation", "cdOrganisation"))
                 .go();
     }
+
+    @Test
+    public void globalForName() throws Exception {
+        PipelineDSLGlobal global = PipelineDSLGlobal.getGlobalForName("tagImages");
+        assertThat(global).isInstanceOf(TagImagesDSL.class);
+        assertThat(PipelineDSLGlobal.getGlobalForName("tagImages")).isSameAs(global);
+        assertThat(PipelineDSLGlobal.getGlobalForName("mavenFlow")).isInstanceOf(MavenFlowDSL.class);
+        assertThat(PipelineDSLGlobal.getGlobalForName("notAGlobal")).isNull();
+    }
 }
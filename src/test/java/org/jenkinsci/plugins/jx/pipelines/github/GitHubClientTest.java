@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.github;
+
+import okhttp3.OkHttpClient;
+import org.jenkinsci.plugins.jx.pipelines.support.StubHttpServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class GitHubClientTest {
+    private static final String PULL_REQUEST = "{\"url\":\"https://api.github.com/repos/foo/bar/pulls/12\"," +
+            "\"number\":12,\"state\":\"open\",\"labels\":[{\"name\":\"number\"}]," +
+            "\"user\":{\"login\":\"someone\",\"number\":99}," +
+            "\"head\":{\"label\":\"foo:my-branch\",\"ref\":\"my-branch\",\"repo\":{\"name\":\"bar\"}}," +
+            "\"merged\":false,\"merged_by\":null}";
+
+    @Rule
+    public StubHttpServer server = new StubHttpServer();
+
+    private GitHubClient client;
+
+    @Before
+    public void init() {
+        client = new GitHubClient(new OkHttpClient(), server.getUrl(), "my-token");
+    }
+
+    @Test
+    public void testExtractsOnlyRequestedFields() throws Exception {
+        server.expect("GET", "/repos/foo/bar/pulls/12", 200, PULL_REQUEST);
+
+        GitHubResponse response = client.execute("GET", "repos/foo/bar/pulls/12", null, "number", "head.ref", "state", "merged");
+
+        assertThat(response.getResponseCode()).isEqualTo(200);
+        assertThat(response.getFields()).hasSize(4)
+                .containsEntry("number", "12")
+                .containsEntry("head.ref", "my-branch")
+                .containsEntry("state", "open")
+                .containsEntry("merged", "false");
+        assertThat(response.getBody()).isNull();
+        assertThat(server.getRequests().get(0).getHeader("Authorization")).isEqualTo("Bearer my-token");
+    }
+
+    @Test
+    public void testSendsRealPatch() throws Exception {
+        server.expect("PATCH", "/repos/foo/bar/pulls/12", 200, PULL_REQUEST);
+
+        GitHubResponse response = client.execute("PATCH", "/repos/foo/bar/pulls/12", "{\"state\":\"closed\"}", "head.ref");
+
+        assertThat(response.getField("head.ref")).isEqualTo("my-branch");
+        StubHttpServer.RecordedRequest request = server.getRequests().get(0);
+        assertThat(request.getMethod()).isEqualTo("PATCH");
+        assertThat(request.getHeader("X-HTTP-Method-Override")).isNull();
+        assertThat(request.getBody()).isEqualTo("{\"state\":\"closed\"}");
+    }
+
+    @Test
+    public void testErrorsAreReturnedNotThrown() throws Exception {
+        server.expect("PUT", "/repos/foo/bar/pulls/12/merge", 405, "{\"message\":\"Pull Request is not mergeable\"}");
+
+        GitHubResponse response = client.execute("PUT", server.getUrl() + "/repos/foo/bar/pulls/12/merge", null, "message");
+
+        assertThat(response.isSuccessful()).isFalse();
+        assertThat(response.getResponseCode()).isEqualTo(405);
+        assertThat(response.getField("message")).isEqualTo("Pull Request is not mergeable");
+    }
+
+    @Test
+    public void testServerErrorsAreTransient() throws Exception {
+        server.expect("GET", "/repos/foo/bar/pulls/12", 502, "Bad Gateway");
+        server.expect("GET", "/repos/foo/bar/pulls/13", 404, "{\"message\":\"Not Found\"}");
+
+        assertThat(client.execute("GET", "repos/foo/bar/pulls/12", null, "number").isTransientError()).isTrue();
+        assertThat(client.execute("GET", "repos/foo/bar/pulls/13", null, "number").isTransientError()).isFalse();
+    }
+
+    @Test
+    public void testReturnsRawBody() throws Exception {
+        server.expect("GET", "/repos/foo/bar/issues/12/comments", 200, "[{\"body\":\"[merge]\"}]");
+
+        GitHubResponse response = client.executeForBody("GET", "repos/foo/bar/issues/12/comments", null);
+
+        assertThat(response.getBody()).isEqualTo("[{\"body\":\"[merge]\"}]");
+    }
+
+    @Test
+    public void testConditionalRequestsUseCachedResponse() throws Exception {
+        server.expect("GET", "/repos/foo/bar/pulls/12", (exchange, request) -> {
+            if ("\"abc\"".equals(request.getHeader("If-None-Match"))) {
+                StubHttpServer.respond(exchange, 304, null);
+            } else {
+                exchange.getResponseHeaders().set("ETag", "\"abc\"");
+                StubHttpServer.respond(exchange, 200, PULL_REQUEST);
+            }
+        });
+        GitHubResponseCache cache = new GitHubResponseCache(10);
+        GitHubClient cachingClient = new GitHubClient(new OkHttpClient(), server.getUrl(), "my-token", cache);
+
+        GitHubResponse first = cachingClient.execute("GET", "repos/foo/bar/pulls/12", null, "state");
+        GitHubResponse second = cachingClient.execute("GET", "repos/foo/bar/pulls/12", null, "state");
+
+        assertThat(first.getField("state")).isEqualTo("open");
+        assertThat(second.getResponseCode()).isEqualTo(200);
+        assertThat(second.getField("state")).isEqualTo("open");
+        assertThat(server.getRequests()).hasSize(2);
+        assertThat(server.getRequests().get(0).getHeader("If-None-Match")).isNull();
+        assertThat(server.getRequests().get(1).getHeader("If-None-Match")).isEqualTo("\"abc\"");
+
+        // a different token must not see the cached response
+        GitHubClient otherClient = new GitHubClient(new OkHttpClient(), server.getUrl(), "other-token", cache);
+        otherClient.execute("GET", "repos/foo/bar/pulls/12", null, "state");
+        assertThat(server.getRequests().get(2).getHeader("If-None-Match")).isNull();
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.github;
+
+import okhttp3.OkHttpClient;
+import org.jenkinsci.plugins.jx.pipelines.support.StubHttpServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ */
+public class GitHubRateLimiterTest {
+    @Rule
+    public StubHttpServer server = new StubHttpServer();
+
+    private FakeClockRateLimiter limiter;
+    private long resetSeconds;
+
+    /**
+     * A rate limiter which records how long it would sleep rather than sleeping
+     */
+    public static class FakeClockRateLimiter extends GitHubRateLimiter {
+        private final List<Long> sleeps = new ArrayList<>();
+        private long now;
+        private boolean sleepAllowed = true;
+
+        public FakeClockRateLimiter(long now) {
+            super(5, 2);
+            this.now = now;
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        protected boolean canSleep() {
+            return sleepAllowed;
+        }
+
+        @Override
+        protected void sleep(long millis) {
+            sleeps.add(millis);
+            now += millis;
+        }
+    }
+
+    @Before
+    public void init() {
+        long now = 1500000000000L;
+        resetSeconds = now / 1000 + 60;
+        limiter = new FakeClockRateLimiter(now);
+    }
+
+    @Test
+    public void testWaitsForResetWhenQuotaExhausted() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        server.expect("PUT", "/repos/foo/bar/pulls/1/merge", (exchange, request) -> {
+            if (calls.incrementAndGet() == 1) {
+                rateLimitHeaders(exchange, 0);
+                StubHttpServer.respond(exchange, 403, "{\"message\":\"API rate limit exceeded\"}");
+            } else {
+                rateLimitHeaders(exchange, 4999);
+                StubHttpServer.respond(exchange, 200, "{\"merged\":true,\"message\":\"Pull Request successfully merged\"}");
+            }
+        });
+
+        GitHubResponse response = createClient(GitHubRateLimiter.Priority.HIGH).execute("PUT", "repos/foo/bar/pulls/1/merge", null, "message");
+
+        assertThat(response.getResponseCode()).isEqualTo(200);
+        assertThat(calls.get()).isEqualTo(2);
+        // we should sleep once until just after the reset
+        assertThat(limiter.sleeps).containsExactly(61000L);
+        assertThat(limiter.getRemaining("my-token")).isEqualTo(4999);
+    }
+
+    @Test
+    public void testLowPriorityKeepsReserveForMerges() throws Exception {
+        server.expect("GET", "/repos/foo/bar/commits/abc/status", (exchange, request) -> {
+            rateLimitHeaders(exchange, 5);
+            StubHttpServer.respond(exchange, 200, "{\"state\":\"pending\"}");
+        });
+        server.expect("PUT", "/repos/foo/bar/pulls/1/merge", (exchange, request) -> {
+            rateLimitHeaders(exchange, 4);
+            StubHttpServer.respond(exchange, 200, "{\"message\":\"merged\"}");
+        });
+
+        createClient(GitHubRateLimiter.Priority.LOW).execute("GET", "repos/foo/bar/commits/abc/status", null, "state");
+        assertThat(limiter.sleeps).isEmpty();
+
+        // the merge can use the reserve straight away
+        createClient(GitHubRateLimiter.Priority.HIGH).execute("PUT", "repos/foo/bar/pulls/1/merge", null, "message");
+        assertThat(limiter.sleeps).isEmpty();
+
+        // but the next poll has to wait for the reset
+        createClient(GitHubRateLimiter.Priority.LOW).execute("GET", "repos/foo/bar/commits/abc/status", null, "state");
+        assertThat(limiter.sleeps).containsExactly(61000L);
+    }
+
+    @Test
+    public void testRetryAfterIsHonoured() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        server.expect("GET", "/repos/foo/bar/pulls/1", (exchange, request) -> {
+            if (calls.incrementAndGet() == 1) {
+                exchange.getResponseHeaders().set("Retry-After", "30");
+                StubHttpServer.respond(exchange, 403, "{\"message\":\"You have triggered an abuse detection mechanism\"}");
+            } else {
+                StubHttpServer.respond(exchange, 200, "{\"state\":\"open\"}");
+            }
+        });
+
+        GitHubResponse response = createClient(GitHubRateLimiter.Priority.NORMAL).execute("GET", "repos/foo/bar/pulls/1", null, "state");
+
+        assertThat(response.getField("state")).isEqualTo("open");
+        assertThat(limiter.sleeps).containsExactly(30000L);
+    }
+
+    @Test
+    public void testFailsFastWhenCallerCannotSleep() throws Exception {
+        server.expect("GET", "/repos/foo/bar/commits/abc/status", (exchange, request) -> {
+            rateLimitHeaders(exchange, 5);
+            StubHttpServer.respond(exchange, 200, "{\"state\":\"pending\"}");
+        });
+        createClient(GitHubRateLimiter.Priority.LOW).execute("GET", "repos/foo/bar/commits/abc/status", null, "state");
+
+        limiter.sleepAllowed = false;
+        try {
+            createClient(GitHubRateLimiter.Priority.LOW).execute("GET", "repos/foo/bar/commits/abc/status", null, "state");
+            fail("Should have failed rather than waiting for the reset");
+        } catch (GitHubRateLimitException e) {
+            assertThat(e.getDelayMillis()).isEqualTo(61000L);
+        }
+        assertThat(limiter.sleeps).isEmpty();
+    }
+
+    @Test
+    public void testNotModifiedResponsesDoNotUseQuota() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        server.expect("GET", "/repos/foo/bar/pulls/1", (exchange, request) -> {
+            if (calls.incrementAndGet() == 1) {
+                rateLimitHeaders(exchange, 100);
+                exchange.getResponseHeaders().set("ETag", "\"abc\"");
+                StubHttpServer.respond(exchange, 200, "{\"state\":\"open\"}");
+            } else {
+                StubHttpServer.respond(exchange, 304, null);
+            }
+        });
+
+        GitHubClient client = new GitHubClient(new OkHttpClient(), server.getUrl(), "my-token", new GitHubResponseCache(10), limiter, GitHubRateLimiter.Priority.NORMAL);
+        client.execute("GET", "repos/foo/bar/pulls/1", null, "state");
+        for (int i = 0; i < 3; i++) {
+            assertThat(client.execute("GET", "repos/foo/bar/pulls/1", null, "state").getField("state")).isEqualTo("open");
+        }
+
+        assertThat(calls.get()).isEqualTo(4);
+        assertThat(limiter.getRemaining("my-token")).isEqualTo(100);
+    }
+
+    protected GitHubClient createClient(GitHubRateLimiter.Priority priority) {
+        return new GitHubClient(new OkHttpClient(), server.getUrl(), "my-token", null, limiter, priority);
+    }
+
+    protected void rateLimitHeaders(com.sun.net.httpserver.HttpExchange exchange, int remaining) {
+        exchange.getResponseHeaders().set("X-RateLimit-Limit", "5000");
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", "" + remaining);
+        exchange.getResponseHeaders().set("X-RateLimit-Reset", "" + resetSeconds);
+    }
+}
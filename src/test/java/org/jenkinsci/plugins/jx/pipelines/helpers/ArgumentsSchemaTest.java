@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import org.jenkinsci.plugins.jx.pipelines.arguments.MavenFlowArguments;
+import org.jenkinsci.plugins.jx.pipelines.arguments.StageProjectArguments;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ArgumentsSchemaTest {
+
+    @Test
+    public void testSchemaIsCreatedOncePerClass() throws Exception {
+        ArgumentsSchema<MavenFlowArguments> schema = ArgumentsSchema.of(MavenFlowArguments.class);
+        assertThat(ArgumentsSchema.of(MavenFlowArguments.class)).isSameAs(schema);
+        assertThat(ArgumentsSchema.of(StageProjectArguments.class)).isNotSameAs(schema);
+
+        assertThat(schema.getFields()).containsEntry("gitCloneUrl", String.class).containsEntry("skipTests", boolean.class);
+        assertThat(ConfigHelper.getArgumentFields(MavenFlowArguments.class)).isSameAs(schema.getFields());
+    }
+
+    @Test
+    public void testPopulateBeanFromConfiguration() throws Exception {
+        Map<String, Object> map = new HashMap<>();
+        map.put("gitCloneUrl", "https://github.com/jenkins-x/cheese.git");
+        map.put("skipTests", true);
+        map.put("mavenProfiles", Arrays.asList("release", "openshift"));
+
+        MavenFlowArguments arguments = ConfigHelper.populateBeanFromConfiguration(MavenFlowArguments.class, map);
+        assertThat(arguments.getGitCloneUrl()).isEqualTo("https://github.com/jenkins-x/cheese.git");
+        assertThat(arguments.isSkipTests()).isTrue();
+        assertThat(arguments.getMavenProfiles()).containsExactly("release", "openshift");
+
+        MavenFlowArguments other = ConfigHelper.populateBeanFromConfiguration(MavenFlowArguments.class, new HashMap<String, Object>());
+        assertThat(other).isNotSameAs(arguments);
+        assertThat(other.isSkipTests()).isFalse();
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import io.fabric8.utils.IOHelpers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class GitWorkspaceReaderTest {
+    private static final String SHA = "0123456789abcdef0123456789abcdef01234567";
+    private static final String OTHER_SHA = "fedcba9876543210fedcba9876543210fedcba98";
+    private static final String CONFIG = "[core]\n" +
+            "\tbare = false\n" +
+            "[remote \"origin\"]\n" +
+            "\turl = https://github.com/jenkinsci/jx-pipelines-plugin.git\n" +
+            "\tfetch = +refs/heads/*:refs/remotes/origin/*\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDetachedHeadUsesPackedAndLooseRemoteRefs() throws Exception {
+        File gitDir = createGitDir(folder.getRoot());
+        write(new File(gitDir, "HEAD"), SHA);
+        write(new File(gitDir, "packed-refs"), "# pack-refs with: peeled fully-peeled sorted\n" +
+                SHA + " refs/remotes/origin/feature\n" +
+                OTHER_SHA + " refs/remotes/origin/master\n" +
+                "^" + OTHER_SHA + "\n");
+        write(new File(gitDir, "refs/remotes/origin/HEAD"), "ref: refs/remotes/origin/master");
+        write(new File(gitDir, "refs/remotes/origin/release/1.x"), SHA);
+
+        File subDir = new File(folder.getRoot(), "module/src");
+        subDir.mkdirs();
+        GitWorkspaceInfo info = GitWorkspaceReader.read(subDir);
+
+        assertThat(info).isNotNull();
+        assertThat(info.isDetached()).isTrue();
+        assertThat(info.getHeadSha()).isEqualTo(SHA);
+        assertThat(info.getRemoteBranches()).containsExactly("feature", "release/1.x");
+        assertThat(info.getBranch()).isEqualTo("feature");
+        assertThat(info.getRemoteUrl()).isEqualTo("https://github.com/jenkinsci/jx-pipelines-plugin.git");
+    }
+
+    @Test
+    public void testLocalBranchAndGitDirFile() throws Exception {
+        File realGitDir = createGitDir(folder.newFolder("real"));
+        write(new File(realGitDir, "HEAD"), "ref: refs/heads/my-branch");
+        write(new File(realGitDir, "refs/heads/my-branch"), OTHER_SHA);
+
+        File workTree = folder.newFolder("worktree");
+        write(new File(workTree, ".git"), "gitdir: ../real/.git");
+
+        GitWorkspaceInfo info = GitWorkspaceReader.read(workTree);
+
+        assertThat(info).isNotNull();
+        assertThat(info.getLocalBranch()).isEqualTo("my-branch");
+        assertThat(info.getHeadSha()).isEqualTo(OTHER_SHA);
+        assertThat(info.getRemoteBranches()).isEmpty();
+        assertThat(info.getBranch()).isEqualTo("my-branch");
+    }
+
+    @Test
+    public void testReadTagsFromPackedAndLooseRefs() throws Exception {
+        File gitDir = createGitDir(folder.getRoot());
+        write(new File(gitDir, "HEAD"), "ref: refs/heads/master");
+        write(new File(gitDir, "packed-refs"), "# pack-refs with: peeled fully-peeled sorted\n" +
+                SHA + " refs/remotes/origin/master\n" +
+                SHA + " refs/tags/v1.0.0\n" +
+                "^" + OTHER_SHA + "\n" +
+                OTHER_SHA + " refs/tags/v1.1.0\n");
+        write(new File(gitDir, "refs/tags/v1.2.0-RC1"), SHA);
+        write(new File(gitDir, "refs/tags/v1.1.0"), SHA);
+
+        assertThat(GitWorkspaceReader.readTags(folder.getRoot())).containsExactlyInAnyOrder("v1.0.0", "v1.1.0", "v1.2.0-RC1");
+    }
+
+    @Test
+    public void testFindRemoteBranchesFromForEachRefOutput() throws Exception {
+        String output = SHA + "\n" +
+                SHA + " refs/remotes/origin/HEAD\n" +
+                OTHER_SHA + " refs/remotes/origin/master\n" +
+                SHA + " refs/remotes/origin/PR-12\n";
+        assertThat(GitWorkspaceReader.findRemoteBranches(output)).containsExactly("PR-12");
+    }
+
+    @Test
+    public void testFindRemoteBranchesFromLsRemoteOutput() throws Exception {
+        String output = SHA + "\n" +
+                OTHER_SHA + "\trefs/heads/master\n" +
+                SHA + "\trefs/heads/feature/foo\n";
+        assertThat(GitWorkspaceReader.findRemoteBranches(output)).containsExactly("feature/foo");
+    }
+
+    protected static File createGitDir(File dir) throws IOException {
+        File gitDir = new File(dir, ".git");
+        new File(gitDir, "refs/heads").mkdirs();
+        write(new File(gitDir, "config"), CONFIG);
+        return gitDir;
+    }
+
+    protected static void write(File file, String text) throws IOException {
+        file.getParentFile().mkdirs();
+        IOHelpers.writeFully(file, text + "\n");
+    }
+}
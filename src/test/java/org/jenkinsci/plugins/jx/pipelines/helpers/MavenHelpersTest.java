@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import org.apache.maven.model.Model;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class MavenHelpersTest {
+    private static final String POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!-- the version comes last -->\n" +
+            "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" +
+            "  <modelVersion>4.0.0</modelVersion>\n" +
+            "  <parent>\n" +
+            "    <groupId>io.jenkins.x</groupId>\n" +
+            "    <artifactId>parent</artifactId>\n" +
+            "    <version>3.0.1</version>\n" +
+            "  </parent>\n" +
+            "  <artifactId> cheese </artifactId>\n" +
+            "  <dependencies>\n" +
+            "    <dependency><groupId>junit</groupId><artifactId>junit</artifactId><version>4.12</version></dependency>\n" +
+            "  </dependencies>\n" +
+            "  <version>1.2.0-SNAPSHOT</version>\n" +
+            "</project>\n";
+
+    @Before
+    public void clearCache() {
+        MavenHelpers.clearPomCache();
+    }
+
+    @Test
+    public void testReadPomCoordinates() throws Exception {
+        PomCoordinates coordinates = MavenHelpers.readPomCoordinates(POM);
+        assertThat(coordinates.getGroupId()).isNull();
+        assertThat(coordinates.getEffectiveGroupId()).isEqualTo("io.jenkins.x");
+        assertThat(coordinates.getArtifactId()).isEqualTo("cheese");
+        assertThat(coordinates.getVersion()).isEqualTo("1.2.0-SNAPSHOT");
+        assertThat(coordinates.getParentVersion()).isEqualTo("3.0.1");
+
+        assertThat(MavenHelpers.getProjectVersion(POM)).isEqualTo(MavenHelpers.loadMavenPom(POM).getVersion());
+    }
+
+    @Test
+    public void testInheritedVersion() throws Exception {
+        String pom = POM.replace("<version>1.2.0-SNAPSHOT</version>", "");
+        assertThat(MavenHelpers.getProjectVersion(pom)).isNull();
+        assertThat(MavenHelpers.readPomCoordinates(pom).getEffectiveVersion()).isEqualTo("3.0.1");
+        assertThat(MavenHelpers.getProjectVersion("")).isNull();
+    }
+
+    @Test
+    public void testCachedModelsAreCopies() throws Exception {
+        Model first = MavenHelpers.loadMavenPom(POM);
+        first.setVersion("changed");
+
+        Model second = MavenHelpers.loadMavenPom(POM);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getVersion()).isEqualTo("1.2.0-SNAPSHOT");
+        assertThat(second.getDependencies()).hasSize(1);
+    }
+}
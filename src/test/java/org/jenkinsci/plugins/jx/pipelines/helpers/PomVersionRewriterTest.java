@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import io.fabric8.utils.IOHelpers;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ */
+public class PomVersionRewriterTest {
+    private static final String ROOT_POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!-- <version>1.0-SNAPSHOT</version> -->\n" +
+            "<project>\n" +
+            "  <groupId>io.jenkins.jx</groupId>\n" +
+            "  <artifactId>root</artifactId>\n" +
+            "  <version>1.0-SNAPSHOT</version>\n" +
+            "  <modules>\n" +
+            "    <module>module</module>\n" +
+            "  </modules>\n" +
+            "  <properties>\n" +
+            "    <fabric8.version>2.3.12</fabric8.version>\n" +
+            "    <kubernetes.version>2.3-SNAPSHOT</kubernetes.version>\n" +
+            "  </properties>\n" +
+            "  <dependencies>\n" +
+            "    <dependency><groupId>other</groupId><artifactId>other</artifactId><version>1.0-SNAPSHOT</version></dependency>\n" +
+            "  </dependencies>\n" +
+            "</project>\n";
+    private static final String MODULE_POM = "<project>\n" +
+            "  <parent>\n" +
+            "    <groupId>io.jenkins.jx</groupId>\n" +
+            "    <artifactId>root</artifactId>\n" +
+            "    <version>1.0-SNAPSHOT</version>\n" +
+            "  </parent>\n" +
+            "  <artifactId>module</artifactId>\n" +
+            "  <description title=\"a > b\"><![CDATA[<version>1.0-SNAPSHOT</version>]]></description>\n" +
+            "  <dependencies>\n" +
+            "    <dependency>\n" +
+            "      <groupId>io.jenkins.jx</groupId>\n" +
+            "      <artifactId>root</artifactId>\n" +
+            "      <version>1.0-SNAPSHOT</version>\n" +
+            "      <type>pom</type>\n" +
+            "    </dependency>\n" +
+            "  </dependencies>\n" +
+            "</project>\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void init() throws Exception {
+        root = folder.getRoot();
+        write("pom.xml", ROOT_POM);
+        write("module/pom.xml", MODULE_POM);
+        write("module/target/pom.xml", MODULE_POM);
+        write("module/src/test/resources/fixture/pom.xml", MODULE_POM);
+    }
+
+    @Test
+    public void testSetProjectVersion() throws Exception {
+        PomChangeSet changes = new PomVersionRewriter(root).setProjectVersion("1.0.1");
+
+        assertThat(changes.size()).isEqualTo(3);
+        assertThat(changes.getFiles()).containsExactly("module" + File.separator + "pom.xml", "pom.xml");
+        assertThat(read("pom.xml")).isEqualTo(ROOT_POM.replace("  <version>1.0-SNAPSHOT</version>\n  <modules>", "  <version>1.0.1</version>\n  <modules>"));
+        assertThat(read("module/pom.xml")).isEqualTo(MODULE_POM.replace("<version>1.0-SNAPSHOT</version>\n", "<version>1.0.1</version>\n"));
+        assertThat(read("module/target/pom.xml")).isEqualTo(MODULE_POM);
+        assertThat(read("module/src/test/resources/fixture/pom.xml")).isEqualTo(MODULE_POM);
+    }
+
+    @Test
+    public void testSetProjectVersionFollowsNestedModules() throws Exception {
+        write("pom.xml", ROOT_POM.replace("<module>module</module>", "<module>parent</module>"));
+        write("parent/pom.xml", MODULE_POM.replace("<artifactId>module</artifactId>", "<artifactId>parent</artifactId>\n  <modules><module>../module/pom.xml</module></modules>"));
+
+        PomChangeSet changes = new PomVersionRewriter(root).setProjectVersion("1.0.1");
+
+        assertThat(changes.getFiles()).containsExactly("module" + File.separator + "pom.xml", "parent" + File.separator + "pom.xml", "pom.xml");
+        assertThat(read("module/src/test/resources/fixture/pom.xml")).isEqualTo(MODULE_POM);
+    }
+
+    @Test
+    public void testKeepsTheEncodingOfThePom() throws Exception {
+        String pom = ROOT_POM.replace("encoding=\"UTF-8\"", "encoding=\"ISO-8859-1\"")
+                .replace("<artifactId>root</artifactId>", "<artifactId>root</artifactId>\n  <name>Caf\u00e9</name>");
+        Files.write(new File(root, "pom.xml").toPath(), pom.getBytes(StandardCharsets.ISO_8859_1));
+
+        new PomVersionRewriter(root).setProjectVersion("1.0.1");
+
+        byte[] expected = pom.replace("  <version>1.0-SNAPSHOT</version>\n  <modules>", "  <version>1.0.1</version>\n  <modules>").getBytes(StandardCharsets.ISO_8859_1);
+        assertThat(Files.readAllBytes(new File(root, "pom.xml").toPath())).isEqualTo(expected);
+    }
+
+    @Test
+    public void testGetEncoding() throws Exception {
+        assertThat(PomVersionRewriter.getEncoding("<?xml version='1.0' encoding='ISO-8859-1'?><project/>".getBytes(StandardCharsets.US_ASCII))).isEqualTo(StandardCharsets.ISO_8859_1);
+        assertThat(PomVersionRewriter.getEncoding("<?xml version=\"1.0\"?>\n<!-- encoding=\"ISO-8859-1\" --><project/>".getBytes(StandardCharsets.US_ASCII))).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(PomVersionRewriter.getEncoding("<project/>".getBytes(StandardCharsets.US_ASCII))).isEqualTo(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSetVersionProperty() throws Exception {
+        PomVersionRewriter rewriter = new PomVersionRewriter(root);
+
+        PomChangeSet changes = rewriter.setVersionProperty("<fabric8.version>", "2.4.0", false);
+        assertThat(changes.getChanges()).hasSize(1);
+        assertThat(changes.getChanges().get(0).getOldValue()).isEqualTo("2.3.12");
+        assertThat(read("pom.xml")).contains("<fabric8.version>2.4.0</fabric8.version>");
+
+        assertThat(rewriter.setVersionProperty("kubernetes.version", "2.4", false).isEmpty()).isTrue();
+        assertThat(rewriter.setVersionProperty("kubernetes.version", "2.4", true).size()).isEqualTo(1);
+        assertThat(read("pom.xml")).contains("<kubernetes.version>2.4-SNAPSHOT</kubernetes.version>");
+    }
+
+    @Test
+    public void testSetVersionPropertySkipsUnparsablePoms() throws Exception {
+        String fixture = "<project>\n  <properties>\n    <fabric8.version>2.3.12</fabric8.version>\n</project>\n";
+        write("module/src/test/resources/broken/pom.xml", fixture);
+
+        PomChangeSet changes = new PomVersionRewriter(root).setVersionProperty("fabric8.version", "2.4.0", false);
+
+        assertThat(changes.getFiles()).containsExactly("pom.xml");
+        assertThat(changes.getWarnings()).hasSize(1);
+        assertThat(changes.getWarnings().get(0)).startsWith("Skipped module" + File.separator + "src" + File.separator + "test");
+        assertThat(read("pom.xml")).contains("<fabric8.version>2.4.0</fabric8.version>");
+        assertThat(read("module/src/test/resources/broken/pom.xml")).isEqualTo(fixture);
+    }
+
+    @Test
+    public void testSetVersionPropertyFailsOnAnUnparsableRootPom() throws Exception {
+        write("pom.xml", ROOT_POM.replace("</properties>", ""));
+        try {
+            new PomVersionRewriter(root).setVersionProperty("fabric8.version", "2.4.0", false);
+            fail("Should have failed to parse the root pom");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).contains("Failed to parse");
+        }
+    }
+
+    @Test
+    public void testUnchangedFilesAreNotWritten() throws Exception {
+        File pom = new File(root, "module/pom.xml");
+        pom.setLastModified(1000L);
+
+        assertThat(new PomVersionRewriter(root).setVersionProperty("fabric8.version", "2.4.0", false).getFiles()).containsExactly("pom.xml");
+        assertThat(pom.lastModified()).isEqualTo(1000L);
+    }
+
+    protected void write(String path, String text) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        IOHelpers.writeFully(file, text);
+    }
+
+    protected String read(String path) throws IOException {
+        return IOHelpers.readFully(new File(root, path));
+    }
+}
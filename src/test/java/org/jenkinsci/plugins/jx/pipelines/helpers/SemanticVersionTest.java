@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.helpers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class SemanticVersionTest {
+
+    @Test
+    public void testParse() throws Exception {
+        SemanticVersion version = SemanticVersion.parse("v1.2.3-RC1+build.5");
+        assertThat(version.getMajor()).isEqualTo(1);
+        assertThat(version.getMinor()).isEqualTo(2);
+        assertThat(version.getPatch()).isEqualTo(3);
+        assertThat(version.getPrerelease()).isEqualTo("RC1");
+        assertThat(version.getBuild()).isEqualTo("build.5");
+
+        assertThat(SemanticVersion.parse("2.1").toString()).isEqualTo("2.1.0");
+        assertThat(SemanticVersion.parse("1.0-SNAPSHOT").toString()).isEqualTo("1.0.0-SNAPSHOT");
+        assertThat(SemanticVersion.parse("release-1.0")).isNull();
+        assertThat(SemanticVersion.parse("1.2.3.4")).isNull();
+    }
+
+    @Test
+    public void testPrereleasesSortBeforeTheRelease() throws Exception {
+        List<String> tags = Arrays.asList("v1.2.0-RC10", "v1.1.9", "v1.2.0-M2", "v1.2.0", "v1.2.0-RC9", "v1.2.0-RC1", "not-a-version");
+        assertThat(SemanticVersion.latest(tags).toString()).isEqualTo("1.2.0");
+
+        assertThat(SemanticVersion.parse("1.2.0-M2")).isLessThan(SemanticVersion.parse("1.2.0-RC1"));
+        assertThat(SemanticVersion.parse("1.2.0-RC9")).isLessThan(SemanticVersion.parse("1.2.0-RC10"));
+        assertThat(SemanticVersion.parse("1.2.0-alpha.2")).isLessThan(SemanticVersion.parse("1.2.0-alpha.10"));
+        assertThat(SemanticVersion.parse("1.2.0-1")).isLessThan(SemanticVersion.parse("1.2.0-alpha"));
+        assertThat(SemanticVersion.parse("1.10.0")).isGreaterThan(SemanticVersion.parse("1.9.0"));
+    }
+
+    @Test
+    public void testNextReleaseVersion() throws Exception {
+        assertThat(SemanticVersion.nextReleaseVersion(Collections.emptyList(), null)).isEqualTo("1.0.0");
+        assertThat(SemanticVersion.nextReleaseVersion(Collections.emptyList(), "2.3-SNAPSHOT")).isEqualTo("2.3.0");
+        assertThat(SemanticVersion.nextReleaseVersion(Arrays.asList("v1.0.0", "v1.0.9", "v1.0.10"), "1.0-SNAPSHOT")).isEqualTo("1.0.11");
+        assertThat(SemanticVersion.nextReleaseVersion(Arrays.asList("v1.0.0", "v1.1.0-RC1"), "1.0-SNAPSHOT")).isEqualTo("1.1.0");
+        assertThat(SemanticVersion.nextReleaseVersion(Arrays.asList("v1.0.5"), "2.0-SNAPSHOT")).isEqualTo("2.0.0");
+    }
+}
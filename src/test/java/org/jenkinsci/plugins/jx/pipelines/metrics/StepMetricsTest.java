@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class StepMetricsTest {
+
+    @Test
+    public void testStepTimingRecordsCallCounts() throws Exception {
+        StepMetrics.ExecutionCounters counters = new StepMetrics.ExecutionCounters();
+        counters.shellCalls.set(5);
+        counters.httpCalls.set(2);
+
+        StepTiming timing = new StepTiming("countedStep", counters);
+        counters.shellCalls.addAndGet(3);
+        counters.httpCalls.incrementAndGet();
+        timing.stop();
+        counters.shellCalls.incrementAndGet();
+        timing.stop();
+
+        assertThat(timing.getShellCalls()).isEqualTo(3);
+        assertThat(timing.getHttpCalls()).isEqualTo(1);
+        assertThat(timing.getDurationMillis()).isGreaterThanOrEqualTo(0);
+        assertThat(timing.toString()).startsWith("countedStep took ").endsWith(" with 3 shell calls and 1 HTTP requests");
+
+        MetricRegistry registry = JXPipelinesMetrics.registry();
+        assertThat(registry.timer(JXPipelinesMetrics.name("step", "countedStep", "duration")).getCount()).isEqualTo(1);
+        assertThat(registry.histogram(JXPipelinesMetrics.name("step", "countedStep", "shell-calls")).getSnapshot().getMax()).isEqualTo(3);
+        assertThat(registry.histogram(JXPipelinesMetrics.name("step", "countedStep", "http-calls")).getSnapshot().getMax()).isEqualTo(1);
+    }
+
+    @Test
+    public void testStepOutsideOfPipelineOnlyRecordsDuration() throws Exception {
+        StepTiming timing = StepMetrics.start("uncountedStep").stop();
+        assertThat(timing.getShellCalls()).isEqualTo(-1);
+        assertThat(timing.toString()).doesNotContain("shell calls");
+
+        MetricRegistry registry = JXPipelinesMetrics.registry();
+        assertThat(registry.timer(JXPipelinesMetrics.name("step", "uncountedStep", "duration")).getCount()).isEqualTo(1);
+        assertThat(registry.getHistograms()).doesNotContainKey(JXPipelinesMetrics.name("step", "uncountedStep", "shell-calls"));
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.model;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ImagePromotionReportTest {
+
+    @Test
+    public void testOnlyFailedImagesAreReported() throws Exception {
+        ImagePromotionReport report = new ImagePromotionReport();
+        report.success("foo", 1500, 2048);
+        report.failure("bar", 500, "push failed");
+        report.failure("whatnot", 500, "push failed");
+
+        assertThat(report.getFailedImages()).containsExactly("bar", "whatnot");
+
+        // a retry of a failed image which succeeds
+        report.success("bar", 1000, 1024);
+
+        assertThat(report.getFailedImages()).containsExactly("whatnot");
+        assertThat(report.hasFailures()).isTrue();
+        assertThat(report.getResults().get(1).getAttempts()).isEqualTo(2);
+        assertThat(report.getResults().get(1).getDurationMillis()).isEqualTo(1500);
+        assertThat(report.getSummary()).contains("3 images, 1 failed, 3.0 KB total image size")
+                .contains("OK after 2 attempts")
+                .contains("FAILED after 1 attempts: push failed");
+    }
+
+    @Test
+    public void testParseBytes() throws Exception {
+        assertThat(ImagePromotionReport.parseBytes("12345\n")).isEqualTo(12345L);
+        assertThat(ImagePromotionReport.parseBytes("some output\n  678 ")).isEqualTo(678L);
+        assertThat(ImagePromotionReport.parseBytes("no size")).isEqualTo(-1L);
+        assertThat(ImagePromotionReport.parseBytes(null)).isEqualTo(-1L);
+    }
+}
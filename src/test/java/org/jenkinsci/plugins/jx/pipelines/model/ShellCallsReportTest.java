@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.model;
+
+import org.jenkinsci.plugins.jx.pipelines.FailedBuildException;
+import org.jenkinsci.plugins.jx.pipelines.model.ShellCallsReport.ShellCall;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ShellCallsReportTest {
+
+    @Test
+    public void testRecordsEachCommand() throws Exception {
+        ShellCallsReport report = new ShellCallsReport();
+        report.success("git   status", "clients", 10, "h\u00e9llo");
+        report.success("sleep 1", null, 1000, null);
+
+        List<ShellCall> calls = report.getCalls();
+        assertThat(calls).hasSize(2);
+        assertThat(calls.get(0).getCommand()).isEqualTo("git status");
+        assertThat(calls.get(0).getContainerName()).isEqualTo("clients");
+        assertThat(calls.get(0).getExitStatus()).isEqualTo(0);
+        assertThat(calls.get(0).getOutputBytes()).isEqualTo(6);
+        assertThat(calls.get(1).getOutputBytes()).isEqualTo(-1);
+
+        List<ShellCall> slowest = report.getSlowestCalls(1);
+        assertThat(slowest).hasSize(1);
+        assertThat(slowest.get(0).getCommand()).isEqualTo("sleep 1");
+        assertThat(report.getSummary(10)).contains("2 shell commands").contains("container clients").contains("sleep 1");
+    }
+
+    @Test
+    public void testRecordsFailedCommand() throws Exception {
+        ShellCallsReport report = new ShellCallsReport();
+        report.failure("mvn deploy", "maven", 10, new FailedBuildException("script returned exit code 3"));
+        report.failure("mvn install", "maven", 10, new RuntimeException("interrupted"));
+
+        assertThat(report.getCalls()).hasSize(2);
+        assertThat(report.getCalls().get(0).getExitStatus()).isEqualTo(3);
+        assertThat(report.getCalls().get(1).getExitStatus()).isEqualTo(-1);
+    }
+
+    @Test
+    public void testContainerTotalsIncludeEveryCommand() throws Exception {
+        ShellCallsReport report = new ShellCallsReport();
+        for (int i = 0; i < ShellCallsReport.MAX_CALLS; i++) {
+            report.success("echo " + i, "clients", 1, null);
+        }
+        report.success("mvn deploy", "maven", 5000, null);
+        report.success("ls", null, 2, null);
+
+        assertThat(report.getCalls()).hasSize(ShellCallsReport.MAX_CALLS);
+        assertThat(report.getTotalCalls()).isEqualTo(ShellCallsReport.MAX_CALLS + 2);
+        assertThat(report.getDurationMillisByContainer()).containsEntry("clients", (long) ShellCallsReport.MAX_CALLS)
+                .containsEntry("maven", 5000L).containsEntry("-", 2L);
+        assertThat(report.getTotalDurationMillis()).isEqualTo(ShellCallsReport.MAX_CALLS + 5002L);
+    }
+}
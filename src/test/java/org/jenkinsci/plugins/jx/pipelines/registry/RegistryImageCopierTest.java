@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.registry;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okio.Buffer;
+import org.jenkinsci.plugins.jx.pipelines.support.StubRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class RegistryImageCopierTest {
+    private static final byte[] CONFIG = "{\"architecture\":\"amd64\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LAYER = "some layer content".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public StubRegistry sourceRegistry = new StubRegistry();
+    @Rule
+    public StubRegistry targetRegistry = new StubRegistry();
+
+    private RegistryImageCopier copier;
+    private byte[] manifest;
+
+    @Before
+    public void init() {
+        copier = new RegistryImageCopier(new RegistryClient(new OkHttpClient(), new RegistryCredentials(), Collections.emptyList()));
+        manifest = ("{\"schemaVersion\":2,\"mediaType\":\"" + Manifest.DOCKER_MANIFEST_V2 + "\"," +
+                "\"config\":{\"mediaType\":\"application/vnd.docker.container.image.v1+json\",\"size\":" + CONFIG.length + ",\"digest\":\"" + StubRegistry.digest(CONFIG) + "\"}," +
+                "\"layers\":[{\"mediaType\":\"application/vnd.docker.image.rootfs.diff.tar.gzip\",\"size\":" + LAYER.length + ",\"digest\":\"" + StubRegistry.digest(LAYER) + "\"}]}")
+                .getBytes(StandardCharsets.UTF_8);
+        sourceRegistry.putBlob("myorg/foo", CONFIG);
+        sourceRegistry.putBlob("myorg/foo", LAYER);
+        sourceRegistry.putManifest("myorg/foo", "1.0.0", Manifest.DOCKER_MANIFEST_V2, manifest);
+    }
+
+    @Test
+    public void testStreamsBlobsBetweenRegistries() throws Exception {
+        ImageCopyResult result = copier.copy(sourceRegistry.getHost() + "/myorg/foo:1.0.0", targetRegistry.getHost() + "/fabric8/foo:1.0.0");
+
+        assertThat(result.getBlobsCopied()).isEqualTo(2);
+        assertThat(result.getBytesTransferred()).isEqualTo(CONFIG.length + LAYER.length);
+        assertThat(result.getDigest()).isEqualTo(StubRegistry.digest(manifest));
+        assertThat(targetRegistry.getManifest("fabric8/foo", "1.0.0")).isEqualTo(manifest);
+        assertThat(targetRegistry.getBytesUploaded()).isEqualTo(CONFIG.length + LAYER.length);
+
+        // copying again only pushes the manifest
+        result = copier.copy(sourceRegistry.getHost() + "/myorg/foo:1.0.0", targetRegistry.getHost() + "/fabric8/foo:1.0.1");
+
+        assertThat(result.getBlobsExisting()).isEqualTo(2);
+        assertThat(result.getBytesTransferred()).isEqualTo(0);
+        assertThat(result.getImageBytes()).isEqualTo(CONFIG.length + LAYER.length);
+        assertThat(result.getHttpRequests()).isEqualTo(4);
+        assertThat(targetRegistry.getBytesUploaded()).isEqualTo(CONFIG.length + LAYER.length);
+        assertThat(targetRegistry.getManifest("fabric8/foo", "1.0.1")).isEqualTo(manifest);
+    }
+
+    @Test
+    public void testStreamsBlobsToARegistryUsingTokenAuthentication() throws Exception {
+        targetRegistry.enableTokenAuth();
+
+        ImageCopyResult result = copier.copy(sourceRegistry.getHost() + "/myorg/foo:1.0.0", targetRegistry.getHost() + "/fabric8/foo:1.0.0");
+
+        assertThat(result.getBlobsCopied()).isEqualTo(2);
+        assertThat(targetRegistry.getManifest("fabric8/foo", "1.0.0")).isEqualTo(manifest);
+        assertThat(targetRegistry.getRejectedUploads()).isEqualTo(0);
+    }
+
+    @Test
+    public void testAuthenticatesBeforeStreamingABlob() throws Exception {
+        targetRegistry.enableTokenAuth();
+        RegistryClient client = new RegistryClient(new OkHttpClient(), new RegistryCredentials(), Collections.emptyList());
+        HttpUrl uploadUrl = client.startUpload(targetRegistry.getHost(), "fabric8/foo", StubRegistry.digest(LAYER), null);
+        targetRegistry.expireTokens();
+
+        // a fresh client has not been challenged for the scope yet
+        client = new RegistryClient(new OkHttpClient(), new RegistryCredentials(), Collections.emptyList());
+        client.uploadBlob(targetRegistry.getHost(), "fabric8/foo", uploadUrl, StubRegistry.digest(LAYER), LAYER.length, new Buffer().write(LAYER));
+
+        assertThat(targetRegistry.hasBlob("fabric8/foo", StubRegistry.digest(LAYER))).isTrue();
+        assertThat(targetRegistry.getRejectedUploads()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMountsBlobsWithinARegistry() throws Exception {
+        ImageCopyResult result = copier.copy(sourceRegistry.getHost() + "/myorg/foo:1.0.0", sourceRegistry.getHost() + "/release/foo:1.0.0");
+
+        assertThat(result.getBlobsMounted()).isEqualTo(2);
+        assertThat(result.getBytesTransferred()).isEqualTo(0);
+        assertThat(result.getImageBytes()).isEqualTo(CONFIG.length + LAYER.length);
+        assertThat(sourceRegistry.getMounts()).isEqualTo(2);
+        assertThat(sourceRegistry.getBytesUploaded()).isEqualTo(0);
+        assertThat(sourceRegistry.hasBlob("release/foo", StubRegistry.digest(LAYER))).isTrue();
+        assertThat(sourceRegistry.getManifest("release/foo", "1.0.0")).isEqualTo(manifest);
+    }
+
+    @Test
+    public void testParseImageReference() throws Exception {
+        ImageReference reference = ImageReference.parse("fabric8/foo:1.0.0");
+        assertThat(reference.getRegistryHost()).isEqualTo("registry-1.docker.io");
+        assertThat(reference.getRepository()).isEqualTo("fabric8/foo");
+        assertThat(reference.getReference()).isEqualTo("1.0.0");
+
+        reference = ImageReference.parse("172.30.1.1:80/myorg/foo");
+        assertThat(reference.getRegistryHost()).isEqualTo("172.30.1.1:80");
+        assertThat(reference.getRepository()).isEqualTo("myorg/foo");
+        assertThat(reference.getTag()).isEqualTo("latest");
+
+        assertThat(ImageReference.parse("docker.io/nginx@sha256:1234").getRepository()).isEqualTo("library/nginx");
+    }
+}
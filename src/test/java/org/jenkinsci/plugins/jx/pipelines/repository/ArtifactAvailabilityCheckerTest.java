@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.repository;
+
+import okhttp3.OkHttpClient;
+import org.jenkinsci.plugins.jx.pipelines.support.StubHttpServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ArtifactAvailabilityCheckerTest {
+    private static final String FOO_JAR = "/io/jenkins/foo/1.0.0/foo-1.0.0.jar";
+    private static final String BAR_POM = "/io/jenkins/bar/1.0.0/bar-1.0.0.pom";
+
+    @Rule
+    public StubHttpServer server = new StubHttpServer();
+
+    private ArtifactAvailabilityChecker checker;
+
+    @Before
+    public void init() {
+        checker = new ArtifactAvailabilityChecker(new OkHttpClient(), server.getUrl() + "/", 4);
+    }
+
+    @Test
+    public void testUsesHeadRequests() throws Exception {
+        server.expect("HEAD", FOO_JAR, 200, null);
+
+        assertThat(checker.isAvailable(new ArtifactCoordinates("io.jenkins", "foo", "1.0.0", "jar"))).isTrue();
+        assertThat(checker.isAvailable(new ArtifactCoordinates("io.jenkins", "bar", "1.0.0", "pom"))).isFalse();
+        assertThat(server.getRequestCount("GET", FOO_JAR)).isEqualTo(0);
+        assertThat(server.getRequestCount("GET", BAR_POM)).isEqualTo(0);
+    }
+
+    @Test
+    public void testFallsBackToGetWhenHeadIsNotSupported() throws Exception {
+        server.expect("HEAD", FOO_JAR, 405, null);
+        server.expect("GET", FOO_JAR, 206, "x");
+
+        assertThat(checker.isAvailable(new ArtifactCoordinates("io.jenkins", "foo", "1.0.0", "jar"))).isTrue();
+        assertThat(server.getRequests().get(1).getHeader("Range")).isEqualTo("bytes=0-0");
+    }
+
+    @Test
+    public void testFindMissing() throws Exception {
+        server.expect("HEAD", FOO_JAR, 200, null);
+        server.expect("HEAD", BAR_POM, 200, null);
+
+        ArtifactCoordinates foo = ArtifactCoordinates.parse("foo", "io.jenkins", "1.0.0", "jar");
+        ArtifactCoordinates bar = ArtifactCoordinates.parse("io.jenkins:bar:pom:1.0.0", null, null, null);
+        ArtifactCoordinates other = ArtifactCoordinates.parse("io.jenkins:other:1.0.0", null, null, "jar");
+
+        List<ArtifactCoordinates> missing = checker.findMissing(Arrays.asList(foo, other, bar));
+
+        assertThat(missing).containsExactly(other);
+        assertThat(checker.findMissing(missing)).containsExactly(other);
+        assertThat(server.getRequestCount("HEAD", FOO_JAR)).isEqualTo(1);
+    }
+}
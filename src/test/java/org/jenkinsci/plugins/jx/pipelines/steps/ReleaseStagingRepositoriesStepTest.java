@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import hudson.model.Result;
+import org.jenkinsci.plugins.jx.pipelines.support.StubNexus;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ReleaseStagingRepositoriesStepTest {
+    @ClassRule
+    public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+    @Rule
+    public StubNexus nexus = new StubNexus();
+
+    @Before
+    public void init() throws Exception {
+        CredentialsProvider.lookupStores(j.jenkins).iterator().next().addCredentials(Domain.global(),
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "nexus", null, "deployer", "secret"));
+    }
+
+    @Test
+    public void testReleasesAllRepositoriesWithOneRequest() throws Exception {
+        nexus.addRepository("iojenkins-1001", false);
+        nexus.addRepository("iojenkins-1002", false);
+
+        WorkflowRun b = runPipeline();
+
+        j.assertBuildStatusSuccess(b);
+        j.assertLogContains("released [iojenkins-1001, iojenkins-1002]", b);
+        assertThat(nexus.getRequestCount("POST", "/service/local/staging/bulk/promote")).isEqualTo(1);
+        assertThat(nexus.getRequests().get(0).getHeader("Authorization")).startsWith("Basic ");
+        // the released repositories are dropped with one request once they have all been released
+        assertThat(nexus.getRequestCount("POST", "/service/local/staging/bulk/drop")).isEqualTo(1);
+        assertThat(nexus.getDropped()).containsExactly("iojenkins-1001", "iojenkins-1002");
+    }
+
+    @Test
+    public void testWaitsForTheReleaseToStart() throws Exception {
+        nexus.setStartDelay(2);
+        nexus.addRepository("iojenkins-1001", false);
+        nexus.addRepository("iojenkins-1002", false);
+
+        WorkflowRun b = runPipeline();
+
+        j.assertBuildStatusSuccess(b);
+        j.assertLogContains("released [iojenkins-1001, iojenkins-1002]", b);
+    }
+
+    @Test
+    public void testDelayedFailureIsDetectedOnceTransitioning() throws Exception {
+        nexus.setStartDelay(2);
+        nexus.addRepository("iojenkins-1001", false);
+        nexus.addRepository("iojenkins-1002", true);
+
+        WorkflowRun b = runPipeline();
+
+        j.assertBuildStatus(Result.FAILURE, b);
+        j.assertLogContains("ERROR releasing staging repositories [iojenkins-1002 closed with 1 notifications]", b);
+        assertThat(nexus.getDropped()).containsExactly("iojenkins-1002", "iojenkins-1001");
+    }
+
+    @Test
+    public void testMissingRepositoryIsNotReleased() throws Exception {
+        nexus.setStartDelay(2);
+        nexus.addRepository("iojenkins-1001", false);
+        nexus.addRepository("iojenkins-1002", false);
+        // someone else drops the repository as soon as it has been released
+        nexus.expect("GET", "/service/local/staging/repository/iojenkins-1002", 404, null);
+
+        WorkflowRun b = runPipeline();
+
+        j.assertBuildStatus(Result.FAILURE, b);
+        j.assertLogContains("iojenkins-1002 no longer exists", b);
+    }
+
+    @Test
+    public void testDropsRepositoriesWhichFailToRelease() throws Exception {
+        nexus.addRepository("iojenkins-1001", false);
+        nexus.addRepository("iojenkins-1002", true);
+
+        WorkflowRun b = runPipeline();
+
+        j.assertBuildStatus(Result.FAILURE, b);
+        j.assertLogContains("ERROR releasing staging repositories", b);
+        // the repository which was released is still cleaned up
+        assertThat(nexus.getDropped()).containsExactly("iojenkins-1002", "iojenkins-1001");
+    }
+
+    protected WorkflowRun runPipeline() throws Exception {
+        WorkflowJob p = j.jenkins.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+                "def answer = jxReleaseStagingRepositories repositoryIds: ['iojenkins-1001', 'iojenkins-1002'], nexusUrl: '" + nexus.getUrl() + "', credentialsId: 'nexus', timeoutMinutes: 1\n" +
+                "echo \"released ${answer}\"", true));
+        return j.waitForCompletion(p.scheduleBuild2(0).waitForStart());
+    }
+}
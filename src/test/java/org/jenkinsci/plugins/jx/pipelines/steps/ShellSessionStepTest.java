@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import hudson.model.Result;
+import org.jenkinsci.plugins.jx.pipelines.PersistentShellFacade;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ShellSessionStepTest {
+
+    @ClassRule
+    public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testRejectsTheSessionOfAnotherBuild() throws Exception {
+        WorkflowJob other = j.jenkins.createProject(WorkflowJob.class, "other");
+        other.setDefinition(new CpsFlowDefinition("echo 'done'", true));
+        WorkflowRun otherBuild = j.assertBuildStatusSuccess(other.scheduleBuild2(0));
+        String otherId = PersistentShellFacade.createId(otherBuild);
+
+        WorkflowJob p = j.jenkins.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+                "node {\n" +
+                "  jxShellSession sessionId: '" + otherId + "', script: 'ls'\n" +
+                "}", true));
+        WorkflowRun b = j.assertBuildStatus(Result.FAILURE, p.scheduleBuild2(0));
+
+        j.assertLogContains("Unknown shell session " + otherId, b);
+        assertThat(PersistentShellFacade.isOwnedBy(b, PersistentShellFacade.createId(b))).isTrue();
+        assertThat(PersistentShellFacade.isOwnedBy(b, otherId)).isFalse();
+        assertThat(PersistentShellFacade.isOwnedBy(b, null)).isFalse();
+    }
+
+    @Test
+    public void testOnlyOpensSessionsOnAnAgent() throws Exception {
+        WorkflowJob p = j.jenkins.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+                "node {\n" +
+                "  jxOpenShellSession()\n" +
+                "}", true));
+        WorkflowRun b = j.assertBuildStatus(Result.FAILURE, p.scheduleBuild2(0));
+
+        j.assertLogContains("can only be opened on the agent pod of the build", b);
+    }
+}
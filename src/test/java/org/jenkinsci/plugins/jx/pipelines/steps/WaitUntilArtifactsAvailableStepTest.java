@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import org.jenkinsci.plugins.jx.pipelines.support.StubHttpServer;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runners.model.Statement;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.RestartableJenkinsRule;
+
+/**
+ */
+public class WaitUntilArtifactsAvailableStepTest {
+    private static final String FOO_JAR = "/io/jenkins/foo/1.0.0/foo-1.0.0.jar";
+    private static final String BAR_JAR = "/io/jenkins/bar/1.0.0/bar-1.0.0.jar";
+
+    @ClassRule
+    public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule
+    public RestartableJenkinsRule story = new RestartableJenkinsRule();
+    @Rule
+    public StubHttpServer server = new StubHttpServer();
+
+    @Test
+    public void testKeepsWaitingAfterRestart() throws Exception {
+        story.addStep(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                WorkflowJob p = story.j.jenkins.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition(
+                        "def answer = jxWaitUntilArtifactsAvailable repositoryUrl: '" + server.getUrl() + "', artifacts: ['io.jenkins:foo:1.0.0']\n" +
+                        "echo \"found ${answer}\"", true));
+                WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+                story.j.waitForMessage("Waiting for 1 of 1 artifacts", b);
+            }
+        });
+        story.addStep(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                server.expect("HEAD", FOO_JAR, 200, null);
+
+                WorkflowRun b = story.j.jenkins.getItemByFullName("p", WorkflowJob.class).getBuildByNumber(1);
+                story.j.assertBuildStatusSuccess(story.j.waitForCompletion(b));
+                story.j.assertLogContains("found [io.jenkins:foo:jar:1.0.0]", b);
+            }
+        });
+    }
+
+    @Test
+    public void testCountsTheRequestsOfParallelChecks() throws Exception {
+        story.addStep(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                server.expect("HEAD", FOO_JAR, 200, null);
+                server.expect("HEAD", BAR_JAR, 200, null);
+
+                WorkflowJob p = story.j.jenkins.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition(
+                        "def timing = org.jenkinsci.plugins.jx.pipelines.metrics.StepMetrics.start('waitForArtifacts')\n" +
+                        "jxWaitUntilArtifactsAvailable repositoryUrl: '" + server.getUrl() + "', artifacts: ['io.jenkins:foo:1.0.0', 'io.jenkins:bar:1.0.0'], parallelism: 2\n" +
+                        "echo \"requests ${timing.stop().httpCalls}\"", true));
+                WorkflowRun b = story.j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+                story.j.assertLogContains("requests 2", b);
+            }
+        });
+    }
+}
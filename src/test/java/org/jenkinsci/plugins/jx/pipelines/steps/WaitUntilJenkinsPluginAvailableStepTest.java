@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import org.jenkinsci.plugins.jx.pipelines.support.StubHttpServer;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class WaitUntilJenkinsPluginAvailableStepTest {
+    private static final String FOO_HPI = "/plugins/foo/1.0.0/foo.hpi";
+
+    @ClassRule
+    public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+    @Rule
+    public StubHttpServer server = new StubHttpServer();
+
+    @Test
+    public void testReturnsTheUrlOfThePlugin() throws Exception {
+        server.expect("HEAD", FOO_HPI, 200, null);
+
+        WorkflowJob p = j.jenkins.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+                "def url = jxWaitUntilJenkinsPluginAvailable name: 'foo', version: '1.0.0', repo: '" + server.getUrl() + "'\n" +
+                "echo \"found ${url}\"", true));
+        WorkflowRun b = j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+
+        j.assertLogContains("found " + server.getUrl() + FOO_HPI, b);
+        assertThat(server.getRequestCount("GET", FOO_HPI)).isEqualTo(0);
+    }
+
+    @Test
+    public void testKeepsPollingUntilThePluginIsAvailable() throws Exception {
+        WorkflowJob p = j.jenkins.createProject(WorkflowJob.class, "p");
+        p.setDefinition(new CpsFlowDefinition(
+                "jxWaitUntilJenkinsPluginAvailable name: 'foo', version: '1.0.0', repo: '" + server.getUrl() + "/'", true));
+        WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("File not yet available: " + server.getUrl() + FOO_HPI, b);
+
+        server.expect("HEAD", FOO_HPI, 200, null);
+
+        j.assertBuildStatusSuccess(j.waitForCompletion(b));
+        j.assertLogContains("File is available at: " + server.getUrl() + FOO_HPI, b);
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.steps;
+
+import hudson.model.Result;
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.jx.pipelines.support.StubHttpServer;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runners.model.Statement;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.RestartableJenkinsRule;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class WaitUntilPullRequestMergedStepTest {
+    private static final String TOKEN = "s3cr3t-github-token";
+    private static final String PULL_REQUEST = "/repos/jenkinsci/foo/pulls/42";
+    private static final String STATUS = "/repos/jenkinsci/foo/commits/abc123/status";
+
+    @ClassRule
+    public static BuildWatcher buildWatcher = new BuildWatcher();
+    @Rule
+    public RestartableJenkinsRule story = new RestartableJenkinsRule();
+    @Rule
+    public StubHttpServer server = new StubHttpServer();
+
+    @Test
+    public void testDoesNotPersistTheTokenAndRereadsItAfterRestart() throws Exception {
+        story.addStep(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                server.expect("GET", PULL_REQUEST, 200, "{\"number\":42,\"state\":\"open\",\"merged\":false,\"head\":{\"ref\":\"release\",\"sha\":\"abc123\"}}");
+                server.expect("GET", STATUS, 200, "{\"state\":\"pending\"}");
+
+                WorkflowJob p = story.j.jenkins.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition(
+                        "node {\n" +
+                        "  writeFile file: 'token', text: '" + TOKEN + "'\n" +
+                        "  def answer = jxWaitUntilPullRequestMerged project: 'jenkinsci/foo', id: '42', tokenPath: 'token', apiUrl: '" + server.getUrl() + "'\n" +
+                        "  echo \"status ${answer.status} of ${answer['head.ref']}\"\n" +
+                        "}", true));
+                WorkflowRun b = p.scheduleBuild2(0).waitForStart();
+                story.j.waitForMessage("state pending", b);
+                assertThat(server.getRequests().get(0).getHeader("Authorization")).isEqualTo("Bearer " + TOKEN);
+            }
+        });
+        story.addStep(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                WorkflowRun b = story.j.jenkins.getItemByFullName("p", WorkflowJob.class).getBuildByNumber(1);
+                File programDat = new File(b.getRootDir(), "program.dat");
+                assertThat(programDat).exists();
+                assertThat(FileUtils.readFileToString(programDat, StandardCharsets.ISO_8859_1)).doesNotContain(TOKEN);
+
+                int requests = server.getRequests().size();
+                server.expect("GET", STATUS, 200, "{\"state\":\"success\"}");
+
+                story.j.assertBuildStatusSuccess(story.j.waitForCompletion(b));
+                story.j.assertLogContains("status success of release", b);
+                assertThat(server.getRequests().get(requests).getHeader("Authorization")).isEqualTo("Bearer " + TOKEN);
+            }
+        });
+    }
+
+    @Test
+    public void testFailsWithoutAToken() throws Exception {
+        story.addStep(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                WorkflowJob p = story.j.jenkins.createProject(WorkflowJob.class, "p");
+                p.setDefinition(new CpsFlowDefinition(
+                        "node {\n" +
+                        "  jxWaitUntilPullRequestMerged project: 'jenkinsci/foo', id: '42', tokenPath: 'missing', apiUrl: '" + server.getUrl() + "'\n" +
+                        "}", true));
+                WorkflowRun b = story.j.assertBuildStatus(Result.FAILURE, p.scheduleBuild2(0));
+                story.j.assertLogContains("No GitHub token found in missing", b);
+                assertThat(server.getRequests()).isEmpty();
+            }
+        });
+    }
+}
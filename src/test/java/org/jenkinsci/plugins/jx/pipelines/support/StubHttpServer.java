@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.fabric8.utils.IOHelpers;
+import org.junit.rules.ExternalResource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A local HTTP server for tests which returns canned responses for a method and path and records the requests it receives
+ */
+public class StubHttpServer extends ExternalResource {
+    private final Map<String, Handler> handlers = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final List<RecordedRequest> requests = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+
+    public interface Handler {
+        void handle(HttpExchange exchange, RecordedRequest request) throws IOException;
+    }
+
+    public static class RecordedRequest {
+        private final String method;
+        private final String path;
+        private final Map<String, List<String>> headers;
+        private final String body;
+
+        public RecordedRequest(String method, String path, Map<String, List<String>> headers, String body) {
+            this.method = method;
+            this.path = path;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + path;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getHeader(String name) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name) && !entry.getValue().isEmpty()) {
+                    return entry.getValue().get(0);
+                }
+            }
+            return null;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    @Override
+    protected void before() throws Throwable {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                String path = exchange.getRequestURI().getRawPath();
+                String query = exchange.getRequestURI().getRawQuery();
+                if (query != null) {
+                    path += "?" + query;
+                }
+                String body = IOHelpers.readFully(exchange.getRequestBody());
+                RecordedRequest request = new RecordedRequest(exchange.getRequestMethod(), path, exchange.getRequestHeaders(), body);
+                requests.add(request);
+                Handler handler = handlers.get(exchange.getRequestMethod() + " " + path);
+                if (handler == null) {
+                    handler = handlers.get(exchange.getRequestMethod() + " " + exchange.getRequestURI().getRawPath());
+                }
+                if (handler != null) {
+                    handler.handle(exchange, request);
+                } else {
+                    respond(exchange, 404, "{\"message\":\"Not Found\"}");
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @Override
+    protected void after() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Returns the base URL of the server without a trailing slash
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void expect(String method, String path, Handler handler) {
+        handlers.put(method + " " + path, handler);
+    }
+
+    public void expect(String method, String path, int status, String body) {
+        expect(method, path, (exchange, request) -> respond(exchange, status, body));
+    }
+
+    public List<RecordedRequest> getRequests() {
+        synchronized (requests) {
+            return new ArrayList<>(requests);
+        }
+    }
+
+    public int getRequestCount(String method, String path) {
+        int count = 0;
+        for (RecordedRequest request : getRequests()) {
+            if (request.getMethod().equals(method) && request.getPath().equals(path)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null || status == 204 || status == 304 || exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A stand in for the staging REST API of a Nexus 2 server.
+ * <p>
+ * A released repository reports that it is transitioning the first time it is queried then it is released, and
+ * dropped if the release request asked for that; a repository marked as failing stays closed as if a staging rule
+ * had failed. Like a real Nexus the release can be made to start a number of queries after the request via
+ * {@link #setStartDelay(int)}.
+ */
+public class StubNexus extends StubHttpServer {
+    private static final String STAGING_PATH = "/service/local/staging/";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Map<String, String> types = new ConcurrentHashMap<>();
+    private final Set<String> transitioning = Collections.synchronizedSet(new HashSet<>());
+    private final Set<String> failing = Collections.synchronizedSet(new HashSet<>());
+    private final List<String> dropped = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Integer> starting = new ConcurrentHashMap<>();
+    private volatile boolean autoDrop;
+    private volatile int startDelay;
+
+    @Override
+    protected void before() throws Throwable {
+        super.before();
+        expect("POST", STAGING_PATH + "bulk/promote", (exchange, request) -> {
+            for (String id : getIds(request)) {
+                if (!types.containsKey(id)) {
+                    respond(exchange, 400, "{\"errors\":[{\"msg\":\"No such repository " + id + "\"}]}");
+                    return;
+                }
+            }
+            autoDrop = MAPPER.readTree(request.getBody()).path("data").path("autoDropAfterRelease").asBoolean(false);
+            for (String id : getIds(request)) {
+                if (startDelay > 0) {
+                    starting.put(id, startDelay);
+                } else {
+                    startRelease(id);
+                }
+            }
+            respond(exchange, 201, null);
+        });
+        expect("POST", STAGING_PATH + "bulk/drop", (exchange, request) -> {
+            for (String id : getIds(request)) {
+                types.remove(id);
+                dropped.add(id);
+            }
+            respond(exchange, 201, null);
+        });
+    }
+
+    /**
+     * Adds a closed staging repository which will fail to release if failing is true
+     */
+    public void addRepository(String id, boolean failing) {
+        types.put(id, "closed");
+        if (failing) {
+            this.failing.add(id);
+        }
+        expect("GET", STAGING_PATH + "repository/" + id, (exchange, request) -> {
+            String type = types.get(id);
+            if (type == null) {
+                respond(exchange, 404, null);
+                return;
+            }
+            Integer remaining = starting.get(id);
+            if (remaining != null) {
+                if (remaining > 1) {
+                    starting.put(id, remaining - 1);
+                } else {
+                    starting.remove(id);
+                    startRelease(id);
+                }
+                respond(exchange, 200, "{\"repositoryId\":\"" + id + "\",\"type\":\"" + type + "\",\"transitioning\":false,\"notifications\":0}");
+                return;
+            }
+            boolean moving = transitioning.remove(id);
+            respond(exchange, 200, "{\"repositoryId\":\"" + id + "\",\"type\":\"" + type + "\",\"transitioning\":" + moving + ",\"notifications\":" + (this.failing.contains(id) ? 1 : 0) + "}");
+            if (!moving && autoDrop && "released".equals(type)) {
+                types.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Sets how many times a repository is queried after the release request before it starts transitioning
+     */
+    public void setStartDelay(int startDelay) {
+        this.startDelay = startDelay;
+    }
+
+    public List<String> getDropped() {
+        return new ArrayList<>(dropped);
+    }
+
+    private void startRelease(String id) {
+        transitioning.add(id);
+        if (!failing.contains(id)) {
+            types.put(id, "released");
+        }
+    }
+
+    private static List<String> getIds(RecordedRequest request) throws IOException {
+        List<String> answer = new ArrayList<>();
+        for (JsonNode id : MAPPER.readTree(request.getBody()).path("data").path("stagedRepositoryIds")) {
+            answer.add(id.asText());
+        }
+        return answer;
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright (C) Original Authors 2017
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jenkinsci.plugins.jx.pipelines.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.rules.ExternalResource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A local in memory docker registry for tests which implements the parts of the registry HTTP API v2 used to
+ * copy images: manifests, blob existence checks, downloads, monolithic uploads and cross repository mounts.
+ * Token authentication can be enabled via {@link #enableTokenAuth()}.
+ */
+public class StubRegistry extends ExternalResource {
+    private static final Pattern UPLOADS = Pattern.compile("/v2/(.+)/blobs/uploads/(.*)");
+    private static final Pattern RESOURCE = Pattern.compile("/v2/(.+)/(manifests|blobs)/([^/]+)");
+
+    private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> manifests = new ConcurrentHashMap<>();
+    private final Map<String, String> manifestTypes = new ConcurrentHashMap<>();
+    private final AtomicLong bytesUploaded = new AtomicLong();
+    private final AtomicInteger mounts = new AtomicInteger();
+    private final AtomicInteger rejectedUploads = new AtomicInteger();
+    private final Map<String, Set<String>> tokens = new ConcurrentHashMap<>();
+    private volatile boolean tokenAuth;
+    private HttpServer server;
+
+    @Override
+    protected void before() throws Throwable {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @Override
+    protected void after() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Returns the registry host and port
+     */
+    public String getHost() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void putBlob(String repository, byte[] data) {
+        blobs.put(repository + "@" + digest(data), data);
+    }
+
+    public void putManifest(String repository, String reference, String mediaType, byte[] data) {
+        manifests.put(repository + ":" + reference, data);
+        manifests.put(repository + ":" + digest(data), data);
+        manifestTypes.put(repository + ":" + reference, mediaType);
+        manifestTypes.put(repository + ":" + digest(data), mediaType);
+    }
+
+    public boolean hasBlob(String repository, String digest) {
+        return blobs.containsKey(repository + "@" + digest);
+    }
+
+    public byte[] getManifest(String repository, String reference) {
+        return manifests.get(repository + ":" + reference);
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded.get();
+    }
+
+    public int getMounts() {
+        return mounts.get();
+    }
+
+    /**
+     * Requires a bearer token with the repository scope for each request as returned by the <code>/token</code> realm
+     */
+    public void enableTokenAuth() {
+        tokenAuth = true;
+    }
+
+    public void expireTokens() {
+        tokens.clear();
+    }
+
+    /**
+     * Returns the number of blob uploads which were rejected as they were not authorized
+     */
+    public int getRejectedUploads() {
+        return rejectedUploads.get();
+    }
+
+    public static String digest(byte[] data) {
+        return "sha256:" + DigestUtils.sha256Hex(data);
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+
+        if (path.equals("/token")) {
+            String token = UUID.randomUUID().toString();
+            tokens.put(token, parseScopes(exchange.getRequestURI().getRawQuery()));
+            respond(exchange, 200, ("{\"token\":\"" + token + "\"}").getBytes(StandardCharsets.UTF_8), "application/json");
+            return;
+        }
+        Matcher matcher = UPLOADS.matcher(path);
+        if (!matcher.matches()) {
+            matcher = RESOURCE.matcher(path);
+        }
+        if (tokenAuth && matcher.matches()) {
+            String action = method.equals("GET") || method.equals("HEAD") ? "pull" : "push";
+            if (!isAuthorized(exchange.getRequestHeaders().getFirst("Authorization"), matcher.group(1), action)) {
+                if (method.equals("PUT") && body.length > 0) {
+                    rejectedUploads.incrementAndGet();
+                }
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer realm=\"http://" + getHost() + "/token\",service=\"stub\",scope=\"repository:"
+                        + matcher.group(1) + ":" + (action.equals("pull") ? "pull" : "pull,push") + "\"");
+                respond(exchange, 401, null, null);
+                return;
+            }
+        }
+
+        matcher = UPLOADS.matcher(path);
+        if (matcher.matches()) {
+            String repository = matcher.group(1);
+            if (method.equals("POST")) {
+                String mount = query.get("mount");
+                String from = query.get("from");
+                if (mount != null && from != null && blobs.containsKey(from + "@" + mount)) {
+                    blobs.put(repository + "@" + mount, blobs.get(from + "@" + mount));
+                    mounts.incrementAndGet();
+                    respond(exchange, 201, null, null);
+                    return;
+                }
+                exchange.getResponseHeaders().set("Location", "/v2/" + repository + "/blobs/uploads/" + UUID.randomUUID());
+                respond(exchange, 202, null, null);
+                return;
+            }
+            if (method.equals("PUT")) {
+                String digest = query.get("digest");
+                if (digest == null || !digest.equals(digest(body))) {
+                    respond(exchange, 400, null, null);
+                    return;
+                }
+                blobs.put(repository + "@" + digest, body);
+                bytesUploaded.addAndGet(body.length);
+                respond(exchange, 201, null, null);
+                return;
+            }
+        }
+        matcher = RESOURCE.matcher(path);
+        if (matcher.matches()) {
+            String repository = matcher.group(1);
+            String reference = matcher.group(3);
+            if (matcher.group(2).equals("blobs")) {
+                byte[] data = blobs.get(repository + "@" + reference);
+                if (data == null) {
+                    respond(exchange, 404, null, null);
+                } else {
+                    respond(exchange, 200, method.equals("HEAD") ? null : data, "application/octet-stream");
+                }
+                return;
+            }
+            if (method.equals("PUT")) {
+                putManifest(repository, reference, exchange.getRequestHeaders().getFirst("Content-Type"), body);
+                respond(exchange, 201, null, null);
+                return;
+            }
+            byte[] data = manifests.get(repository + ":" + reference);
+            if (data == null) {
+                respond(exchange, 404, null, null);
+            } else {
+                exchange.getResponseHeaders().set("Docker-Content-Digest", digest(data));
+                respond(exchange, 200, data, manifestTypes.get(repository + ":" + reference));
+            }
+            return;
+        }
+        respond(exchange, 404, null, null);
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] data, String contentType) throws IOException {
+        if (contentType != null) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        }
+        if (data == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, data.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data);
+        }
+    }
+
+    private boolean isAuthorized(String authorization, String repository, String action) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        Set<String> scopes = tokens.get(authorization.substring(7));
+        if (scopes == null) {
+            return false;
+        }
+        for (String scope : scopes) {
+            int idx = scope.lastIndexOf(':');
+            if (idx > 0 && scope.substring(0, idx).equals("repository:" + repository)
+                    && Arrays.asList(scope.substring(idx + 1).split(",")).contains(action)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> parseScopes(String query) throws IOException {
+        Set<String> answer = new HashSet<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith("scope=")) {
+                    answer.add(URLDecoder.decode(pair.substring(6), "UTF-8"));
+                }
+            }
+        }
+        return answer;
+    }
+
+    private static Map<String, String> parseQuery(String query) throws IOException {
+        Map<String, String> answer = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int idx = pair.indexOf('=');
+                if (idx > 0) {
+                    answer.put(URLDecoder.decode(pair.substring(0, idx), "UTF-8"), URLDecoder.decode(pair.substring(idx + 1), "UTF-8"));
+                }
+            }
+        }
+        return answer;
+    }
+}